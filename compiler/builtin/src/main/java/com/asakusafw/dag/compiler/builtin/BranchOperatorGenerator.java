@@ -62,11 +62,18 @@ public class BranchOperatorGenerator extends UserOperatorNodeGenerator {
     protected NodeInfo generate(Context context, UserOperator operator, Supplier<? extends ClassDescription> namer) {
         checkPorts(operator, i -> i == 1, i -> i >= 1);
         return new OperatorNodeInfo(
-                context.cache(CacheKey.of(operator), () -> generateClass(context, operator, namer.get())),
+                context.cache(getCacheKey(context, operator), () -> generateClass(context, operator, namer.get())),
                 operator.getInputs().get(0).getDataType(),
                 getDependencies(context, operator));
     }
 
+    private CacheKey getCacheKey(Context context, UserOperator operator) {
+        return CacheKey.builder()
+                .operator(operator)
+                .dependencies(getDependencies(context, operator))
+                .build();
+    }
+
     private List<VertexElement> getDependencies(Context context, UserOperator operator) {
         return getDefaultDependencies(context, operator);
     }
@@ -19,6 +19,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
+import com.asakusafw.dag.compiler.model.graph.VertexElement;
 import com.asakusafw.lang.compiler.model.graph.CoreOperator;
 import com.asakusafw.lang.compiler.model.graph.Operator;
 import com.asakusafw.lang.compiler.model.graph.OperatorArgument;
@@ -139,6 +140,18 @@ public final class CacheKey {
             return this;
         }
 
+        /**
+         * Adds the runtime types of the operator dependencies.
+         * This is required if the generated class refers the dependencies as their runtime types.
+         * @param dependencies the operator dependencies
+         * @return this
+         * @since 0.2.0
+         */
+        public Builder dependencies(List<? extends VertexElement> dependencies) {
+            dependencies.stream().map(VertexElement::getRuntimeType).forEachOrdered(elements::add);
+            return this;
+        }
+
         /**
          * Adds a raw value.
          * @param value the value
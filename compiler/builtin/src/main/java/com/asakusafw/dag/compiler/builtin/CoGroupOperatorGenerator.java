@@ -59,11 +59,18 @@ public class CoGroupOperatorGenerator extends UserOperatorNodeGenerator {
     static NodeInfo gen(Context context, UserOperator operator, Supplier<? extends ClassDescription> namer) {
         checkPorts(operator, i -> i >= 1, i -> i >= 1);
         return new OperatorNodeInfo(
-                context.cache(CacheKey.of(operator), () -> generateClass(context, operator, namer.get())),
+                context.cache(getCacheKey(context, operator), () -> generateClass(context, operator, namer.get())),
                 Descriptions.typeOf(CoGroupOperation.Input.class),
                 getDependencies(context, operator));
     }
 
+    private static CacheKey getCacheKey(Context context, UserOperator operator) {
+        return CacheKey.builder()
+                .operator(operator)
+                .dependencies(getDependencies(context, operator))
+                .build();
+    }
+
     private static List<VertexElement> getDependencies(Context context, UserOperator operator) {
         return getDefaultDependencies(context, operator);
     }
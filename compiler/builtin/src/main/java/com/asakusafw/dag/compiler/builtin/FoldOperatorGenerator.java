@@ -64,6 +64,7 @@ public class FoldOperatorGenerator extends UserOperatorNodeGenerator {
         CacheKey key = CacheKey.builder()
                 .operator(operator)
                 .arguments(operator) // aggregate operation embeds its arguments into combiner class
+                .dependencies(getDependencies(context, operator))
                 .build();
         ClassData adapter = context.cache(key, () -> generateClass(context, operator, namer.get()));
         return new AggregateNodeInfo(
@@ -84,6 +84,7 @@ public abstract class MasterJoinLikeOperatorGenerator extends UserOperatorNodeGe
         CacheKey key = CacheKey.builder()
             .raw(Strategy.EMPTY)
             .operator(operator)
+            .dependencies(context.getDependencies(injects))
             .build();
         return new OperatorNodeInfo(
                 context.cache(key, () -> genEmptyClass(context, operator, injects, namer.get())),
@@ -134,6 +135,7 @@ public abstract class MasterJoinLikeOperatorGenerator extends UserOperatorNodeGe
         CacheKey key = CacheKey.builder()
                 .raw(Strategy.TABLE)
                 .operator(operator)
+                .dependencies(context.getDependencies(injects))
                 .build();
         return new OperatorNodeInfo(
                 context.cache(key, () -> genTableClass(context, operator, injects, namer.get())),
@@ -175,6 +177,7 @@ public abstract class MasterJoinLikeOperatorGenerator extends UserOperatorNodeGe
         CacheKey key = CacheKey.builder()
                 .raw(Strategy.MERGE)
                 .operator(operator)
+                .dependencies(getDefaultDependencies(context, operator))
                 .build();
         return new OperatorNodeInfo(
                 context.cache(key, () -> genMergeClass(context, operator, namer.get())),
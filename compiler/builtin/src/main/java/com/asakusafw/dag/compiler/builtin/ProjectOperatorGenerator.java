@@ -65,11 +65,18 @@ public class ProjectOperatorGenerator extends CoreOperatorNodeGenerator {
         OperatorUtil.checkOperatorPorts(operator, 1, 1);
 
         return new OperatorNodeInfo(
-                context.cache(CacheKey.of(operator), () -> genClass(context, operator, namer.get())),
+                context.cache(getCacheKey(context, operator), () -> genClass(context, operator, namer.get())),
                 operator.getInputs().get(Project.ID_INPUT).getDataType(),
                 getDependencies(context, operator));
     }
 
+    private static CacheKey getCacheKey(Context context, CoreOperator operator) {
+        return CacheKey.builder()
+                .operator(operator)
+                .dependencies(getDependencies(context, operator))
+                .build();
+    }
+
     private static List<VertexElement> getDependencies(Context context, CoreOperator operator) {
         return context.getDependencies(operator.getOutputs());
     }
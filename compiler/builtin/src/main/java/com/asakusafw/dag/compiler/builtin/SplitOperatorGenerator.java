@@ -58,11 +58,18 @@ public class SplitOperatorGenerator extends UserOperatorNodeGenerator {
         checkPorts(operator, i -> i == 1, i -> i == 2);
         checkArgs(operator, i -> i == 0);
         return new OperatorNodeInfo(
-                context.cache(CacheKey.of(operator), () -> generateClass(context, operator, namer.get())),
+                context.cache(getCacheKey(context, operator), () -> generateClass(context, operator, namer.get())),
                 operator.getInputs().get(Split.ID_INPUT).getDataType(),
                 getDependencies(context, operator));
     }
 
+    private CacheKey getCacheKey(Context context, UserOperator operator) {
+        return CacheKey.builder()
+                .operator(operator)
+                .dependencies(getDependencies(context, operator))
+                .build();
+    }
+
     private List<VertexElement> getDependencies(Context context, UserOperator operator) {
         return context.getDependencies(operator.getOutputs());
     }
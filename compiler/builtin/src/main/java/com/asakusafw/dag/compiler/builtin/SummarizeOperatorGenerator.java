@@ -20,6 +20,8 @@ import static com.asakusafw.dag.compiler.codegen.AsmUtil.*;
 
 import java.lang.annotation.Annotation;
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -28,12 +30,15 @@ import java.util.function.Supplier;
 
 import org.apache.hadoop.io.Text;
 import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
 
 import com.asakusafw.dag.compiler.codegen.AsmUtil.FieldRef;
 import com.asakusafw.dag.compiler.codegen.AsmUtil.LocalVarRef;
+import com.asakusafw.dag.compiler.codegen.AsmUtil.Statement;
+import com.asakusafw.dag.compiler.codegen.AsmUtil.ValueRef;
 import com.asakusafw.dag.compiler.codegen.ObjectCopierGenerator;
 import com.asakusafw.dag.compiler.model.ClassData;
 import com.asakusafw.dag.compiler.model.graph.VertexElement;
@@ -82,6 +87,7 @@ public class SummarizeOperatorGenerator extends UserOperatorNodeGenerator {
     private static final TypeDescription INT_DESC = Descriptions.typeOf(IntOption.class);
     private static final TypeDescription LONG_DESC = Descriptions.typeOf(LongOption.class);
     private static final TypeDescription FLOAT_DESC = Descriptions.typeOf(FloatOption.class);
+    private static final TypeDescription DOUBLE_DESC = Descriptions.typeOf(DoubleOption.class);
 
     private static final Map<TypeDescription, Type> ENTITY_TYPE_MAP = Lang.let(new HashMap<>(), m -> {
         m.put(Descriptions.typeOf(BooleanOption.class), Type.BOOLEAN_TYPE);
@@ -113,6 +119,7 @@ public class SummarizeOperatorGenerator extends UserOperatorNodeGenerator {
         CacheKey key = CacheKey.builder()
                 .operator(operator)
                 .arguments(operator) // aggregate operation embeds its arguments into combiner class (always empty)
+                .dependencies(getDependencies(context, operator))
                 .build();
         ClassData adapter = context.cache(key, () -> generateClass(context, operator, namer.get()));
         return new AggregateNodeInfo(
@@ -213,6 +220,7 @@ public class SummarizeOperatorGenerator extends UserOperatorNodeGenerator {
                 () -> SummarizedModelUtil.getPropertyFoldings(context.getClassLoader(), operator));
         DataModelReference inputModel = context.getDataModelLoader().load(input.getDataType());
         DataModelReference outputModel = context.getDataModelLoader().load(output.getDataType());
+        List<Statement> statements = new ArrayList<>();
         for (PropertyFolding folding : foldings) {
             PropertyMapping mapping = folding.getMapping();
             Aggregation aggregation = folding.getAggregation();
@@ -220,8 +228,12 @@ public class SummarizeOperatorGenerator extends UserOperatorNodeGenerator {
                     inputModel.findProperty(mapping.getSourceProperty()));
             PropertyReference dst = Invariants.requireNonNull(
                     outputModel.findProperty(mapping.getDestinationProperty()));
-            mapping(method, aggregation, src, dst, inputVar, outputVar);
+            statements.add((m, args) -> mapping(m, aggregation, src, dst, args.get(0), args.get(1)));
         }
+        defineStatements(writer, target, method, "apply",
+                Arrays.asList(typeOf(input.getDataType()), typeOf(output.getDataType())),
+                Arrays.asList(inputVar, outputVar),
+                statements);
 
         outputVar.load(method);
         method.visitInsn(Opcodes.ARETURN);
@@ -234,7 +246,7 @@ public class SummarizeOperatorGenerator extends UserOperatorNodeGenerator {
             MethodVisitor method,
             Aggregation aggregation,
             PropertyReference src, PropertyReference dst,
-            LocalVarRef srcVar, LocalVarRef dstVar) {
+            ValueRef srcVar, ValueRef dstVar) {
         switch (aggregation) {
         case COUNT:
             countMapper(method, src, dst, srcVar, dstVar);
@@ -259,7 +271,7 @@ public class SummarizeOperatorGenerator extends UserOperatorNodeGenerator {
     private static void countMapper(
             MethodVisitor method,
             PropertyReference src, PropertyReference dst,
-            LocalVarRef srcVar, LocalVarRef dstVar) {
+            ValueRef srcVar, ValueRef dstVar) {
         Invariants.require(dst.getType().equals(LONG_DESC));
 
         dstVar.load(method);
@@ -275,7 +287,7 @@ public class SummarizeOperatorGenerator extends UserOperatorNodeGenerator {
     private static void simpleMapper(
             MethodVisitor method,
             PropertyReference src, PropertyReference dst,
-            LocalVarRef srcVar, LocalVarRef dstVar) {
+            ValueRef srcVar, ValueRef dstVar) {
         Invariants.require(src.getType().equals(dst.getType()));
         dstVar.load(method);
         getOption(method, dst);
@@ -287,7 +299,7 @@ public class SummarizeOperatorGenerator extends UserOperatorNodeGenerator {
     private static void sumMapper(
             MethodVisitor method,
             PropertyReference src, PropertyReference dst,
-            LocalVarRef srcVar, LocalVarRef dstVar) {
+            ValueRef srcVar, ValueRef dstVar) {
         dstVar.load(method);
         getOption(method, dst);
 
@@ -338,25 +350,97 @@ public class SummarizeOperatorGenerator extends UserOperatorNodeGenerator {
         List<PropertyFolding> foldings = Invariants.safe(
                 () -> SummarizedModelUtil.getPropertyFoldings(context.getClassLoader(), operator));
         DataModelReference outputModel = context.getDataModelLoader().load(output.getDataType());
+        List<Statement> statements = new ArrayList<>();
+        List<Accumulator> accumulators = new ArrayList<>();
+        List<Statement> accumulateStatements = new ArrayList<>();
         for (PropertyFolding folding : foldings) {
             PropertyMapping mapping = folding.getMapping();
             Aggregation aggregation = folding.getAggregation();
             PropertyReference property = Invariants.requireNonNull(
                     outputModel.findProperty(mapping.getDestinationProperty()));
-            combine(method, aggregation, property, leftVar, rightVar);
+            Statement generic = (m, args) -> combine(m, aggregation, property, args.get(0), args.get(1));
+            statements.add(generic);
+            if (Accumulator.isSupported(aggregation, property)) {
+                Accumulator accumulator = new Accumulator(writer, target, accumulators.size(), aggregation, property);
+                accumulators.add(accumulator);
+                accumulateStatements.add((m, args) -> accumulator.accumulate(m, args.get(0), args.get(1)));
+            } else {
+                accumulateStatements.add(generic);
+            }
         }
+        Type dataType = typeOf(output.getDataType());
+        defineStatements(writer, target, method, "combine",
+                Arrays.asList(dataType, dataType),
+                Arrays.asList(leftVar, rightVar),
+                statements);
 
         method.visitInsn(Opcodes.RETURN);
         method.visitMaxs(0, 0);
         method.visitEnd();
+
+        if (accumulators.isEmpty() == false) {
+            defineAccumulators(writer, target, output.getDataType(), accumulators, accumulateStatements);
+        }
         return context.addClassFile(new ClassData(target, writer::toByteArray));
     }
 
+    private static void defineAccumulators(
+            ClassWriter writer, ClassDescription target,
+            TypeDescription dataType, List<Accumulator> accumulators, List<Statement> accumulateStatements) {
+        MethodVisitor begin = writer.visitMethod(
+                Opcodes.ACC_PUBLIC,
+                "begin",
+                Type.getMethodDescriptor(Type.VOID_TYPE, typeOf(Object.class)),
+                null,
+                null);
+        LocalVarRef beginVar = cast(begin, 1, dataType);
+        List<Statement> beginStatements = Lang.project(accumulators, a -> (m, args) -> a.begin(m, args.get(0)));
+        defineStatements(writer, target, begin, "begin",
+                Arrays.asList(typeOf(dataType)),
+                Arrays.asList(beginVar),
+                beginStatements);
+        begin.visitInsn(Opcodes.RETURN);
+        begin.visitMaxs(0, 0);
+        begin.visitEnd();
+
+        MethodVisitor accumulate = writer.visitMethod(
+                Opcodes.ACC_PUBLIC,
+                "accumulate",
+                Type.getMethodDescriptor(Type.VOID_TYPE, typeOf(Object.class), typeOf(Object.class)),
+                null,
+                null);
+        LocalVarRef leftVar = cast(accumulate, 1, dataType);
+        LocalVarRef rightVar = cast(accumulate, 2, dataType);
+        defineStatements(writer, target, accumulate, "accumulate",
+                Arrays.asList(typeOf(dataType), typeOf(dataType)),
+                Arrays.asList(leftVar, rightVar),
+                accumulateStatements);
+        accumulate.visitInsn(Opcodes.RETURN);
+        accumulate.visitMaxs(0, 0);
+        accumulate.visitEnd();
+
+        MethodVisitor finish = writer.visitMethod(
+                Opcodes.ACC_PUBLIC,
+                "finish",
+                Type.getMethodDescriptor(Type.VOID_TYPE, typeOf(Object.class)),
+                null,
+                null);
+        LocalVarRef finishVar = cast(finish, 1, dataType);
+        List<Statement> finishStatements = Lang.project(accumulators, a -> (m, args) -> a.finish(m, args.get(0)));
+        defineStatements(writer, target, finish, "finish",
+                Arrays.asList(typeOf(dataType)),
+                Arrays.asList(finishVar),
+                finishStatements);
+        finish.visitInsn(Opcodes.RETURN);
+        finish.visitMaxs(0, 0);
+        finish.visitEnd();
+    }
+
     private static void combine(
             MethodVisitor method,
             Aggregation aggregation,
             PropertyReference prop,
-            LocalVarRef leftVar, LocalVarRef rightVar) {
+            ValueRef leftVar, ValueRef rightVar) {
         switch (aggregation) {
         case ANY:
             // do nothing
@@ -380,7 +464,7 @@ public class SummarizeOperatorGenerator extends UserOperatorNodeGenerator {
             MethodVisitor method,
             String targetName,
             PropertyReference prop,
-            LocalVarRef leftVar, LocalVarRef rightVar,
+            ValueRef leftVar, ValueRef rightVar,
             boolean parent) {
         leftVar.load(method);
         getOption(method, prop);
@@ -393,4 +477,158 @@ public class SummarizeOperatorGenerator extends UserOperatorNodeGenerator {
                 Type.getMethodDescriptor(Type.VOID_TYPE, declaring),
                 false);
     }
+
+    /**
+     * Accumulates a property value into a primitive field while combining a group,
+     * and writes it back into the property only when the group was finished.
+     * If either side of the property is {@code null}, this falls back to the {@link ValueOption} operations.
+     */
+    private static final class Accumulator {
+
+        private final Aggregation aggregation;
+
+        private final PropertyReference property;
+
+        private final Type entityType;
+
+        private final FieldRef value;
+
+        private final FieldRef active;
+
+        Accumulator(
+                ClassWriter writer, ClassDescription target, int index,
+                Aggregation aggregation, PropertyReference property) {
+            this.aggregation = aggregation;
+            this.property = property;
+            this.entityType = Invariants.requireNonNull(ENTITY_TYPE_MAP.get(property.getType()));
+            this.value = defineMutableField(writer, target, String.format("acc%d", index), entityType);
+            this.active = defineMutableField(writer, target, String.format("active%d", index), Type.BOOLEAN_TYPE);
+        }
+
+        static boolean isSupported(Aggregation aggregation, PropertyReference property) {
+            TypeDescription type = property.getType();
+            switch (aggregation) {
+            case SUM:
+            case COUNT:
+                return type.equals(LONG_DESC) || type.equals(DOUBLE_DESC);
+            case MAX:
+            case MIN:
+                return type.equals(INT_DESC) || type.equals(LONG_DESC);
+            default:
+                return false;
+            }
+        }
+
+        void begin(MethodVisitor method, ValueRef targetVar) {
+            method.visitVarInsn(Opcodes.ALOAD, 0);
+            targetVar.load(method);
+            getOption(method, property);
+            isNull(method);
+            getConst(method, 1);
+            method.visitInsn(Opcodes.IXOR);
+            putField(method, active);
+
+            Label end = new Label();
+            active.load(method);
+            method.visitJumpInsn(Opcodes.IFEQ, end);
+            method.visitVarInsn(Opcodes.ALOAD, 0);
+            targetVar.load(method);
+            getOption(method, property);
+            getEntity(method);
+            putField(method, value);
+            method.visitLabel(end);
+        }
+
+        void accumulate(MethodVisitor method, ValueRef leftVar, ValueRef rightVar) {
+            Label generic = new Label();
+            Label fallback = new Label();
+            Label end = new Label();
+            active.load(method);
+            method.visitJumpInsn(Opcodes.IFEQ, generic);
+            rightVar.load(method);
+            getOption(method, property);
+            isNull(method);
+            method.visitJumpInsn(Opcodes.IFNE, fallback);
+
+            method.visitVarInsn(Opcodes.ALOAD, 0);
+            value.load(method);
+            rightVar.load(method);
+            getOption(method, property);
+            getEntity(method);
+            operate(method);
+            putField(method, value);
+            method.visitJumpInsn(Opcodes.GOTO, end);
+
+            method.visitLabel(fallback);
+            flush(method, leftVar);
+            method.visitLabel(generic);
+            combine(method, aggregation, property, leftVar, rightVar);
+            method.visitLabel(end);
+        }
+
+        void finish(MethodVisitor method, ValueRef targetVar) {
+            Label end = new Label();
+            active.load(method);
+            method.visitJumpInsn(Opcodes.IFEQ, end);
+            flush(method, targetVar);
+            method.visitLabel(end);
+        }
+
+        private void flush(MethodVisitor method, ValueRef targetVar) {
+            targetVar.load(method);
+            getOption(method, property);
+            value.load(method);
+            method.visitMethodInsn(Opcodes.INVOKEVIRTUAL,
+                    typeOf(property.getType()).getInternalName(),
+                    "modify",
+                    Type.getMethodDescriptor(typeOf(property.getType()), entityType),
+                    false);
+            method.visitInsn(Opcodes.POP);
+
+            method.visitVarInsn(Opcodes.ALOAD, 0);
+            getConst(method, false);
+            putField(method, active);
+        }
+
+        private void operate(MethodVisitor method) {
+            switch (aggregation) {
+            case SUM:
+            case COUNT:
+                method.visitInsn(entityType.getOpcode(Opcodes.IADD));
+                break;
+            case MAX:
+                method.visitMethodInsn(Opcodes.INVOKESTATIC,
+                        typeOf(Math.class).getInternalName(),
+                        "max",
+                        Type.getMethodDescriptor(entityType, entityType, entityType),
+                        false);
+                break;
+            case MIN:
+                method.visitMethodInsn(Opcodes.INVOKESTATIC,
+                        typeOf(Math.class).getInternalName(),
+                        "min",
+                        Type.getMethodDescriptor(entityType, entityType, entityType),
+                        false);
+                break;
+            default:
+                throw new AssertionError(aggregation);
+            }
+        }
+
+        private void isNull(MethodVisitor method) {
+            method.visitMethodInsn(Opcodes.INVOKEVIRTUAL,
+                    typeOf(VALUE_DESC).getInternalName(),
+                    "isNull",
+                    Type.getMethodDescriptor(Type.BOOLEAN_TYPE),
+                    false);
+        }
+
+        private void getEntity(MethodVisitor method) {
+            method.visitMethodInsn(Opcodes.INVOKEVIRTUAL,
+                    typeOf(property.getType()).getInternalName(),
+                    "get",
+                    Type.getMethodDescriptor(entityType),
+                    false);
+        }
+    }
 }
@@ -261,11 +261,7 @@ final class Util {
             key.load(v);
             object.load(v);
             getOption(v, p);
-            v.visitMethodInsn(
-                    Opcodes.INVOKEINTERFACE,
-                    typeOf(KeyBuffer.class).getInternalName(), "append",
-                    Type.getMethodDescriptor(typeOf(KeyBuffer.class), typeOf(Object.class)),
-                    true);
+            appendKey(v, p);
             v.visitInsn(Opcodes.POP);
         }
 
@@ -18,16 +18,19 @@ package com.asakusafw.dag.compiler.builtin;
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.*;
 
+import java.util.Collections;
 import java.util.List;
 
 import org.junit.Test;
 
 import com.asakusafw.dag.compiler.codegen.OperatorNodeGenerator.NodeInfo;
+import com.asakusafw.dag.compiler.model.graph.OperatorNode;
 import com.asakusafw.dag.runtime.testing.MockDataModel;
 import com.asakusafw.dag.runtime.testing.MockKeyValueModel;
 import com.asakusafw.dag.runtime.testing.MockSink;
 import com.asakusafw.dag.runtime.testing.MockValueModel;
 import com.asakusafw.dag.utils.common.Lang;
+import com.asakusafw.lang.compiler.model.description.ClassDescription;
 import com.asakusafw.lang.compiler.model.description.Descriptions;
 import com.asakusafw.lang.compiler.model.graph.UserOperator;
 import com.asakusafw.lang.compiler.model.graph.UserOperator.Builder;
@@ -166,6 +169,22 @@ public class CoGroupOperatorGeneratorTest extends OperatorNodeGeneratorTestRoot
         assertThat(b, useCacheOf(a));
     }
 
+    /**
+     * cache - different dependency types.
+     */
+    @Test
+    public void cache_diff_dependency() {
+        UserOperator opA = load("simple")
+                .input("i0", Descriptions.typeOf(MockDataModel.class))
+                .output("r0", Descriptions.typeOf(MockValueModel.class))
+                .build();
+        ClassDescription successor = Descriptions.classOf(MockResult.class);
+        NodeInfo a = generate(opA);
+        NodeInfo b = generate(opA, m -> m.put(opA.getOutputs().get(0), new OperatorNode(
+                successor, successor, Descriptions.typeOf(MockValueModel.class), Collections.emptyList())));
+        assertThat(b, not(useCacheOf(a)));
+    }
+
     private Builder load(String name) {
         return OperatorExtractor.extract(CoGroup.class, Op.class, name);
     }
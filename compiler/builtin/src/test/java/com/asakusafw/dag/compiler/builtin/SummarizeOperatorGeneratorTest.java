@@ -26,6 +26,7 @@ import org.junit.Test;
 
 import com.asakusafw.dag.compiler.codegen.OperatorNodeGenerator.AggregateNodeInfo;
 import com.asakusafw.dag.compiler.codegen.OperatorNodeGenerator.NodeInfo;
+import com.asakusafw.dag.runtime.adapter.ObjectCombiner;
 import com.asakusafw.dag.runtime.adapter.ObjectCopier;
 import com.asakusafw.dag.runtime.testing.MockDataModel;
 import com.asakusafw.dag.runtime.testing.MockSink;
@@ -118,6 +119,88 @@ public class SummarizeOperatorGeneratorTest extends OperatorNodeGeneratorTestRoo
         assertThat(results.get(e -> e.getSumOption().get()), contains(new BigDecimal("60")));
     }
 
+    /**
+     * test for combiner w/ primitive accumulators.
+     */
+    @Test
+    public void combiner_primitive() {
+        UserOperator operator = loadPrimitive("primitive").build();
+        NodeInfo info = generate(operator);
+        MockSink<MockPrimitiveSummarized> results = new MockSink<>();
+        loading(info, c -> {
+            Result<Object> r = c.newInstance(results);
+            r.add(cogroup(new Object[][] {
+                {
+                    new MockPrimitiveSummarized("a", 3),
+                    new MockPrimitiveSummarized("a", 1),
+                    new MockPrimitiveSummarized("a", 5),
+                }
+            }));
+        });
+        assertThat(results.get(e -> e.getValueOption().getAsString()), contains("a"));
+        assertThat(results.get(e -> e.getCntOption().get()), contains(3L));
+        assertThat(results.get(e -> e.getMinOption().get()), contains(1));
+        assertThat(results.get(e -> e.getMaxOption().get()), contains(5));
+        assertThat(results.get(e -> e.getSumOption().get()), contains(9L));
+    }
+
+    /**
+     * primitive accumulators must be compatible with {@link ObjectCombiner#combine(Object, Object)}.
+     */
+    @Test
+    public void combiner_primitive_null() {
+        UserOperator operator = loadPrimitive("primitive").build();
+        AggregateNodeInfo info = (AggregateNodeInfo) generate(operator);
+        loading(info.getCombinerType(), c -> {
+            @SuppressWarnings("unchecked")
+            ObjectCombiner<MockPrimitiveSummarized> obj = (ObjectCombiner<MockPrimitiveSummarized>) c.newInstance();
+            Integer[][] groups = {
+                    { 1, 2, 3 },
+                    { null, 2, 3 },
+                    { 1, null, 3 },
+                    { 1, 2, null },
+                    { null, null },
+            };
+            for (Integer[] group : groups) {
+                MockPrimitiveSummarized expected = new MockPrimitiveSummarized("a", group[0]);
+                MockPrimitiveSummarized actual = new MockPrimitiveSummarized("a", group[0]);
+                obj.begin(actual);
+                for (int i = 1; i < group.length; i++) {
+                    obj.combine(expected, new MockPrimitiveSummarized("a", group[i]));
+                    obj.accumulate(actual, new MockPrimitiveSummarized("a", group[i]));
+                }
+                obj.finish(actual);
+                assertThat(actual.getCntOption(), is(expected.getCntOption()));
+                assertThat(actual.getMinOption(), is(expected.getMinOption()));
+                assertThat(actual.getMaxOption(), is(expected.getMaxOption()));
+                assertThat(actual.getSumOption(), is(expected.getSumOption()));
+            }
+        });
+    }
+
+    /**
+     * accumulating combiner w/ both primitive and generic foldings.
+     */
+    @Test
+    public void combiner_mixed() {
+        UserOperator operator = load("simple").build();
+        AggregateNodeInfo info = (AggregateNodeInfo) generate(operator);
+        loading(info.getCombinerType(), c -> {
+            @SuppressWarnings("unchecked")
+            ObjectCombiner<MockSummarized> obj = (ObjectCombiner<MockSummarized>) c.newInstance();
+            MockSummarized actual = new MockSummarized(1, "20", "B");
+            obj.begin(actual);
+            obj.accumulate(actual, new MockSummarized(1, "10", "C"));
+            obj.accumulate(actual, new MockSummarized(1, "30", "A"));
+            obj.finish(actual);
+            assertThat(actual.getKeyOption().get(), is(1));
+            assertThat(actual.getCntOption().get(), is(3L));
+            assertThat(actual.getMinOption().getAsString(), is("A"));
+            assertThat(actual.getMaxOption().getAsString(), is("C"));
+            assertThat(actual.getSumOption().get(), is(new BigDecimal("60")));
+        });
+    }
+
     /**
      * cache - identical.
      */
@@ -147,6 +230,12 @@ public class SummarizeOperatorGeneratorTest extends OperatorNodeGeneratorTestRoo
                 .output("out", Descriptions.typeOf(MockSummarized.class));
     }
 
+    private Builder loadPrimitive(String name) {
+        return OperatorExtractor.extract(Summarize.class, Op.class, name)
+                .input("in", Descriptions.typeOf(MockDataModel.class), Groups.parse(Arrays.asList("value")))
+                .output("out", Descriptions.typeOf(MockPrimitiveSummarized.class));
+    }
+
     @SuppressWarnings("javadoc")
     public static class Op {
 
@@ -159,6 +248,11 @@ public class SummarizeOperatorGeneratorTest extends OperatorNodeGeneratorTestRoo
         public MockSummarized renamed(MockDataModel in) {
             return simple(in);
         }
+
+        @Summarize
+        public MockPrimitiveSummarized primitive(MockDataModel in) {
+            throw new AssertionError();
+        }
     }
 
     @SuppressWarnings("javadoc")
@@ -238,4 +332,84 @@ public class SummarizeOperatorGeneratorTest extends OperatorNodeGeneratorTestRoo
             sumOption.copyFrom(other.sumOption);
         }
     }
+
+    @SuppressWarnings("javadoc")
+    @Summarized(term = @Term(
+            source = MockDataModel.class,
+            foldings = {
+                    @Folding(source = "value", destination = "value", aggregator = Aggregator.ANY),
+                    @Folding(source = "key", destination = "cnt", aggregator = Aggregator.COUNT),
+                    @Folding(source = "key", destination = "min", aggregator = Aggregator.MIN),
+                    @Folding(source = "key", destination = "max", aggregator = Aggregator.MAX),
+                    @Folding(source = "key", destination = "sum", aggregator = Aggregator.SUM)
+            },
+            shuffle = @Key(group = "value")
+            ))
+    public static class MockPrimitiveSummarized implements DataModel<MockPrimitiveSummarized> {
+
+        private final StringOption valueOption = new StringOption();
+
+        private final LongOption cntOption = new LongOption();
+
+        private final IntOption minOption = new IntOption();
+
+        private final IntOption maxOption = new IntOption();
+
+        private final LongOption sumOption = new LongOption();
+
+        public MockPrimitiveSummarized() {
+            return;
+        }
+
+        @SuppressWarnings("deprecation")
+        public MockPrimitiveSummarized(String value, Integer k) {
+            valueOption.modify(value);
+            cntOption.modify(1L);
+            if (k != null) {
+                minOption.modify(k);
+                maxOption.modify(k);
+                sumOption.modify(k);
+            }
+        }
+
+        public StringOption getValueOption() {
+            return valueOption;
+        }
+
+        public LongOption getCntOption() {
+            return cntOption;
+        }
+
+        public IntOption getMinOption() {
+            return minOption;
+        }
+
+        public IntOption getMaxOption() {
+            return maxOption;
+        }
+
+        public LongOption getSumOption() {
+            return sumOption;
+        }
+
+        @SuppressWarnings("deprecation")
+        @Override
+        public void reset() {
+            valueOption.setNull();
+            cntOption.setNull();
+            minOption.setNull();
+            maxOption.setNull();
+            sumOption.setNull();
+        }
+
+        @SuppressWarnings("deprecation")
+        @Override
+        public void copyFrom(MockPrimitiveSummarized other) {
+            valueOption.copyFrom(other.valueOption);
+            cntOption.copyFrom(other.cntOption);
+            minOption.copyFrom(other.minOption);
+            maxOption.copyFrom(other.maxOption);
+            sumOption.copyFrom(other.sumOption);
+        }
+    }
 }
@@ -21,8 +21,10 @@ import static org.junit.Assert.*;
 import org.junit.Test;
 
 import com.asakusafw.dag.compiler.codegen.OperatorNodeGenerator.NodeInfo;
+import com.asakusafw.dag.compiler.model.graph.OperatorNode;
 import com.asakusafw.dag.runtime.testing.MockDataModel;
 import com.asakusafw.dag.utils.common.Lang;
+import com.asakusafw.lang.compiler.model.description.ClassDescription;
 import com.asakusafw.lang.compiler.model.description.Descriptions;
 import com.asakusafw.lang.compiler.model.graph.UserOperator;
 import com.asakusafw.lang.compiler.model.graph.UserOperator.Builder;
@@ -120,6 +122,22 @@ public class UpdateOperatorGeneratorTest extends OperatorNodeGeneratorTestRoot {
         assertThat(b, useCacheOf(a));
     }
 
+    /**
+     * cache - different dependency types.
+     */
+    @Test
+    public void cache_diff_dependency() {
+        UserOperator opB = load("simple").build();
+        NodeInfo infoB = generate(opB);
+        ClassDescription classB = infoB.getClassData().getDescription();
+
+        UserOperator opA = load("renamed").build();
+        NodeInfo a = generate(opA);
+        NodeInfo b = generate(opA, m -> m.put(opA.getOutputs().get(0), new OperatorNode(
+                classB, classB, infoB.getDataType(), infoB.getDependencies())));
+        assertThat(b, not(useCacheOf(a)));
+    }
+
     private Builder load(String name) {
         return OperatorExtractor.extract(Update.class, Op.class, name)
                 .input("in", Descriptions.typeOf(MockDataModel.class))
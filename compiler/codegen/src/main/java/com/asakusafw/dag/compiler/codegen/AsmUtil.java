@@ -26,16 +26,20 @@ import java.util.stream.Stream;
 
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
 
 import com.asakusafw.dag.api.processor.VertexProcessorContext;
 import com.asakusafw.dag.compiler.model.graph.VertexElement;
+import com.asakusafw.dag.runtime.adapter.KeyBuffer;
 import com.asakusafw.dag.utils.common.Arguments;
 import com.asakusafw.dag.utils.common.Lang;
 import com.asakusafw.lang.compiler.api.reference.DataModelReference;
 import com.asakusafw.lang.compiler.api.reference.PropertyReference;
+import com.asakusafw.lang.compiler.model.PropertyName;
 import com.asakusafw.lang.compiler.model.description.ArrayTypeDescription;
 import com.asakusafw.lang.compiler.model.description.BasicTypeDescription;
 import com.asakusafw.lang.compiler.model.description.ClassDescription;
@@ -60,6 +64,14 @@ public final class AsmUtil {
      */
     public static final String CONSTRUCTOR_NAME = "<init>"; //$NON-NLS-1$
 
+    /**
+     * The threshold of generated method size in bytes.
+     * This is enough smaller than HotSpot's {@code HugeMethodLimit} (8000 bytes), which JIT compilers never accept.
+     * @see #defineStatements(ClassVisitor, ClassDescription, MethodVisitor, String, List, List, List)
+     * @since 0.2.0
+     */
+    public static final int METHOD_SIZE_THRESHOLD = 2000;
+
     private static final ClassDescription RESULT_TYPE = Descriptions.classOf(Result.class);
 
     private static final ClassDescription VALUE_OPTION_TYPE = Descriptions.classOf(ValueOption.class);
@@ -463,6 +475,35 @@ public final class AsmUtil {
                 Type.getMethodDescriptor(typeOf(property.getType())), false);
     }
 
+    /**
+     * Adds a {@code KeyBuffer.append*()} method invocation for the given property.
+     * The stack must be {@code [..., KeyBuffer, ValueOption]}, and it will be {@code [..., KeyBuffer]}.
+     * This uses a type-specific method if it is available, instead of generic {@link KeyBuffer#append(Object)}.
+     * @param method the target method
+     * @param property the target property
+     * @since 0.2.0
+     */
+    public static void appendKey(MethodVisitor method, PropertyReference property) {
+        PropertyTypeKind kind = PropertyTypeKind.fromOptionType(property.getType());
+        String name;
+        Type parameterType;
+        if (kind == PropertyTypeKind.INT) {
+            name = "appendInt"; //$NON-NLS-1$
+            parameterType = typeOf(property.getType());
+        } else if (kind == PropertyTypeKind.LONG) {
+            name = "appendLong"; //$NON-NLS-1$
+            parameterType = typeOf(property.getType());
+        } else {
+            name = "append"; //$NON-NLS-1$
+            parameterType = typeOf(Object.class);
+        }
+        method.visitMethodInsn(
+                Opcodes.INVOKEINTERFACE,
+                typeOf(KeyBuffer.class).getInternalName(), name,
+                Type.getMethodDescriptor(typeOf(KeyBuffer.class), parameterType),
+                true);
+    }
+
     /**
      * Copies a {@code ValueOption}.
      * @param method the target method
@@ -499,6 +540,99 @@ public final class AsmUtil {
                 false);
     }
 
+    /**
+     * Copies the individual properties of a {@code DataModel}.
+     * @param method the target method
+     * @param dataType the data model type
+     * @param target the copy destination
+     * @param source the copy source
+     * @param properties the properties to copy, or {@code null} to copy all properties
+     * @since 0.2.0
+     */
+    public static void copyDataModel(
+            MethodVisitor method, DataModelReference dataType,
+            ValueRef target, ValueRef source,
+            Collection<PropertyName> properties) {
+        if (properties == null) {
+            target.load(method);
+            source.load(method);
+            copyDataModel(method, dataType.getDeclaration());
+            return;
+        }
+        for (PropertyReference property : dataType.getProperties()) {
+            if (properties.contains(property.getName()) == false) {
+                continue;
+            }
+            target.load(method);
+            getOption(method, property);
+            source.load(method);
+            getOption(method, property);
+            copyOption(method, property.getType());
+        }
+    }
+
+    /**
+     * Emits a sequence of statements into the target method.
+     * If the total size of statements may exceed {@link #METHOD_SIZE_THRESHOLD}, this splits them into
+     * {@code private} helper methods, and then invokes the helpers from the target method.
+     * Each statement must not leave any values on the operand stack, and can refer only its arguments and
+     * the fields of {@code this} object. Note that, each statement may be emitted more than once.
+     * @param writer the declaring class writer
+     * @param target the declaring class
+     * @param method the target method
+     * @param helperName the helper method name prefix, which must be unique in the declaring class
+     * @param argumentTypes the argument types of the statements
+     * @param arguments the arguments of the statements in the target method
+     * @param statements the statements
+     * @since 0.2.0
+     */
+    public static void defineStatements(
+            ClassVisitor writer, ClassDescription target, MethodVisitor method, String helperName,
+            List<Type> argumentTypes, List<? extends ValueRef> arguments,
+            List<? extends Statement> statements) {
+        Arguments.require(argumentTypes.size() == arguments.size());
+        List<ValueRef> parameters = new ArrayList<>();
+        int index = 1;
+        for (Type type : argumentTypes) {
+            parameters.add(new LocalVarRef(type.getOpcode(Opcodes.ILOAD), index));
+            index += type.getSize();
+        }
+        int[] sizes = statements.stream()
+                .mapToInt(s -> {
+                    MethodSizeEstimator estimator = new MethodSizeEstimator();
+                    s.emit(estimator, parameters);
+                    return estimator.size;
+                })
+                .toArray();
+        if (Arrays.stream(sizes).sum() <= METHOD_SIZE_THRESHOLD) {
+            statements.forEach(s -> s.emit(method, arguments));
+            return;
+        }
+        String descriptor = Type.getMethodDescriptor(Type.VOID_TYPE, argumentTypes.stream().toArray(Type[]::new));
+        int chunks = 0;
+        for (int start = 0, n = statements.size(); start < n;) {
+            int end = start + 1;
+            int size = sizes[start];
+            while (end < n && size + sizes[end] <= METHOD_SIZE_THRESHOLD) {
+                size += sizes[end];
+                end++;
+            }
+            String name = String.format("%s$%d", helperName, chunks++); //$NON-NLS-1$
+            MethodVisitor helper = writer.visitMethod(Opcodes.ACC_PRIVATE, name, descriptor, null, null);
+            for (Statement statement : statements.subList(start, end)) {
+                statement.emit(helper, parameters);
+            }
+            helper.visitInsn(Opcodes.RETURN);
+            helper.visitMaxs(0, 0);
+            helper.visitEnd();
+
+            method.visitVarInsn(Opcodes.ALOAD, 0);
+            arguments.forEach(a -> a.load(method));
+            method.visitMethodInsn(Opcodes.INVOKESPECIAL, target.getInternalName(), name, descriptor, false);
+            start = end;
+        }
+    }
+
     /**
      * Adds enum constant access.
      * @param method the target method
@@ -675,6 +809,25 @@ public final class AsmUtil {
         return new FieldRef(target, name, type);
     }
 
+    /**
+     * Defines a new non-final field.
+     * @param writer the current class visitor
+     * @param target the declaring type
+     * @param name the field name
+     * @param type the field type
+     * @return the defined field ref
+     * @since 0.2.0
+     */
+    public static FieldRef defineMutableField(ClassVisitor writer, ClassDescription target, String name, Type type) {
+        writer.visitField(
+                Opcodes.ACC_PRIVATE,
+                name,
+                type.getDescriptor(),
+                null,
+                null);
+        return new FieldRef(target, name, type);
+    }
+
     /**
      * Performs {@code PUTFIELD} instruction.
      * @param method the target method
@@ -784,6 +937,22 @@ public final class AsmUtil {
         void load(MethodVisitor method);
     }
 
+    /**
+     * Represents a statement in generated methods.
+     * @since 0.2.0
+     * @see AsmUtil#defineStatements(ClassVisitor, ClassDescription, MethodVisitor, String, List, List, List)
+     */
+    @FunctionalInterface
+    public interface Statement {
+
+        /**
+         * Emits this statement.
+         * @param method the target method
+         * @param arguments the statement arguments
+         */
+        void emit(MethodVisitor method, List<? extends ValueRef> arguments);
+    }
+
     /**
      * Represents a local var.
      */
@@ -840,4 +1009,82 @@ public final class AsmUtil {
             return type;
         }
     }
+
+    /**
+     * Estimates the upper bound of method size in bytes.
+     */
+    private static final class MethodSizeEstimator extends MethodVisitor {
+
+        int size;
+
+        MethodSizeEstimator() {
+            super(Opcodes.ASM5);
+        }
+
+        @Override
+        public void visitInsn(int opcode) {
+            size += 1;
+        }
+
+        @Override
+        public void visitIntInsn(int opcode, int operand) {
+            size += 3;
+        }
+
+        @Override
+        public void visitVarInsn(int opcode, int var) {
+            size += var < 4 ? 1 : var < 256 ? 2 : 4;
+        }
+
+        @Override
+        public void visitTypeInsn(int opcode, String type) {
+            size += 3;
+        }
+
+        @Override
+        public void visitFieldInsn(int opcode, String owner, String name, String desc) {
+            size += 3;
+        }
+
+        @Override
+        public void visitMethodInsn(int opcode, String owner, String name, String desc, boolean itf) {
+            size += opcode == Opcodes.INVOKEINTERFACE ? 5 : 3;
+        }
+
+        @Override
+        public void visitInvokeDynamicInsn(String name, String desc, Handle bsm, Object... bsmArgs) {
+            size += 5;
+        }
+
+        @Override
+        public void visitJumpInsn(int opcode, Label label) {
+            // may be expanded to "IF_NOT_X +8; GOTO_W label"
+            size += 8;
+        }
+
+        @Override
+        public void visitLdcInsn(Object cst) {
+            size += 3;
+        }
+
+        @Override
+        public void visitIincInsn(int var, int increment) {
+            size += 6;
+        }
+
+        @Override
+        public void visitTableSwitchInsn(int min, int max, Label dflt, Label... labels) {
+            size += 16 + labels.length * 4;
+        }
+
+        @Override
+        public void visitLookupSwitchInsn(Label dflt, int[] keys, Label[] labels) {
+            size += 12 + keys.length * 8;
+        }
+
+        @Override
+        public void visitMultiANewArrayInsn(String desc, int dims) {
+            size += 4;
+        }
+    }
 }
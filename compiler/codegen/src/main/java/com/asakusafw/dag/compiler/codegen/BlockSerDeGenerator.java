@@ -0,0 +1,169 @@
+/**
+ * Copyright 2011-2016 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.compiler.codegen;
+
+import static com.asakusafw.dag.compiler.codegen.AsmUtil.*;
+
+import java.util.Objects;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import com.asakusafw.dag.api.common.BlockSerDe;
+import com.asakusafw.dag.compiler.codegen.AsmUtil.LocalVarRef;
+import com.asakusafw.dag.compiler.model.ClassData;
+import com.asakusafw.dag.runtime.io.ColumnarBlockSerDe;
+import com.asakusafw.lang.compiler.api.reference.DataModelReference;
+import com.asakusafw.lang.compiler.api.reference.PropertyReference;
+import com.asakusafw.lang.compiler.model.description.ClassDescription;
+import com.asakusafw.lang.compiler.model.description.TypeDescription;
+import com.asakusafw.runtime.value.ValueOption;
+
+/**
+ * Generates {@link BlockSerDe} which serializes data models in column-major order.
+ * @since 0.2.0
+ * @see ColumnarBlockSerDe
+ */
+public final class BlockSerDeGenerator {
+
+    private static final String CATEGORY = "serde"; //$NON-NLS-1$
+
+    private static final String SUFFIX = "BlockSerDe"; //$NON-NLS-1$
+
+    private BlockSerDeGenerator() {
+        return;
+    }
+
+    /**
+     * Generates {@link BlockSerDe} class.
+     * @param context the current context
+     * @param type the target data model type
+     * @return the generated class
+     */
+    public static ClassDescription get(ClassGeneratorContext context, TypeDescription type) {
+        return context.addClassFile(generate(context, type));
+    }
+
+    /**
+     * Generates {@link BlockSerDe} class.
+     * @param context the current context
+     * @param type the target data model type
+     * @return the generated class data
+     */
+    public static ClassData generate(ClassGeneratorContext context, TypeDescription type) {
+        return context.cache(new Key(type), () -> {
+            DataModelReference ref = context.getDataModelLoader().load(type);
+            ClassDescription target = context.getClassName(CATEGORY, NameUtil.getSimpleNameHint(type, SUFFIX));
+            return generate0(ref, target);
+        });
+    }
+
+    private static ClassData generate0(DataModelReference reference, ClassDescription target) {
+        ClassWriter writer = newWriter(target, ColumnarBlockSerDe.class);
+        defineEmptyConstructor(writer, v -> {
+            v.visitVarInsn(Opcodes.ALOAD, 0);
+            getInt(v, reference.getProperties().size());
+            v.visitMethodInsn(Opcodes.INVOKESPECIAL,
+                    typeOf(ColumnarBlockSerDe.class).getInternalName(),
+                    CONSTRUCTOR_NAME,
+                    Type.getMethodDescriptor(Type.VOID_TYPE, Type.INT_TYPE),
+                    false);
+        });
+        putNewObject(reference, writer);
+        putCollect(reference, writer);
+        return new ClassData(target, writer::toByteArray);
+    }
+
+    private static void putNewObject(DataModelReference reference, ClassWriter writer) {
+        MethodVisitor v = writer.visitMethod(
+                Opcodes.ACC_PROTECTED,
+                "newObject",
+                Type.getMethodDescriptor(typeOf(Object.class)),
+                null,
+                null);
+        getNew(v, reference.getDeclaration());
+        v.visitInsn(Opcodes.ARETURN);
+        v.visitMaxs(0, 0);
+        v.visitEnd();
+    }
+
+    private static void putCollect(DataModelReference reference, ClassWriter writer) {
+        MethodVisitor v = writer.visitMethod(
+                Opcodes.ACC_PROTECTED,
+                "collect",
+                Type.getMethodDescriptor(Type.VOID_TYPE,
+                        typeOf(Object.class),
+                        Type.INT_TYPE,
+                        Type.getType(ValueOption[][].class)),
+                null,
+                null);
+        LocalVarRef object = cast(v, 1, reference.getDeclaration());
+        LocalVarRef row = new LocalVarRef(Opcodes.ILOAD, 2);
+        LocalVarRef columns = new LocalVarRef(Opcodes.ALOAD, 3);
+        int index = 0;
+        for (PropertyReference property : reference.getProperties()) {
+            columns.load(v);
+            getInt(v, index++);
+            v.visitInsn(Opcodes.AALOAD);
+            row.load(v);
+            object.load(v);
+            getOption(v, property);
+            v.visitInsn(Opcodes.AASTORE);
+        }
+        v.visitInsn(Opcodes.RETURN);
+        v.visitMaxs(0, 0);
+        v.visitEnd();
+    }
+
+    private static class Key {
+
+        private final TypeDescription type;
+
+        Key(TypeDescription type) {
+            this.type = type;
+        }
+
+        @Override
+        public int hashCode() {
+            final int prime = 31;
+            int result = 1;
+            result = prime * result + Objects.hashCode(type);
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null) {
+                return false;
+            }
+            if (getClass() != obj.getClass()) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return Objects.equals(type, other.type);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("BlockSerDe(%s)", type); //$NON-NLS-1$
+        }
+    }
+}
@@ -17,9 +17,15 @@ package com.asakusafw.dag.compiler.codegen;
 
 import static com.asakusafw.dag.compiler.codegen.AsmUtil.*;
 
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 
 import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.Opcodes;
@@ -31,6 +37,8 @@ import com.asakusafw.dag.compiler.model.ClassData;
 import com.asakusafw.dag.compiler.model.graph.DataNode;
 import com.asakusafw.dag.compiler.model.graph.VertexElement;
 import com.asakusafw.dag.utils.common.Arguments;
+import com.asakusafw.lang.compiler.api.reference.DataModelReference;
+import com.asakusafw.lang.compiler.model.PropertyName;
 import com.asakusafw.lang.compiler.model.description.ClassDescription;
 import com.asakusafw.lang.compiler.model.description.Descriptions;
 import com.asakusafw.lang.compiler.model.description.ReifiableTypeDescription;
@@ -62,7 +70,42 @@ public final class BufferOperatorGenerator {
      * @since 0.2.0
      */
     public static ClassDescription get(ClassGeneratorContext context, List<? extends VertexElement> successors) {
-        return context.addClassFile(generate(context, successors));
+        return get(context, successors, null);
+    }
+
+    /**
+     * Generates buffer operator class which only copies the live properties for the successors.
+     * @param context the current context
+     * @param successors the successors
+     * @param properties the properties which are read in the successors, or {@code null} to copy all properties
+     * @return the generated class
+     * @since 0.2.0
+     */
+    public static ClassDescription get(
+            ClassGeneratorContext context,
+            List<? extends VertexElement> successors,
+            Collection<PropertyName> properties) {
+        return context.addClassFile(generate(context, successors, properties));
+    }
+
+    /**
+     * Generates buffer operator class which only copies objects for the successors which may modify them.
+     * The successors which never modify the objects will receive the original object, and they may be invoked
+     * before the other successors. Additionally, the last successor which may modify the objects also receives
+     * the original object.
+     * @param context the current context
+     * @param successors the successors
+     * @param properties the properties which are read in the successors, or {@code null} to copy all properties
+     * @param readOnly the successors which never modify the received objects
+     * @return the generated class
+     * @since 0.2.0
+     */
+    public static ClassDescription get(
+            ClassGeneratorContext context,
+            List<? extends VertexElement> successors,
+            Collection<PropertyName> properties,
+            Collection<? extends VertexElement> readOnly) {
+        return context.addClassFile(generate(context, successors, properties, readOnly));
     }
 
     /**
@@ -73,35 +116,109 @@ public final class BufferOperatorGenerator {
      * @since 0.2.0
      */
     public static ClassData generate(ClassGeneratorContext context, List<? extends VertexElement> successors) {
+        return generate(context, successors, null);
+    }
+
+    /**
+     * Generates buffer operator class which only copies the live properties for the successors.
+     * @param context the current context
+     * @param successors the successors
+     * @param properties the properties which are read in the successors, or {@code null} to copy all properties
+     * @return the generated class data
+     * @since 0.2.0
+     */
+    public static ClassData generate(
+            ClassGeneratorContext context,
+            List<? extends VertexElement> successors,
+            Collection<PropertyName> properties) {
+        return generate(context, successors, properties, Collections.emptySet());
+    }
+
+    /**
+     * Generates buffer operator class which only copies objects for the successors which may modify them.
+     * The successors which never modify the objects will receive the original object, and they may be invoked
+     * before the other successors. Additionally, the last successor which may modify the objects also receives
+     * the original object.
+     * @param context the current context
+     * @param successors the successors
+     * @param properties the properties which are read in the successors, or {@code null} to copy all properties
+     * @param readOnly the successors which never modify the received objects
+     * @return the generated class data
+     * @since 0.2.0
+     */
+    public static ClassData generate(
+            ClassGeneratorContext context,
+            List<? extends VertexElement> successors,
+            Collection<PropertyName> properties,
+            Collection<? extends VertexElement> readOnly) {
         TypeDescription type = getDataType(successors);
-        return context.cache(new Key(type, successors.size()), () -> {
-            return generate0(successors, context.getClassName(CATEGORY, NameUtil.getSimpleNameHint(type, SUFFIX)));
+        Set<PropertyName> live = properties == null ? null : new LinkedHashSet<>(properties);
+        BitSet immutables = new BitSet();
+        for (int i = 0, n = successors.size(); i < n; i++) {
+            if (readOnly.contains(successors.get(i))) {
+                immutables.set(i);
+            }
+        }
+        return context.cache(new Key(type, successors.size(), live, immutables), () -> {
+            DataModelReference reference = live == null ? null : context.getDataModelLoader().load(type);
+            return generate0(successors, reference, live, immutables,
+                    context.getClassName(CATEGORY, NameUtil.getSimpleNameHint(type, SUFFIX)));
         });
     }
 
-    private static ClassData generate0(List<? extends VertexElement> successors, ClassDescription target) {
+    private static ClassData generate0(
+            List<? extends VertexElement> successors,
+            DataModelReference reference, Set<PropertyName> properties,
+            BitSet immutables,
+            ClassDescription target) {
         Arguments.require(successors.size() >= 2);
         TypeDescription dataType = getDataType(successors);
+
+        // read-only successors first, and then the others
+        List<VertexElement> order = new ArrayList<>();
+        List<VertexElement> mutables = new ArrayList<>();
+        for (int i = 0, n = successors.size(); i < n; i++) {
+            if (immutables.get(i)) {
+                order.add(successors.get(i));
+            } else {
+                mutables.add(successors.get(i));
+            }
+        }
+        order.addAll(mutables);
+        int copies = Math.max(mutables.size() - 1, 0);
+
         ClassWriter writer = newWriter(target, Object.class, Result.class);
-        FieldRef buffer = defineField(writer, target, "buffer", typeOf(dataType));
+        FieldRef buffer = copies == 0 ? null : defineField(writer, target, "buffer", typeOf(dataType));
         Map<VertexElement, FieldRef> deps = defineDependenciesConstructor(target, writer, successors, v -> {
-            v.visitVarInsn(Opcodes.ALOAD, 0);
-            getNew(v, dataType);
-            putField(v, buffer);
+            if (buffer != null) {
+                v.visitVarInsn(Opcodes.ALOAD, 0);
+                getNew(v, dataType);
+                putField(v, buffer);
+            }
         });
         defineResultAdd(writer, method -> {
             LocalVarRef self = new LocalVarRef(Opcodes.ALOAD, 0);
             LocalVarRef input = cast(method, 1, dataType);
-            self.load(method);
-            getField(method, buffer);
-            LocalVarRef buf = putLocalVar(method, Type.OBJECT, 2);
-            for (int i = 0, n = successors.size(); i < n; i++) {
+            LocalVarRef buf = null;
+            if (buffer != null) {
                 self.load(method);
-                getField(method, deps.get(successors.get(i)));
-                if (i < n - 1) {
-                    buf.load(method);
-                    input.load(method);
-                    copyDataModel(method, dataType);
+                getField(method, buffer);
+                buf = putLocalVar(method, Type.OBJECT, 2);
+            }
+            for (int i = 0, n = order.size(); i < n; i++) {
+                boolean copy = i >= n - mutables.size() && i < n - 1;
+                if (copy) {
+                    if (reference == null) {
+                        buf.load(method);
+                        input.load(method);
+                        copyDataModel(method, dataType);
+                    } else {
+                        copyDataModel(method, reference, buf, input, properties);
+                    }
+                }
+                self.load(method);
+                getField(method, deps.get(order.get(i)));
+                if (copy) {
                     buf.load(method);
                 } else {
                     input.load(method);
@@ -135,9 +252,15 @@ public final class BufferOperatorGenerator {
 
         private final int count;
 
-        Key(TypeDescription type, int count) {
+        private final Set<PropertyName> properties;
+
+        private final BitSet immutables;
+
+        Key(TypeDescription type, int count, Set<PropertyName> properties, BitSet immutables) {
             this.type = type;
             this.count = count;
+            this.properties = properties == null ? null : Collections.unmodifiableSet(properties);
+            this.immutables = (BitSet) immutables.clone();
         }
 
         @Override
@@ -146,6 +269,8 @@ public final class BufferOperatorGenerator {
             int result = 1;
             result = prime * result + Objects.hashCode(type);
             result = prime * result + count;
+            result = prime * result + Objects.hashCode(properties);
+            result = prime * result + immutables.hashCode();
             return result;
         }
 
@@ -167,12 +292,27 @@ public final class BufferOperatorGenerator {
             if (count != other.count) {
                 return false;
             }
+            if (!Objects.equals(properties, other.properties)) {
+                return false;
+            }
+            if (!immutables.equals(other.immutables)) {
+                return false;
+            }
             return true;
         }
 
         @Override
         public String toString() {
-            return String.format("Buffer(%s*%,d)", type, count); //$NON-NLS-1$
+            StringBuilder buf = new StringBuilder();
+            buf.append(String.format("Buffer(%s*%,d", type, count)); //$NON-NLS-1$
+            if (properties != null) {
+                buf.append(String.format(", properties=%s", properties)); //$NON-NLS-1$
+            }
+            if (immutables.isEmpty() == false) {
+                buf.append(String.format(", readOnly=%s", immutables)); //$NON-NLS-1$
+            }
+            buf.append(')');
+            return buf.toString();
         }
     }
 }
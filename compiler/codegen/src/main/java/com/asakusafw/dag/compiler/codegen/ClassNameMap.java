@@ -15,19 +15,26 @@
  */
 package com.asakusafw.dag.compiler.codegen;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 
 import com.asakusafw.dag.utils.common.Arguments;
 import com.asakusafw.dag.utils.common.Invariants;
 import com.asakusafw.dag.utils.common.Optionals;
-import com.asakusafw.dag.utils.common.Tuple;
 import com.asakusafw.lang.compiler.model.description.ClassDescription;
 
 /**
  * A basic implementation of class name providers.
+ * This is thread-safe.
+ * <p>
+ * The generated class names depend on the order of requests. For reproducible names under concurrent class
+ * generation, each thread should use its own <em>scope</em> via {@link #get(String, String, String)}:
+ * class names in different scopes never conflict, and they only depend on the order of requests in each scope.
+ * </p>
  * @since 0.2.0
  */
 public class ClassNameMap {
@@ -38,7 +45,7 @@ public class ClassNameMap {
 
     private final String prefix;
 
-    private final Map<Tuple<String, String>, AtomicInteger> counters = new HashMap<>();
+    private final ConcurrentMap<List<String>, AtomicInteger> counters = new ConcurrentHashMap<>();
 
     /**
      * Creates a new instance.
@@ -56,6 +63,18 @@ public class ClassNameMap {
      * @return the class name
      */
     public ClassDescription get(String category, String hint) {
+        return get(null, category, hint);
+    }
+
+    /**
+     * Returns a unique class name in the target scope.
+     * @param scope the scope name (must be alphanumeric), or {@code null} to use the default scope
+     * @param category the category name
+     * @param hint an optional class name hint
+     * @return the class name
+     */
+    public ClassDescription get(String scope, String category, String hint) {
+        Arguments.require(scope == null || PATTERN_HINT.matcher(scope).matches(), () -> scope);
         String subpackage = Optionals.of(category)
                 .filter(s -> PATTERN_CATEGORY.matcher(s).matches())
                 .orElse("_"); //$NON-NLS-1$
@@ -63,13 +82,16 @@ public class ClassNameMap {
                 .filter(s -> PATTERN_HINT.matcher(s).matches())
                 .orElse(""); //$NON-NLS-1$
         int count = counters
-                .computeIfAbsent(new Tuple<>(subpackage, simpleNamePrefix), k -> new AtomicInteger())
+                .computeIfAbsent(Arrays.asList(scope, subpackage, simpleNamePrefix), k -> new AtomicInteger())
                 .getAndIncrement();
-        return new ClassDescription(toClassName(subpackage, simpleNamePrefix, count));
+        return new ClassDescription(toClassName(scope, subpackage, simpleNamePrefix, count));
     }
 
-    private String toClassName(String category, String simpleNamePrefix, int count) {
+    private String toClassName(String scope, String category, String simpleNamePrefix, int count) {
         Invariants.require(count >= 0);
-        return String.format("%s%s.%s_%d", prefix, category, simpleNamePrefix, count); //$NON-NLS-1$
+        if (scope == null) {
+            return String.format("%s%s.%s_%d", prefix, category, simpleNamePrefix, count); //$NON-NLS-1$
+        }
+        return String.format("%s%s.%s_%s_%d", prefix, category, simpleNamePrefix, scope, count); //$NON-NLS-1$
     }
 }
@@ -17,18 +17,26 @@ package com.asakusafw.dag.compiler.codegen;
 
 import static com.asakusafw.dag.compiler.codegen.AsmUtil.*;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
 
 import com.asakusafw.dag.compiler.model.ClassData;
+import com.asakusafw.dag.compiler.model.plan.InputSpec;
+import com.asakusafw.dag.compiler.model.plan.InputSpec.InputOption;
 import com.asakusafw.dag.runtime.skeleton.CoGroupInputAdapter;
+import com.asakusafw.dag.runtime.skeleton.CoGroupInputAdapter.BufferType;
 import com.asakusafw.dag.runtime.skeleton.ExtractInputAdapter;
 import com.asakusafw.dag.utils.common.Arguments;
+import com.asakusafw.dag.utils.common.Invariants;
 import com.asakusafw.lang.compiler.model.description.ClassDescription;
 import com.asakusafw.lang.compiler.model.description.TypeDescription;
+import com.asakusafw.lang.compiler.model.graph.Group;
 
 /**
  * Generates {@link CoGroupInputAdapter}.
@@ -50,26 +58,37 @@ public class CoGroupInputAdapterGenerator {
                 v.visitVarInsn(Opcodes.ALOAD, 0);
                 getConst(v, spec.id);
                 getConst(v, typeOf(supplier));
-                getEnumConstant(v, getBufferType(spec));
-                v.visitMethodInsn(
-                        Opcodes.INVOKEVIRTUAL,
-                        target.getInternalName(), "bind", //$NON-NLS-1$
-                        Type.getMethodDescriptor(
-                                typeOf(CoGroupInputAdapter.class),
-                                typeOf(String.class),
-                                typeOf(Class.class),
-                                typeOf(CoGroupInputAdapter.BufferType.class)),
-                        false);
+                getEnumConstant(v, spec.bufferType);
+                if (spec.bufferType == BufferType.STREAM) {
+                    v.visitMethodInsn(
+                            Opcodes.INVOKEVIRTUAL,
+                            target.getInternalName(), "bind", //$NON-NLS-1$
+                            Type.getMethodDescriptor(
+                                    typeOf(CoGroupInputAdapter.class),
+                                    typeOf(String.class),
+                                    typeOf(Class.class),
+                                    typeOf(BufferType.class)),
+                            false);
+                } else {
+                    ClassDescription buffer = ListBufferGenerator.get(context, spec.dataType, spec.localOrderings);
+                    getConst(v, typeOf(buffer));
+                    v.visitMethodInsn(
+                            Opcodes.INVOKEVIRTUAL,
+                            target.getInternalName(), "bind", //$NON-NLS-1$
+                            Type.getMethodDescriptor(
+                                    typeOf(CoGroupInputAdapter.class),
+                                    typeOf(String.class),
+                                    typeOf(Class.class),
+                                    typeOf(BufferType.class),
+                                    typeOf(Class.class)),
+                            false);
+                }
                 v.visitInsn(Opcodes.POP);
             }
         });
         return new ClassData(target, writer::toByteArray);
     }
 
-    private CoGroupInputAdapter.BufferType getBufferType(Spec spec) {
-        return spec.fileListBuffer ? CoGroupInputAdapter.BufferType.FILE : CoGroupInputAdapter.BufferType.HEAP;
-    }
-
     /**
      * Represents an input spec for co-group-kind vertices.
      */
@@ -79,7 +98,9 @@ public class CoGroupInputAdapterGenerator {
 
         final TypeDescription dataType;
 
-        final boolean fileListBuffer;
+        final BufferType bufferType;
+
+        final List<Group.Ordering> localOrderings;
 
         /**
          * Creates a new instance.
@@ -88,11 +109,72 @@ public class CoGroupInputAdapterGenerator {
          * @param fileListBuffer {@code true} to use file list buffer
          */
         public Spec(String id, TypeDescription dataType, boolean fileListBuffer) {
+            this(id, dataType, fileListBuffer ? BufferType.FILE : BufferType.HEAP);
+        }
+
+        /**
+         * Creates a new instance.
+         * @param id the input ID
+         * @param dataType the input data type
+         * @param bufferType the buffer type
+         * @since 0.2.0
+         */
+        public Spec(String id, TypeDescription dataType, BufferType bufferType) {
+            this(id, dataType, bufferType, Collections.emptyList());
+        }
+
+        /**
+         * Creates a new instance.
+         * @param id the input ID
+         * @param dataType the input data type
+         * @param bufferType the buffer type
+         * @param localOrderings the orderings which are applied to each group on the heap buffer,
+         *     or an empty list if the groups are already sorted in the shuffle
+         * @since 0.2.0
+         */
+        public Spec(String id, TypeDescription dataType, BufferType bufferType, List<Group.Ordering> localOrderings) {
             Arguments.requireNonNull(id);
             Arguments.requireNonNull(dataType);
+            Arguments.requireNonNull(bufferType);
+            Arguments.requireNonNull(localOrderings);
+            Arguments.require(localOrderings.isEmpty() || bufferType == BufferType.HEAP);
             this.id = id;
             this.dataType = dataType;
-            this.fileListBuffer = fileListBuffer;
+            this.bufferType = bufferType;
+            this.localOrderings = new ArrayList<>(localOrderings);
+        }
+
+        /**
+         * Creates a new instance from the input spec of the execution plan.
+         * This respects the following input options:
+         * <ul>
+         * <li> {@link InputOption#READ_ONCE} - uses {@link BufferType#STREAM stream buffer} </li>
+         * <li> {@link InputOption#SPILL_OUT} - uses {@link BufferType#FILE file list buffer} </li>
+         * <li> {@link InputOption#LOCAL_SORT} - sorts each group on the heap buffer by the orderings in
+         *      {@link InputSpec#getPartitionInfo() the partition info} </li>
+         * </ul>
+         * Drivers must use this method (or respect the above options by themselves) for the co-group inputs,
+         * or the groups of {@link InputOption#LOCAL_SORT} inputs are never sorted.
+         * @param input the input spec
+         * @return the created instance
+         * @since 0.2.0
+         */
+        public static Spec of(InputSpec input) {
+            Arguments.requireNonNull(input);
+            return of(input.getId(), input.getDataType(), input.getInputOptions(), input.getPartitionInfo());
+        }
+
+        static Spec of(String id, TypeDescription dataType, Set<InputOption> options, Group partitionInfo) {
+            if (options.contains(InputOption.LOCAL_SORT)) {
+                Invariants.requireNonNull(partitionInfo);
+                return new Spec(id, dataType, BufferType.HEAP, partitionInfo.getOrdering());
+            } else if (options.contains(InputOption.READ_ONCE)) {
+                return new Spec(id, dataType, BufferType.STREAM);
+            } else if (options.contains(InputOption.SPILL_OUT)) {
+                return new Spec(id, dataType, BufferType.FILE);
+            } else {
+                return new Spec(id, dataType, BufferType.HEAP);
+            }
         }
     }
 }
@@ -0,0 +1,228 @@
+/**
+ * Copyright 2011-2016 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.compiler.codegen;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import com.asakusafw.dag.compiler.model.ClassData;
+import com.asakusafw.dag.utils.common.Arguments;
+import com.asakusafw.lang.compiler.api.DataModelLoader;
+import com.asakusafw.lang.compiler.common.ResourceContainer;
+import com.asakusafw.lang.compiler.model.description.ClassDescription;
+
+/**
+ * A thread-safe {@link ClassGeneratorContext}, which can generate classes for independent sub-plans concurrently.
+ * <p>
+ * Generated class names are reproducible regardless of the thread scheduling:
+ * </p>
+ * <ul>
+ * <li> each subject of {@link #generate(Executor, List, Function)} allocates class names in its own scope </li>
+ * <li> classes generated via {@link #cache(Object, Supplier)} allocate names in the scope of the cache key, so that
+ *      they do not depend on which subject generates them first </li>
+ * </ul>
+ * <p>
+ * The scope of each cache key is derived from its {@link Object#toString()}, so that cache keys should provide stable
+ * and distinctive string representations. If two different keys share the same scope name, the latter one uses the
+ * scope of the current subject instead, and then its class names may depend on the execution order.
+ * Note that, the given {@link DataModelLoader} must be also thread-safe.
+ * </p>
+ * @since 0.2.0
+ */
+public class ConcurrentClassGeneratorContext implements ClassGeneratorContext {
+
+    private static final String SCOPE_SUBJECT = "s"; //$NON-NLS-1$
+
+    private static final String SCOPE_KEY = "k"; //$NON-NLS-1$
+
+    private final ClassLoader classLoader;
+
+    private final DataModelLoader dataModelLoader;
+
+    private final ResourceContainer destination;
+
+    private final ClassNameMap namer;
+
+    private final ConcurrentMap<Object, CompletableFuture<ClassDescription>> cache = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, Object> keyScopes = new ConcurrentHashMap<>();
+
+    private final ThreadLocal<Deque<String>> scopes = ThreadLocal.withInitial(ArrayDeque::new);
+
+    /**
+     * Creates a new instance.
+     * @param classLoader the current class loader
+     * @param dataModelLoader the current data model loader
+     * @param destination the destination of generated class files
+     * @param namer the class name provider
+     */
+    public ConcurrentClassGeneratorContext(
+            ClassLoader classLoader,
+            DataModelLoader dataModelLoader,
+            ResourceContainer destination,
+            ClassNameMap namer) {
+        Arguments.requireNonNull(classLoader);
+        Arguments.requireNonNull(dataModelLoader);
+        Arguments.requireNonNull(destination);
+        Arguments.requireNonNull(namer);
+        this.classLoader = classLoader;
+        this.dataModelLoader = dataModelLoader;
+        this.destination = destination;
+        this.namer = namer;
+    }
+
+    @Override
+    public ClassLoader getClassLoader() {
+        return classLoader;
+    }
+
+    @Override
+    public DataModelLoader getDataModelLoader() {
+        return dataModelLoader;
+    }
+
+    @Override
+    public ClassDescription getClassName(String category, String hint) {
+        return namer.get(scopes.get().peek(), category, hint);
+    }
+
+    @Override
+    public ClassDescription addClassFile(ClassData data) {
+        synchronized (destination) {
+            data.dump(destination);
+        }
+        return data.getDescription();
+    }
+
+    @Override
+    public Optional<ClassDescription> findCache(Object key) {
+        return Optional.ofNullable(cache.get(key))
+                .map(ConcurrentClassGeneratorContext::join);
+    }
+
+    @Override
+    public void addCache(Object key, ClassDescription target) {
+        cache.putIfAbsent(key, CompletableFuture.completedFuture(target));
+    }
+
+    /**
+     * Returns a cached class or add a new class data if it has not been cached.
+     * If other threads are generating the class for the same key, this waits for their completion.
+     * @param key the cache key
+     * @param defaultValue the default class data if missing cached class
+     * @return the added class data
+     */
+    @Override
+    public ClassData cache(Object key, Supplier<? extends ClassData> defaultValue) {
+        CompletableFuture<ClassDescription> future = new CompletableFuture<>();
+        CompletableFuture<ClassDescription> existing = cache.putIfAbsent(key, future);
+        if (existing != null) {
+            return new ClassData(join(existing));
+        }
+        Deque<String> stack = scopes.get();
+        String scope = getKeyScope(key);
+        if (scope != null) {
+            stack.push(scope);
+        }
+        ClassData data;
+        try {
+            data = defaultValue.get();
+        } catch (RuntimeException | Error e) {
+            cache.remove(key, future);
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            if (scope != null) {
+                stack.pop();
+            }
+        }
+        future.complete(data.getDescription());
+        return data;
+    }
+
+    private String getKeyScope(Object key) {
+        String scope = SCOPE_KEY + Integer.toHexString(key.toString().hashCode());
+        Object owner = keyScopes.putIfAbsent(scope, key);
+        if (owner == null || owner.equals(key)) {
+            return scope;
+        }
+        // conflicted: use the current scope
+        return null;
+    }
+
+    /**
+     * Generates classes for each subject concurrently.
+     * Each subject is processed in its own class naming scope, and the generator should be deterministic in each
+     * subject.
+     * @param <T> the subject type
+     * @param <R> the result type
+     * @param executor the executor for individual subjects
+     * @param subjects the subjects (e.g. individual sub-plans)
+     * @param generator the class generator for each subject, which should use this context
+     * @return the generated results, in order of the subjects
+     */
+    public <T, R> List<R> generate(
+            Executor executor,
+            List<? extends T> subjects,
+            Function<? super T, ? extends R> generator) {
+        Arguments.requireNonNull(executor);
+        Arguments.requireNonNull(subjects);
+        Arguments.requireNonNull(generator);
+        List<CompletableFuture<? extends R>> futures = new ArrayList<>();
+        for (int i = 0, n = subjects.size(); i < n; i++) {
+            String scope = SCOPE_SUBJECT + i;
+            T subject = subjects.get(i);
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                Deque<String> stack = scopes.get();
+                stack.push(scope);
+                try {
+                    return generator.apply(subject);
+                } finally {
+                    stack.pop();
+                }
+            }, executor));
+        }
+        List<R> results = new ArrayList<>();
+        for (CompletableFuture<? extends R> future : futures) {
+            results.add(join(future));
+        }
+        return results;
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+}
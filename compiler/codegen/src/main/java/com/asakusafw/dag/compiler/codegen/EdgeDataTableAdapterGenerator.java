@@ -107,11 +107,7 @@ public class EdgeDataTableAdapterGenerator {
             key.load(v);
             object.load(v);
             getOption(v, p);
-            v.visitMethodInsn(
-                    Opcodes.INVOKEINTERFACE,
-                    typeOf(KeyBuffer.class).getInternalName(), "append",
-                    Type.getMethodDescriptor(typeOf(KeyBuffer.class), typeOf(Object.class)),
-                    true);
+            appendKey(v, p);
             v.visitInsn(Opcodes.POP);
         }
 
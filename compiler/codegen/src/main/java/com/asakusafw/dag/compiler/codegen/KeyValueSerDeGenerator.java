@@ -25,6 +25,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.Consumer;
 
 import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.MethodVisitor;
@@ -36,6 +37,7 @@ import com.asakusafw.dag.compiler.codegen.AsmUtil.FieldRef;
 import com.asakusafw.dag.compiler.codegen.AsmUtil.LocalVarRef;
 import com.asakusafw.dag.compiler.model.ClassData;
 import com.asakusafw.dag.runtime.io.ValueOptionSerDe;
+import com.asakusafw.dag.utils.common.Arguments;
 import com.asakusafw.dag.utils.common.Invariants;
 import com.asakusafw.dag.utils.common.Lang;
 import com.asakusafw.lang.compiler.api.reference.DataModelReference;
@@ -71,7 +73,23 @@ public final class KeyValueSerDeGenerator {
      * @return the generated class
      */
     public static ClassDescription get(ClassGeneratorContext context, TypeDescription type, Group grouping) {
-        return context.addClassFile(generate(context, type, grouping));
+        return get(context, type, grouping, 0);
+    }
+
+    /**
+     * Generates {@link KeyValueSerDe} class with salted keys.
+     * The generated serializer appends a salt to each key, which cycles through {@code [0, salt)},
+     * so that records of the same group are spread over the {@code salt} distinct keys.
+     * @param context the current context
+     * @param type the target data model type
+     * @param grouping the grouping information
+     * @param salt the number of salts for each group, or {@code 0} to disable salting
+     * @return the generated class
+     * @since 0.2.0
+     */
+    public static ClassDescription get(
+            ClassGeneratorContext context, TypeDescription type, Group grouping, int salt) {
+        return context.addClassFile(generate(context, type, grouping, salt));
     }
 
     /**
@@ -82,28 +100,47 @@ public final class KeyValueSerDeGenerator {
      * @return the generated class data
      */
     public static ClassData generate(ClassGeneratorContext context, TypeDescription type, Group grouping) {
-        return context.cache(new Key(type, grouping), () -> {
+        return generate(context, type, grouping, 0);
+    }
+
+    /**
+     * Generates {@link KeyValueSerDe} class with salted keys.
+     * @param context the current context
+     * @param type the target data model type
+     * @param grouping the grouping information
+     * @param salt the number of salts for each group, or {@code 0} to disable salting
+     * @return the generated class data
+     * @see #get(ClassGeneratorContext, TypeDescription, Group, int)
+     * @since 0.2.0
+     */
+    public static ClassData generate(ClassGeneratorContext context, TypeDescription type, Group grouping, int salt) {
+        Arguments.require(salt >= 0);
+        int effectiveSalt = salt <= 1 ? 0 : salt;
+        return context.cache(new Key(type, grouping, effectiveSalt), () -> {
             DataModelReference ref = context.getDataModelLoader().load(type);
             ClassDescription target = context.getClassName(CATEGORY, NameUtil.getSimpleNameHint(type, SUFFIX));
-            return generate0(ref, grouping, target);
+            return generate0(ref, grouping, effectiveSalt, target);
         });
     }
 
-    private static ClassData generate0(DataModelReference reference, Group grouping, ClassDescription target) {
+    private static ClassData generate0(
+            DataModelReference reference, Group grouping, int salt, ClassDescription target) {
         List<PropertyReference> keys = Lang.project(
                 grouping.getGrouping(),
                 n -> Invariants.requireNonNull(reference.findProperty(n)));
         List<PropertyReference> values = collectValues(reference, grouping);
         ClassWriter writer = newWriter(target, Object.class, KeyValueSerDe.class);
         FieldRef buffer = defineField(writer, target, "buffer", typeOf(reference));
+        FieldRef counter = salt == 0 ? null : defineField(writer, target, "salt", Type.INT_TYPE);
         defineEmptyConstructor(writer, Object.class, v -> {
             v.visitVarInsn(Opcodes.ALOAD, 0);
             getNew(v, reference.getDeclaration());
             putField(v, buffer);
         });
-        putSerialize("serializeKey", reference, keys, writer);
-        putSerialize("serializeValue", reference, values, writer);
-        putDeserialize(reference, keys, values, buffer, writer);
+        putSerialize("serializeKey", reference, keys, writer,
+                counter == null ? null : v -> putSalt(v, counter, salt));
+        putSerialize("serializeValue", reference, values, writer, null);
+        putDeserialize(reference, keys, values, buffer, counter != null, writer);
         return new ClassData(target, writer::toByteArray);
     }
 
@@ -125,7 +162,7 @@ public final class KeyValueSerDeGenerator {
     private static void putSerialize(
             String methodName,
             DataModelReference reference, List<PropertyReference> properties,
-            ClassWriter writer) {
+            ClassWriter writer, Consumer<MethodVisitor> epilogue) {
         MethodVisitor v = writer.visitMethod(
                 Opcodes.ACC_PUBLIC,
                 methodName,
@@ -163,15 +200,41 @@ public final class KeyValueSerDeGenerator {
                         false);
             }
         }
+        if (epilogue != null) {
+            epilogue.accept(v);
+        }
         v.visitInsn(Opcodes.RETURN);
         v.visitMaxs(0, 0);
         v.visitEnd();
     }
 
+    private static void putSalt(MethodVisitor v, FieldRef counter, int salt) {
+        // this.salt = (this.salt + 1) % salt;
+        v.visitVarInsn(Opcodes.ALOAD, 0);
+        v.visitVarInsn(Opcodes.ALOAD, 0);
+        getField(v, counter);
+        getInt(v, 1);
+        v.visitInsn(Opcodes.IADD);
+        getInt(v, salt);
+        v.visitInsn(Opcodes.IREM);
+        putField(v, counter);
+
+        // output.writeInt(this.salt);
+        v.visitVarInsn(Opcodes.ALOAD, 2);
+        v.visitVarInsn(Opcodes.ALOAD, 0);
+        getField(v, counter);
+        v.visitMethodInsn(
+                Opcodes.INVOKEINTERFACE,
+                typeOf(DataOutput.class).getInternalName(),
+                "writeInt",
+                Type.getMethodDescriptor(Type.VOID_TYPE, Type.INT_TYPE),
+                true);
+    }
+
     private static void putDeserialize(
             DataModelReference reference,
             List<PropertyReference> keys, List<PropertyReference> values,
-            FieldRef buffer, ClassWriter writer) {
+            FieldRef buffer, boolean salted, ClassWriter writer) {
         MethodVisitor v = writer.visitMethod(
                 Opcodes.ACC_PUBLIC,
                 "deserializePair",
@@ -188,6 +251,16 @@ public final class KeyValueSerDeGenerator {
         getField(v, buffer);
         LocalVarRef object = putLocalVar(v, Type.OBJECT, 3);
         putDeserializeBody(v, keys, keyInput, object);
+        if (salted) {
+            keyInput.load(v);
+            v.visitMethodInsn(
+                    Opcodes.INVOKEINTERFACE,
+                    typeOf(DataInput.class).getInternalName(),
+                    "readInt",
+                    Type.getMethodDescriptor(Type.INT_TYPE),
+                    true);
+            v.visitInsn(Opcodes.POP);
+        }
         putDeserializeBody(v, values, valueInput, object);
         object.load(v);
         v.visitInsn(Opcodes.ARETURN);
@@ -230,9 +303,12 @@ public final class KeyValueSerDeGenerator {
 
         private final Group group;
 
-        Key(TypeDescription type, Group group) {
+        private final int salt;
+
+        Key(TypeDescription type, Group group, int salt) {
             this.type = type;
             this.group = group;
+            this.salt = salt;
         }
 
         @Override
@@ -241,6 +317,7 @@ public final class KeyValueSerDeGenerator {
             int result = 1;
             result = prime * result + Objects.hashCode(type);
             result = prime * result + Objects.hashCode(group);
+            result = prime * result + salt;
             return result;
         }
 
@@ -262,7 +339,15 @@ public final class KeyValueSerDeGenerator {
             if (!Objects.equals(group, other.group)) {
                 return false;
             }
+            if (salt != other.salt) {
+                return false;
+            }
             return true;
         }
+
+        @Override
+        public String toString() {
+            return String.format("KvSerDe(%s, %s, salt=%d)", type, group, salt); //$NON-NLS-1$
+        }
     }
 }
@@ -0,0 +1,242 @@
+/**
+ * Copyright 2011-2016 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.compiler.codegen;
+
+import static com.asakusafw.dag.compiler.codegen.AsmUtil.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import com.asakusafw.dag.api.common.ObjectCursor;
+import com.asakusafw.dag.compiler.codegen.AsmUtil.FieldRef;
+import com.asakusafw.dag.compiler.model.ClassData;
+import com.asakusafw.dag.runtime.skeleton.DataModelListBuffer;
+import com.asakusafw.dag.utils.common.Arguments;
+import com.asakusafw.lang.compiler.model.description.ClassDescription;
+import com.asakusafw.lang.compiler.model.description.TypeDescription;
+import com.asakusafw.lang.compiler.model.graph.Group;
+
+/**
+ * Generates {@link DataModelListBuffer} class.
+ * @since 0.2.0
+ */
+public final class ListBufferGenerator {
+
+    private static final String CATEGORY = "util"; //$NON-NLS-1$
+
+    private static final String SUFFIX = "ListBuffer"; //$NON-NLS-1$
+
+    private ListBufferGenerator() {
+        return;
+    }
+
+    /**
+     * Generates {@link DataModelListBuffer} class.
+     * @param context the current context
+     * @param type the target data model type
+     * @return the generated class
+     */
+    public static ClassDescription get(ClassGeneratorContext context, TypeDescription type) {
+        return get(context, type, Collections.emptyList());
+    }
+
+    /**
+     * Generates {@link DataModelListBuffer} class which sorts elements in each group.
+     * @param context the current context
+     * @param type the target data model type
+     * @param orderings the element orderings in each group, or an empty list to keep the original order
+     * @return the generated class
+     */
+    public static ClassDescription get(
+            ClassGeneratorContext context, TypeDescription type, List<Group.Ordering> orderings) {
+        return context.addClassFile(generate(context, type, orderings));
+    }
+
+    /**
+     * Generates {@link DataModelListBuffer} class.
+     * @param context the current context
+     * @param type the target data model type
+     * @return the generated class data
+     */
+    public static ClassData generate(ClassGeneratorContext context, TypeDescription type) {
+        return generate(context, type, Collections.emptyList());
+    }
+
+    /**
+     * Generates {@link DataModelListBuffer} class which sorts elements in each group.
+     * @param context the current context
+     * @param type the target data model type
+     * @param orderings the element orderings in each group, or an empty list to keep the original order
+     * @return the generated class data
+     */
+    public static ClassData generate(
+            ClassGeneratorContext context, TypeDescription type, List<Group.Ordering> orderings) {
+        Arguments.requireNonNull(orderings);
+        return context.cache(new Key(type, orderings), () -> {
+            ClassDescription comparator = orderings.isEmpty()
+                    ? null
+                    : ObjectComparatorGenerator.get(context, type, orderings);
+            ClassDescription target = context.getClassName(CATEGORY, NameUtil.getSimpleNameHint(type, SUFFIX));
+            return generate0(type, comparator, target);
+        });
+    }
+
+    private static ClassData generate0(TypeDescription source, ClassDescription comparator, ClassDescription target) {
+        ClassWriter writer = newWriter(target, DataModelListBuffer.class);
+        FieldRef field;
+        if (comparator == null) {
+            field = null;
+            defineEmptyConstructor(writer, DataModelListBuffer.class);
+        } else {
+            field = defineField(writer, target, "comparator", typeOf(Comparator.class)); //$NON-NLS-1$
+            defineEmptyConstructor(writer, DataModelListBuffer.class, v -> {
+                v.visitVarInsn(Opcodes.ALOAD, 0);
+                getNew(v, comparator);
+                putField(v, field);
+            });
+        }
+        defineNewElement(writer, source);
+        defineFill(writer, source, field, target);
+        writer.visitEnd();
+        return new ClassData(target, writer::toByteArray);
+    }
+
+    private static void defineNewElement(ClassWriter writer, TypeDescription source) {
+        MethodVisitor v = writer.visitMethod(
+                Opcodes.ACC_PROTECTED,
+                "newElement", //$NON-NLS-1$
+                Type.getMethodDescriptor(typeOf(Object.class)),
+                null,
+                null);
+        getNew(v, source);
+        v.visitInsn(Opcodes.ARETURN);
+        v.visitMaxs(0, 0);
+        v.visitEnd();
+    }
+
+    private static void defineFill(
+            ClassWriter writer, TypeDescription source, FieldRef comparator, ClassDescription target) {
+        MethodVisitor v = writer.visitMethod(
+                Opcodes.ACC_PUBLIC,
+                "fill", //$NON-NLS-1$
+                Type.getMethodDescriptor(Type.VOID_TYPE, typeOf(ObjectCursor.class)),
+                null,
+                null);
+        v.visitVarInsn(Opcodes.ALOAD, 0);
+        v.visitMethodInsn(Opcodes.INVOKEVIRTUAL,
+                target.getInternalName(), "begin", //$NON-NLS-1$
+                Type.getMethodDescriptor(Type.VOID_TYPE),
+                false);
+
+        Label begin = new Label();
+        Label end = new Label();
+        v.visitLabel(begin);
+        v.visitVarInsn(Opcodes.ALOAD, 1);
+        v.visitMethodInsn(Opcodes.INVOKEINTERFACE,
+                typeOf(ObjectCursor.class).getInternalName(), "nextObject", //$NON-NLS-1$
+                Type.getMethodDescriptor(Type.BOOLEAN_TYPE),
+                true);
+        v.visitJumpInsn(Opcodes.IFEQ, end);
+
+        v.visitVarInsn(Opcodes.ALOAD, 0);
+        v.visitMethodInsn(Opcodes.INVOKEVIRTUAL,
+                target.getInternalName(), "next", //$NON-NLS-1$
+                Type.getMethodDescriptor(typeOf(Object.class)),
+                false);
+        v.visitTypeInsn(Opcodes.CHECKCAST, typeOf(source).getInternalName());
+        v.visitVarInsn(Opcodes.ALOAD, 1);
+        v.visitMethodInsn(Opcodes.INVOKEINTERFACE,
+                typeOf(ObjectCursor.class).getInternalName(), "getObject", //$NON-NLS-1$
+                Type.getMethodDescriptor(typeOf(Object.class)),
+                true);
+        v.visitTypeInsn(Opcodes.CHECKCAST, typeOf(source).getInternalName());
+        copyDataModel(v, source);
+        v.visitJumpInsn(Opcodes.GOTO, begin);
+
+        v.visitLabel(end);
+        if (comparator != null) {
+            v.visitVarInsn(Opcodes.ALOAD, 0);
+            v.visitVarInsn(Opcodes.ALOAD, 0);
+            getField(v, comparator);
+            v.visitMethodInsn(Opcodes.INVOKEVIRTUAL,
+                    target.getInternalName(), "sort", //$NON-NLS-1$
+                    Type.getMethodDescriptor(Type.VOID_TYPE, typeOf(Comparator.class)),
+                    false);
+        }
+        v.visitVarInsn(Opcodes.ALOAD, 0);
+        v.visitMethodInsn(Opcodes.INVOKEVIRTUAL,
+                target.getInternalName(), "end", //$NON-NLS-1$
+                Type.getMethodDescriptor(Type.VOID_TYPE),
+                false);
+        v.visitInsn(Opcodes.RETURN);
+        v.visitMaxs(0, 0);
+        v.visitEnd();
+    }
+
+    private static class Key {
+
+        private final TypeDescription type;
+
+        private final List<Group.Ordering> orderings;
+
+        Key(TypeDescription type, List<Group.Ordering> orderings) {
+            this.type = type;
+            this.orderings = new ArrayList<>(orderings);
+        }
+
+        @Override
+        public int hashCode() {
+            final int prime = 31;
+            int result = 1;
+            result = prime * result + Objects.hashCode(type);
+            result = prime * result + Objects.hashCode(orderings);
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null) {
+                return false;
+            }
+            if (getClass() != obj.getClass()) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return Objects.equals(type, other.type)
+                    && Objects.equals(orderings, other.orderings);
+        }
+
+        @Override
+        public String toString() {
+            if (orderings.isEmpty()) {
+                return String.format("ListBuffer(%s)", type); //$NON-NLS-1$
+            }
+            return String.format("ListBuffer(%s%s)", type, orderings); //$NON-NLS-1$
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/**
+ * Copyright 2011-2016 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.compiler.codegen;
+
+import static com.asakusafw.dag.compiler.codegen.AsmUtil.*;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import com.asakusafw.dag.compiler.codegen.AsmUtil.LocalVarRef;
+import com.asakusafw.dag.compiler.model.ClassData;
+import com.asakusafw.dag.runtime.skeleton.ValueOptionComparators;
+import com.asakusafw.dag.utils.common.Arguments;
+import com.asakusafw.dag.utils.common.Invariants;
+import com.asakusafw.lang.compiler.api.reference.DataModelReference;
+import com.asakusafw.lang.compiler.api.reference.PropertyReference;
+import com.asakusafw.lang.compiler.model.description.ClassDescription;
+import com.asakusafw.lang.compiler.model.description.TypeDescription;
+import com.asakusafw.lang.compiler.model.graph.Group;
+
+/**
+ * Generates {@link Comparator} class for on-heap data model objects.
+ * The generated comparator only considers the given orderings, so that it can sort objects in the same group.
+ * @since 0.2.0
+ */
+public final class ObjectComparatorGenerator {
+
+    private static final String CATEGORY = "util"; //$NON-NLS-1$
+
+    private static final String SUFFIX = "Comparator"; //$NON-NLS-1$
+
+    private ObjectComparatorGenerator() {
+        return;
+    }
+
+    /**
+     * Generates {@link Comparator} class.
+     * @param context the current context
+     * @param type the target data model type
+     * @param orderings the element orderings
+     * @return the generated class
+     */
+    public static ClassDescription get(
+            ClassGeneratorContext context, TypeDescription type, List<Group.Ordering> orderings) {
+        return context.addClassFile(generate(context, type, orderings));
+    }
+
+    /**
+     * Generates {@link Comparator} class.
+     * @param context the current context
+     * @param type the target data model type
+     * @param orderings the element orderings
+     * @return the generated class data
+     */
+    public static ClassData generate(
+            ClassGeneratorContext context, TypeDescription type, List<Group.Ordering> orderings) {
+        Arguments.requireNonNull(orderings);
+        Arguments.require(orderings.isEmpty() == false);
+        return context.cache(new Key(type, orderings), () -> {
+            DataModelReference ref = context.getDataModelLoader().load(type);
+            ClassDescription target = context.getClassName(CATEGORY, NameUtil.getSimpleNameHint(type, SUFFIX));
+            return generate0(ref, orderings, target);
+        });
+    }
+
+    private static ClassData generate0(
+            DataModelReference reference, List<Group.Ordering> orderings, ClassDescription target) {
+        ClassWriter writer = newWriter(target, Object.class, Comparator.class);
+        defineEmptyConstructor(writer, Object.class);
+        MethodVisitor v = writer.visitMethod(
+                Opcodes.ACC_PUBLIC,
+                "compare", //$NON-NLS-1$
+                Type.getMethodDescriptor(Type.INT_TYPE, typeOf(Object.class), typeOf(Object.class)),
+                null,
+                null);
+        LocalVarRef a = cast(v, 1, reference.getDeclaration());
+        LocalVarRef b = cast(v, 2, reference.getDeclaration());
+        for (Group.Ordering ordering : orderings) {
+            PropertyReference property = Invariants.requireNonNull(
+                    reference.findProperty(ordering.getPropertyName()));
+            boolean ascendant = ordering.getDirection() == Group.Direction.ASCENDANT;
+            LocalVarRef first = ascendant ? a : b;
+            LocalVarRef second = ascendant ? b : a;
+            first.load(v);
+            getOption(v, property);
+            second.load(v);
+            getOption(v, property);
+            v.visitMethodInsn(Opcodes.INVOKESTATIC,
+                    typeOf(ValueOptionComparators.class).getInternalName(),
+                    "compare", //$NON-NLS-1$
+                    Type.getMethodDescriptor(Type.INT_TYPE, typeOf(property.getType()), typeOf(property.getType())),
+                    false);
+            LocalVarRef diff = putLocalVar(v, Type.INT, 3);
+            Label next = new Label();
+            diff.load(v);
+            v.visitJumpInsn(Opcodes.IFEQ, next);
+            diff.load(v);
+            v.visitInsn(Opcodes.IRETURN);
+            v.visitLabel(next);
+        }
+        getInt(v, 0);
+        v.visitInsn(Opcodes.IRETURN);
+        v.visitMaxs(0, 0);
+        v.visitEnd();
+        writer.visitEnd();
+        return new ClassData(target, writer::toByteArray);
+    }
+
+    private static class Key {
+
+        private final TypeDescription type;
+
+        private final List<Group.Ordering> orderings;
+
+        Key(TypeDescription type, List<Group.Ordering> orderings) {
+            this.type = type;
+            this.orderings = new ArrayList<>(orderings);
+        }
+
+        @Override
+        public int hashCode() {
+            final int prime = 31;
+            int result = 1;
+            result = prime * result + Objects.hashCode(type);
+            result = prime * result + Objects.hashCode(orderings);
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null) {
+                return false;
+            }
+            if (getClass() != obj.getClass()) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return Objects.equals(type, other.type)
+                    && Objects.equals(orderings, other.orderings);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Comparator(%s%s)", type, orderings); //$NON-NLS-1$
+        }
+    }
+}
@@ -17,7 +17,14 @@ package com.asakusafw.dag.compiler.codegen;
 
 import static com.asakusafw.dag.compiler.codegen.AsmUtil.*;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 
 import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.MethodVisitor;
@@ -25,8 +32,12 @@ import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
 
 import com.asakusafw.dag.compiler.codegen.AsmUtil.LocalVarRef;
+import com.asakusafw.dag.compiler.codegen.AsmUtil.Statement;
 import com.asakusafw.dag.compiler.model.ClassData;
 import com.asakusafw.dag.runtime.adapter.ObjectCopier;
+import com.asakusafw.lang.compiler.api.reference.DataModelReference;
+import com.asakusafw.lang.compiler.api.reference.PropertyReference;
+import com.asakusafw.lang.compiler.model.PropertyName;
 import com.asakusafw.lang.compiler.model.description.ClassDescription;
 import com.asakusafw.lang.compiler.model.description.TypeDescription;
 
@@ -53,7 +64,22 @@ public final class ObjectCopierGenerator {
      * @since 0.2.0
      */
     public static ClassDescription get(ClassGeneratorContext context, TypeDescription type) {
-        return context.addClassFile(generate(context, type));
+        return get(context, type, null);
+    }
+
+    /**
+     * Generates {@link ObjectCopier} class which only copies the live properties.
+     * The other properties of the copied objects are left as is, so that callers must guarantee that nobody reads
+     * them.
+     * @param context the current context
+     * @param type the target data model type
+     * @param properties the live properties, or {@code null} to copy all properties
+     * @return the generated class
+     * @since 0.2.0
+     */
+    public static ClassDescription get(
+            ClassGeneratorContext context, TypeDescription type, Collection<PropertyName> properties) {
+        return context.addClassFile(generate(context, type, properties));
     }
 
     /**
@@ -64,21 +90,40 @@ public final class ObjectCopierGenerator {
      * @since 0.2.0
      */
     public static ClassData generate(ClassGeneratorContext context, TypeDescription type) {
-        return context.cache(new Key(type), () -> {
+        return generate(context, type, null);
+    }
+
+    /**
+     * Generates {@link ObjectCopier} class which only copies the live properties.
+     * @param context the current context
+     * @param type the target data model type
+     * @param properties the live properties, or {@code null} to copy all properties
+     * @return the generated class data
+     * @since 0.2.0
+     */
+    public static ClassData generate(
+            ClassGeneratorContext context, TypeDescription type, Collection<PropertyName> properties) {
+        Set<PropertyName> live = properties == null ? null : new LinkedHashSet<>(properties);
+        return context.cache(new Key(type, live), () -> {
             ClassDescription target = context.getClassName(CATEGORY, NameUtil.getSimpleNameHint(type, SUFFIX));
-            return generate0(type, target);
+            DataModelReference reference = live == null ? null : context.getDataModelLoader().load(type);
+            return generate0(type, reference, live, target);
         });
     }
 
-    private static ClassData generate0(TypeDescription source, ClassDescription target) {
+    private static ClassData generate0(
+            TypeDescription source, DataModelReference reference, Set<PropertyName> properties,
+            ClassDescription target) {
         ClassWriter writer = AsmUtil.newWriter(target, Object.class, ObjectCopier.class);
         defineEmptyConstructor(writer, Object.class);
-        defineNew(writer, source);
-        defineNewWithBuffer(writer, source);
+        defineNew(writer, source, reference, properties, target);
+        defineNewWithBuffer(writer, source, reference, properties, target);
         return new ClassData(target, writer::toByteArray);
     }
 
-    private static void defineNew(ClassWriter writer, TypeDescription source) {
+    private static void defineNew(
+            ClassWriter writer, TypeDescription source,
+            DataModelReference reference, Set<PropertyName> properties, ClassDescription declaring) {
         MethodVisitor v = writer.visitMethod(
                 Opcodes.ACC_PUBLIC,
                 "newCopy",
@@ -88,10 +133,12 @@ public final class ObjectCopierGenerator {
         LocalVarRef input = cast(v, 1, source);
         getNew(v, source);
         LocalVarRef target = putLocalVar(v, Type.OBJECT, 2);
-        generateBody(v, source, target, input);
+        generateBody(writer, v, "copy", source, reference, properties, target, input, declaring);
     }
 
-    private static void defineNewWithBuffer(ClassWriter writer, TypeDescription source) {
+    private static void defineNewWithBuffer(
+            ClassWriter writer, TypeDescription source,
+            DataModelReference reference, Set<PropertyName> properties, ClassDescription declaring) {
         MethodVisitor v = writer.visitMethod(
                 Opcodes.ACC_PUBLIC,
                 "newCopy",
@@ -100,13 +147,35 @@ public final class ObjectCopierGenerator {
                 null);
         LocalVarRef input = cast(v, 1, source);
         LocalVarRef target = cast(v, 2, source);
-        generateBody(v, source, target, input);
+        generateBody(writer, v, "copyWithBuffer", source, reference, properties, target, input, declaring);
     }
 
-    private static void generateBody(MethodVisitor v, TypeDescription type, LocalVarRef target, LocalVarRef source) {
-        target.load(v);
-        source.load(v);
-        copyDataModel(v, type);
+    private static void generateBody(
+            ClassWriter writer, MethodVisitor v, String helperName, TypeDescription type,
+            DataModelReference reference, Set<PropertyName> properties,
+            LocalVarRef target, LocalVarRef source, ClassDescription declaring) {
+        if (reference == null) {
+            target.load(v);
+            source.load(v);
+            copyDataModel(v, type);
+        } else {
+            List<Statement> statements = new ArrayList<>();
+            for (PropertyReference property : reference.getProperties()) {
+                if (properties.contains(property.getName())) {
+                    statements.add((m, args) -> {
+                        args.get(0).load(m);
+                        getOption(m, property);
+                        args.get(1).load(m);
+                        getOption(m, property);
+                        copyOption(m, property.getType());
+                    });
+                }
+            }
+            defineStatements(writer, declaring, v, helperName,
+                    Arrays.asList(typeOf(type), typeOf(type)),
+                    Arrays.asList(target, source),
+                    statements);
+        }
 
         target.load(v);
         v.visitInsn(Opcodes.ARETURN);
@@ -118,8 +187,11 @@ public final class ObjectCopierGenerator {
 
         private final TypeDescription type;
 
-        Key(TypeDescription type) {
+        private final Set<PropertyName> properties;
+
+        Key(TypeDescription type, Set<PropertyName> properties) {
             this.type = type;
+            this.properties = properties == null ? null : Collections.unmodifiableSet(properties);
         }
 
         @Override
@@ -127,6 +199,7 @@ public final class ObjectCopierGenerator {
             final int prime = 31;
             int result = 1;
             result = prime * result + Objects.hashCode(type);
+            result = prime * result + Objects.hashCode(properties);
             return result;
         }
 
@@ -142,12 +215,16 @@ public final class ObjectCopierGenerator {
                 return false;
             }
             Key other = (Key) obj;
-            return Objects.equals(type, other.type);
+            return Objects.equals(type, other.type)
+                    && Objects.equals(properties, other.properties);
         }
 
         @Override
         public String toString() {
-            return String.format("Copier(%s)", type); //$NON-NLS-1$
+            if (properties == null) {
+                return String.format("Copier(%s)", type); //$NON-NLS-1$
+            }
+            return String.format("Copier(%s, properties=%s)", type, properties); //$NON-NLS-1$
         }
     }
 }
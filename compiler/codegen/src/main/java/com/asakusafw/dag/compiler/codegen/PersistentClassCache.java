@@ -0,0 +1,509 @@
+/**
+ * Copyright 2011-2016 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.compiler.codegen;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.MessageFormat;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.asakusafw.dag.compiler.model.ClassData;
+import com.asakusafw.dag.utils.common.Arguments;
+import com.asakusafw.dag.utils.common.Optionals;
+import com.asakusafw.lang.compiler.model.description.ClassDescription;
+
+/**
+ * A {@link ClassGeneratorContext} which stores generated classes onto the local file system, and reuses them across
+ * individual compilations.
+ * <p>
+ * Each class is stored with the fingerprint of its cache key, which consists of the given cache version,
+ * the key class, the textual representation of the key, and the digests of the class libraries which contain
+ * the key class and the common code generator utilities. Because the key class is usually placed together with
+ * its class generators, changing the generators or the common utilities invalidates the stored classes.
+ * Cache keys which do not override {@link Object#toString()} are never persisted.
+ * When a class is generated under a persistent cache key, its name is derived from the fingerprint instead of the
+ * sequential number, so that the same generator inputs always produce the same class name.
+ * </p>
+ * <p>
+ * The stored classes also record digests of the class files which they refer (e.g. data model classes, operator
+ * classes, or runtime libraries), and they are discarded if any of these class files are changed.
+ * </p>
+ * <p>
+ * This is thread-safe if the forwarding target is thread-safe, and generating classes for the same key is
+ * delegated to {@link ClassGeneratorContext#cache(Object, Supplier) the forwarding target}.
+ * </p>
+ * @since 0.2.0
+ */
+public class PersistentClassCache implements ClassGeneratorContext.Forward {
+
+    static final Logger LOG = LoggerFactory.getLogger(PersistentClassCache.class);
+
+    static final int FORMAT_VERSION = 1;
+
+    static final String EXTENSION = ".cache"; //$NON-NLS-1$
+
+    private static final String DIGEST_ALGORITHM = "SHA-256"; //$NON-NLS-1$
+
+    private static final int NAME_DIGEST_LENGTH = 32;
+
+    private static final byte[] GENERATED = new byte[0];
+
+    private final ClassGeneratorContext forward;
+
+    private final Path directory;
+
+    private final String version;
+
+    private final Map<String, Optional<byte[]>> digests = new ConcurrentHashMap<>();
+
+    private final Map<String, Optional<byte[]>> libraries = new ConcurrentHashMap<>();
+
+    private final Set<String> generated = ConcurrentHashMap.newKeySet();
+
+    private final ThreadLocal<Deque<Frame>> frames = ThreadLocal.withInitial(ArrayDeque::new);
+
+    /**
+     * Creates a new instance.
+     * @param forward the forwarding target
+     * @param directory the cache directory
+     * @param version the cache version, which should be changed when the generator inputs are changed
+     *     without any changes of the class libraries (e.g. generator options)
+     */
+    public PersistentClassCache(ClassGeneratorContext forward, Path directory, String version) {
+        Arguments.requireNonNull(forward);
+        Arguments.requireNonNull(directory);
+        Arguments.requireNonNull(version);
+        this.forward = forward;
+        this.directory = directory;
+        this.version = version;
+    }
+
+    @Override
+    public ClassGeneratorContext getForward() {
+        return forward;
+    }
+
+    @Override
+    public ClassDescription getClassName(String category, String hint) {
+        ClassDescription name = forward.getClassName(category, hint);
+        Frame frame = frames.get().peek();
+        if (frame == null || frame.fingerprint == null || frame.name != null) {
+            return name;
+        }
+        String binaryName = name.getBinaryName();
+        String simpleNamePrefix = Optionals.of(hint)
+                .filter(s -> ClassNameMap.PATTERN_HINT.matcher(s).matches())
+                .orElse(""); //$NON-NLS-1$
+        frame.name = new ClassDescription(String.format(
+                "%s%s_h%s", //$NON-NLS-1$
+                binaryName.substring(0, binaryName.lastIndexOf('.') + 1),
+                simpleNamePrefix,
+                frame.fingerprint.substring(0, NAME_DIGEST_LENGTH)));
+        return frame.name;
+    }
+
+    @Override
+    public ClassData cache(Object key, Supplier<? extends ClassData> defaultValue) {
+        Optional<ClassDescription> cached = findCache(key);
+        if (cached.isPresent()) {
+            return new ClassData(cached.get());
+        }
+        String fingerprint = fingerprint(key);
+        if (fingerprint == null) {
+            return forward.cache(key, defaultValue);
+        }
+        return forward.cache(key, () -> {
+            ClassData restored = restore(fingerprint);
+            if (restored != null) {
+                LOG.debug("reuse persistent class cache: {} ({})", restored.getDescription(), key); //$NON-NLS-1$
+                generated.add(restored.getDescription().getInternalName());
+                return restored;
+            }
+            Deque<Frame> stack = frames.get();
+            Frame frame = new Frame(fingerprint);
+            stack.push(frame);
+            ClassData data;
+            try {
+                data = defaultValue.get();
+            } finally {
+                stack.pop();
+            }
+            if (data.hasContents() && data.getDescription().equals(frame.name)) {
+                generated.add(data.getDescription().getInternalName());
+                store(fingerprint, data);
+            }
+            return data;
+        });
+    }
+
+    private String fingerprint(Object key) {
+        Class<?> keyClass = key.getClass();
+        try {
+            if (keyClass.getMethod("toString").getDeclaringClass() == Object.class) { //$NON-NLS-1$
+                return null;
+            }
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+        MessageDigest digest = newDigest();
+        update(digest, String.valueOf(FORMAT_VERSION));
+        update(digest, version);
+        update(digest, keyClass.getName());
+        for (Class<?> aClass : new Class<?>[] { keyClass, AsmUtil.class }) {
+            Optional<byte[]> library = digestLibrary(aClass);
+            if (library.isPresent() == false) {
+                return null;
+            }
+            digest.update(library.get());
+        }
+        update(digest, key.toString());
+        return toHexString(digest.digest());
+    }
+
+    private ClassData restore(String fingerprint) {
+        Path file = directory.resolve(fingerprint + EXTENSION);
+        try (DataInputStream input = new DataInputStream(Files.newInputStream(file))) {
+            if (input.readInt() != FORMAT_VERSION) {
+                LOG.debug("unsupported persistent class cache: {}", file); //$NON-NLS-1$
+                return null;
+            }
+            ClassDescription target = new ClassDescription(input.readUTF());
+            int dependencies = input.readInt();
+            for (int i = 0; i < dependencies; i++) {
+                String name = input.readUTF();
+                byte[] expected = new byte[input.readUnsignedShort()];
+                input.readFully(expected);
+                if (isValid(name, expected) == false) {
+                    LOG.debug("stale persistent class cache: {} (changed {})", file, name); //$NON-NLS-1$
+                    return null;
+                }
+            }
+            byte[] contents = new byte[input.readInt()];
+            input.readFully(contents);
+            return new ClassData(target, contents);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | RuntimeException e) {
+            LOG.debug("broken persistent class cache: {}", file, e); //$NON-NLS-1$
+            return null;
+        }
+    }
+
+    private boolean isValid(String dependency, byte[] expected) {
+        if (expected.length == 0) {
+            return generated.contains(dependency);
+        }
+        return digest(getClassLoader(), dependency)
+                .filter(actual -> Arrays.equals(actual, expected))
+                .isPresent();
+    }
+
+    private void store(String fingerprint, ClassData data) {
+        byte[] contents = toByteArray(data);
+        Map<String, byte[]> dependencies = new LinkedHashMap<>();
+        String self = data.getDescription().getInternalName();
+        for (String name : collectDependencies(contents)) {
+            if (name.equals(self) || name.startsWith("java/")) { //$NON-NLS-1$
+                continue;
+            }
+            if (generated.contains(name)) {
+                dependencies.put(name, GENERATED);
+            } else {
+                Optional<byte[]> digest = digest(getClassLoader(), name);
+                if (digest.isPresent() == false) {
+                    LOG.debug("cannot persist class cache: {} (unknown {})", self, name); //$NON-NLS-1$
+                    return;
+                }
+                dependencies.put(name, digest.get());
+            }
+        }
+        Path file = directory.resolve(fingerprint + EXTENSION);
+        try {
+            Files.createDirectories(directory);
+            Path temporary = Files.createTempFile(directory, fingerprint, ".tmp"); //$NON-NLS-1$
+            try {
+                try (DataOutputStream output = new DataOutputStream(Files.newOutputStream(temporary))) {
+                    output.writeInt(FORMAT_VERSION);
+                    output.writeUTF(data.getDescription().getBinaryName());
+                    output.writeInt(dependencies.size());
+                    for (Map.Entry<String, byte[]> entry : dependencies.entrySet()) {
+                        output.writeUTF(entry.getKey());
+                        output.writeShort(entry.getValue().length);
+                        output.write(entry.getValue());
+                    }
+                    output.writeInt(contents.length);
+                    output.write(contents);
+                }
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        } catch (IOException e) {
+            LOG.warn(MessageFormat.format(
+                    "error occurred while storing class cache: {0}",
+                    file), e);
+        }
+    }
+
+    private Optional<byte[]> digest(ClassLoader loader, String internalName) {
+        return digests.computeIfAbsent(internalName, k -> {
+            ClassLoader cl = loader == null ? ClassLoader.getSystemClassLoader() : loader;
+            URL resource = cl.getResource(internalName + ".class"); //$NON-NLS-1$
+            if (resource == null) {
+                return Optional.empty();
+            }
+            MessageDigest digest = newDigest();
+            try (InputStream input = resource.openStream()) {
+                byte[] buf = new byte[4096];
+                while (true) {
+                    int read = input.read(buf);
+                    if (read < 0) {
+                        break;
+                    }
+                    digest.update(buf, 0, read);
+                }
+            } catch (IOException e) {
+                LOG.debug("error occurred while reading class file: {}", resource, e); //$NON-NLS-1$
+                return Optional.empty();
+            }
+            return Optional.of(digest.digest());
+        });
+    }
+
+    private Optional<byte[]> digestLibrary(Class<?> aClass) {
+        CodeSource source = aClass.getProtectionDomain().getCodeSource();
+        if (source == null || source.getLocation() == null) {
+            return Optional.empty();
+        }
+        URL location = source.getLocation();
+        return libraries.computeIfAbsent(location.toExternalForm(), k -> {
+            MessageDigest digest = newDigest();
+            try {
+                Path path = Paths.get(location.toURI());
+                if (Files.isDirectory(path)) {
+                    List<Path> files;
+                    try (Stream<Path> stream = Files.walk(path)) {
+                        files = stream
+                                .filter(f -> f.getFileName().toString().endsWith(".class")) //$NON-NLS-1$
+                                .sorted()
+                                .collect(Collectors.toList());
+                    }
+                    for (Path file : files) {
+                        update(digest, path.relativize(file).toString());
+                        digest.update(Files.readAllBytes(file));
+                    }
+                } else {
+                    digest.update(Files.readAllBytes(path));
+                }
+            } catch (IOException | URISyntaxException | RuntimeException e) {
+                LOG.debug("error occurred while reading class library: {}", location, e); //$NON-NLS-1$
+                return Optional.empty();
+            }
+            return Optional.of(digest.digest());
+        });
+    }
+
+    private static byte[] toByteArray(ClassData data) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try {
+            data.dump(buffer);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return buffer.toByteArray();
+    }
+
+    static Set<String> collectDependencies(byte[] contents) {
+        Set<String> results = new HashSet<>();
+        new ClassReader(contents).accept(new DependencyCollector(results), ClassReader.SKIP_DEBUG);
+        return results;
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    private static String toHexString(byte[] bytes) {
+        StringBuilder buf = new StringBuilder();
+        for (byte b : bytes) {
+            buf.append(Character.forDigit((b >> 4) & 0x0f, 16));
+            buf.append(Character.forDigit(b & 0x0f, 16));
+        }
+        return buf.toString();
+    }
+
+    private static final class Frame {
+
+        final String fingerprint;
+
+        ClassDescription name;
+
+        Frame(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+    }
+
+    private static final class DependencyCollector extends ClassVisitor {
+
+        private final Set<String> results;
+
+        DependencyCollector(Set<String> results) {
+            super(Opcodes.ASM5);
+            this.results = results;
+        }
+
+        @Override
+        public void visit(
+                int version, int access,
+                String name, String signature, String superName, String[] interfaces) {
+            addName(superName);
+            if (interfaces != null) {
+                for (String s : interfaces) {
+                    addName(s);
+                }
+            }
+        }
+
+        @Override
+        public FieldVisitor visitField(int access, String name, String desc, String signature, Object value) {
+            addType(Type.getType(desc));
+            return null;
+        }
+
+        @Override
+        public MethodVisitor visitMethod(
+                int access, String name, String desc, String signature, String[] exceptions) {
+            addType(Type.getMethodType(desc));
+            if (exceptions != null) {
+                for (String s : exceptions) {
+                    addName(s);
+                }
+            }
+            return new MethodVisitor(Opcodes.ASM5) {
+                @Override
+                public void visitTypeInsn(int opcode, String type) {
+                    addName(type);
+                }
+                @Override
+                public void visitFieldInsn(int opcode, String owner, String fieldName, String fieldDesc) {
+                    addName(owner);
+                    addType(Type.getType(fieldDesc));
+                }
+                @Override
+                public void visitMethodInsn(
+                        int opcode, String owner, String methodName, String methodDesc, boolean itf) {
+                    addName(owner);
+                    addType(Type.getMethodType(methodDesc));
+                }
+                @Override
+                public void visitInvokeDynamicInsn(String indyName, String indyDesc, Handle bsm, Object... bsmArgs) {
+                    addType(Type.getMethodType(indyDesc));
+                    addName(bsm.getOwner());
+                }
+                @Override
+                public void visitLdcInsn(Object cst) {
+                    if (cst instanceof Type) {
+                        addType((Type) cst);
+                    }
+                }
+                @Override
+                public void visitMultiANewArrayInsn(String arrayDesc, int dims) {
+                    addType(Type.getType(arrayDesc));
+                }
+                @Override
+                public void visitTryCatchBlock(Label start, Label end, Label handler, String type) {
+                    addName(type);
+                }
+            };
+        }
+
+        void addName(String name) {
+            if (name == null) {
+                return;
+            }
+            if (name.startsWith("[")) { //$NON-NLS-1$
+                addType(Type.getType(name));
+            } else {
+                results.add(name);
+            }
+        }
+
+        void addType(Type type) {
+            switch (type.getSort()) {
+            case Type.ARRAY:
+                addType(type.getElementType());
+                break;
+            case Type.OBJECT:
+                results.add(type.getInternalName());
+                break;
+            case Type.METHOD:
+                addType(type.getReturnType());
+                for (Type t : type.getArgumentTypes()) {
+                    addType(t);
+                }
+                break;
+            default:
+                break;
+            }
+        }
+    }
+}
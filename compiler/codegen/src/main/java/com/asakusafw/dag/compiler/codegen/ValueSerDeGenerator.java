@@ -20,23 +20,38 @@ import static com.asakusafw.dag.compiler.codegen.AsmUtil.*;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 
 import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
 
+import com.asakusafw.dag.api.common.StatefulSerDe;
 import com.asakusafw.dag.api.common.ValueSerDe;
 import com.asakusafw.dag.compiler.codegen.AsmUtil.FieldRef;
 import com.asakusafw.dag.compiler.codegen.AsmUtil.LocalVarRef;
+import com.asakusafw.dag.compiler.codegen.AsmUtil.Statement;
 import com.asakusafw.dag.compiler.model.ClassData;
+import com.asakusafw.dag.runtime.io.StringDictionary;
 import com.asakusafw.dag.runtime.io.ValueOptionSerDe;
+import com.asakusafw.dag.utils.common.Invariants;
 import com.asakusafw.lang.compiler.api.reference.DataModelReference;
 import com.asakusafw.lang.compiler.api.reference.PropertyReference;
+import com.asakusafw.lang.compiler.model.PropertyName;
 import com.asakusafw.lang.compiler.model.description.ClassDescription;
 import com.asakusafw.lang.compiler.model.description.Descriptions;
 import com.asakusafw.lang.compiler.model.description.TypeDescription;
+import com.asakusafw.runtime.value.StringOption;
 
 /**
  * Generates {@link ValueSerDe}.
@@ -47,6 +62,10 @@ public final class ValueSerDeGenerator {
 
     private static final ClassDescription SERDE = Descriptions.classOf(ValueOptionSerDe.class);
 
+    private static final ClassDescription STRING_OPTION = Descriptions.classOf(StringOption.class);
+
+    private static final Type DICTIONARY_TYPE = typeOf(StringDictionary.class);
+
     private static final String CATEGORY = "serde"; //$NON-NLS-1$
 
     private static final String SUFFIX = "SerDe"; //$NON-NLS-1$
@@ -66,6 +85,39 @@ public final class ValueSerDeGenerator {
         return context.addClassFile(generate(context, type));
     }
 
+    /**
+     * Generates {@link ValueSerDe} class which only transfers the specified properties.
+     * The other properties will be always {@code null} in the deserialized objects.
+     * @param context the current context
+     * @param type the target data model type
+     * @param projection the properties to transfer, or {@code null} to transfer all properties
+     * @return the generated class
+     * @since 0.2.0
+     * @see com.asakusafw.dag.compiler.model.plan.OutputSpec#getProjection()
+     */
+    public static ClassDescription get(
+            ClassGeneratorContext context, TypeDescription type, Collection<PropertyName> projection) {
+        return context.addClassFile(generate(context, type, projection));
+    }
+
+    /**
+     * Generates {@link ValueSerDe} class which only transfers the specified properties, and encodes the specified
+     * string properties using per-stream dictionaries.
+     * If {@code dictionary} is not empty, the generated class will be a {@link StatefulSerDe}.
+     * @param context the current context
+     * @param type the target data model type
+     * @param projection the properties to transfer, or {@code null} to transfer all properties
+     * @param dictionary the dictionary encoded string properties
+     * @return the generated class
+     * @since 0.2.0
+     * @see com.asakusafw.dag.compiler.model.plan.OutputSpec#getDictionaryEncoding()
+     */
+    public static ClassDescription get(
+            ClassGeneratorContext context, TypeDescription type,
+            Collection<PropertyName> projection, Collection<PropertyName> dictionary) {
+        return context.addClassFile(generate(context, type, projection, dictionary));
+    }
+
     /**
      * Generates {@link ValueSerDe} class.
      * @param context the current context
@@ -74,27 +126,86 @@ public final class ValueSerDeGenerator {
      * @since 0.2.0
      */
     public static ClassData generate(ClassGeneratorContext context, TypeDescription type) {
-        return context.cache(new Key(type), () -> {
+        return generate(context, type, null);
+    }
+
+    /**
+     * Generates {@link ValueSerDe} class which only transfers the specified properties.
+     * The other properties will be always {@code null} in the deserialized objects.
+     * @param context the current context
+     * @param type the target data model type
+     * @param projection the properties to transfer, or {@code null} to transfer all properties
+     * @return the generated class data
+     * @since 0.2.0
+     */
+    public static ClassData generate(
+            ClassGeneratorContext context, TypeDescription type, Collection<PropertyName> projection) {
+        return generate(context, type, projection, Collections.emptySet());
+    }
+
+    /**
+     * Generates {@link ValueSerDe} class which only transfers the specified properties, and encodes the specified
+     * string properties using per-stream dictionaries.
+     * If {@code dictionary} is not empty, the generated class will be a {@link StatefulSerDe}.
+     * @param context the current context
+     * @param type the target data model type
+     * @param projection the properties to transfer, or {@code null} to transfer all properties
+     * @param dictionary the dictionary encoded string properties
+     * @return the generated class data
+     * @since 0.2.0
+     * @see com.asakusafw.dag.compiler.model.plan.OutputSpec#getDictionaryEncoding()
+     */
+    public static ClassData generate(
+            ClassGeneratorContext context, TypeDescription type,
+            Collection<PropertyName> projection, Collection<PropertyName> dictionary) {
+        Set<PropertyName> properties = projection == null ? null : new LinkedHashSet<>(projection);
+        Set<PropertyName> dictionaryProperties = new LinkedHashSet<>(dictionary);
+        return context.cache(new Key(type, properties, dictionaryProperties), () -> {
             DataModelReference ref = context.getDataModelLoader().load(type);
             ClassDescription target = context.getClassName(CATEGORY, NameUtil.getSimpleNameHint(type, SUFFIX));
-            return generate0(ref, target);
+            return generate0(ref, properties, dictionaryProperties, target);
         });
     }
 
-    private static ClassData generate0(DataModelReference reference, ClassDescription target) {
-        ClassWriter writer = newWriter(target, Object.class, ValueSerDe.class);
+    private static ClassData generate0(
+            DataModelReference reference, Set<PropertyName> projection, Set<PropertyName> dictionary,
+            ClassDescription target) {
+        boolean stateful = dictionary.isEmpty() == false;
+        ClassWriter writer = newWriter(target, Object.class, stateful ? StatefulSerDe.class : ValueSerDe.class);
         FieldRef buffer = defineField(writer, target, "buffer", typeOf(reference));
+        Map<PropertyName, FieldRef> dictionaries = new LinkedHashMap<>();
+        for (PropertyReference property : reference.getProperties()) {
+            if (dictionary.contains(property.getName()) && isTransferred(property, projection)) {
+                Invariants.require(property.getType().equals(STRING_OPTION), () -> property);
+                String name = String.format("dictionary%d", dictionaries.size()); //$NON-NLS-1$
+                dictionaries.put(property.getName(), defineField(writer, target, name, DICTIONARY_TYPE));
+            }
+        }
         defineEmptyConstructor(writer, Object.class, v -> {
             v.visitVarInsn(Opcodes.ALOAD, 0);
             getNew(v, reference.getDeclaration());
             putField(v, buffer);
+            for (FieldRef field : dictionaries.values()) {
+                v.visitVarInsn(Opcodes.ALOAD, 0);
+                getNew(v, Descriptions.classOf(StringDictionary.class));
+                putField(v, field);
+            }
         });
-        putSerialize(reference, writer);
-        putDeserialize(reference, buffer, writer);
+        putSerialize(reference, projection, dictionaries, writer, target);
+        putDeserialize(reference, projection, dictionaries, buffer, writer, target);
+        if (stateful) {
+            putReset(dictionaries, writer);
+        }
         return new ClassData(target, writer::toByteArray);
     }
 
-    private static void putSerialize(DataModelReference reference, ClassWriter writer) {
+    private static boolean isTransferred(PropertyReference property, Set<PropertyName> projection) {
+        return projection == null || projection.contains(property.getName());
+    }
+
+    private static void putSerialize(
+            DataModelReference reference, Set<PropertyName> projection,
+            Map<PropertyName, FieldRef> dictionaries, ClassWriter writer, ClassDescription target) {
         MethodVisitor v = writer.visitMethod(
                 Opcodes.ACC_PUBLIC,
                 "serialize",
@@ -106,26 +217,58 @@ public final class ValueSerDeGenerator {
                 });
         LocalVarRef object = cast(v, 1, reference.getDeclaration());
         LocalVarRef output = new LocalVarRef(Opcodes.ALOAD, 2);
+        List<Statement> statements = new ArrayList<>();
         for (PropertyReference property : reference.getProperties()) {
-            object.load(v);
-            getOption(v, property);
-            output.load(v);
-            v.visitMethodInsn(
-                    Opcodes.INVOKESTATIC,
-                    SERDE.getInternalName(),
-                    "serialize",
-                    Type.getMethodDescriptor(
-                            Type.VOID_TYPE,
-                            typeOf(property.getType()),
-                            typeOf(DataOutput.class)),
-                    false);
+            if (isTransferred(property, projection) == false) {
+                continue;
+            }
+            FieldRef dictionary = dictionaries.get(property.getName());
+            if (dictionary != null) {
+                statements.add((m, args) -> {
+                    dictionary.load(m);
+                    args.get(0).load(m);
+                    getOption(m, property);
+                    args.get(1).load(m);
+                    m.visitMethodInsn(
+                            Opcodes.INVOKEVIRTUAL,
+                            DICTIONARY_TYPE.getInternalName(),
+                            "serialize",
+                            Type.getMethodDescriptor(
+                                    Type.VOID_TYPE,
+                                    typeOf(property.getType()),
+                                    typeOf(DataOutput.class)),
+                            false);
+                });
+                continue;
+            }
+            statements.add((m, args) -> {
+                args.get(0).load(m);
+                getOption(m, property);
+                args.get(1).load(m);
+                m.visitMethodInsn(
+                        Opcodes.INVOKESTATIC,
+                        SERDE.getInternalName(),
+                        "serialize",
+                        Type.getMethodDescriptor(
+                                Type.VOID_TYPE,
+                                typeOf(property.getType()),
+                                typeOf(DataOutput.class)),
+                        false);
+            });
         }
+        defineStatements(writer, target, v, "serialize",
+                Arrays.asList(typeOf(reference), typeOf(DataOutput.class)),
+                Arrays.asList(object, output),
+                statements);
         v.visitInsn(Opcodes.RETURN);
         v.visitMaxs(0, 0);
         v.visitEnd();
     }
 
-    private static void putDeserialize(DataModelReference reference, FieldRef buffer, ClassWriter writer) {
+    private static void putDeserialize(
+            DataModelReference reference, Set<PropertyName> projection,
+            Map<PropertyName, FieldRef> dictionaries,
+            FieldRef buffer, ClassWriter writer, ClassDescription target) {
         MethodVisitor v = writer.visitMethod(
                 Opcodes.ACC_PUBLIC,
                 "deserialize",
@@ -141,32 +284,95 @@ public final class ValueSerDeGenerator {
         self.load(v);
         getField(v, buffer);
         LocalVarRef object = putLocalVar(v, Type.OBJECT, 2);
+        List<Statement> statements = new ArrayList<>();
         for (PropertyReference property : reference.getProperties()) {
-            object.load(v);
-            getOption(v, property);
-            input.load(v);
-            v.visitMethodInsn(
-                    Opcodes.INVOKESTATIC,
-                    SERDE.getInternalName(),
-                    "deserialize",
-                    Type.getMethodDescriptor(
-                            Type.VOID_TYPE,
-                            typeOf(property.getType()),
-                            typeOf(DataInput.class)),
-                    false);
+            FieldRef dictionary = dictionaries.get(property.getName());
+            if (dictionary != null) {
+                statements.add((m, args) -> {
+                    dictionary.load(m);
+                    args.get(0).load(m);
+                    getOption(m, property);
+                    args.get(1).load(m);
+                    m.visitMethodInsn(
+                            Opcodes.INVOKEVIRTUAL,
+                            DICTIONARY_TYPE.getInternalName(),
+                            "deserialize",
+                            Type.getMethodDescriptor(
+                                    Type.VOID_TYPE,
+                                    typeOf(property.getType()),
+                                    typeOf(DataInput.class)),
+                            false);
+                });
+                continue;
+            }
+            if (isTransferred(property, projection) == false) {
+                statements.add((m, args) -> {
+                    // the buffer may be modified by the succeeding operations
+                    args.get(0).load(m);
+                    getOption(m, property);
+                    setNullOption(m);
+                    m.visitInsn(Opcodes.POP);
+                });
+                continue;
+            }
+            statements.add((m, args) -> {
+                args.get(0).load(m);
+                getOption(m, property);
+                args.get(1).load(m);
+                m.visitMethodInsn(
+                        Opcodes.INVOKESTATIC,
+                        SERDE.getInternalName(),
+                        "deserialize",
+                        Type.getMethodDescriptor(
+                                Type.VOID_TYPE,
+                                typeOf(property.getType()),
+                                typeOf(DataInput.class)),
+                        false);
+            });
         }
+        defineStatements(writer, target, v, "deserialize",
+                Arrays.asList(typeOf(reference), typeOf(DataInput.class)),
+                Arrays.asList(object, input),
+                statements);
         object.load(v);
         v.visitInsn(Opcodes.ARETURN);
         v.visitMaxs(0, 0);
         v.visitEnd();
     }
 
+    private static void putReset(Map<PropertyName, FieldRef> dictionaries, ClassWriter writer) {
+        MethodVisitor v = writer.visitMethod(
+                Opcodes.ACC_PUBLIC,
+                "reset",
+                Type.getMethodDescriptor(Type.VOID_TYPE),
+                null,
+                null);
+        for (FieldRef field : dictionaries.values()) {
+            field.load(v);
+            v.visitMethodInsn(
+                    Opcodes.INVOKEVIRTUAL,
+                    DICTIONARY_TYPE.getInternalName(),
+                    "reset",
+                    Type.getMethodDescriptor(Type.VOID_TYPE),
+                    false);
+        }
+        v.visitInsn(Opcodes.RETURN);
+        v.visitMaxs(0, 0);
+        v.visitEnd();
+    }
+
     private static class Key {
 
         private final TypeDescription type;
 
-        Key(TypeDescription type) {
+        private final Set<PropertyName> projection;
+
+        private final Set<PropertyName> dictionary;
+
+        Key(TypeDescription type, Set<PropertyName> projection, Set<PropertyName> dictionary) {
             this.type = type;
+            this.projection = projection == null ? null : Collections.unmodifiableSet(projection);
+            this.dictionary = Collections.unmodifiableSet(dictionary);
         }
 
         @Override
@@ -174,6 +380,8 @@ public final class ValueSerDeGenerator {
             final int prime = 31;
             int result = 1;
             result = prime * result + Objects.hashCode(type);
+            result = prime * result + Objects.hashCode(projection);
+            result = prime * result + Objects.hashCode(dictionary);
             return result;
         }
 
@@ -189,12 +397,18 @@ public final class ValueSerDeGenerator {
                 return false;
             }
             Key other = (Key) obj;
-            return Objects.equals(type, other.type);
+            return Objects.equals(type, other.type)
+                    && Objects.equals(projection, other.projection)
+                    && Objects.equals(dictionary, other.dictionary);
         }
 
         @Override
         public String toString() {
-            return String.format("ValueSerDe(%s)", type); //$NON-NLS-1$
+            if (projection == null && dictionary.isEmpty()) {
+                return String.format("ValueSerDe(%s)", type); //$NON-NLS-1$
+            }
+            return String.format("ValueSerDe(%s, projection=%s, dictionary=%s)", //$NON-NLS-1$
+                    type, projection, dictionary);
         }
     }
 }
@@ -0,0 +1,81 @@
+/**
+ * Copyright 2011-2016 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.compiler.codegen;
+
+import static com.asakusafw.lang.compiler.model.description.Descriptions.*;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+
+import org.junit.Test;
+
+import com.asakusafw.dag.api.common.BlockSerDe;
+import com.asakusafw.dag.compiler.model.ClassData;
+import com.asakusafw.dag.runtime.testing.MockDataModel;
+import com.asakusafw.dag.runtime.testing.MockKeyValueModel;
+import com.asakusafw.lang.compiler.model.description.ClassDescription;
+import com.asakusafw.runtime.io.util.DataBuffer;
+
+/**
+ * Test for {@link BlockSerDeGenerator}.
+ */
+public class BlockSerDeGeneratorTest extends ClassGeneratorTestRoot {
+
+    /**
+     * simple case.
+     */
+    @Test
+    public void simple() {
+        ClassDescription gen = BlockSerDeGenerator.get(context(), classOf(MockDataModel.class));
+        loading(cl -> {
+            BlockSerDe object = (BlockSerDe) gen.resolve(cl).newInstance();
+
+            Object[] models = new Object[300];
+            for (int i = 0; i < models.length; i++) {
+                models[i] = new MockDataModel(i, new BigDecimal(i % 3), i % 2 == 0 ? "Hello" : null);
+            }
+            DataBuffer buffer = new DataBuffer();
+            object.serialize(models, models.length, buffer);
+
+            Object[] copies = new Object[models.length];
+            int count = object.deserialize(copies, buffer);
+            assertThat(count, is(models.length));
+            assertThat(buffer.getReadRemaining(), is(0));
+            assertThat(copies, is(models));
+        });
+    }
+
+    /**
+     * cache - equivalent.
+     */
+    @Test
+    public void cache() {
+        ClassData a = BlockSerDeGenerator.generate(context(), typeOf(MockDataModel.class));
+        ClassData b = BlockSerDeGenerator.generate(context(), typeOf(MockDataModel.class));
+        assertThat(b, is(cacheOf(a)));
+    }
+
+    /**
+     * cache w/ different types.
+     */
+    @Test
+    public void cache_diff_type() {
+        ClassData a = BlockSerDeGenerator.generate(context(), typeOf(MockDataModel.class));
+        ClassData b = BlockSerDeGenerator.generate(context(), typeOf(MockKeyValueModel.class));
+        assertThat(b, is(not(cacheOf(a))));
+    }
+}
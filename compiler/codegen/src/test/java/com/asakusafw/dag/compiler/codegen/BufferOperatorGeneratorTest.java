@@ -22,6 +22,7 @@ import static org.junit.Assert.*;
 import java.lang.reflect.Constructor;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
@@ -34,6 +35,7 @@ import com.asakusafw.dag.compiler.model.graph.OutputNode;
 import com.asakusafw.dag.compiler.model.graph.VertexElement;
 import com.asakusafw.dag.runtime.testing.MockDataModel;
 import com.asakusafw.dag.runtime.testing.MockKeyValueModel;
+import com.asakusafw.lang.compiler.model.PropertyName;
 import com.asakusafw.lang.compiler.model.description.ClassDescription;
 import com.asakusafw.lang.compiler.model.description.TypeDescription;
 import com.asakusafw.runtime.core.Result;
@@ -140,6 +142,95 @@ public class BufferOperatorGeneratorTest extends ClassGeneratorTestRoot {
         assertThat(m3.getResults().get(0).getKey(), is(5));
     }
 
+    /**
+     * w/ live properties.
+     */
+    @Test
+    public void live_properties() {
+        MockResult<MockDataModel> m0 = new MockResult<>();
+        MockResult<MockDataModel> m1 = new MockResult<>();
+        check(Arrays.asList(m0, m1), Arrays.asList(PropertyName.of("key")), r -> {
+            r.add(new MockDataModel(1, "Hello, world!"));
+        });
+        assertThat(m0.getResults(), hasSize(1));
+        assertThat(m1.getResults(), hasSize(1));
+        assertThat(m0.getResults().get(0).getKey(), is(1));
+        assertThat(m0.getResults().get(0).getValueOption().isNull(), is(true));
+        assertThat(m1.getResults().get(0).getKey(), is(1));
+        assertThat(m1.getResults().get(0).getValue(), is("Hello, world!"));
+    }
+
+    /**
+     * w/ read-only successors.
+     */
+    @Test
+    public void read_only() {
+        List<Object> received = new ArrayList<>();
+        MockResult<MockDataModel> m0 = new MockResult<MockDataModel>() {
+            @Override
+            protected MockDataModel bless(MockDataModel result) {
+                received.add(result);
+                result.setKey(result.getKey() + 1);
+                return new MockDataModel(result);
+            }
+        };
+        MockResult<MockDataModel> m1 = new MockResult<MockDataModel>() {
+            @Override
+            protected MockDataModel bless(MockDataModel result) {
+                received.add(result);
+                return new MockDataModel(result);
+            }
+        };
+        MockResult<MockDataModel> m2 = new MockResult<MockDataModel>() {
+            @Override
+            protected MockDataModel bless(MockDataModel result) {
+                received.add(result);
+                result.setKey(result.getKey() + 2);
+                return new MockDataModel(result);
+            }
+        };
+        MockDataModel o = new MockDataModel(1, "Hello, world!");
+        check(Arrays.asList(m0, m1, m2), null, Arrays.asList(1), r -> {
+            r.add(o);
+        });
+        assertThat(m0.getResults().get(0).getKey(), is(2));
+        assertThat(m1.getResults().get(0).getKey(), is(1));
+        assertThat(m2.getResults().get(0).getKey(), is(3));
+
+        // read-only successor comes first, and then only the last modifier receives the original
+        assertThat(received, hasSize(3));
+        assertThat(received.get(0), is(sameInstance(o)));
+        assertThat(received.get(1), is(not(sameInstance(o))));
+        assertThat(received.get(2), is(sameInstance(o)));
+    }
+
+    /**
+     * w/ only read-only successors.
+     */
+    @Test
+    public void read_only_all() {
+        List<Object> received = new ArrayList<>();
+        MockResult<MockDataModel> m0 = new MockResult<MockDataModel>() {
+            @Override
+            protected MockDataModel bless(MockDataModel result) {
+                received.add(result);
+                return new MockDataModel(result);
+            }
+        };
+        MockResult<MockDataModel> m1 = new MockResult<MockDataModel>() {
+            @Override
+            protected MockDataModel bless(MockDataModel result) {
+                received.add(result);
+                return new MockDataModel(result);
+            }
+        };
+        MockDataModel o = new MockDataModel(1, "Hello, world!");
+        check(Arrays.asList(m0, m1), null, Arrays.asList(0, 1), r -> {
+            r.add(o);
+        });
+        assertThat(received, contains(sameInstance(o), sameInstance(o)));
+    }
+
     /**
      * cache - simple.
      */
@@ -160,6 +251,34 @@ public class BufferOperatorGeneratorTest extends ClassGeneratorTestRoot {
         assertThat(b, is(not(cacheOf(a))));
     }
 
+    /**
+     * cache w/ different live properties.
+     */
+    @Test
+    public void cache_diff_properties() {
+        List<VertexElement> outputs = outputs(typeOf(MockDataModel.class), 2);
+        ClassData a = BufferOperatorGenerator.generate(context(), outputs);
+        ClassData b = BufferOperatorGenerator.generate(context(), outputs, Arrays.asList(PropertyName.of("key")));
+        ClassData c = BufferOperatorGenerator.generate(context(), outputs, Arrays.asList(PropertyName.of("key")));
+        assertThat(b, is(not(cacheOf(a))));
+        assertThat(c, is(cacheOf(b)));
+    }
+
+    /**
+     * cache w/ different read-only successors.
+     */
+    @Test
+    public void cache_diff_read_only() {
+        List<VertexElement> outputs = outputs(typeOf(MockDataModel.class), 2);
+        ClassData a = BufferOperatorGenerator.generate(context(), outputs);
+        ClassData b = BufferOperatorGenerator.generate(context(), outputs, null, outputs.subList(0, 1));
+        ClassData c = BufferOperatorGenerator.generate(context(), outputs, null, outputs.subList(1, 2));
+        ClassData d = BufferOperatorGenerator.generate(context(), outputs, null, outputs.subList(0, 1));
+        assertThat(b, is(not(cacheOf(a))));
+        assertThat(c, is(not(cacheOf(b))));
+        assertThat(d, is(cacheOf(b)));
+    }
+
     /**
      * cache w/ different counts.
      */
@@ -171,6 +290,21 @@ public class BufferOperatorGeneratorTest extends ClassGeneratorTestRoot {
     }
 
     private void check(List<? extends Result<MockDataModel>> list, Consumer<Result<MockDataModel>> callback) {
+        check(list, null, callback);
+    }
+
+    private void check(
+            List<? extends Result<MockDataModel>> list,
+            List<PropertyName> properties,
+            Consumer<Result<MockDataModel>> callback) {
+        check(list, properties, Collections.emptyList(), callback);
+    }
+
+    private void check(
+            List<? extends Result<MockDataModel>> list,
+            List<PropertyName> properties,
+            List<Integer> readOnly,
+            Consumer<Result<MockDataModel>> callback) {
         List<VertexElement> succs = new ArrayList<>();
         Class<?>[] parameterTypes = new Class<?>[list.size()];
         Object[] arguments = new Object[list.size()];
@@ -180,7 +314,8 @@ public class BufferOperatorGeneratorTest extends ClassGeneratorTestRoot {
             arguments[i] = list.get(i);
         }
         ClassGeneratorContext context = context();
-        ClassDescription generated = BufferOperatorGenerator.get(context, succs);
+        ClassDescription generated = BufferOperatorGenerator.get(context, succs, properties,
+                readOnly.stream().map(succs::get).collect(Collectors.toList()));
         loading(generated, c -> {
             Constructor<?> ctor = c.getConstructor(list.stream().map(r -> Result.class).toArray(Class[]::new));
             @SuppressWarnings("unchecked")
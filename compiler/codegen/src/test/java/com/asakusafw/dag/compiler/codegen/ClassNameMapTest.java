@@ -58,6 +58,26 @@ public class ClassNameMapTest {
         assertThat(a1, is(not(a2)));
     }
 
+    /**
+     * w/ scopes.
+     */
+    @Test
+    public void scope() {
+        ClassDescription a0 = map.get("s0", "a", "A");
+        ClassDescription a1 = map.get("s1", "a", "A");
+        ClassDescription a2 = map.get("a", "A");
+        assertThat(a0, is(valid()));
+        assertThat(a1, is(valid()));
+        assertThat(a2, is(valid()));
+        assertThat(a0, is(not(a1)));
+        assertThat(a0, is(not(a2)));
+        assertThat(a1, is(not(a2)));
+
+        ClassNameMap other = new ClassNameMap("com.example.");
+        assertThat(other.get("s1", "a", "A"), is(a1));
+        assertThat(other.get("s0", "a", "A"), is(a0));
+    }
+
     /**
      * w/o hint.
      */
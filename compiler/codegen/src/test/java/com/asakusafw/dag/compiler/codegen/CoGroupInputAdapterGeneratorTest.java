@@ -20,11 +20,14 @@ import static org.junit.Assert.*;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.function.Function;
 
 import org.junit.Test;
 
@@ -33,13 +36,17 @@ import com.asakusafw.dag.api.processor.testing.CollectionGroupReader;
 import com.asakusafw.dag.api.processor.testing.MockTaskProcessorContext;
 import com.asakusafw.dag.api.processor.testing.MockVertexProcessorContext;
 import com.asakusafw.dag.compiler.codegen.CoGroupInputAdapterGenerator.Spec;
+import com.asakusafw.dag.compiler.model.plan.InputSpec.InputOption;
 import com.asakusafw.dag.runtime.adapter.CoGroupOperation;
 import com.asakusafw.dag.runtime.adapter.InputHandler;
 import com.asakusafw.dag.runtime.adapter.InputHandler.InputSession;
 import com.asakusafw.dag.runtime.skeleton.CoGroupInputAdapter;
+import com.asakusafw.dag.runtime.skeleton.CoGroupInputAdapter.BufferType;
 import com.asakusafw.dag.runtime.testing.MockDataModel;
 import com.asakusafw.dag.utils.common.Lang;
 import com.asakusafw.lang.compiler.model.description.ClassDescription;
+import com.asakusafw.lang.compiler.model.graph.Group;
+import com.asakusafw.lang.compiler.model.graph.Groups;
 
 /**
  * Test for {@link CoGroupInputAdapter}.
@@ -118,15 +125,106 @@ public class CoGroupInputAdapterGeneratorTest extends ClassGeneratorTestRoot {
                 ls(ls(), ls("C-1-1", "C-1-2")))));
     }
 
+    /**
+     * w/ stream buffer.
+     */
+    @Test
+    public void stream() {
+        Map<String, SortedMap<String, List<MockDataModel>>> in = new LinkedHashMap<>();
+        in.put("o0", Lang.let(new TreeMap<>(), m -> {
+            m.put("A", ls(new MockDataModel("A-0-0")));
+            m.put("B", ls(new MockDataModel("B-0-1"), new MockDataModel("B-0-2")));
+        }));
+        in.put("o1", Lang.let(new TreeMap<>(), m -> {
+            m.put("A", ls(new MockDataModel("A-1-0")));
+            m.put("C", ls(new MockDataModel("C-1-1"), new MockDataModel("C-1-2")));
+        }));
+
+        List<List<List<String>>> results = check(in, BufferType.STREAM);
+        assertThat(results, is(ls(ls(ls("A-0-0"), ls("A-1-0")),
+                ls(ls("B-0-1", "B-0-2"), ls()),
+                ls(ls(), ls("C-1-1", "C-1-2")))));
+    }
+
+    /**
+     * w/ local orderings.
+     */
+    @Test
+    public void local_sort() {
+        Map<String, SortedMap<String, List<MockDataModel>>> in = new LinkedHashMap<>();
+        in.put("o0", Lang.let(new TreeMap<>(), m -> {
+            m.put("A", ls(new MockDataModel(2, "A-0-0"), new MockDataModel(1, "A-0-1")));
+        }));
+        in.put("o1", Lang.let(new TreeMap<>(), m -> {
+            m.put("A", ls(new MockDataModel(1, "A-1-0"), new MockDataModel(3, "A-1-1"), new MockDataModel(2, "A-1-2")));
+        }));
+
+        List<List<List<String>>> results = check(in, BufferType.HEAP, ObjectComparatorGeneratorTest.orderings("+key"));
+        assertThat(results, is(ls(ls(ls("A-0-1", "A-0-0"), ls("A-1-0", "A-1-2", "A-1-1")))));
+    }
+
+    /**
+     * w/ {@link InputOption#LOCAL_SORT}.
+     */
+    @Test
+    public void local_sort_option() {
+        Map<String, SortedMap<String, List<MockDataModel>>> in = new LinkedHashMap<>();
+        in.put("o0", Lang.let(new TreeMap<>(), m -> {
+            m.put("A", ls(new MockDataModel(1, "A-0-0"), new MockDataModel(3, "A-0-1"), new MockDataModel(2, "A-0-2")));
+        }));
+
+        Group group = Groups.parse(Arrays.asList("value"), Arrays.asList("-key"));
+        List<List<List<String>>> results = check(in, s -> Spec.of(
+                s, typeOf(MockDataModel.class), EnumSet.of(InputOption.PRIMARY, InputOption.LOCAL_SORT), group));
+        assertThat(results, is(ls(ls(ls("A-0-1", "A-0-2", "A-0-0")))));
+    }
+
+    /**
+     * w/o {@link InputOption#LOCAL_SORT}.
+     */
+    @Test
+    public void local_sort_option_missing() {
+        Map<String, SortedMap<String, List<MockDataModel>>> in = new LinkedHashMap<>();
+        in.put("o0", Lang.let(new TreeMap<>(), m -> {
+            m.put("A", ls(new MockDataModel(1, "A-0-0"), new MockDataModel(3, "A-0-1"), new MockDataModel(2, "A-0-2")));
+        }));
+
+        Group group = Groups.parse(Arrays.asList("value"), Arrays.asList("-key"));
+        List<List<List<String>>> results = check(in, s -> Spec.of(
+                s, typeOf(MockDataModel.class), EnumSet.of(InputOption.PRIMARY), group));
+        assertThat(results, is(ls(ls(ls("A-0-0", "A-0-1", "A-0-2")))));
+    }
+
     @SafeVarargs
     private static <T> List<T> ls(T... values) {
         return Arrays.asList(values);
     }
 
     private List<List<List<String>>> check(Map<String, SortedMap<String, List<MockDataModel>>> map) {
+        return check(map, BufferType.HEAP);
+    }
+
+    private List<List<List<String>>> check(
+            Map<String, SortedMap<String, List<MockDataModel>>> map,
+            BufferType bufferType) {
+        return check(map, bufferType, Collections.emptyList());
+    }
+
+    private List<List<List<String>>> check(
+            Map<String, SortedMap<String, List<MockDataModel>>> map,
+            BufferType bufferType,
+            List<Group.Ordering> orderings) {
+        return check(map, s -> new Spec(s, typeOf(MockDataModel.class), bufferType, orderings));
+    }
+
+    private List<List<List<String>>> check(
+            Map<String, SortedMap<String, List<MockDataModel>>> map,
+            Function<String, Spec> specs) {
         ClassGeneratorContext gc = context();
         ClassDescription generated = add(c -> new CoGroupInputAdapterGenerator().generate(
-                gc, Lang.project(map.keySet(), s -> new Spec(s, typeOf(MockDataModel.class), false)), c));
+                gc,
+                Lang.project(map.keySet(), specs),
+                c));
 
         MockTaskProcessorContext tc = new MockTaskProcessorContext("t");
         map.forEach((in, v) -> tc.withInput(in, () -> new CollectionGroupReader(v)));
@@ -0,0 +1,230 @@
+/**
+ * Copyright 2011-2016 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.compiler.codegen;
+
+import static com.asakusafw.lang.compiler.model.description.Descriptions.*;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+import com.asakusafw.dag.compiler.model.ClassData;
+import com.asakusafw.dag.runtime.testing.MockDataModel;
+import com.asakusafw.dag.runtime.testing.MockKeyValueModel;
+import com.asakusafw.lang.compiler.api.testing.MockDataModelLoader;
+import com.asakusafw.lang.compiler.common.BasicResourceContainer;
+import com.asakusafw.lang.compiler.model.description.ClassDescription;
+import com.asakusafw.lang.compiler.model.description.TypeDescription;
+
+/**
+ * Test for {@link ConcurrentClassGeneratorContext}.
+ */
+public class ConcurrentClassGeneratorContextTest extends ClassGeneratorTestRoot {
+
+    /**
+     * simple case.
+     */
+    @Test
+    public void simple() {
+        ConcurrentClassGeneratorContext context = newContext();
+        List<ClassDescription> results = generate(context, 1, Collections.singletonList(typeOf(MockDataModel.class)));
+        assertThat(results, hasSize(1));
+        loading(results.get(0), c -> {
+            Supplier<?> object = (Supplier<?>) c.newInstance();
+            assertThat(object.get(), instanceOf(MockDataModel.class));
+        });
+    }
+
+    /**
+     * class names are reproducible.
+     * @throws Exception if failed
+     */
+    @Test
+    public void deterministic() throws Exception {
+        List<TypeDescription> subjects = IntStream.range(0, 32)
+                .mapToObj(i -> i % 2 == 0 ? typeOf(MockDataModel.class) : typeOf(MockKeyValueModel.class))
+                .collect(Collectors.toList());
+        List<ClassDescription> sequential = generate(newContext(), 1, subjects);
+        List<ClassDescription> parallel = generate(newContext(classpath.newFolder()), 8, subjects);
+        assertThat(parallel, is(sequential));
+        assertThat(sequential.get(0), is(not(sequential.get(1))));
+        assertThat(sequential.get(0), is(sequential.get(2)));
+    }
+
+    /**
+     * subject local class names are reproducible.
+     */
+    @Test
+    public void deterministic_subject() {
+        List<Integer> subjects = IntStream.range(0, 32).boxed().collect(Collectors.toList());
+        List<List<ClassDescription>> sequential = names(newContext(), 1, subjects);
+        List<List<ClassDescription>> parallel = names(newContext(), 8, subjects);
+        assertThat(parallel, is(sequential));
+        long count = sequential.stream().flatMap(List::stream).distinct().count();
+        assertThat(count, is(subjects.size() * 2L));
+    }
+
+    /**
+     * cache is shared between subjects.
+     */
+    @Test
+    public void cache() {
+        ConcurrentClassGeneratorContext context = newContext();
+        AtomicInteger generated = new AtomicInteger();
+        List<Integer> subjects = IntStream.range(0, 64).boxed().collect(Collectors.toList());
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<ClassData> results;
+        try {
+            results = context.generate(executor, subjects, i -> context.cache("testing", () -> {
+                generated.incrementAndGet();
+                return SupplierGenerator.generate(context, typeOf(MockDataModel.class));
+            }));
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(generated.get(), is(1));
+        assertThat(results.stream().filter(ClassData::hasContents).count(), is(1L));
+        assertThat(results.stream().map(ClassData::getDescription).distinct().count(), is(1L));
+    }
+
+    /**
+     * duplicate cache entries.
+     */
+    @Test
+    public void add_cache_duplicate() {
+        ConcurrentClassGeneratorContext context = newContext();
+        context.addCache("a", classOf(String.class));
+        context.addCache("a", classOf(Integer.class));
+        assertThat(context.findCache("a").get(), is(classOf(String.class)));
+        assertThat(context.findCache("b").isPresent(), is(false));
+    }
+
+    /**
+     * generation was failed.
+     */
+    @Test
+    public void cache_failure() {
+        ConcurrentClassGeneratorContext context = newContext();
+        try {
+            context.cache("a", () -> {
+                throw new UnsupportedOperationException();
+            });
+            fail();
+        } catch (UnsupportedOperationException e) {
+            // ok.
+        }
+        assertThat(context.findCache("a").isPresent(), is(false));
+    }
+
+    /**
+     * different cache keys share the same scope name.
+     */
+    @Test
+    public void cache_scope_conflict() {
+        ConcurrentClassGeneratorContext context = newContext();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        List<List<ClassDescription>> results;
+        try {
+            results = context.generate(executor, Collections.singletonList(0), i -> {
+                List<ClassDescription> names = new ArrayList<>();
+                names.add(context.cache(new ConflictKey(0), () -> {
+                    return SupplierGenerator.generate(context, typeOf(MockDataModel.class));
+                }).getDescription());
+                names.add(context.cache(new ConflictKey(1), () -> {
+                    return SupplierGenerator.generate(context, typeOf(MockDataModel.class));
+                }).getDescription());
+                return names;
+            });
+        } finally {
+            executor.shutdownNow();
+        }
+        List<ClassDescription> names = results.get(0);
+        assertThat(names.get(0).getClassName(), containsString("_k"));
+        assertThat(names.get(1).getClassName(), containsString("_s0_"));
+    }
+
+    private ConcurrentClassGeneratorContext newContext() {
+        return newContext(classpath.getRoot());
+    }
+
+    private ConcurrentClassGeneratorContext newContext(File destination) {
+        ClassLoader cl = getClass().getClassLoader();
+        return new ConcurrentClassGeneratorContext(
+                cl, new MockDataModelLoader(cl),
+                new BasicResourceContainer(destination),
+                new ClassNameMap("com.example."));
+    }
+
+    private static List<ClassDescription> generate(
+            ConcurrentClassGeneratorContext context, int threads, List<TypeDescription> subjects) {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            return context.generate(executor, subjects, t -> SupplierGenerator.get(context, t));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static List<List<ClassDescription>> names(
+            ConcurrentClassGeneratorContext context, int threads, List<Integer> subjects) {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            return context.generate(executor, subjects, i -> {
+                List<ClassDescription> results = new ArrayList<>();
+                results.add(context.getClassName("testing", "A"));
+                results.add(context.getClassName("testing", "A"));
+                return results;
+            });
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static final class ConflictKey {
+
+        private final int id;
+
+        ConflictKey(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public int hashCode() {
+            return id;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof ConflictKey && ((ConflictKey) obj).id == id;
+        }
+
+        @Override
+        public String toString() {
+            return "conflict";
+        }
+    }
+}
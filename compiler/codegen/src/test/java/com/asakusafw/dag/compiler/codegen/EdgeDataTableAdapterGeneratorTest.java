@@ -40,6 +40,7 @@ import com.asakusafw.lang.compiler.model.description.ClassDescription;
 import com.asakusafw.lang.compiler.model.description.Descriptions;
 import com.asakusafw.lang.compiler.model.graph.Groups;
 import com.asakusafw.runtime.value.IntOption;
+import com.asakusafw.runtime.value.StringOption;
 
 /**
  * Test for {@link EdgeDataTableAdapterGenerator}.
@@ -71,6 +72,27 @@ public class EdgeDataTableAdapterGeneratorTest extends ClassGeneratorTestRoot {
         });
     }
 
+    /**
+     * w/ multiple key properties.
+     */
+    @Test
+    public void composite_key() {
+        define("t", "i", MockDataModel.class, "key", "value");
+        data("i", new Object[] {
+                new MockDataModel(0, "Hello0"),
+                new MockDataModel(1, "Hello1"),
+                new MockDataModel(1, "Hello1"),
+                new MockDataModel(1, "Hello2"),
+        });
+        check(a -> {
+            DataTable<MockDataModel> t = a.getDataTable(MockDataModel.class, "t");
+            assertThat(get(t, MockDataModel::getValue, 0, "Hello0"), contains("Hello0"));
+            assertThat(get(t, MockDataModel::getValue, 1, "Hello1"), contains("Hello1", "Hello1"));
+            assertThat(get(t, MockDataModel::getValue, 1, "Hello2"), contains("Hello2"));
+            assertThat(get(t, MockDataModel::getValue, 0, "Hello1"), hasSize(0));
+        });
+    }
+
     /**
      * multiple tables.
      */
@@ -123,6 +145,14 @@ public class EdgeDataTableAdapterGeneratorTest extends ClassGeneratorTestRoot {
         return Lang.project(list, mapper);
     }
 
+    private <T, U> List<U> get(DataTable<T> table, Function<T, U> mapper, int key, String value) {
+        KeyBuffer buffer = table.newKeyBuffer();
+        buffer.append(new IntOption(key));
+        buffer.append(new StringOption(value));
+        List<T> list = table.getList(buffer);
+        return Lang.project(list, mapper);
+    }
+
     private KeyBuffer key(DataTable<?> table, int... values) {
         KeyBuffer key = table.newKeyBuffer();
         for (int value : values) {
@@ -20,6 +20,10 @@ import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.*;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import org.junit.Test;
 
@@ -168,6 +172,45 @@ public class KeyValueSerDeGeneratorTest extends ClassGeneratorTestRoot {
         });
     }
 
+    /**
+     * salted keys.
+     */
+    @Test
+    public void salted() {
+        Group group = group("=key", "+sort");
+        ClassDescription gen = KeyValueSerDeGenerator.get(context(), classOf(MockDataModel.class), group, 3);
+        loading(cl -> {
+            KeyValueSerDe object = (KeyValueSerDe) gen.resolve(cl).newInstance();
+
+            MockDataModel model = new MockDataModel();
+            model.getKeyOption().modify(100);
+            model.getSortOption().modify(new BigDecimal("3.14"));
+            model.getValueOption().modify("Hello, world!");
+
+            Set<List<Byte>> keys = new HashSet<>();
+            for (int i = 0; i < 6; i++) {
+                DataBuffer kBuffer = new DataBuffer();
+                DataBuffer vBuffer = new DataBuffer();
+                object.serializeKey(model, kBuffer);
+                object.serializeValue(model, vBuffer);
+
+                List<Byte> key = new ArrayList<>();
+                for (int j = kBuffer.getReadPosition(), n = kBuffer.getReadLimit(); j < n; j++) {
+                    key.add(kBuffer.getData()[j]);
+                }
+                keys.add(key);
+
+                MockDataModel copy = (MockDataModel) object.deserializePair(kBuffer, vBuffer);
+                assertThat(kBuffer.getReadRemaining(), is(0));
+                assertThat(vBuffer.getReadRemaining(), is(0));
+                assertThat(copy.getKeyOption(), is(model.getKeyOption()));
+                assertThat(copy.getSortOption(), is(model.getSortOption()));
+                assertThat(copy.getValueOption(), is(model.getValueOption()));
+            }
+            assertThat(keys, hasSize(3));
+        });
+    }
+
     /**
      * cache - equivalent.
      */
@@ -197,4 +240,16 @@ public class KeyValueSerDeGeneratorTest extends ClassGeneratorTestRoot {
         ClassData b = KeyValueSerDeGenerator.generate(context(), typeOf(MockDataModel.class), group("=key", "-sort"));
         assertThat(b, is(not(cacheOf(a))));
     }
+
+    /**
+     * cache w/ different salts.
+     */
+    @Test
+    public void cache_diff_salt() {
+        ClassData a = KeyValueSerDeGenerator.generate(context(), typeOf(MockDataModel.class), group("=key"));
+        ClassData b = KeyValueSerDeGenerator.generate(context(), typeOf(MockDataModel.class), group("=key"), 4);
+        ClassData c = KeyValueSerDeGenerator.generate(context(), typeOf(MockDataModel.class), group("=key"), 1);
+        assertThat(b, is(not(cacheOf(a))));
+        assertThat(c, is(cacheOf(a)));
+    }
 }
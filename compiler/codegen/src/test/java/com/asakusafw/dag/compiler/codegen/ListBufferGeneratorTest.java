@@ -0,0 +1,142 @@
+/**
+ * Copyright 2011-2016 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.compiler.codegen;
+
+import static com.asakusafw.lang.compiler.model.description.Descriptions.*;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.asakusafw.dag.api.common.ObjectCursor;
+import com.asakusafw.dag.compiler.model.ClassData;
+import com.asakusafw.dag.runtime.skeleton.DataModelListBuffer;
+import com.asakusafw.dag.runtime.testing.MockDataModel;
+import com.asakusafw.dag.runtime.testing.MockKeyValueModel;
+import com.asakusafw.dag.utils.common.Lang;
+import com.asakusafw.lang.compiler.model.description.ClassDescription;
+
+/**
+ * Test for {@link ListBufferGenerator}.
+ */
+public class ListBufferGeneratorTest extends ClassGeneratorTestRoot {
+
+    /**
+     * simple case.
+     */
+    @Test
+    public void simple() {
+        ClassDescription gen = ListBufferGenerator.get(context(), typeOf(MockDataModel.class));
+        loading(cl -> {
+            @SuppressWarnings("unchecked")
+            DataModelListBuffer<MockDataModel> buffer = (DataModelListBuffer<MockDataModel>) gen
+                    .resolve(cl)
+                    .newInstance();
+            MockDataModel a = new MockDataModel("A");
+            buffer.fill(cursor(a, new MockDataModel("B"), new MockDataModel("C")));
+            assertThat(Lang.project(buffer, MockDataModel::getValue), contains("A", "B", "C"));
+            assertThat(buffer.get(0), is(not(sameInstance(a))));
+
+            MockDataModel first = buffer.get(0);
+            buffer.fill(cursor(new MockDataModel("D")));
+            assertThat(Lang.project(buffer, MockDataModel::getValue), contains("D"));
+            assertThat(buffer.get(0), is(sameInstance(first)));
+
+            buffer.fill(cursor());
+            assertThat(buffer, hasSize(0));
+        });
+    }
+
+    /**
+     * w/ local orderings.
+     */
+    @Test
+    public void sorted() {
+        ClassDescription gen = ListBufferGenerator.get(
+                context(), typeOf(MockDataModel.class), ObjectComparatorGeneratorTest.orderings("-key"));
+        loading(cl -> {
+            @SuppressWarnings("unchecked")
+            DataModelListBuffer<MockDataModel> buffer = (DataModelListBuffer<MockDataModel>) gen
+                    .resolve(cl)
+                    .newInstance();
+            buffer.fill(cursor(new MockDataModel(1, "A"), new MockDataModel(3, "B"), new MockDataModel(2, "C")));
+            assertThat(Lang.project(buffer, MockDataModel::getValue), contains("B", "C", "A"));
+
+            buffer.fill(cursor(new MockDataModel(1, "D"), new MockDataModel(2, "E")));
+            assertThat(Lang.project(buffer, MockDataModel::getValue), contains("E", "D"));
+        });
+    }
+
+    /**
+     * cache - equivalent.
+     */
+    @Test
+    public void cache() {
+        ClassData a = ListBufferGenerator.generate(context(), typeOf(MockDataModel.class));
+        ClassData b = ListBufferGenerator.generate(context(), typeOf(MockDataModel.class));
+        assertThat(b, is(cacheOf(a)));
+    }
+
+    /**
+     * cache w/ different types.
+     */
+    @Test
+    public void cache_diff_type() {
+        ClassData a = ListBufferGenerator.generate(context(), typeOf(MockDataModel.class));
+        ClassData b = ListBufferGenerator.generate(context(), typeOf(MockKeyValueModel.class));
+        assertThat(b, is(not(cacheOf(a))));
+    }
+
+    /**
+     * cache w/ different orderings.
+     */
+    @Test
+    public void cache_diff_orderings() {
+        ClassData a = ListBufferGenerator.generate(context(), typeOf(MockDataModel.class));
+        ClassData b = ListBufferGenerator.generate(
+                context(), typeOf(MockDataModel.class), ObjectComparatorGeneratorTest.orderings("+key"));
+        assertThat(b, is(not(cacheOf(a))));
+    }
+
+    private static ObjectCursor cursor(Object... values) {
+        List<Object> list = Arrays.asList(values);
+        return new ObjectCursor() {
+
+            private final Iterator<Object> iterator = list.iterator();
+
+            private Object current;
+
+            @Override
+            public boolean nextObject() {
+                if (iterator.hasNext()) {
+                    current = iterator.next();
+                    return true;
+                }
+                current = null;
+                return false;
+            }
+
+            @Override
+            public Object getObject() {
+                return current;
+            }
+        };
+    }
+}
@@ -0,0 +1,128 @@
+/**
+ * Copyright 2011-2016 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.compiler.codegen;
+
+import static com.asakusafw.lang.compiler.model.description.Descriptions.*;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.asakusafw.dag.compiler.model.ClassData;
+import com.asakusafw.dag.runtime.testing.MockDataModel;
+import com.asakusafw.dag.utils.common.Lang;
+import com.asakusafw.lang.compiler.model.description.ClassDescription;
+import com.asakusafw.lang.compiler.model.graph.Group;
+import com.asakusafw.lang.compiler.model.graph.Groups;
+
+/**
+ * Test for {@link ObjectComparatorGenerator}.
+ */
+public class ObjectComparatorGeneratorTest extends ClassGeneratorTestRoot {
+
+    /**
+     * simple case.
+     */
+    @Test
+    public void simple() {
+        List<MockDataModel> results = sort(orderings("+key"),
+                new MockDataModel(2, "A"),
+                new MockDataModel(1, "B"),
+                new MockDataModel(3, "C"));
+        assertThat(Lang.project(results, MockDataModel::getValue), contains("B", "A", "C"));
+    }
+
+    /**
+     * w/ descendant ordering.
+     */
+    @Test
+    public void descendant() {
+        List<MockDataModel> results = sort(orderings("-key"),
+                new MockDataModel(2, "A"),
+                new MockDataModel(1, "B"),
+                new MockDataModel(3, "C"));
+        assertThat(Lang.project(results, MockDataModel::getValue), contains("C", "A", "B"));
+    }
+
+    /**
+     * w/ multiple orderings.
+     */
+    @Test
+    public void multiple() {
+        List<MockDataModel> results = sort(orderings("+key", "-sort"),
+                new MockDataModel(2, new BigDecimal("1.0"), "A"),
+                new MockDataModel(1, new BigDecimal("1.0"), "B"),
+                new MockDataModel(2, new BigDecimal("2.0"), "C"),
+                new MockDataModel(1, new BigDecimal("3.0"), "D"));
+        assertThat(Lang.project(results, MockDataModel::getValue), contains("D", "B", "C", "A"));
+    }
+
+    /**
+     * w/ null values.
+     */
+    @Test
+    public void nulls() {
+        MockDataModel n = new MockDataModel(0, "N");
+        n.getKeyOption().setNull();
+        List<MockDataModel> results = sort(orderings("+key"),
+                new MockDataModel(-1, "A"),
+                n,
+                new MockDataModel(1, "B"));
+        assertThat(Lang.project(results, MockDataModel::getValue), contains("N", "A", "B"));
+    }
+
+    /**
+     * cache - equivalent.
+     */
+    @Test
+    public void cache() {
+        ClassData a = ObjectComparatorGenerator.generate(context(), typeOf(MockDataModel.class), orderings("+key"));
+        ClassData b = ObjectComparatorGenerator.generate(context(), typeOf(MockDataModel.class), orderings("+key"));
+        assertThat(b, is(cacheOf(a)));
+    }
+
+    /**
+     * cache w/ different orderings.
+     */
+    @Test
+    public void cache_diff_orderings() {
+        ClassData a = ObjectComparatorGenerator.generate(context(), typeOf(MockDataModel.class), orderings("+key"));
+        ClassData b = ObjectComparatorGenerator.generate(context(), typeOf(MockDataModel.class), orderings("-key"));
+        assertThat(b, is(not(cacheOf(a))));
+    }
+
+    static List<Group.Ordering> orderings(String... values) {
+        return Groups.parse(Collections.emptyList(), Arrays.asList(values)).getOrdering();
+    }
+
+    private List<MockDataModel> sort(List<Group.Ordering> orderings, MockDataModel... values) {
+        ClassDescription gen = ObjectComparatorGenerator.get(context(), typeOf(MockDataModel.class), orderings);
+        List<MockDataModel> results = new ArrayList<>(Arrays.asList(values));
+        loading(gen, c -> {
+            @SuppressWarnings("unchecked")
+            Comparator<Object> comparator = (Comparator<Object>) c.newInstance();
+            results.sort(comparator);
+        });
+        return results;
+    }
+}
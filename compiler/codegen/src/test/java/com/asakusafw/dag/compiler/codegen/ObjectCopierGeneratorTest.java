@@ -17,23 +17,36 @@ package com.asakusafw.dag.compiler.codegen;
 
 import static com.asakusafw.lang.compiler.model.description.Descriptions.*;
 import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.Matchers.everyItem;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
 import static org.hamcrest.Matchers.not;
 import static org.junit.Assert.*;
 
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+
 import org.junit.Test;
 
+import com.asakusafw.dag.compiler.codegen.testing.MockClassGeneratorContext;
+import com.asakusafw.dag.compiler.codegen.testing.WideDataModels;
 import com.asakusafw.dag.compiler.model.ClassData;
 import com.asakusafw.dag.runtime.adapter.ObjectCopier;
 import com.asakusafw.dag.runtime.testing.MockDataModel;
 import com.asakusafw.dag.runtime.testing.MockKeyValueModel;
+import com.asakusafw.dag.utils.common.Lang;
+import com.asakusafw.lang.compiler.model.PropertyName;
 import com.asakusafw.lang.compiler.model.description.ClassDescription;
+import com.asakusafw.runtime.value.IntOption;
 
 /**
  * Test for {@link ObjectCopierGenerator}.
  */
 public class ObjectCopierGeneratorTest extends ClassGeneratorTestRoot {
 
+    private static final int HUGE_METHOD_LIMIT = 8000;
+
     /**
      * simple case.
      */
@@ -68,6 +81,28 @@ public class ObjectCopierGeneratorTest extends ClassGeneratorTestRoot {
         });
     }
 
+    /**
+     * w/ live properties.
+     */
+    @Test
+    public void live_properties() {
+        ClassDescription gen = ObjectCopierGenerator.get(
+                context(), classOf(MockDataModel.class), Arrays.asList(PropertyName.of("value")));
+        loading(cl -> {
+            @SuppressWarnings("unchecked")
+            ObjectCopier<MockDataModel> o = (ObjectCopier<MockDataModel>) gen.resolve(cl).newInstance();
+            MockDataModel o1 = new MockDataModel(100, "Hello, world!");
+            MockDataModel o2 = o.newCopy(o1);
+            assertThat(o2.getKeyOption().isNull(), is(true));
+            assertThat(o2.getValue(), is("Hello, world!"));
+
+            MockDataModel buf = new MockDataModel(101, "Hello, world?");
+            MockDataModel o3 = o.newCopy(o1, buf);
+            assertThat(o3, is(sameInstance(buf)));
+            assertThat(o3.getValue(), is("Hello, world!"));
+        });
+    }
+
     /**
      * cache - equivalent.
      */
@@ -78,6 +113,17 @@ public class ObjectCopierGeneratorTest extends ClassGeneratorTestRoot {
         assertThat(b, is(cacheOf(a)));
     }
 
+    /**
+     * cache w/ different live properties.
+     */
+    @Test
+    public void cache_diff_properties() {
+        ClassData a = ObjectCopierGenerator.generate(context(), typeOf(MockDataModel.class));
+        ClassData b = ObjectCopierGenerator.generate(
+                context(), typeOf(MockDataModel.class), Arrays.asList(PropertyName.of("key")));
+        assertThat(b, is(not(cacheOf(a))));
+    }
+
     /**
      * cache w/ different types.
      */
@@ -87,4 +133,40 @@ public class ObjectCopierGeneratorTest extends ClassGeneratorTestRoot {
         ClassData b = ObjectCopierGenerator.generate(context(), typeOf(MockKeyValueModel.class));
         assertThat(b, is(not(cacheOf(a))));
     }
+
+    /**
+     * w/ many live properties.
+     */
+    @SuppressWarnings("deprecation")
+    @Test
+    public void wide() {
+        int count = 500;
+        ClassDescription type = add(WideDataModels.generate(new ClassDescription("com.example.WideModel"), count));
+        loading(cl -> {
+            ClassGeneratorContext context = new MockClassGeneratorContext(cl, classpath());
+            List<PropertyName> properties = Lang.project(
+                    context.getDataModelLoader().load(type).getProperties(),
+                    p -> p.getName());
+            assertThat(properties.size(), is(count));
+            ClassData data = ObjectCopierGenerator.generate(context, type, properties);
+            assertThat(WideDataModels.getCodeSizes(data).values(), everyItem(lessThan(HUGE_METHOD_LIMIT)));
+
+            ClassDescription gen = context.addClassFile(data);
+            @SuppressWarnings("unchecked")
+            ObjectCopier<Object> o = (ObjectCopier<Object>) gen.resolve(cl).newInstance();
+
+            Class<?> modelClass = type.resolve(cl);
+            Object model = modelClass.newInstance();
+            for (int i = 0; i < count; i++) {
+                ((IntOption) modelClass.getMethod(WideDataModels.getterName(i)).invoke(model)).modify(i);
+            }
+            Object copy = o.newCopy(model);
+            Object buffered = o.newCopy(model, modelClass.newInstance());
+            for (int i = 0; i < count; i++) {
+                Method getter = modelClass.getMethod(WideDataModels.getterName(i));
+                assertThat(getter.invoke(copy), is(getter.invoke(model)));
+                assertThat(getter.invoke(buffered), is(getter.invoke(model)));
+            }
+        });
+    }
 }
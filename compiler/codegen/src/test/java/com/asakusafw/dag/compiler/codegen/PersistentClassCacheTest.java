@@ -0,0 +1,311 @@
+/**
+ * Copyright 2011-2016 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.compiler.codegen;
+
+import static com.asakusafw.lang.compiler.model.description.Descriptions.*;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import com.asakusafw.dag.compiler.codegen.testing.MockClassGeneratorContext;
+import com.asakusafw.dag.compiler.model.ClassData;
+import com.asakusafw.dag.runtime.testing.MockDataModel;
+import com.asakusafw.lang.compiler.api.testing.MockDataModelLoader;
+import com.asakusafw.lang.compiler.common.BasicResourceContainer;
+import com.asakusafw.lang.compiler.model.description.ClassDescription;
+
+/**
+ * Test for {@link PersistentClassCache}.
+ */
+public class PersistentClassCacheTest extends ClassGeneratorTestRoot {
+
+    private static final ClassDescription DEPENDENCY = new ClassDescription("com.example.Dependency");
+
+    /**
+     * temporary folder.
+     */
+    @Rule
+    public final TemporaryFolder temporary = new TemporaryFolder();
+
+    private Path directory;
+
+    private final AtomicInteger generated = new AtomicInteger();
+
+    /**
+     * set up.
+     * @throws Exception if failed
+     */
+    @Before
+    public void setUp() throws Exception {
+        directory = temporary.newFolder().toPath();
+    }
+
+    /**
+     * simple case.
+     */
+    @Test
+    public void simple() {
+        ClassData a = generate(session("1"), new Key("a"));
+        ClassData b = generate(session("1"), new Key("a"));
+        assertThat(generated.get(), is(1));
+        assertThat(b.hasContents(), is(true));
+        assertThat(b.getDescription(), is(a.getDescription()));
+        assertThat(bytes(b), is(bytes(a)));
+    }
+
+    /**
+     * cache in the same session.
+     */
+    @Test
+    public void same_session() {
+        ClassGeneratorContext context = session("1");
+        ClassData a = generate(context, new Key("a"));
+        ClassData b = generate(context, new Key("a"));
+        assertThat(generated.get(), is(1));
+        assertThat(b, is(cacheOf(a)));
+    }
+
+    /**
+     * generated classes are available.
+     */
+    @Test
+    public void generator() {
+        ClassData a = SupplierGenerator.generate(session("1"), typeOf(MockDataModel.class));
+        ClassData b = SupplierGenerator.generate(session("1"), typeOf(MockDataModel.class));
+        assertThat(b.getDescription(), is(a.getDescription()));
+        add(b);
+        loading(cl -> {
+            Supplier<?> object = (Supplier<?>) b.getDescription().resolve(cl).newInstance();
+            assertThat(object.get(), instanceOf(MockDataModel.class));
+        });
+    }
+
+    /**
+     * different keys.
+     */
+    @Test
+    public void invalidate_key() {
+        ClassData a = generate(session("1"), new Key("a"));
+        ClassData b = generate(session("1"), new Key("b"));
+        assertThat(generated.get(), is(2));
+        assertThat(b.getDescription(), is(not(a.getDescription())));
+    }
+
+    /**
+     * different cache versions.
+     */
+    @Test
+    public void invalidate_version() {
+        generate(session("1"), new Key("a"));
+        generate(session("2"), new Key("a"));
+        assertThat(generated.get(), is(2));
+        generate(session("2"), new Key("a"));
+        assertThat(generated.get(), is(2));
+    }
+
+    /**
+     * dependencies are changed.
+     * @throws Exception if failed
+     */
+    @Test
+    public void invalidate_dependency() throws Exception {
+        try (URLClassLoader v1 = dependency(false); URLClassLoader v2 = dependency(true)) {
+            generate(session(v1, "1"), new Key("a"), DEPENDENCY);
+            generate(session(v1, "1"), new Key("a"), DEPENDENCY);
+            assertThat(generated.get(), is(1));
+
+            generate(session(v2, "1"), new Key("a"), DEPENDENCY);
+            assertThat(generated.get(), is(2));
+            generate(session(v2, "1"), new Key("a"), DEPENDENCY);
+            assertThat(generated.get(), is(2));
+        }
+    }
+
+    /**
+     * dependencies are not resolvable.
+     */
+    @Test
+    public void unknown_dependency() {
+        generate(session("1"), new Key("a"), DEPENDENCY);
+        generate(session("1"), new Key("a"), DEPENDENCY);
+        assertThat(generated.get(), is(2));
+    }
+
+    /**
+     * depends on other persistent classes.
+     */
+    @Test
+    public void generated_dependency() {
+        ClassGeneratorContext s1 = session("1");
+        ClassData a1 = generate(s1, new Key("a"));
+        generate(s1, new Key("b"), a1.getDescription());
+
+        ClassGeneratorContext s2 = session("1");
+        ClassData a2 = generate(s2, new Key("a"));
+        generate(s2, new Key("b"), a2.getDescription());
+        assertThat(generated.get(), is(2));
+
+        ClassGeneratorContext s3 = session("1");
+        generate(s3, new Key("b"), a2.getDescription());
+        assertThat(generated.get(), is(3));
+    }
+
+    /**
+     * keys which do not have textual representations.
+     * @throws Exception if failed
+     */
+    @Test
+    public void transient_key() throws Exception {
+        generate(session("1"), new Object());
+        generate(session("1"), new Object());
+        assertThat(generated.get(), is(2));
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files.count(), is(0L));
+        }
+    }
+
+    /**
+     * broken cache files.
+     * @throws Exception if failed
+     */
+    @Test
+    public void broken() throws Exception {
+        generate(session("1"), new Key("a"));
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.write(file, new byte[] { 1, 2, 3 });
+            }
+        }
+        ClassData b = generate(session("1"), new Key("a"));
+        assertThat(generated.get(), is(2));
+        assertThat(b.hasContents(), is(true));
+        generate(session("1"), new Key("a"));
+        assertThat(generated.get(), is(2));
+    }
+
+    /**
+     * generate classes concurrently.
+     */
+    @Test
+    public void concurrent() {
+        ClassLoader cl = getClass().getClassLoader();
+        ConcurrentClassGeneratorContext forward = new ConcurrentClassGeneratorContext(
+                cl, new MockDataModelLoader(cl),
+                new BasicResourceContainer(temporary.getRoot()),
+                new ClassNameMap("com.example."));
+        PersistentClassCache cache = new PersistentClassCache(forward, directory, "1");
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<ClassDescription> results;
+        try {
+            results = forward.generate(executor, Collections.nCopies(16, "a"),
+                    s -> generate(cache, new Key(s)).getDescription());
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(generated.get(), is(1));
+        assertThat(new HashSet<>(results), hasSize(1));
+    }
+
+    private ClassGeneratorContext session(String version) {
+        return session(getClass().getClassLoader(), version);
+    }
+
+    private ClassGeneratorContext session(ClassLoader loader, String version) {
+        return new PersistentClassCache(new MockClassGeneratorContext(loader, classpath()), directory, version);
+    }
+
+    private ClassData generate(ClassGeneratorContext context, Object key, ClassDescription... references) {
+        return context.cache(key, () -> {
+            generated.incrementAndGet();
+            ClassDescription target = context.getClassName("testing", "Cached");
+            ClassWriter writer = AsmUtil.newWriter(target, Object.class);
+            for (int i = 0; i < references.length; i++) {
+                String desc = AsmUtil.typeOf(references[i]).getDescriptor();
+                writer.visitField(Opcodes.ACC_PRIVATE, "f" + i, desc, null, null);
+            }
+            AsmUtil.defineEmptyConstructor(writer, Object.class);
+            return new ClassData(target, writer::toByteArray);
+        });
+    }
+
+    private URLClassLoader dependency(boolean modified) throws IOException {
+        File folder = temporary.newFolder();
+        ClassWriter writer = AsmUtil.newWriter(DEPENDENCY, Object.class);
+        if (modified) {
+            writer.visitField(Opcodes.ACC_PUBLIC, "modified", Type.INT_TYPE.getDescriptor(), null, null);
+        }
+        AsmUtil.defineEmptyConstructor(writer, Object.class);
+        new ClassData(DEPENDENCY, writer::toByteArray).dump(new BasicResourceContainer(folder));
+        return URLClassLoader.newInstance(new URL[] { folder.toURI().toURL() }, getClass().getClassLoader());
+    }
+
+    private static byte[] bytes(ClassData data) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try {
+            data.dump(buffer);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        return buffer.toByteArray();
+    }
+
+    private static final class Key {
+
+        private final String value;
+
+        Key(String value) {
+            this.value = value;
+        }
+
+        @Override
+        public int hashCode() {
+            return value.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Key && value.equals(((Key) obj).value);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Key(%s)", value); //$NON-NLS-1$
+        }
+    }
+}
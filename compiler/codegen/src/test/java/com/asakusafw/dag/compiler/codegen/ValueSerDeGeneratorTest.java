@@ -19,16 +19,23 @@ import static com.asakusafw.lang.compiler.model.description.Descriptions.*;
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.*;
 
+import java.lang.reflect.Method;
 import java.math.BigDecimal;
+import java.util.Arrays;
 
 import org.junit.Test;
 
+import com.asakusafw.dag.api.common.StatefulSerDe;
 import com.asakusafw.dag.api.common.ValueSerDe;
+import com.asakusafw.dag.compiler.codegen.testing.MockClassGeneratorContext;
+import com.asakusafw.dag.compiler.codegen.testing.WideDataModels;
 import com.asakusafw.dag.compiler.model.ClassData;
 import com.asakusafw.dag.runtime.testing.MockDataModel;
 import com.asakusafw.dag.runtime.testing.MockKeyValueModel;
+import com.asakusafw.lang.compiler.model.PropertyName;
 import com.asakusafw.lang.compiler.model.description.ClassDescription;
 import com.asakusafw.runtime.io.util.DataBuffer;
+import com.asakusafw.runtime.value.IntOption;
 
 /**
  * Test for {@link ValueSerDeGenerator}.
@@ -36,6 +43,8 @@ import com.asakusafw.runtime.io.util.DataBuffer;
 @SuppressWarnings("deprecation")
 public class ValueSerDeGeneratorTest extends ClassGeneratorTestRoot {
 
+    private static final int HUGE_METHOD_LIMIT = 8000;
+
     /**
      * simple case.
      */
@@ -62,6 +71,79 @@ public class ValueSerDeGeneratorTest extends ClassGeneratorTestRoot {
         });
     }
 
+    /**
+     * w/ projection.
+     */
+    @Test
+    public void projection() {
+        ClassDescription gen = ValueSerDeGenerator.get(context(), classOf(MockDataModel.class),
+                Arrays.asList(PropertyName.of("key"), PropertyName.of("value")));
+        loading(cl -> {
+            ValueSerDe object = (ValueSerDe) gen.resolve(cl).newInstance();
+
+            MockDataModel model = new MockDataModel();
+            model.getKeyOption().modify(100);
+            model.getSortOption().modify(new BigDecimal("3.14"));
+            model.getValueOption().modify("Hello, world!");
+
+            DataBuffer buffer = new DataBuffer();
+            object.serialize(model, buffer);
+
+            MockDataModel copy = (MockDataModel) object.deserialize(buffer);
+            assertThat(buffer.getReadRemaining(), is(0));
+            assertThat(copy.getKeyOption(), is(model.getKeyOption()));
+            assertThat(copy.getSortOption().isNull(), is(true));
+            assertThat(copy.getValueOption(), is(model.getValueOption()));
+
+            copy.getSortOption().modify(BigDecimal.ONE);
+            object.serialize(model, buffer);
+            copy = (MockDataModel) object.deserialize(buffer);
+            assertThat(copy.getSortOption().isNull(), is(true));
+        });
+    }
+
+    /**
+     * w/ dictionary encoding.
+     */
+    @Test
+    public void dictionary() {
+        ClassDescription gen = ValueSerDeGenerator.get(context(), classOf(MockDataModel.class),
+                null, Arrays.asList(PropertyName.of("value")));
+        loading(cl -> {
+            ValueSerDe object = (ValueSerDe) gen.resolve(cl).newInstance();
+            assertThat(object, is(instanceOf(StatefulSerDe.class)));
+            ValueSerDe other = (ValueSerDe) gen.resolve(cl).newInstance();
+
+            MockDataModel model = new MockDataModel();
+            model.getKeyOption().modify(100);
+            model.getSortOption().modify(new BigDecimal("3.14"));
+            model.getValueOption().modify("Hello, world!");
+
+            DataBuffer first = new DataBuffer();
+            object.serialize(model, first);
+            int firstSize = first.getReadRemaining();
+            DataBuffer second = new DataBuffer();
+            object.serialize(model, second);
+            assertThat(second.getReadRemaining(), is(lessThan(firstSize)));
+
+            for (DataBuffer buffer : new DataBuffer[] { first, second }) {
+                MockDataModel copy = (MockDataModel) other.deserialize(buffer);
+                assertThat(buffer.getReadRemaining(), is(0));
+                assertThat(copy.getKeyOption(), is(model.getKeyOption()));
+                assertThat(copy.getSortOption(), is(model.getSortOption()));
+                assertThat(copy.getValueOption(), is(model.getValueOption()));
+            }
+
+            ((StatefulSerDe) object).reset();
+            ((StatefulSerDe) other).reset();
+            DataBuffer third = new DataBuffer();
+            object.serialize(model, third);
+            assertThat(third.getReadRemaining(), is(firstSize));
+            MockDataModel copy = (MockDataModel) other.deserialize(third);
+            assertThat(copy.getValueOption(), is(model.getValueOption()));
+        });
+    }
+
     /**
      * cache - equivalent.
      */
@@ -81,4 +163,61 @@ public class ValueSerDeGeneratorTest extends ClassGeneratorTestRoot {
         ClassData b = ValueSerDeGenerator.generate(context(), typeOf(MockKeyValueModel.class));
         assertThat(b, is(not(cacheOf(a))));
     }
+
+    /**
+     * cache w/ different projections.
+     */
+    @Test
+    public void cache_diff_projection() {
+        ClassData a = ValueSerDeGenerator.generate(context(), typeOf(MockDataModel.class));
+        ClassData b = ValueSerDeGenerator.generate(context(), typeOf(MockDataModel.class),
+                Arrays.asList(PropertyName.of("key")));
+        ClassData c = ValueSerDeGenerator.generate(context(), typeOf(MockDataModel.class),
+                Arrays.asList(PropertyName.of("key")));
+        assertThat(b, is(not(cacheOf(a))));
+        assertThat(c, is(cacheOf(b)));
+    }
+
+    /**
+     * cache w/ different dictionaries.
+     */
+    @Test
+    public void cache_diff_dictionary() {
+        ClassData a = ValueSerDeGenerator.generate(context(), typeOf(MockDataModel.class));
+        ClassData b = ValueSerDeGenerator.generate(context(), typeOf(MockDataModel.class),
+                null, Arrays.asList(PropertyName.of("value")));
+        assertThat(b, is(not(cacheOf(a))));
+    }
+
+    /**
+     * w/ many properties.
+     */
+    @Test
+    public void wide() {
+        int count = 500;
+        ClassDescription type = add(WideDataModels.generate(new ClassDescription("com.example.WideModel"), count));
+        loading(cl -> {
+            ClassGeneratorContext context = new MockClassGeneratorContext(cl, classpath());
+            ClassData data = ValueSerDeGenerator.generate(context, type);
+            assertThat(WideDataModels.getCodeSizes(data).values(), everyItem(lessThan(HUGE_METHOD_LIMIT)));
+
+            ClassDescription gen = context.addClassFile(data);
+            ValueSerDe object = (ValueSerDe) gen.resolve(cl).newInstance();
+
+            Class<?> modelClass = type.resolve(cl);
+            Object model = modelClass.newInstance();
+            for (int i = 0; i < count; i++) {
+                ((IntOption) modelClass.getMethod(WideDataModels.getterName(i)).invoke(model)).modify(i);
+            }
+            DataBuffer buffer = new DataBuffer();
+            object.serialize(model, buffer);
+
+            Object copy = object.deserialize(buffer);
+            assertThat(buffer.getReadRemaining(), is(0));
+            for (int i = 0; i < count; i++) {
+                Method getter = modelClass.getMethod(WideDataModels.getterName(i));
+                assertThat(getter.invoke(copy), is(getter.invoke(model)));
+            }
+        });
+    }
 }
@@ -0,0 +1,232 @@
+/**
+ * Copyright 2011-2016 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.compiler.codegen.testing;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import com.asakusafw.dag.compiler.model.ClassData;
+import com.asakusafw.lang.compiler.model.description.ClassDescription;
+import com.asakusafw.runtime.model.DataModel;
+import com.asakusafw.runtime.value.IntOption;
+
+/**
+ * Utilities about data models with many properties.
+ */
+public final class WideDataModels {
+
+    private static final Type OPTION = Type.getType(IntOption.class);
+
+    private static final Type MODEL = Type.getType(DataModel.class);
+
+    private WideDataModels() {
+        return;
+    }
+
+    /**
+     * Returns the getter name of the {@code int} property in the generated data models.
+     * @param index the property index
+     * @return the getter name
+     */
+    public static String getterName(int index) {
+        return String.format("getP%dOption", index); //$NON-NLS-1$
+    }
+
+    /**
+     * Generates a data model class which has the specified number of {@code int} properties.
+     * @param target the target class
+     * @param properties the number of properties
+     * @return the generated class data
+     */
+    public static ClassData generate(ClassDescription target, int properties) {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS);
+        writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, target.getInternalName(), null,
+                Type.getInternalName(Object.class),
+                new String[] { MODEL.getInternalName() });
+        for (int i = 0; i < properties; i++) {
+            writer.visitField(Opcodes.ACC_PRIVATE | Opcodes.ACC_FINAL,
+                    field(i), OPTION.getDescriptor(), null, null);
+        }
+
+        MethodVisitor ctor = writer.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+        ctor.visitVarInsn(Opcodes.ALOAD, 0);
+        ctor.visitMethodInsn(Opcodes.INVOKESPECIAL, Type.getInternalName(Object.class), "<init>", "()V", false);
+        for (int i = 0; i < properties; i++) {
+            ctor.visitVarInsn(Opcodes.ALOAD, 0);
+            ctor.visitTypeInsn(Opcodes.NEW, OPTION.getInternalName());
+            ctor.visitInsn(Opcodes.DUP);
+            ctor.visitMethodInsn(Opcodes.INVOKESPECIAL, OPTION.getInternalName(), "<init>", "()V", false);
+            ctor.visitFieldInsn(Opcodes.PUTFIELD, target.getInternalName(), field(i), OPTION.getDescriptor());
+        }
+        ctor.visitInsn(Opcodes.RETURN);
+        ctor.visitMaxs(0, 0);
+        ctor.visitEnd();
+
+        for (int i = 0; i < properties; i++) {
+            MethodVisitor getter = writer.visitMethod(Opcodes.ACC_PUBLIC,
+                    getterName(i), Type.getMethodDescriptor(OPTION), null, null);
+            getter.visitVarInsn(Opcodes.ALOAD, 0);
+            getter.visitFieldInsn(Opcodes.GETFIELD, target.getInternalName(), field(i), OPTION.getDescriptor());
+            getter.visitInsn(Opcodes.ARETURN);
+            getter.visitMaxs(0, 0);
+            getter.visitEnd();
+        }
+
+        MethodVisitor reset = writer.visitMethod(Opcodes.ACC_PUBLIC, "reset", "()V", null, null);
+        for (int i = 0; i < properties; i++) {
+            reset.visitVarInsn(Opcodes.ALOAD, 0);
+            reset.visitFieldInsn(Opcodes.GETFIELD, target.getInternalName(), field(i), OPTION.getDescriptor());
+            reset.visitMethodInsn(Opcodes.INVOKEVIRTUAL, OPTION.getInternalName(),
+                    "setNull", Type.getMethodDescriptor(OPTION), false);
+            reset.visitInsn(Opcodes.POP);
+        }
+        reset.visitInsn(Opcodes.RETURN);
+        reset.visitMaxs(0, 0);
+        reset.visitEnd();
+
+        Type self = Type.getObjectType(target.getInternalName());
+        MethodVisitor copy = writer.visitMethod(Opcodes.ACC_PUBLIC,
+                "copyFrom", Type.getMethodDescriptor(Type.VOID_TYPE, self), null, null);
+        for (int i = 0; i < properties; i++) {
+            copy.visitVarInsn(Opcodes.ALOAD, 0);
+            copy.visitFieldInsn(Opcodes.GETFIELD, target.getInternalName(), field(i), OPTION.getDescriptor());
+            copy.visitVarInsn(Opcodes.ALOAD, 1);
+            copy.visitFieldInsn(Opcodes.GETFIELD, target.getInternalName(), field(i), OPTION.getDescriptor());
+            copy.visitMethodInsn(Opcodes.INVOKEVIRTUAL, OPTION.getInternalName(),
+                    "copyFrom", Type.getMethodDescriptor(Type.VOID_TYPE, OPTION), false);
+        }
+        copy.visitInsn(Opcodes.RETURN);
+        copy.visitMaxs(0, 0);
+        copy.visitEnd();
+
+        MethodVisitor bridge = writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_BRIDGE | Opcodes.ACC_SYNTHETIC,
+                "copyFrom", Type.getMethodDescriptor(Type.VOID_TYPE, MODEL), null, null);
+        bridge.visitVarInsn(Opcodes.ALOAD, 0);
+        bridge.visitVarInsn(Opcodes.ALOAD, 1);
+        bridge.visitTypeInsn(Opcodes.CHECKCAST, target.getInternalName());
+        bridge.visitMethodInsn(Opcodes.INVOKEVIRTUAL, target.getInternalName(),
+                "copyFrom", Type.getMethodDescriptor(Type.VOID_TYPE, self), false);
+        bridge.visitInsn(Opcodes.RETURN);
+        bridge.visitMaxs(0, 0);
+        bridge.visitEnd();
+
+        writer.visitEnd();
+        return new ClassData(target, writer.toByteArray());
+    }
+
+    private static String field(int index) {
+        return String.format("p%d", index); //$NON-NLS-1$
+    }
+
+    /**
+     * Returns the code size of each method in the given class file.
+     * @param input the class file contents
+     * @return the code size in bytes for each method name and descriptor
+     * @throws IOException if I/O error was occurred
+     */
+    public static Map<String, Integer> getCodeSizes(InputStream input) throws IOException {
+        DataInputStream in = new DataInputStream(input);
+        in.readInt(); // magic
+        in.readUnsignedShort(); // minor
+        in.readUnsignedShort(); // major
+        int poolSize = in.readUnsignedShort();
+        String[] utf = new String[poolSize];
+        for (int i = 1; i < poolSize; i++) {
+            int tag = in.readUnsignedByte();
+            switch (tag) {
+            case 1: // UTF8
+                utf[i] = in.readUTF();
+                break;
+            case 5: // long
+            case 6: // double
+                in.readLong();
+                i++;
+                break;
+            case 7: // class
+            case 8: // string
+            case 16: // method type
+                in.readUnsignedShort();
+                break;
+            case 15: // method handle
+                in.readUnsignedByte();
+                in.readUnsignedShort();
+                break;
+            default: // int, float, refs, name and type, invoke dynamic
+                in.readInt();
+                break;
+            }
+        }
+        in.readUnsignedShort(); // access
+        in.readUnsignedShort(); // this
+        in.readUnsignedShort(); // super
+        skip(in, in.readUnsignedShort() * 2); // interfaces
+        for (int i = 0, n = in.readUnsignedShort(); i < n; i++) {
+            skip(in, 6);
+            skipAttributes(in);
+        }
+        Map<String, Integer> results = new LinkedHashMap<>();
+        for (int i = 0, n = in.readUnsignedShort(); i < n; i++) {
+            in.readUnsignedShort(); // access
+            String name = utf[in.readUnsignedShort()] + utf[in.readUnsignedShort()];
+            for (int j = 0, m = in.readUnsignedShort(); j < m; j++) {
+                String attribute = utf[in.readUnsignedShort()];
+                int length = in.readInt();
+                if (attribute.equals("Code")) {
+                    skip(in, 4); // max stack, max locals
+                    int codeLength = in.readInt();
+                    results.put(name, codeLength);
+                    skip(in, length - 8);
+                } else {
+                    skip(in, length);
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Returns the code size of each method in the given class.
+     * @param data the class data
+     * @return the code size in bytes for each method name and descriptor
+     * @throws IOException if I/O error was occurred
+     */
+    public static Map<String, Integer> getCodeSizes(ClassData data) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        data.dump(output);
+        return getCodeSizes(new ByteArrayInputStream(output.toByteArray()));
+    }
+
+    private static void skipAttributes(DataInputStream in) throws IOException {
+        for (int i = 0, n = in.readUnsignedShort(); i < n; i++) {
+            in.readUnsignedShort();
+            skip(in, in.readInt());
+        }
+    }
+
+    private static void skip(DataInputStream in, int length) throws IOException {
+        in.readFully(new byte[length]);
+    }
+}
@@ -158,9 +158,11 @@ public class GraphInfoBuilder {
                 .findFirst()
                 .orElseThrow(IllegalStateException::new);
             PortInfo upstream = entry.getValue();
+            int partitionCount = entry.getKey().getPartitionCount();
             targets.stream()
                 .map(is::get)
-                .forEach(downstream -> info.addEdge(upstream.getId(), downstream.getId(), descriptor));
+                .forEach(downstream -> info.addEdge(
+                        upstream.getId(), downstream.getId(), descriptor, partitionCount));
         }
     }
 
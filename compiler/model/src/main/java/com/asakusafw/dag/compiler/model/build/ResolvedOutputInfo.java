@@ -33,6 +33,8 @@ public class ResolvedOutputInfo {
 
     private final Set<ResolvedInputInfo> downstreams;
 
+    private final int partitionCount;
+
     /**
      * Creates a new instance.
      * @param id the output ID
@@ -50,11 +52,28 @@ public class ResolvedOutputInfo {
      * @since 0.2.0
      */
     public ResolvedOutputInfo(String id, String tag, Collection<? extends ResolvedInputInfo> downstreams) {
+        this(id, tag, downstreams, -1);
+    }
+
+    /**
+     * Creates a new instance.
+     * @param id the output ID
+     * @param tag the optional port tag (nullable)
+     * @param downstreams the downstream inputs
+     * @param partitionCount the suggested number of partitions, or {@code -1} if it is not specified
+     * @since 0.2.0
+     */
+    public ResolvedOutputInfo(
+            String id, String tag,
+            Collection<? extends ResolvedInputInfo> downstreams,
+            int partitionCount) {
         Arguments.requireNonNull(id);
         Arguments.requireNonNull(downstreams);
+        Arguments.require(partitionCount == -1 || partitionCount > 0);
         this.id = id;
         this.tag = tag;
         this.downstreams = Arguments.freezeToSet(downstreams);
+        this.partitionCount = partitionCount;
     }
 
     /**
@@ -81,4 +100,13 @@ public class ResolvedOutputInfo {
     public Set<ResolvedInputInfo> getDownstreams() {
         return downstreams;
     }
+
+    /**
+     * Returns the suggested number of partitions on the outgoing edges.
+     * @return the suggested number of partitions, or {@code -1} if it is not specified
+     * @since 0.2.0
+     */
+    public int getPartitionCount() {
+        return partitionCount;
+    }
 }
@@ -0,0 +1,49 @@
+/**
+ * Copyright 2011-2016 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.compiler.model.plan;
+
+/**
+ * A hint of how an operator accesses its group inputs.
+ * Operators can declare this as their attribute, for example,
+ * {@code UserOperator.builder(...).attribute(GroupAccess.class, GroupAccess.ONCE)}.
+ * @since 0.2.0
+ */
+public enum GroupAccess {
+
+    /**
+     * The operator may access each group list in any order, and may iterate it more than once.
+     */
+    RANDOM,
+
+    /**
+     * The operator iterates each group list only once from the head, and never retains its elements.
+     * The group lists are streamed, so that the operator can only call {@link java.util.List#iterator()} once,
+     * and {@link java.util.List#isEmpty()} before the iteration.
+     * Any other operations, including {@link java.util.List#size()} and {@link java.util.List#get(int)},
+     * are not supported.
+     * @see InputSpec.InputOption#READ_ONCE
+     */
+    ONCE,
+    ;
+
+    /**
+     * Returns the default value.
+     * @return the default value
+     */
+    public static GroupAccess getDefault() {
+        return RANDOM;
+    }
+}
@@ -16,7 +16,9 @@
 package com.asakusafw.dag.compiler.model.plan;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
 
@@ -24,12 +26,15 @@ import com.asakusafw.dag.utils.common.Arguments;
 import com.asakusafw.dag.utils.common.Invariants;
 import com.asakusafw.dag.utils.common.Optionals;
 import com.asakusafw.lang.compiler.common.util.EnumUtil;
+import com.asakusafw.lang.compiler.model.PropertyName;
 import com.asakusafw.lang.compiler.model.description.TypeDescription;
 import com.asakusafw.lang.compiler.model.graph.Group;
 import com.asakusafw.lang.compiler.planning.SubPlan;
 
 /**
  * Extra information for {@link com.asakusafw.lang.compiler.planning.SubPlan.Input SubPlan.Input}.
+ * @since 0.1.0
+ * @version 0.2.0
  */
 public class InputSpec implements ElementSpec<SubPlan.Input> {
 
@@ -45,6 +50,10 @@ public class InputSpec implements ElementSpec<SubPlan.Input> {
 
     private final Group partitionInfo;
 
+    private final Set<PropertyName> projection;
+
+    private final Set<PropertyName> dictionaryEncoding;
+
     /**
      * Returns the spec of the target element.
      * @param origin the target element
@@ -71,6 +80,31 @@ public class InputSpec implements ElementSpec<SubPlan.Input> {
             InputType inputType,
             Collection<InputOption> inputOptions,
             Group partitionInfo) {
+        this(origin, id, dataType, inputType, inputOptions, partitionInfo, null, null);
+    }
+
+    /**
+     * Creates a new instance.
+     * @param origin the original sub-plan input
+     * @param id the input ID
+     * @param dataType the input data type
+     * @param inputType the input operation type
+     * @param inputOptions the extra input options
+     * @param partitionInfo the input partitioning information (nullable)
+     * @param projection the properties which are transferred on the wire,
+     *     or {@code null} if all properties are transferred
+     * @param dictionaryEncoding the string properties which are dictionary encoded on the wire (nullable)
+     * @since 0.2.0
+     */
+    public InputSpec(
+            SubPlan.Input origin,
+            String id,
+            TypeDescription dataType,
+            InputType inputType,
+            Collection<InputOption> inputOptions,
+            Group partitionInfo,
+            Collection<PropertyName> projection,
+            Collection<PropertyName> dictionaryEncoding) {
         Arguments.requireNonNull(origin);
         Arguments.requireNonNull(id);
         Arguments.requireNonNull(dataType);
@@ -82,6 +116,12 @@ public class InputSpec implements ElementSpec<SubPlan.Input> {
         this.inputType = inputType;
         this.inputOptions = EnumUtil.freeze(inputOptions);
         this.partitionInfo = partitionInfo;
+        this.projection = projection == null
+                ? null
+                : Collections.unmodifiableSet(new LinkedHashSet<>(projection));
+        this.dictionaryEncoding = dictionaryEncoding == null
+                ? Collections.emptySet()
+                : Collections.unmodifiableSet(new LinkedHashSet<>(dictionaryEncoding));
     }
 
     @Override
@@ -126,6 +166,25 @@ public class InputSpec implements ElementSpec<SubPlan.Input> {
         return partitionInfo;
     }
 
+    /**
+     * Returns the properties which are transferred on the wire.
+     * Other properties will be always {@code null} in this input.
+     * @return the transferred properties, or {@code null} if all properties are transferred
+     * @since 0.2.0
+     */
+    public Set<PropertyName> getProjection() {
+        return projection;
+    }
+
+    /**
+     * Returns the string properties which are dictionary encoded on the wire.
+     * @return the dictionary encoded properties, or an empty set if there are no such properties
+     * @since 0.2.0
+     */
+    public Set<PropertyName> getDictionaryEncoding() {
+        return dictionaryEncoding;
+    }
+
     @Override
     public Map<String, ?> toMap() {
         Map<String, Object> results = new LinkedHashMap<>();
@@ -134,6 +193,10 @@ public class InputSpec implements ElementSpec<SubPlan.Input> {
         results.put("data", getDataType()); //$NON-NLS-1$
         results.put("options", getInputOptions()); //$NON-NLS-1$
         Optionals.put(results, "partition", getPartitionInfo()); //$NON-NLS-1$
+        Optionals.put(results, "projection", getProjection()); //$NON-NLS-1$
+        if (getDictionaryEncoding().isEmpty() == false) {
+            results.put("dictionary", getDictionaryEncoding()); //$NON-NLS-1$
+        }
         return results;
     }
 
@@ -182,5 +245,24 @@ public class InputSpec implements ElementSpec<SubPlan.Input> {
          * Uses file list buffer.
          */
         SPILL_OUT,
+
+        /**
+         * The only consumer reads each group only once, so that the groups can be streamed instead of buffered.
+         * This has a priority over {@link #SPILL_OUT}.
+         * @see GroupAccess#ONCE
+         * @since 0.2.0
+         */
+        READ_ONCE,
+
+        /**
+         * The orderings in the {@link InputSpec#getPartitionInfo() partition info} are not provided by the shuffle,
+         * so that the each group must be sorted on the heap buffer.
+         * The corresponded upstream outputs have partition info without any orderings.
+         * Drivers must pass the orderings to the input adapter, for example, by building its spec with
+         * {@code CoGroupInputAdapterGenerator.Spec.of(InputSpec)}.
+         * Otherwise, the operator receives the unsorted groups.
+         * @since 0.2.0
+         */
+        LOCAL_SORT,
     }
 }
@@ -16,7 +16,9 @@
 package com.asakusafw.dag.compiler.model.plan;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
 
@@ -24,6 +26,7 @@ import com.asakusafw.dag.utils.common.Arguments;
 import com.asakusafw.dag.utils.common.Invariants;
 import com.asakusafw.dag.utils.common.Optionals;
 import com.asakusafw.lang.compiler.common.util.EnumUtil;
+import com.asakusafw.lang.compiler.model.PropertyName;
 import com.asakusafw.lang.compiler.model.description.TypeDescription;
 import com.asakusafw.lang.compiler.model.graph.Group;
 import com.asakusafw.lang.compiler.model.graph.Operator;
@@ -31,6 +34,8 @@ import com.asakusafw.lang.compiler.planning.SubPlan;
 
 /**
  * Extra information for {@link com.asakusafw.lang.compiler.planning.SubPlan.Output SubPlan.Output}.
+ * @since 0.1.0
+ * @version 0.2.0
  */
 public class OutputSpec implements ElementSpec<SubPlan.Output> {
 
@@ -50,6 +55,14 @@ public class OutputSpec implements ElementSpec<SubPlan.Output> {
 
     private final Operator aggregationInfo;
 
+    private final Set<PropertyName> projection;
+
+    private final Set<PropertyName> dictionaryEncoding;
+
+    private final int salt;
+
+    private final int partitionCount;
+
     /**
      * Returns the spec of the target element.
      * @param origin the target element
@@ -80,6 +93,40 @@ public class OutputSpec implements ElementSpec<SubPlan.Output> {
             Collection<OutputOption> outputOptions,
             Group partitionInfo,
             Operator aggregationInfo) {
+        this(origin, id, outputType, sourceType, wireType, outputOptions, partitionInfo, aggregationInfo,
+                null, null, 0, -1);
+    }
+
+    /**
+     * Creates a new instance.
+     * @param origin the original sub-plan output
+     * @param id the output ID
+     * @param sourceType the source type
+     * @param wireType the output data type
+     * @param outputType the output operation type
+     * @param outputOptions the extra output options
+     * @param partitionInfo the output partitioning information (nullable)
+     * @param aggregationInfo the output pre-aggregation operator (nullable)
+     * @param projection the properties which must be transferred on the wire,
+     *     or {@code null} if all properties are required
+     * @param dictionaryEncoding the string properties which are dictionary encoded on the wire (nullable)
+     * @param salt the number of salts for each group, or {@code 0} if the groups are not salted
+     * @param partitionCount the suggested number of partitions, or {@code -1} if it is not specified
+     * @since 0.2.0
+     */
+    public OutputSpec(
+            SubPlan.Output origin,
+            String id,
+            OutputType outputType,
+            TypeDescription sourceType,
+            TypeDescription wireType,
+            Collection<OutputOption> outputOptions,
+            Group partitionInfo,
+            Operator aggregationInfo,
+            Collection<PropertyName> projection,
+            Collection<PropertyName> dictionaryEncoding,
+            int salt,
+            int partitionCount) {
         Arguments.requireNonNull(origin);
         Arguments.requireNonNull(id);
         Arguments.requireNonNull(sourceType);
@@ -94,6 +141,17 @@ public class OutputSpec implements ElementSpec<SubPlan.Output> {
         this.outputOptions = EnumUtil.freeze(outputOptions);
         this.partitionInfo = partitionInfo;
         this.aggregationInfo = aggregationInfo;
+        this.projection = projection == null
+                ? null
+                : Collections.unmodifiableSet(new LinkedHashSet<>(projection));
+        this.dictionaryEncoding = dictionaryEncoding == null
+                ? Collections.emptySet()
+                : Collections.unmodifiableSet(new LinkedHashSet<>(dictionaryEncoding));
+        Arguments.require(salt >= 0);
+        Arguments.require(salt == 0 || partitionInfo != null);
+        this.salt = salt;
+        Arguments.require(partitionCount == -1 || partitionCount > 0);
+        this.partitionCount = partitionCount;
     }
 
     @Override
@@ -154,6 +212,45 @@ public class OutputSpec implements ElementSpec<SubPlan.Output> {
         return aggregationInfo;
     }
 
+    /**
+     * Returns the properties which must be transferred on the wire.
+     * Other properties will be {@code null} on the receiver side.
+     * @return the transferring properties, or {@code null} if all properties are required
+     * @since 0.2.0
+     */
+    public Set<PropertyName> getProjection() {
+        return projection;
+    }
+
+    /**
+     * Returns the string properties which are dictionary encoded on the wire.
+     * @return the dictionary encoded properties, or an empty set if there are no such properties
+     * @since 0.2.0
+     */
+    public Set<PropertyName> getDictionaryEncoding() {
+        return dictionaryEncoding;
+    }
+
+    /**
+     * Returns the number of salts for each group.
+     * If this is greater than {@code 0}, records in the same group are spread over the different partitions by
+     * the salts, and then the succeeding operation must process each partial group independently.
+     * @return the number of salts, or {@code 0} if the groups are not salted
+     * @since 0.2.0
+     */
+    public int getSalt() {
+        return salt;
+    }
+
+    /**
+     * Returns the suggested number of partitions on this output.
+     * @return the suggested number of partitions, or {@code -1} if it is not specified
+     * @since 0.2.0
+     */
+    public int getPartitionCount() {
+        return partitionCount;
+    }
+
     @Override
     public Map<String, ?> toMap() {
         Map<String, Object> results = new LinkedHashMap<>();
@@ -163,6 +260,16 @@ public class OutputSpec implements ElementSpec<SubPlan.Output> {
         results.put("options", getOutputOptions()); //$NON-NLS-1$
         Optionals.put(results, "partition", getPartitionInfo()); //$NON-NLS-1$
         Optionals.put(results, "aggregation", getAggregationInfo()); //$NON-NLS-1$
+        Optionals.put(results, "projection", getProjection()); //$NON-NLS-1$
+        if (getDictionaryEncoding().isEmpty() == false) {
+            results.put("dictionary", getDictionaryEncoding()); //$NON-NLS-1$
+        }
+        if (getSalt() > 0) {
+            results.put("salt", getSalt()); //$NON-NLS-1$
+        }
+        if (getPartitionCount() > 0) {
+            results.put("partitions", getPartitionCount()); //$NON-NLS-1$
+        }
         return results;
     }
 
@@ -206,5 +313,14 @@ public class OutputSpec implements ElementSpec<SubPlan.Output> {
          * Whether the output accepts pre-aggregation operation.
          */
         PRE_AGGREGATION,
+
+        /**
+         * Whether the records are already partitioned by the upstream operation compatibly to the output
+         * partitioning information.
+         * Engines can keep each upstream partition in the same downstream partition and only need to regroup
+         * the records locally, instead of re-distributing them.
+         * @since 0.2.0
+         */
+        PARTITION_PRESERVED,
     }
 }
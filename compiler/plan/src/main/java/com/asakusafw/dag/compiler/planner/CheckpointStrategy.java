@@ -0,0 +1,194 @@
+/**
+ * Copyright 2011-2016 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.compiler.planner;
+
+import java.text.MessageFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.asakusafw.lang.compiler.api.CompilerOptions;
+import com.asakusafw.lang.compiler.model.graph.Operator;
+import com.asakusafw.lang.compiler.model.graph.Operator.OperatorKind;
+import com.asakusafw.lang.compiler.model.graph.OperatorInput;
+import com.asakusafw.lang.compiler.model.graph.OperatorOutput;
+import com.asakusafw.lang.compiler.optimizer.OperatorEstimate;
+import com.asakusafw.lang.compiler.optimizer.OperatorEstimators;
+import com.asakusafw.lang.compiler.optimizer.basic.OperatorClass;
+import com.asakusafw.lang.compiler.planning.PlanMarker;
+import com.asakusafw.lang.compiler.planning.PlanMarkers;
+
+/**
+ * Places {@link PlanMarker#CHECKPOINT} markers after expensive and high-reduction stages.
+ * <p>
+ * The recomputation cost of an operator is approximated by the total estimated size of data which flows into
+ * the operator and all its distinct predecessors.
+ * A checkpoint is placed on an output of a grouping operator if its recomputation cost is at least
+ * {@link DagPlanning#KEY_CHECKPOINT_RATIO} times as large as the estimated size of the output,
+ * that is, the checkpoint is much cheaper to materialize than to recompute.
+ * Operators whose cost or output size is not available are never checkpointed.
+ * </p>
+ * @since 0.2.0
+ */
+final class CheckpointStrategy {
+
+    static final double DEFAULT_RATIO = 10.0;
+
+    private CheckpointStrategy() {
+        return;
+    }
+
+    /**
+     * Returns the minimum ratio of the recomputation cost to the materialization size.
+     * @param options the compiler options
+     * @return the ratio
+     */
+    static double getRatio(CompilerOptions options) {
+        String value = options.get(DagPlanning.KEY_CHECKPOINT_RATIO, null);
+        if (value == null || value.trim().isEmpty()) {
+            return DEFAULT_RATIO;
+        }
+        double ratio;
+        try {
+            ratio = Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            DagPlanning.LOG.warn(MessageFormat.format(
+                    "invalid checkpoint ratio (must be a number): {0}={1}",
+                    DagPlanning.KEY_CHECKPOINT_RATIO,
+                    value), e);
+            return DEFAULT_RATIO;
+        }
+        if (ratio > 0.0) {
+            return ratio;
+        }
+        DagPlanning.LOG.warn(MessageFormat.format(
+                "invalid checkpoint ratio (must be positive): {0}={1}",
+                DagPlanning.KEY_CHECKPOINT_RATIO,
+                value));
+        return DEFAULT_RATIO;
+    }
+
+    /**
+     * Inserts checkpoints into the operator graph.
+     * This must be invoked before any other plan markers are inserted.
+     * @param context the current context
+     * @param characteristics the operator characteristics
+     */
+    static void insertCheckpoints(PlanningContext context, Map<Operator, OperatorClass> characteristics) {
+        double ratio = getRatio(context.getCompilerOptions());
+        Map<Operator, OperatorEstimate> estimates = OperatorEstimators.apply(
+                context.getOptimizerContext(),
+                context.getEstimator(),
+                characteristics.keySet());
+        Map<Operator, Double> costs = new HashMap<>();
+        List<OperatorOutput> targets = new ArrayList<>();
+        for (OperatorClass info : characteristics.values()) {
+            if (info.getPrimaryInputType() != OperatorClass.InputType.GROUP) {
+                continue;
+            }
+            Operator operator = info.getOperator();
+            double cost = computeCost(operator, estimates, costs);
+            if (Double.isNaN(cost)) {
+                continue;
+            }
+            OperatorEstimate estimate = estimates.get(operator);
+            for (OperatorOutput port : operator.getOutputs()) {
+                if (isMaterialized(characteristics, port)) {
+                    continue;
+                }
+                double size = estimate.getSize(port);
+                if (Double.isNaN(size) || size < 0.0 || cost < size * ratio) {
+                    continue;
+                }
+                DagPlanning.LOG.debug("automatic checkpoint: {} (cost={}, size={})", port, cost, size); //$NON-NLS-1$
+                targets.add(port);
+            }
+        }
+        for (OperatorOutput port : targets) {
+            PlanMarkers.insert(PlanMarker.CHECKPOINT, port);
+        }
+    }
+
+    private static double computeCost(
+            Operator operator, Map<Operator, OperatorEstimate> estimates, Map<Operator, Double> costs) {
+        // sums up the local costs of distinct operators, even if they are reachable through multiple paths
+        Set<Operator> saw = new HashSet<>();
+        Deque<Operator> work = new ArrayDeque<>();
+        work.add(operator);
+        double result = 0.0;
+        while (work.isEmpty() == false) {
+            Operator next = work.removeFirst();
+            if (saw.add(next) == false) {
+                continue;
+            }
+            double local = costs.computeIfAbsent(next, k -> computeLocalCost(k, estimates));
+            if (Double.isNaN(local)) {
+                return Double.NaN;
+            }
+            result += local;
+            for (OperatorInput port : next.getInputs()) {
+                for (OperatorOutput upstream : port.getOpposites()) {
+                    work.add(upstream.getOwner());
+                }
+            }
+        }
+        return result;
+    }
+
+    private static double computeLocalCost(Operator operator, Map<Operator, OperatorEstimate> estimates) {
+        OperatorEstimate estimate = estimates.get(operator);
+        if (estimate == null) {
+            return Double.NaN;
+        }
+        double result = 0.0;
+        for (OperatorInput port : operator.getInputs()) {
+            double size = estimate.getSize(port);
+            if (Double.isNaN(size) || size < 0.0) {
+                return Double.NaN;
+            }
+            result += size;
+        }
+        return result;
+    }
+
+    private static boolean isMaterialized(Map<Operator, OperatorClass> characteristics, OperatorOutput port) {
+        if (port.getOpposites().isEmpty()) {
+            // dead end
+            return true;
+        }
+        for (OperatorInput downstream : port.getOpposites()) {
+            Operator owner = downstream.getOwner();
+            if (owner.getOperatorKind() == OperatorKind.OUTPUT) {
+                // external outputs are always checkpointed
+                continue;
+            }
+            OperatorClass info = characteristics.get(owner);
+            if (info != null
+                    && info.getPrimaryInputType() == OperatorClass.InputType.GROUP
+                    && info.getPrimaryInputs().contains(downstream)) {
+                // shuffles are already materialized
+                continue;
+            }
+            return false;
+        }
+        return true;
+    }
+}
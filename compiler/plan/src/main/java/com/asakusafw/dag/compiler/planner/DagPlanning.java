@@ -15,12 +15,21 @@
  */
 package com.asakusafw.dag.compiler.planner;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.text.MessageFormat;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.EnumSet;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -29,6 +38,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -40,6 +50,7 @@ import com.asakusafw.dag.compiler.planner.PlanningContext.Option;
 import com.asakusafw.lang.compiler.api.CompilerOptions;
 import com.asakusafw.lang.compiler.api.JobflowProcessor;
 import com.asakusafw.lang.compiler.common.AttributeContainer;
+import com.asakusafw.lang.compiler.model.description.ClassDescription;
 import com.asakusafw.lang.compiler.model.description.TypeDescription;
 import com.asakusafw.lang.compiler.model.graph.CoreOperator;
 import com.asakusafw.lang.compiler.model.graph.CoreOperator.CoreOperatorKind;
@@ -52,11 +63,16 @@ import com.asakusafw.lang.compiler.model.graph.Operator;
 import com.asakusafw.lang.compiler.model.graph.Operator.OperatorKind;
 import com.asakusafw.lang.compiler.model.graph.OperatorGraph;
 import com.asakusafw.lang.compiler.model.graph.OperatorInput;
+import com.asakusafw.lang.compiler.model.graph.OperatorOutput;
 import com.asakusafw.lang.compiler.model.graph.Operators;
+import com.asakusafw.lang.compiler.model.graph.UserOperator;
 import com.asakusafw.lang.compiler.model.info.JobflowInfo;
 import com.asakusafw.lang.compiler.optimizer.OperatorCharacterizers;
+import com.asakusafw.lang.compiler.optimizer.OperatorEstimate;
+import com.asakusafw.lang.compiler.optimizer.OperatorEstimators;
 import com.asakusafw.lang.compiler.optimizer.OperatorRewriters;
 import com.asakusafw.lang.compiler.optimizer.adapter.OptimizerContextAdapter;
+import com.asakusafw.lang.compiler.optimizer.basic.BasicOptimizers;
 import com.asakusafw.lang.compiler.optimizer.basic.OperatorClass;
 import com.asakusafw.lang.compiler.planning.OperatorEquivalence;
 import com.asakusafw.lang.compiler.planning.Plan;
@@ -84,7 +100,7 @@ import com.asakusafw.utils.graph.Graph;
  * </li>
  * </ul>
  * @since 0.1.0
- * @version 0.1.2
+ * @version 0.2.0
  */
 public final class DagPlanning {
 
@@ -98,6 +114,79 @@ public final class DagPlanning {
      */
     public static final String KEY_OPTION_PREFIX = "dag.planning.option."; //$NON-NLS-1$
 
+    /**
+     * The compiler property key prefix of dictionary encoding hints.
+     * The property key must be followed by the binary name of the target data model class,
+     * and its value is a comma separated list of string property names to be dictionary encoded on the edges.
+     * @since 0.2.0
+     */
+    public static final String KEY_DICTIONARY_PREFIX = "dag.planning.dictionary."; //$NON-NLS-1$
+
+    /**
+     * The compiler property key of the maximum estimated size of broadcast inputs (in bytes).
+     * If the estimated size of a secondary input of join like operators exceeds this limit,
+     * the planner gathers all inputs of the operator and then performs merge join instead of broadcasting it.
+     * The size limit is disabled if this property is not set.
+     * @since 0.2.0
+     */
+    public static final String KEY_BROADCAST_LIMIT = "dag.planning.broadcast.limit"; //$NON-NLS-1$
+
+    /**
+     * The compiler property key of the number of salts for each group in the salted aggregations.
+     * This is only effective if {@link Option#SALTED_AGGREGATION} is enabled.
+     * @since 0.2.0
+     */
+    public static final String KEY_AGGREGATION_SALT = "dag.planning.aggregation.salt"; //$NON-NLS-1$
+
+    static final int DEFAULT_AGGREGATION_SALT = 8;
+
+    /**
+     * The compiler property key of the expected data size of each partition on shuffle edges (in bytes).
+     * If it is set, the planner suggests the number of partitions for each shuffle edge from its estimated size.
+     * The partition count is not suggested if this property is not set.
+     * @since 0.2.0
+     */
+    public static final String KEY_PARTITION_SIZE = "dag.planning.partition.size"; //$NON-NLS-1$
+
+    /**
+     * The compiler property key of the maximum number of partitions suggested for each shuffle edge.
+     * This is only effective if {@link #KEY_PARTITION_SIZE} is set.
+     * @since 0.2.0
+     */
+    public static final String KEY_PARTITION_MAX = "dag.planning.partition.max"; //$NON-NLS-1$
+
+    /**
+     * The compiler property key of the minimum estimated size of external inputs to be unified (in bytes).
+     * Smaller inputs are still scanned individually, because the scan is cheap and unifying them
+     * puts all their consumers into the few tasks of the shared scan.
+     * This is only effective if {@link Option#UNIFY_EXTERNAL_INPUTS} is enabled.
+     * @since 0.2.0
+     */
+    public static final String KEY_INPUT_UNIFY_THRESHOLD = "dag.planning.input.unify.threshold"; //$NON-NLS-1$
+
+    static final long DEFAULT_INPUT_UNIFY_THRESHOLD = 64L * 1024 * 1024;
+
+    /**
+     * The compiler property key of the minimum ratio of the estimated recomputation cost to the estimated output
+     * size for automatic checkpoints (default: {@code 10.0}).
+     * This is only effective if {@link Option#AUTO_CHECKPOINT} is enabled.
+     * @since 0.2.0
+     */
+    public static final String KEY_CHECKPOINT_RATIO = "dag.planning.checkpoint.ratio"; //$NON-NLS-1$
+
+    /**
+     * The compiler property key prefix of the runtime statistics directory.
+     * The property key must be followed by the target flow ID.
+     * If it is set, the planner estimates operator output sizes from the {@link PlanStatistics statistics}
+     * which were observed in the previous executions, and then writes an index of the new plan into the
+     * directory so that the next executions can record their statistics.
+     * @since 0.2.0
+     */
+    public static final String KEY_STATISTICS_PREFIX = "dag.planning.statistics."; //$NON-NLS-1$
+
+    private static final ClassDescription FOLD =
+            new ClassDescription("com.asakusafw.vocabulary.operator.Fold"); //$NON-NLS-1$
+
     private DagPlanning() {
         return;
     }
@@ -123,7 +212,31 @@ public final class DagPlanning {
      */
     public static PlanDetail plan(JobflowProcessor.Context parent, JobflowInfo jobflow, OperatorGraph operators) {
         PlanningContext context = createContext(parent, jobflow);
-        return plan(context, operators);
+        PlanDetail result = plan(context, operators);
+        if (context.getOptions().contains(Option.PLAN_REPORT)) {
+            writeReport(parent, PlanReport.of(context, result));
+        }
+        Path statistics = getStatisticsDirectory(parent.getOptions(), jobflow.getFlowId());
+        if (statistics != null) {
+            try {
+                PlanStatistics.writeIndex(statistics, result.getPlan());
+            } catch (IOException e) {
+                LOG.warn(MessageFormat.format(
+                        "failed to write plan statistics index: {0}",
+                        statistics), e);
+            }
+        }
+        return result;
+    }
+
+    private static void writeReport(JobflowProcessor.Context parent, PlanReport report) {
+        try (OutputStream output = parent.addResourceFile(PlanReport.LOCATION)) {
+            report.write(output);
+        } catch (IOException e) {
+            LOG.warn(MessageFormat.format(
+                    "failed to write plan report: {0}",
+                    PlanReport.LOCATION), e);
+        }
     }
 
     /**
@@ -148,10 +261,53 @@ public final class DagPlanning {
             JobflowProcessor.Context parent,
             JobflowInfo jobflow,
             Collection<PlanningContext.Option> options) {
-        PlanningContext context = new PlanningContext(
-                new OptimizerContextAdapter(parent, jobflow.getFlowId(), DagOptimizerToolkit.INSTANCE),
-                options);
-        return context;
+        OptimizerContextAdapter optimizer =
+                new OptimizerContextAdapter(parent, jobflow.getFlowId(), DagOptimizerToolkit.INSTANCE);
+        PlanStatistics statistics = loadStatistics(parent.getOptions(), jobflow.getFlowId());
+        if (statistics == null) {
+            return new PlanningContext(optimizer, options, parent.getOptions());
+        }
+        ClassLoader classLoader = optimizer.getClassLoader();
+        return new PlanningContext(
+                optimizer,
+                new StatisticsEstimator(BasicOptimizers.getDefaultEstimator(classLoader).build(), statistics),
+                BasicOptimizers.getDefaultClassifier(classLoader).build(),
+                BasicOptimizers.getDefaultRewriter(classLoader).build(),
+                options,
+                parent.getOptions());
+    }
+
+    private static Path getStatisticsDirectory(CompilerOptions options, String flowId) {
+        String value = options.get(KEY_STATISTICS_PREFIX + flowId, null);
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            return Paths.get(value.trim());
+        } catch (InvalidPathException e) {
+            LOG.warn(MessageFormat.format(
+                    "invalid statistics directory: {0}={1}",
+                    KEY_STATISTICS_PREFIX + flowId,
+                    value), e);
+            return null;
+        }
+    }
+
+    private static PlanStatistics loadStatistics(CompilerOptions options, String flowId) {
+        Path directory = getStatisticsDirectory(options, flowId);
+        if (directory == null) {
+            return null;
+        }
+        try {
+            PlanStatistics statistics = PlanStatistics.load(directory);
+            LOG.debug("plan statistics: {} ({})", directory, statistics != null); //$NON-NLS-1$
+            return statistics;
+        } catch (IOException e) {
+            LOG.warn(MessageFormat.format(
+                    "failed to load plan statistics: {0}",
+                    directory), e);
+            return null;
+        }
     }
 
     private static Set<Option> getPlanningOptions(CompilerOptions options) {
@@ -195,16 +351,19 @@ public final class DagPlanning {
     static void prepareOperatorGraph(PlanningContext context, OperatorGraph graph) {
         Planning.normalize(graph);
         optimize(context, graph);
+        if (context.getOptions().contains(Option.UNIFY_EXTERNAL_INPUTS)) {
+            unifyExternalInputs(context, graph);
+        }
         insertPlanMarkers(context, graph);
         Planning.simplifyTerminators(graph);
     }
 
     private static void optimize(PlanningContext context, OperatorGraph graph) {
+        // null: rewrite the whole graph
+        Set<Operator> worklist = null;
         int step = 0;
-        boolean changed;
-        do {
+        while (true) {
             step++;
-            LOG.debug("optimize step#{}", step);
             Planning.removeDeadFlow(graph);
             if (step > OPTIMIZATION_STEP_LIMIT) {
                 LOG.warn(MessageFormat.format(
@@ -212,26 +371,147 @@ public final class DagPlanning {
                         OPTIMIZATION_STEP_LIMIT));
                 break;
             }
-            OperatorGraph.Snapshot before = graph.getSnapshot();
-            OperatorRewriters.apply(
-                    context.getOptimizerContext(),
-                    context.getEstimator(),
-                    context.getRewriter(),
-                    graph);
-            OperatorGraph.Snapshot after = graph.getSnapshot();
-            changed = before.equals(after) == false;
-        } while (changed);
+            GraphRevision before = GraphRevision.of(graph.getOperators(false));
+            if (worklist == null) {
+                LOG.debug("optimize step#{}", step); //$NON-NLS-1$
+                rewrite(context, graph);
+            } else {
+                LOG.debug("optimize step#{} ({} operators)", step, worklist.size()); //$NON-NLS-1$
+                rewrite(context, graph, worklist);
+            }
+            GraphRevision after = GraphRevision.of(graph.getOperators(false));
+            if (after.isSame(before)) {
+                if (worklist == null) {
+                    break;
+                }
+                // confirms the fixpoint with the whole graph
+                worklist = null;
+            } else {
+                Set<Operator> changed = after.getChanged(before);
+                worklist = changed.isEmpty() ? null : changed;
+            }
+        }
     }
 
-    static void insertPlanMarkers(PlanningContext context, OperatorGraph graph) {
-        rewriteCheckpointOperators(graph);
-        Map<Operator, OperatorClass> characteristics = OperatorCharacterizers.apply(
+    private static void rewrite(PlanningContext context, OperatorGraph graph) {
+        OperatorRewriters.apply(
+                context.getOptimizerContext(),
+                context.getEstimator(),
+                context.getRewriter(),
+                graph);
+    }
+
+    private static void rewrite(PlanningContext context, OperatorGraph graph, Set<Operator> changed) {
+        // changed operators, their neighbors, and all their upstreams (for estimation)
+        Set<Operator> scope = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<Operator> work = new ArrayDeque<>();
+        for (Operator operator : changed) {
+            work.add(operator);
+            for (OperatorOutput output : operator.getOutputs()) {
+                output.getOpposites().forEach(p -> work.add(p.getOwner()));
+            }
+        }
+        while (work.isEmpty() == false) {
+            Operator next = work.removeFirst();
+            if (scope.add(next)) {
+                for (OperatorInput input : next.getInputs()) {
+                    input.getOpposites().forEach(p -> work.add(p.getOwner()));
+                }
+            }
+        }
+        OperatorGraph partial = new OperatorGraph(scope);
+        rewrite(context, partial);
+        Set<Operator> rest = Collections.newSetFromMap(new IdentityHashMap<>());
+        rest.addAll(partial.getOperators(false));
+        for (Operator operator : scope) {
+            if (rest.contains(operator) == false && isDisconnected(operator)) {
+                graph.remove(operator);
+            }
+        }
+        for (Operator operator : rest) {
+            graph.add(operator);
+        }
+        graph.rebuild();
+    }
+
+    private static boolean isDisconnected(Operator operator) {
+        return operator.getInputs().stream().allMatch(p -> p.getOpposites().isEmpty())
+                && operator.getOutputs().stream().allMatch(p -> p.getOpposites().isEmpty());
+    }
+
+    private static void unifyExternalInputs(PlanningContext context, OperatorGraph graph) {
+        Map<List<Object>, List<ExternalInput>> groups = new LinkedHashMap<>();
+        for (Operator operator : graph.getOperators(false)) {
+            if (operator.getOperatorKind() != OperatorKind.INPUT) {
+                continue;
+            }
+            ExternalInput input = (ExternalInput) operator;
+            if (input.getInfo() == null) {
+                continue;
+            }
+            List<Object> key = Arrays.asList(input.getInfo(), input.getOperatorPort().getDataType());
+            groups.computeIfAbsent(key, k -> new ArrayList<>()).add(input);
+        }
+        List<List<ExternalInput>> targets = groups.values().stream()
+                .filter(g -> g.size() >= 2)
+                .collect(Collectors.toList());
+        if (targets.isEmpty()) {
+            return;
+        }
+        long threshold = getInputUnifyThreshold(context.getCompilerOptions());
+        Map<Operator, OperatorEstimate> estimates = OperatorEstimators.apply(
                 context.getOptimizerContext(),
                 context.getEstimator(),
-                context.getClassifier(),
-                graph.getOperators(false));
+                targets.stream().map(g -> g.get(0)).collect(Collectors.toList()));
+        for (List<ExternalInput> group : targets) {
+            ExternalInput representative = group.get(0);
+            OperatorOutput port = representative.getOperatorPort();
+            OperatorEstimate estimate = estimates.get(representative);
+            double size = estimate == null ? Double.NaN : estimate.getSize(port);
+            if (Double.isNaN(size) == false && size < threshold) {
+                LOG.debug("external input is too small to unify: {} ({}bytes)", representative, size); //$NON-NLS-1$
+                continue;
+            }
+            for (ExternalInput duplicate : group.subList(1, group.size())) {
+                LOG.debug("unify external input: {} -> {}", duplicate, representative); //$NON-NLS-1$
+                for (OperatorInput downstream : duplicate.getOperatorPort().getOpposites()) {
+                    port.connect(downstream);
+                }
+                duplicate.disconnectAll();
+                graph.remove(duplicate);
+            }
+        }
+    }
+
+    private static long getInputUnifyThreshold(CompilerOptions options) {
+        String value = options.get(KEY_INPUT_UNIFY_THRESHOLD, null);
+        if (value == null || value.trim().isEmpty()) {
+            return DEFAULT_INPUT_UNIFY_THRESHOLD;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            LOG.warn(MessageFormat.format(
+                    "invalid input unification threshold (must be an integer): {0}={1}",
+                    KEY_INPUT_UNIFY_THRESHOLD,
+                    value), e);
+            return DEFAULT_INPUT_UNIFY_THRESHOLD;
+        }
+    }
+
+    static void insertPlanMarkers(PlanningContext context, OperatorGraph graph) {
+        rewriteCheckpointOperators(context, graph);
+        Map<Operator, OperatorClass> characteristics = JoinStrategy.resolveBySize(context,
+                OperatorCharacterizers.apply(
+                        context.getOptimizerContext(),
+                        context.getEstimator(),
+                        context.getClassifier(),
+                        graph.getOperators(false)));
+        if (context.getOptions().contains(Option.AUTO_CHECKPOINT)) {
+            CheckpointStrategy.insertCheckpoints(context, characteristics);
+        }
         for (OperatorClass info : characteristics.values()) {
-            insertPlanMarkerForPreparingGroup(info);
+            insertPlanMarkerForPreparingGroup(context, characteristics, info);
             insertPlanMarkerForPreparingBroadcast(info);
             if (context.getOptions().contains(Option.CHECKPOINT_AFTER_EXTERNAL_INPUTS)) {
                 insertPlanMarkerForEnsuringExternalInput(info);
@@ -241,37 +521,187 @@ public final class DagPlanning {
         graph.rebuild();
     }
 
-    private static void rewriteCheckpointOperators(OperatorGraph graph) {
+    private static void rewriteCheckpointOperators(PlanningContext context, OperatorGraph graph) {
+        Map<Operator, OperatorEstimate> estimates = null;
+        if (context.getOptions().contains(Option.FUSE_PIPELINED_SUBPLANS)) {
+            estimates = OperatorEstimators.apply(
+                    context.getOptimizerContext(),
+                    context.getEstimator(),
+                    graph.getOperators(false));
+        }
         for (Operator operator : graph.getOperators(true)) {
             if (operator.getOperatorKind() != OperatorKind.CORE
                     || ((CoreOperator) operator).getCoreOperatorKind() != CoreOperatorKind.CHECKPOINT) {
                 continue;
             }
-            PlanMarkers.insert(PlanMarker.CHECKPOINT, operator.getInputs().get(0));
+            if (estimates != null && isPipelined(operator, estimates)) {
+                LOG.info(MessageFormat.format(
+                        "fuse pipelined sub-plans across checkpoint: {0}",
+                        operator));
+            } else {
+                PlanMarkers.insert(PlanMarker.CHECKPOINT, operator.getInputs().get(0));
+            }
             Operators.remove(operator);
             graph.remove(operator);
         }
     }
 
-    private static void insertPlanMarkerForPreparingGroup(OperatorClass info) {
+    private static boolean isPipelined(Operator checkpoint, Map<Operator, OperatorEstimate> estimates) {
+        // one-to-one: the producer has no other consumers, and the consumer has no other producers
+        OperatorInput input = checkpoint.getInputs().get(0);
+        OperatorOutput output = checkpoint.getOutputs().get(0);
+        if (input.getOpposites().size() != 1 || output.getOpposites().size() != 1) {
+            return false;
+        }
+        OperatorOutput upstream = input.getOpposites().iterator().next();
+        OperatorInput downstream = output.getOpposites().iterator().next();
+        if (upstream.getOpposites().size() != 1 || downstream.getOpposites().size() != 1) {
+            return false;
+        }
+        // resources: the consumer must not load any other inputs into the fused sub-plan
+        if (downstream.getOwner().getInputs().size() != 1) {
+            return false;
+        }
+        // parallelism: the producer must not enlarge the data, or the consumer may need more tasks than it
+        Operator producer = upstream.getOwner();
+        OperatorEstimate producerEstimate = estimates.get(producer);
+        OperatorEstimate checkpointEstimate = estimates.get(checkpoint);
+        if (producerEstimate == null || checkpointEstimate == null) {
+            return false;
+        }
+        double size = checkpointEstimate.getSize(input);
+        if (Double.isNaN(size) || size < 0.0) {
+            return false;
+        }
+        double limit = 0.0;
+        for (OperatorInput port : producer.getInputs()) {
+            double inputSize = producerEstimate.getSize(port);
+            if (Double.isNaN(inputSize) || inputSize < 0.0) {
+                return false;
+            }
+            limit += inputSize;
+        }
+        return producer.getInputs().isEmpty() || size <= limit;
+    }
+
+    private static void insertPlanMarkerForPreparingGroup(
+            PlanningContext context, Map<Operator, OperatorClass> characteristics, OperatorClass info) {
         if (info.getPrimaryInputType() != OperatorClass.InputType.GROUP) {
             return;
         }
         for (OperatorInput port : info.getPrimaryInputs()) {
             if (isEmpty(port) == false) {
                 boolean aggregate = info.getAttributes(port).contains(OperatorClass.InputAttribute.AGGREATE);
+                int salt = aggregate ? computeAggregationSalt(context, info) : 0;
+                if (salt > 1) {
+                    insertPlanMarkerForSaltedAggregation(info, port, salt);
+                    continue;
+                }
+                Group preserved = null;
+                if (context.getOptions().contains(Option.ELIMINATE_REDUNDANT_SHUFFLE)) {
+                    preserved = findPreservedPartitioning(context, characteristics, info, port);
+                }
                 EdgeInfo edge = new EdgeInfo(
                         port.getDataType(),
                         port.getGroup(),
-                        aggregate ? info.getOperator() : null);
-                Operators.insert(MarkerOperator.builder(port.getDataType())
+                        aggregate ? info.getOperator() : null,
+                        0,
+                        preserved != null);
+                MarkerOperator.Builder marker = MarkerOperator.builder(port.getDataType())
                         .attribute(PlanMarker.class, PlanMarker.GATHER)
-                        .attribute(EdgeInfo.class, edge)
-                        .build(), port);
+                        .attribute(EdgeInfo.class, edge);
+                if (preserved != null) {
+                    LOG.debug("partitioning is preserved: {} ({})", port, preserved); //$NON-NLS-1$
+                    marker.attribute(PreservedPartitioning.class, new PreservedPartitioning(preserved));
+                }
+                Operators.insert(marker.build(), port);
             }
         }
     }
 
+    private static Group findPreservedPartitioning(
+            PlanningContext context, Map<Operator, OperatorClass> characteristics,
+            OperatorClass info, OperatorInput port) {
+        // upstream --- *G(K) --- producer(Fold) --- port(G: K <= G)
+        if (info.getPrimaryInputs().size() != 1 || port.getOpposites().size() != 1) {
+            return null;
+        }
+        OperatorOutput output = port.getOpposites().iterator().next();
+        if (isKeyPreserving(output.getOwner()) == false) {
+            return null;
+        }
+        OperatorClass producer = characteristics.get(output.getOwner());
+        if (producer == null
+                || producer.getPrimaryInputType() != OperatorClass.InputType.GROUP
+                || producer.getPrimaryInputs().size() != 1
+                || computeAggregationSalt(context, producer) > 1) {
+            return null;
+        }
+        OperatorInput source = producer.getPrimaryInputs().iterator().next();
+        if (isEmpty(source) || source.getDataType().equals(output.getDataType()) == false) {
+            return null;
+        }
+        Group partition = source.getGroup();
+        Group group = port.getGroup();
+        if (partition == null || group == null
+                || partition.getGrouping().isEmpty()
+                || group.getGrouping().containsAll(partition.getGrouping()) == false) {
+            return null;
+        }
+        return partition;
+    }
+
+    private static boolean isKeyPreserving(Operator operator) {
+        // Fold operators must not modify the grouping key properties,
+        // other user operators can emit any records of the same type
+        return operator.getOperatorKind() == OperatorKind.USER
+                && ((UserOperator) operator).getAnnotation().getDeclaringClass().equals(FOLD);
+    }
+
+    private static int computeAggregationSalt(PlanningContext context, OperatorClass info) {
+        if (context.getOptions().contains(Option.SALTED_AGGREGATION) == false) {
+            return 0;
+        }
+        Operator operator = info.getOperator();
+        if (operator.getOperatorKind() != OperatorKind.USER
+                || ((UserOperator) operator).getAnnotation().getDeclaringClass().equals(FOLD) == false
+                || info.getPrimaryInputs().size() != 1
+                || info.getSecondaryInputs().isEmpty() == false) {
+            return 0;
+        }
+        String value = context.getCompilerOptions().get(KEY_AGGREGATION_SALT, null);
+        if (value == null || value.trim().isEmpty()) {
+            return DEFAULT_AGGREGATION_SALT;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            LOG.warn(MessageFormat.format(
+                    "invalid aggregation salt (must be an integer): {0}={1}",
+                    KEY_AGGREGATION_SALT,
+                    value), e);
+            return 0;
+        }
+    }
+
+    private static void insertPlanMarkerForSaltedAggregation(OperatorClass info, OperatorInput port, int salt) {
+        // upstream --- *G(salted) --- partial --- *G --- operator
+        Operator operator = info.getOperator();
+        Operator partial = operator.copy();
+        Operators.insert(partial, port);
+        Operators.insert(MarkerOperator.builder(port.getDataType())
+                .attribute(PlanMarker.class, PlanMarker.GATHER)
+                .attribute(EdgeInfo.class, new EdgeInfo(port.getDataType(), port.getGroup(), operator))
+                .build(), port);
+        OperatorInput partialPort = partial.getInputs().get(0);
+        EdgeInfo edge = new EdgeInfo(partialPort.getDataType(), partialPort.getGroup(), partial, salt);
+        Operators.insert(MarkerOperator.builder(partialPort.getDataType())
+                .attribute(PlanMarker.class, PlanMarker.GATHER)
+                .attribute(EdgeInfo.class, edge)
+                .attribute(Salt.class, new Salt(salt))
+                .build(), partialPort);
+    }
+
     private static void insertPlanMarkerForPreparingBroadcast(OperatorClass info) {
         for (OperatorInput port : info.getSecondaryInputs()) {
             if (isEmpty(port) == false) {
@@ -547,11 +977,25 @@ public final class DagPlanning {
 
         private final Long aggregation;
 
+        private final int salt;
+
+        private final boolean preserved;
+
         EdgeInfo(TypeDescription type, Group partition, Operator aggregation) {
+            this(type, partition, aggregation, 0);
+        }
+
+        EdgeInfo(TypeDescription type, Group partition, Operator aggregation, int salt) {
+            this(type, partition, aggregation, salt, false);
+        }
+
+        EdgeInfo(TypeDescription type, Group partition, Operator aggregation, int salt, boolean preserved) {
             assert type != null;
             this.type = type;
             this.partition = partition;
             this.aggregation = aggregation == null ? null : aggregation.getOriginalSerialNumber();
+            this.salt = salt;
+            this.preserved = preserved;
         }
 
         @Override
@@ -561,6 +1005,8 @@ public final class DagPlanning {
             result = prime * result + Objects.hashCode(type);
             result = prime * result + Objects.hashCode(partition);
             result = prime * result + Objects.hashCode(aggregation);
+            result = prime * result + salt;
+            result = prime * result + Boolean.hashCode(preserved);
             return result;
         }
 
@@ -585,15 +1031,98 @@ public final class DagPlanning {
             if (!Objects.equals(aggregation, other.aggregation)) {
                 return false;
             }
+            if (salt != other.salt) {
+                return false;
+            }
+            if (preserved != other.preserved) {
+                return false;
+            }
             return true;
         }
 
         @Override
         public String toString() {
             return MessageFormat.format(
-                    "EdgeInfo(group={0}, aggregation={1})", //$NON-NLS-1$
+                    "EdgeInfo(group={0}, aggregation={1}, salt={2}, preserved={3})", //$NON-NLS-1$
                     partition,
-                    aggregation != null);
+                    aggregation != null,
+                    salt,
+                    preserved);
+        }
+    }
+
+    /**
+     * An attribute of {@link PlanMarker#GATHER} markers, which represents the number of salts for each group.
+     * @since 0.2.0
+     */
+    static final class Salt {
+
+        final int count;
+
+        Salt(int count) {
+            this.count = count;
+        }
+
+        @Override
+        public int hashCode() {
+            return count;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null) {
+                return false;
+            }
+            if (getClass() != obj.getClass()) {
+                return false;
+            }
+            return count == ((Salt) obj).count;
+        }
+
+        @Override
+        public String toString() {
+            return MessageFormat.format("Salt({0})", count); //$NON-NLS-1$
+        }
+    }
+
+    /**
+     * An attribute of {@link PlanMarker#GATHER} markers, which represents that the upstream records are already
+     * partitioned by the (prefix-compatible) group.
+     * @since 0.2.0
+     */
+    static final class PreservedPartitioning {
+
+        final Group upstream;
+
+        PreservedPartitioning(Group upstream) {
+            this.upstream = upstream;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(upstream);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null) {
+                return false;
+            }
+            if (getClass() != obj.getClass()) {
+                return false;
+            }
+            return Objects.equals(upstream, ((PreservedPartitioning) obj).upstream);
+        }
+
+        @Override
+        public String toString() {
+            return MessageFormat.format("PreservedPartitioning({0})", upstream); //$NON-NLS-1$
         }
     }
 }
@@ -0,0 +1,99 @@
+/**
+ * Copyright 2011-2016 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.compiler.planner;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.asakusafw.dag.utils.common.Arguments;
+import com.asakusafw.lang.compiler.model.graph.Operator;
+import com.asakusafw.lang.compiler.model.graph.OperatorInput;
+import com.asakusafw.lang.compiler.model.graph.OperatorOutput;
+import com.asakusafw.lang.compiler.model.graph.OperatorPort;
+
+/**
+ * A revision of operator connections.
+ * This compares operators and their connections by their identity, and reports the operators which were
+ * added or re-connected since the other revision.
+ * @since 0.2.0
+ */
+final class GraphRevision {
+
+    private final Map<Operator, List<Set<OperatorPort>>> connections;
+
+    private GraphRevision(Map<Operator, List<Set<OperatorPort>>> connections) {
+        this.connections = connections;
+    }
+
+    /**
+     * Returns the current revision of the given operators.
+     * @param operators the target operators
+     * @return the current revision
+     */
+    static GraphRevision of(Collection<? extends Operator> operators) {
+        Arguments.requireNonNull(operators);
+        Map<Operator, List<Set<OperatorPort>>> connections = new IdentityHashMap<>();
+        for (Operator operator : operators) {
+            List<Set<OperatorPort>> ports = new ArrayList<>();
+            for (OperatorInput port : operator.getInputs()) {
+                ports.add(toIdentitySet(port.getOpposites()));
+            }
+            for (OperatorOutput port : operator.getOutputs()) {
+                ports.add(toIdentitySet(port.getOpposites()));
+            }
+            connections.put(operator, ports);
+        }
+        return new GraphRevision(connections);
+    }
+
+    private static Set<OperatorPort> toIdentitySet(Collection<? extends OperatorPort> ports) {
+        Set<OperatorPort> results = Collections.newSetFromMap(new IdentityHashMap<>());
+        results.addAll(ports);
+        return results;
+    }
+
+    /**
+     * Returns whether or not this revision is same as the given one.
+     * @param other the other revision
+     * @return {@code true} if both have the same operators and connections, otherwise {@code false}
+     */
+    boolean isSame(GraphRevision other) {
+        Arguments.requireNonNull(other);
+        return connections.size() == other.connections.size() && getChanged(other).isEmpty();
+    }
+
+    /**
+     * Returns the operators in this revision, which were added or re-connected since the given revision.
+     * The neighbors of removed operators are also included because their connections were changed.
+     * @param older the older revision
+     * @return the changed operators
+     */
+    Set<Operator> getChanged(GraphRevision older) {
+        Arguments.requireNonNull(older);
+        Set<Operator> results = Collections.newSetFromMap(new IdentityHashMap<>());
+        connections.forEach((operator, ports) -> {
+            if (ports.equals(older.connections.get(operator)) == false) {
+                results.add(operator);
+            }
+        });
+        return results;
+    }
+}
@@ -0,0 +1,119 @@
+/**
+ * Copyright 2011-2016 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.compiler.planner;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.asakusafw.dag.utils.common.Arguments;
+import com.asakusafw.lang.compiler.model.description.ClassDescription;
+import com.asakusafw.lang.compiler.model.graph.CoreOperator;
+import com.asakusafw.lang.compiler.model.graph.Operator;
+import com.asakusafw.lang.compiler.model.graph.OperatorInput;
+import com.asakusafw.lang.compiler.model.graph.OperatorOutput;
+import com.asakusafw.lang.compiler.model.graph.UserOperator;
+
+/**
+ * Analyzes whether the objects passed to operator inputs may be modified by the operators or their successors.
+ * <p>
+ * The objects are only proven to be read-only through operators which never modify their inputs, that is,
+ * project, extend, and restructure operators (they copy properties into other objects), external outputs and
+ * plan markers (the objects are serialized), and checkpoint, logging, and branch operators (they pass through
+ * the objects to their successors, and then their successors are also analyzed).
+ * Any other operators, including the other user operators, are considered to modify their inputs.
+ * </p>
+ * @since 0.2.0
+ */
+public final class InputMutability {
+
+    private static final ClassDescription LOGGING =
+            new ClassDescription("com.asakusafw.vocabulary.operator.Logging"); //$NON-NLS-1$
+
+    private static final ClassDescription BRANCH =
+            new ClassDescription("com.asakusafw.vocabulary.operator.Branch"); //$NON-NLS-1$
+
+    private final Map<OperatorInput, Boolean> cache = new HashMap<>();
+
+    /**
+     * Returns whether the objects from the given output may be modified by any downstream operators.
+     * @param output the target output
+     * @return {@code true} if they may be modified, otherwise {@code false}
+     */
+    public boolean isModified(OperatorOutput output) {
+        Arguments.requireNonNull(output);
+        for (OperatorInput opposite : output.getOpposites()) {
+            if (isModified(opposite)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether the objects passed to the given input may be modified by its owner or the downstream
+     * operators.
+     * @param input the target input
+     * @return {@code true} if they may be modified, otherwise {@code false}
+     */
+    public boolean isModified(OperatorInput input) {
+        Arguments.requireNonNull(input);
+        Boolean cached = cache.get(input);
+        if (cached != null) {
+            return cached;
+        }
+        boolean result = isModified0(input);
+        cache.put(input, result);
+        return result;
+    }
+
+    private boolean isModified0(OperatorInput input) {
+        Operator operator = input.getOwner();
+        switch (operator.getOperatorKind()) {
+        case CORE:
+            switch (((CoreOperator) operator).getCoreOperatorKind()) {
+            case PROJECT:
+            case EXTEND:
+            case RESTRUCTURE:
+                return false;
+            case CHECKPOINT:
+                return isPassThroughModified(operator);
+            default:
+                return true;
+            }
+        case USER: {
+            ClassDescription annotation = ((UserOperator) operator).getAnnotation().getDeclaringClass();
+            if (annotation.equals(LOGGING) || annotation.equals(BRANCH)) {
+                return isPassThroughModified(operator);
+            }
+            return true;
+        }
+        case OUTPUT:
+        case MARKER:
+            return false;
+        default:
+            return true;
+        }
+    }
+
+    private boolean isPassThroughModified(Operator operator) {
+        for (OperatorOutput output : operator.getOutputs()) {
+            if (isModified(output)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,168 @@
+/**
+ * Copyright 2011-2016 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.compiler.planner;
+
+import java.text.MessageFormat;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import com.asakusafw.lang.compiler.api.CompilerOptions;
+import com.asakusafw.lang.compiler.model.graph.Operator;
+import com.asakusafw.lang.compiler.model.graph.OperatorInput;
+import com.asakusafw.lang.compiler.model.graph.OperatorOutput;
+import com.asakusafw.lang.compiler.optimizer.OperatorEstimate;
+import com.asakusafw.lang.compiler.optimizer.OperatorEstimators;
+import com.asakusafw.lang.compiler.optimizer.basic.OperatorClass;
+import com.asakusafw.lang.compiler.planning.PlanMarker;
+import com.asakusafw.lang.compiler.planning.PlanMarkers;
+
+/**
+ * Selects the join strategy of operators which have secondary inputs.
+ * <p>
+ * Each secondary input is broadcast by default.
+ * If the estimated size of a secondary input exceeds {@link DagPlanning#KEY_BROADCAST_LIMIT},
+ * the operator is re-classified as a grouping operator, and then all its inputs are gathered and merge-joined.
+ * The decision is recorded in the plan as {@link PlanMarker#GATHER} markers on the former secondary inputs.
+ * </p>
+ * @since 0.2.0
+ */
+final class JoinStrategy {
+
+    private JoinStrategy() {
+        return;
+    }
+
+    /**
+     * Returns the broadcast size limit in bytes.
+     * @param options the compiler options
+     * @return the limit, or a negative value if it is not limited
+     */
+    static double getBroadcastLimit(CompilerOptions options) {
+        String value = options.get(DagPlanning.KEY_BROADCAST_LIMIT, null);
+        if (value == null || value.trim().isEmpty()) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            DagPlanning.LOG.warn(MessageFormat.format(
+                    "invalid broadcast limit (must be an integer): {0}={1}",
+                    DagPlanning.KEY_BROADCAST_LIMIT,
+                    value), e);
+            return -1;
+        }
+    }
+
+    /**
+     * Re-classifies operators whose secondary inputs are too large to be broadcast.
+     * @param context the current context
+     * @param characteristics the original operator characteristics
+     * @return the resolved operator characteristics
+     */
+    static Map<Operator, OperatorClass> resolveBySize(
+            PlanningContext context, Map<Operator, OperatorClass> characteristics) {
+        double limit = getBroadcastLimit(context.getCompilerOptions());
+        if (limit < 0) {
+            return characteristics;
+        }
+        Collection<Operator> candidates = characteristics.values().stream()
+                .filter(JoinStrategy::isMergeable)
+                .map(OperatorClass::getOperator)
+                .collect(Collectors.toList());
+        if (candidates.isEmpty()) {
+            return characteristics;
+        }
+        Map<Operator, OperatorEstimate> estimates = OperatorEstimators.apply(
+                context.getOptimizerContext(),
+                context.getEstimator(),
+                candidates);
+        Map<Operator, OperatorClass> results = new LinkedHashMap<>(characteristics);
+        for (Operator operator : candidates) {
+            OperatorClass info = characteristics.get(operator);
+            OperatorEstimate estimate = estimates.get(operator);
+            if (estimate != null && exceeds(info, estimate, limit)) {
+                DagPlanning.LOG.debug("merge join instead of broadcast: {}", operator); //$NON-NLS-1$
+                results.put(operator, toMergeJoin(info));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Re-classifies operators whose secondary inputs are already gathered in the plan.
+     * @param characteristics the original operator characteristics
+     * @return the resolved operator characteristics
+     */
+    static Map<Operator, OperatorClass> resolveByPlan(Map<Operator, OperatorClass> characteristics) {
+        Map<Operator, OperatorClass> results = null;
+        for (OperatorClass info : characteristics.values()) {
+            if (isMergeable(info) && isGathered(info)) {
+                if (results == null) {
+                    results = new LinkedHashMap<>(characteristics);
+                }
+                results.put(info.getOperator(), toMergeJoin(info));
+            }
+        }
+        return results == null ? characteristics : results;
+    }
+
+    private static boolean isMergeable(OperatorClass info) {
+        if (info.getPrimaryInputType() != OperatorClass.InputType.RECORD || info.getSecondaryInputs().isEmpty()) {
+            return false;
+        }
+        for (OperatorInput port : info.getOperator().getInputs()) {
+            if (port.getGroup() == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean exceeds(OperatorClass info, OperatorEstimate estimate, double limit) {
+        for (OperatorInput port : info.getSecondaryInputs()) {
+            double size = estimate.getSize(port);
+            if (Double.isNaN(size) == false && size > limit) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isGathered(OperatorClass info) {
+        for (OperatorInput port : info.getSecondaryInputs()) {
+            for (OperatorOutput upstream : port.getOpposites()) {
+                if (PlanMarkers.get(upstream.getOwner()) == PlanMarker.GATHER) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static OperatorClass toMergeJoin(OperatorClass info) {
+        Operator operator = info.getOperator();
+        OperatorClass.Builder builder = OperatorClass.builder(operator, OperatorClass.InputType.GROUP);
+        for (OperatorInput port : operator.getInputs()) {
+            builder.with(port, OperatorClass.InputAttribute.PRIMARY);
+            for (OperatorClass.InputAttribute attribute : info.getAttributes(port)) {
+                builder.with(port, attribute);
+            }
+        }
+        return builder.build();
+    }
+}
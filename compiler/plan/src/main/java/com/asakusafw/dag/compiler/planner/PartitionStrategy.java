@@ -0,0 +1,117 @@
+/**
+ * Copyright 2011-2016 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.compiler.planner;
+
+import java.text.MessageFormat;
+import java.util.Collections;
+import java.util.Map;
+
+import com.asakusafw.lang.compiler.api.CompilerOptions;
+import com.asakusafw.lang.compiler.model.graph.Operator;
+import com.asakusafw.lang.compiler.model.graph.OperatorGraph;
+import com.asakusafw.lang.compiler.model.graph.OperatorInput;
+import com.asakusafw.lang.compiler.optimizer.OperatorEstimate;
+import com.asakusafw.lang.compiler.optimizer.OperatorEstimators;
+
+/**
+ * Suggests the number of partitions for each shuffle edge.
+ * <p>
+ * The suggested partition count is the estimated size of the edge divided by
+ * {@link DagPlanning#KEY_PARTITION_SIZE}, and is bounded by {@link DagPlanning#KEY_PARTITION_MAX}.
+ * The partition count is not suggested if the size is not available.
+ * </p>
+ * @since 0.2.0
+ */
+final class PartitionStrategy {
+
+    static final PartitionStrategy DISABLED = new PartitionStrategy(-1, Integer.MAX_VALUE, Collections.emptyMap());
+
+    private final long partitionSize;
+
+    private final int maxPartitions;
+
+    private final Map<Operator, OperatorEstimate> estimates;
+
+    private PartitionStrategy(long partitionSize, int maxPartitions, Map<Operator, OperatorEstimate> estimates) {
+        this.partitionSize = partitionSize;
+        this.maxPartitions = maxPartitions;
+        this.estimates = estimates;
+    }
+
+    /**
+     * Creates a new instance.
+     * @param context the current context
+     * @param normalized the normalized operator graph, which is origin of the target plan
+     * @return the created instance
+     */
+    static PartitionStrategy newInstance(PlanningContext context, OperatorGraph normalized) {
+        CompilerOptions options = context.getCompilerOptions();
+        long partitionSize = getLong(options, DagPlanning.KEY_PARTITION_SIZE);
+        if (partitionSize <= 0) {
+            return DISABLED;
+        }
+        long max = getLong(options, DagPlanning.KEY_PARTITION_MAX);
+        Map<Operator, OperatorEstimate> estimates = OperatorEstimators.apply(
+                context.getOptimizerContext(),
+                context.getEstimator(),
+                normalized.getOperators(false));
+        return new PartitionStrategy(
+                partitionSize,
+                max <= 0 ? Integer.MAX_VALUE : (int) Math.min(max, Integer.MAX_VALUE),
+                estimates);
+    }
+
+    private static long getLong(CompilerOptions options, String key) {
+        String value = options.get(key, null);
+        if (value == null || value.trim().isEmpty()) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            DagPlanning.LOG.warn(MessageFormat.format(
+                    "invalid partition option (must be an integer): {0}={1}",
+                    key,
+                    value), e);
+            return -1;
+        }
+    }
+
+    /**
+     * Returns the suggested number of partitions for the edge.
+     * @param source the source operator of the edge in the normalized operator graph
+     * @return the suggested number of partitions, or {@code -1} if it is not available
+     */
+    int getPartitionCount(Operator source) {
+        if (partitionSize <= 0 || source == null) {
+            return -1;
+        }
+        OperatorEstimate estimate = estimates.get(source);
+        if (estimate == null) {
+            return -1;
+        }
+        double total = 0.0;
+        for (OperatorInput port : source.getInputs()) {
+            double size = estimate.getSize(port);
+            if (Double.isNaN(size) || size < 0.0) {
+                return -1;
+            }
+            total += size;
+        }
+        double count = Math.ceil(total / partitionSize);
+        return (int) Math.max(1, Math.min(count, maxPartitions));
+    }
+}
@@ -0,0 +1,308 @@
+/**
+ * Copyright 2011-2016 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.compiler.planner;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import com.asakusafw.dag.compiler.model.plan.InputSpec;
+import com.asakusafw.dag.compiler.model.plan.OutputSpec;
+import com.asakusafw.dag.compiler.model.plan.VertexSpec;
+import com.asakusafw.dag.utils.common.Arguments;
+import com.asakusafw.lang.compiler.common.Location;
+import com.asakusafw.lang.compiler.model.graph.Operator;
+import com.asakusafw.lang.compiler.model.graph.Operator.OperatorKind;
+import com.asakusafw.lang.compiler.model.graph.OperatorInput;
+import com.asakusafw.lang.compiler.optimizer.OperatorEstimate;
+import com.asakusafw.lang.compiler.optimizer.OperatorEstimators;
+import com.asakusafw.lang.compiler.planning.PlanDetail;
+import com.asakusafw.lang.compiler.planning.SubPlan;
+
+/**
+ * A machine-readable report of execution plans.
+ * <p>
+ * The report is a JSON object which consists of the following members:
+ * </p>
+ * <ul>
+ * <li> {@code vertices} - the list of {@link VertexSpec vertices}, with their number of operators and
+ *      their {@link InputSpec inputs} and {@link OutputSpec outputs} </li>
+ * <li> {@code edges} - the list of edges between the vertex outputs and inputs </li>
+ * </ul>
+ * <p>
+ * Each output also has its estimated {@code size} in bytes if it is available.
+ * All elements are sorted by their IDs, so that reports of the same plan are always identical.
+ * </p>
+ * <p>
+ * The planner writes this report into the jobflow package only if {@link PlanningContext.Option#PLAN_REPORT}
+ * is enabled.
+ * </p>
+ * @since 0.2.0
+ */
+public final class PlanReport {
+
+    /**
+     * The location of the report file in the jobflow package.
+     */
+    public static final Location LOCATION = Location.of("META-INF/asakusa-dag/plan.json"); //$NON-NLS-1$
+
+    private final Map<String, ?> contents;
+
+    private PlanReport(Map<String, ?> contents) {
+        this.contents = contents;
+    }
+
+    /**
+     * Creates a report of the given plan.
+     * The plan must be decorated with {@link VertexSpec}, {@link InputSpec}, and {@link OutputSpec}.
+     * @param context the current context
+     * @param detail the target plan detail
+     * @return the created report
+     */
+    public static PlanReport of(PlanningContext context, PlanDetail detail) {
+        Arguments.requireNonNull(context);
+        Arguments.requireNonNull(detail);
+        List<SubPlan> elements = new ArrayList<>(detail.getPlan().getElements());
+        elements.sort(Comparator.comparing(e -> VertexSpec.get(e).getId()));
+        Map<Operator, OperatorEstimate> estimates = estimate(context, detail, elements);
+        List<Object> vertices = new ArrayList<>();
+        List<Object> edges = new ArrayList<>();
+        for (SubPlan element : elements) {
+            vertices.add(toVertex(detail, estimates, element));
+            for (SubPlan.Output output : sortOutputs(element.getOutputs())) {
+                for (SubPlan.Input opposite : sortInputs(output.getOpposites())) {
+                    Map<String, Object> edge = new LinkedHashMap<>();
+                    edge.put("upstream", OutputSpec.get(output).getId()); //$NON-NLS-1$
+                    edge.put("downstream", InputSpec.get(opposite).getId()); //$NON-NLS-1$
+                    edge.put("type", OutputSpec.get(output).getOutputType()); //$NON-NLS-1$
+                    edges.add(edge);
+                }
+            }
+        }
+        Map<String, Object> results = new LinkedHashMap<>();
+        results.put("vertices", vertices); //$NON-NLS-1$
+        results.put("edges", edges); //$NON-NLS-1$
+        return new PlanReport(results);
+    }
+
+    private static List<SubPlan.Input> sortInputs(Collection<? extends SubPlan.Input> ports) {
+        List<SubPlan.Input> results = new ArrayList<>(ports);
+        results.sort(Comparator.comparing(p -> InputSpec.get(p).getId()));
+        return results;
+    }
+
+    private static List<SubPlan.Output> sortOutputs(Collection<? extends SubPlan.Output> ports) {
+        List<SubPlan.Output> results = new ArrayList<>(ports);
+        results.sort(Comparator.comparing(p -> OutputSpec.get(p).getId()));
+        return results;
+    }
+
+    private static Map<Operator, OperatorEstimate> estimate(
+            PlanningContext context, PlanDetail detail, List<SubPlan> elements) {
+        List<Operator> sources = elements.stream()
+                .flatMap(e -> e.getOutputs().stream())
+                .map(p -> detail.getSource(p.getOperator()))
+                .filter(o -> o != null)
+                .collect(Collectors.toList());
+        return OperatorEstimators.apply(context.getOptimizerContext(), context.getEstimator(), sources);
+    }
+
+    private static Map<String, Object> toVertex(
+            PlanDetail detail, Map<Operator, OperatorEstimate> estimates, SubPlan element) {
+        Map<String, Object> results = new LinkedHashMap<>(VertexSpec.get(element).toMap());
+        results.put("operators", element.getOperators().stream() //$NON-NLS-1$
+                .filter(o -> o.getOperatorKind() != OperatorKind.MARKER)
+                .count());
+        results.put("inputs", sortInputs(element.getInputs()).stream() //$NON-NLS-1$
+                .map(p -> InputSpec.get(p).toMap())
+                .collect(Collectors.toList()));
+        List<Object> outputs = new ArrayList<>();
+        for (SubPlan.Output port : sortOutputs(element.getOutputs())) {
+            Map<String, Object> output = new LinkedHashMap<>(OutputSpec.get(port).toMap());
+            double size = getSize(detail, estimates, port);
+            if (Double.isNaN(size) == false) {
+                output.put("size", size); //$NON-NLS-1$
+            }
+            outputs.add(output);
+        }
+        results.put("outputs", outputs); //$NON-NLS-1$
+        return results;
+    }
+
+    private static double getSize(PlanDetail detail, Map<Operator, OperatorEstimate> estimates, SubPlan.Output port) {
+        Operator source = detail.getSource(port.getOperator());
+        OperatorEstimate estimate = source == null ? null : estimates.get(source);
+        if (estimate == null) {
+            return Double.NaN;
+        }
+        double total = 0.0;
+        for (OperatorInput input : source.getInputs()) {
+            double size = estimate.getSize(input);
+            if (Double.isNaN(size) || size < 0.0) {
+                return Double.NaN;
+            }
+            total += size;
+        }
+        return total;
+    }
+
+    /**
+     * Returns the report contents.
+     * @return the report contents
+     */
+    public Map<String, ?> toMap() {
+        return contents;
+    }
+
+    /**
+     * Writes this report as a JSON document.
+     * @param output the target output
+     * @throws IOException if I/O error was occurred while writing the report
+     */
+    public void write(OutputStream output) throws IOException {
+        Arguments.requireNonNull(output);
+        output.write(toJson().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns this report as a JSON document.
+     * @return the JSON document
+     */
+    public String toJson() {
+        StringBuilder buf = new StringBuilder();
+        append(buf, contents, 0);
+        buf.append('\n');
+        return buf.toString();
+    }
+
+    private static void append(StringBuilder buf, Object value, int depth) {
+        if (value == null) {
+            buf.append("null"); //$NON-NLS-1$
+        } else if (value instanceof Map<?, ?>) {
+            appendObject(buf, (Map<?, ?>) value, depth);
+        } else if (value instanceof Collection<?>) {
+            appendArray(buf, (Collection<?>) value, depth);
+        } else if (value instanceof Boolean) {
+            buf.append(value);
+        } else if (value instanceof Double || value instanceof Float) {
+            double number = ((Number) value).doubleValue();
+            if (Double.isNaN(number) || Double.isInfinite(number)) {
+                buf.append("null"); //$NON-NLS-1$
+            } else if (number == Math.rint(number) && Math.abs(number) < 1e15) {
+                buf.append((long) number);
+            } else {
+                buf.append(number);
+            }
+        } else if (value instanceof Number) {
+            buf.append(value);
+        } else if (value instanceof Enum<?>) {
+            appendString(buf, ((Enum<?>) value).name());
+        } else {
+            appendString(buf, String.valueOf(value));
+        }
+    }
+
+    private static void appendObject(StringBuilder buf, Map<?, ?> value, int depth) {
+        if (value.isEmpty()) {
+            buf.append("{}"); //$NON-NLS-1$
+            return;
+        }
+        buf.append('{');
+        boolean first = true;
+        for (Map.Entry<?, ?> entry : value.entrySet()) {
+            if (first == false) {
+                buf.append(',');
+            }
+            first = false;
+            newLine(buf, depth + 1);
+            appendString(buf, String.valueOf(entry.getKey()));
+            buf.append(": "); //$NON-NLS-1$
+            append(buf, entry.getValue(), depth + 1);
+        }
+        newLine(buf, depth);
+        buf.append('}');
+    }
+
+    private static void appendArray(StringBuilder buf, Collection<?> value, int depth) {
+        if (value.isEmpty()) {
+            buf.append("[]"); //$NON-NLS-1$
+            return;
+        }
+        buf.append('[');
+        boolean first = true;
+        for (Object element : value) {
+            if (first == false) {
+                buf.append(',');
+            }
+            first = false;
+            newLine(buf, depth + 1);
+            append(buf, element, depth + 1);
+        }
+        newLine(buf, depth);
+        buf.append(']');
+    }
+
+    private static void newLine(StringBuilder buf, int depth) {
+        buf.append('\n');
+        for (int i = 0; i < depth; i++) {
+            buf.append("  "); //$NON-NLS-1$
+        }
+    }
+
+    private static void appendString(StringBuilder buf, String value) {
+        buf.append('"');
+        for (int i = 0, n = value.length(); i < n; i++) {
+            char c = value.charAt(i);
+            switch (c) {
+            case '"':
+                buf.append("\\\""); //$NON-NLS-1$
+                break;
+            case '\\':
+                buf.append("\\\\"); //$NON-NLS-1$
+                break;
+            case '\n':
+                buf.append("\\n"); //$NON-NLS-1$
+                break;
+            case '\r':
+                buf.append("\\r"); //$NON-NLS-1$
+                break;
+            case '\t':
+                buf.append("\\t"); //$NON-NLS-1$
+                break;
+            default:
+                if (c < 0x20) {
+                    buf.append(String.format("\\u%04x", (int) c)); //$NON-NLS-1$
+                } else {
+                    buf.append(c);
+                }
+                break;
+            }
+        }
+        buf.append('"');
+    }
+
+    @Override
+    public String toString() {
+        return toJson();
+    }
+}
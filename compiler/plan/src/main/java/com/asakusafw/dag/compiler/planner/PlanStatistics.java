@@ -0,0 +1,509 @@
+/**
+ * Copyright 2011-2016 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.compiler.planner;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.MessageFormat;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.stream.Collectors;
+
+import com.asakusafw.dag.compiler.model.plan.OutputSpec;
+import com.asakusafw.dag.compiler.model.plan.VertexSpec;
+import com.asakusafw.dag.utils.common.Arguments;
+import com.asakusafw.dag.utils.common.HyperLogLog;
+import com.asakusafw.lang.compiler.model.PropertyName;
+import com.asakusafw.lang.compiler.model.description.ArrayTypeDescription;
+import com.asakusafw.lang.compiler.model.description.BasicTypeDescription;
+import com.asakusafw.lang.compiler.model.description.ClassDescription;
+import com.asakusafw.lang.compiler.model.description.EnumConstantDescription;
+import com.asakusafw.lang.compiler.model.description.ImmediateDescription;
+import com.asakusafw.lang.compiler.model.description.TypeDescription;
+import com.asakusafw.lang.compiler.model.description.ValueDescription;
+import com.asakusafw.lang.compiler.model.graph.CoreOperator;
+import com.asakusafw.lang.compiler.model.graph.CustomOperator;
+import com.asakusafw.lang.compiler.model.graph.ExternalPort;
+import com.asakusafw.lang.compiler.model.graph.FlowOperator;
+import com.asakusafw.lang.compiler.model.graph.Group;
+import com.asakusafw.lang.compiler.model.graph.Operator;
+import com.asakusafw.lang.compiler.model.graph.OperatorArgument;
+import com.asakusafw.lang.compiler.model.graph.OperatorInput;
+import com.asakusafw.lang.compiler.model.graph.OperatorOutput;
+import com.asakusafw.lang.compiler.model.graph.UserOperator;
+import com.asakusafw.lang.compiler.planning.Plan;
+import com.asakusafw.lang.compiler.planning.SubPlan;
+
+/**
+ * Statistics of operator outputs, which are observed in the previous executions of the same jobflow.
+ * <p>
+ * The statistics directory contains the following files:
+ * </p>
+ * <ul>
+ * <li> {@code index.properties} - written by the compiler, and maps each edge ID
+ *      ({@code <vertex-id>:<output-id>}) to the structural key of its upstream operator output </li>
+ * <li> {@code <run-id>/statistics-*.properties} - written by the runtime port statistics collector,
+ *      and contains the number of records, the total size of records, and the cardinality sketch of
+ *      each edge in the individual execution </li>
+ * </ul>
+ * <p>
+ * The statistics are summed up (or the sketches are merged) within each execution,
+ * and then they are averaged over the executions.
+ * Only the statistics files which are newer than the index file are considered,
+ * because the older ones may come from the different execution plan.
+ * Writing a new index also removes all statistics files in the directory.
+ * </p>
+ * @since 0.2.0
+ */
+public final class PlanStatistics {
+
+    static final String INDEX_FILE = "index.properties"; //$NON-NLS-1$
+
+    static final String FILE_PREFIX = "statistics-"; //$NON-NLS-1$
+
+    static final String FILE_SUFFIX = ".properties"; //$NON-NLS-1$
+
+    static final String SUFFIX_COUNT = ":count"; //$NON-NLS-1$
+
+    static final String SUFFIX_BYTES = ":bytes"; //$NON-NLS-1$
+
+    static final String SUFFIX_SKETCH = ":sketch"; //$NON-NLS-1$
+
+    private static final String KEY_DIGEST_ALGORITHM = "SHA-1"; //$NON-NLS-1$
+
+    private static final int KEY_DIGEST_BYTES = 8;
+
+    private final Map<String, Entry> entries;
+
+    private PlanStatistics(Map<String, Entry> entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * Loads statistics from the given directory.
+     * @param directory the statistics directory
+     * @return the loaded statistics, or {@code null} if there are no available statistics
+     * @throws IOException if I/O error was occurred while loading the statistics
+     */
+    public static PlanStatistics load(Path directory) throws IOException {
+        Arguments.requireNonNull(directory);
+        Path indexFile = directory.resolve(INDEX_FILE);
+        if (Files.isRegularFile(indexFile) == false) {
+            return null;
+        }
+        Properties index = read(indexFile);
+        FileTime indexTime = Files.getLastModifiedTime(indexFile);
+        Map<String, Edge> edges = new HashMap<>();
+        try (DirectoryStream<Path> runs = Files.newDirectoryStream(directory, Files::isDirectory)) {
+            for (Path run : runs) {
+                Map<String, Observation> observations = loadRun(run, indexTime);
+                observations.forEach((edgeId, observation) -> edges
+                        .computeIfAbsent(edgeId, k -> new Edge())
+                        .add(observation));
+            }
+        }
+        Map<String, Entry> entries = new HashMap<>();
+        edges.forEach((edgeId, edge) -> {
+            String key = index.getProperty(edgeId);
+            if (key != null) {
+                entries.merge(key, edge.toEntry(), Entry::max);
+            }
+        });
+        if (entries.isEmpty()) {
+            return null;
+        }
+        return new PlanStatistics(entries);
+    }
+
+    private static Map<String, Observation> loadRun(Path run, FileTime indexTime) throws IOException {
+        Map<String, Observation> results = new HashMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(run, FILE_PREFIX + '*' + FILE_SUFFIX)) {
+            for (Path file : stream) {
+                if (Files.getLastModifiedTime(file).compareTo(indexTime) < 0) {
+                    DagPlanning.LOG.debug("skip obsolete statistics: {}", file); //$NON-NLS-1$
+                    continue;
+                }
+                DagPlanning.LOG.debug("loading statistics: {}", file); //$NON-NLS-1$
+                collect(read(file), results);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Writes an index of the given plan into the statistics directory.
+     * The plan must be decorated with {@link VertexSpec} and {@link OutputSpec}.
+     * The existing statistics files are removed, because they were observed in the previous execution plan.
+     * @param directory the statistics directory
+     * @param plan the target plan
+     * @throws IOException if I/O error was occurred while writing the index
+     */
+    public static void writeIndex(Path directory, Plan plan) throws IOException {
+        Arguments.requireNonNull(directory);
+        Arguments.requireNonNull(plan);
+        Properties index = new Properties();
+        for (SubPlan sub : plan.getElements()) {
+            String vertexId = VertexSpec.get(sub).getId();
+            for (SubPlan.Output output : sub.getOutputs()) {
+                Collection<OperatorOutput> upstreams = output.getOperator().getInput().getOpposites();
+                if (upstreams.size() != 1) {
+                    continue;
+                }
+                String edgeId = vertexId + ':' + OutputSpec.get(output).getId();
+                index.setProperty(edgeId, getKey(upstreams.iterator().next()));
+            }
+        }
+        Files.createDirectories(directory);
+        clean(directory);
+        try (OutputStream output = Files.newOutputStream(directory.resolve(INDEX_FILE))) {
+            index.store(output, null);
+        }
+    }
+
+    private static void clean(Path directory) throws IOException {
+        try (DirectoryStream<Path> runs = Files.newDirectoryStream(directory, Files::isDirectory)) {
+            for (Path run : runs) {
+                try (DirectoryStream<Path> stream = Files.newDirectoryStream(run, FILE_PREFIX + '*' + FILE_SUFFIX)) {
+                    for (Path file : stream) {
+                        DagPlanning.LOG.debug("removing obsolete statistics: {}", file); //$NON-NLS-1$
+                        Files.deleteIfExists(file);
+                    }
+                }
+                try {
+                    Files.deleteIfExists(run);
+                } catch (DirectoryNotEmptyException e) {
+                    DagPlanning.LOG.debug("statistics directory is not empty: {}", run, e); //$NON-NLS-1$
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the observed statistics of the given operator output.
+     * @param port the target port
+     * @return the statistics, or {@code null} if it is not observed
+     */
+    public Entry find(OperatorOutput port) {
+        Arguments.requireNonNull(port);
+        return entries.get(getKey(port));
+    }
+
+    /**
+     * Returns the persistent key of the given operator output.
+     * The key only consists of the stable properties of the operator, so that it is never changed across
+     * the individual compilations of the same operator graph.
+     * @param port the target port
+     * @return the key
+     */
+    static String getKey(OperatorOutput port) {
+        StringBuilder buf = new StringBuilder();
+        appendOperator(buf, port.getOwner());
+        byte[] digest = newDigest().digest(buf.toString().getBytes(StandardCharsets.UTF_8));
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < KEY_DIGEST_BYTES; i++) {
+            result.append(String.format("%02x", digest[i] & 0xff)); //$NON-NLS-1$
+        }
+        return result.append(':').append(port.getName()).toString();
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(KEY_DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void appendOperator(StringBuilder buf, Operator operator) {
+        buf.append("kind=").append(operator.getOperatorKind().name()).append('\n'); //$NON-NLS-1$
+        switch (operator.getOperatorKind()) {
+        case INPUT:
+        case OUTPUT:
+            buf.append("name=").append(((ExternalPort) operator).getName()).append('\n'); //$NON-NLS-1$
+            break;
+        case USER:
+            appendUser(buf, (UserOperator) operator);
+            break;
+        case CORE:
+            buf.append("core=") //$NON-NLS-1$
+                .append(((CoreOperator) operator).getCoreOperatorKind().name()).append('\n');
+            break;
+        case FLOW:
+            buf.append("flow=") //$NON-NLS-1$
+                .append(((FlowOperator) operator).getDescriptionClass().getBinaryName()).append('\n');
+            break;
+        case CUSTOM:
+            buf.append("category=").append(((CustomOperator) operator).getCategory()).append('\n'); //$NON-NLS-1$
+            break;
+        default:
+            break;
+        }
+        for (OperatorInput port : operator.getInputs()) {
+            buf.append("input=").append(port.getName()); //$NON-NLS-1$
+            buf.append(':');
+            appendType(buf, port.getDataType());
+            Group group = port.getGroup();
+            if (group != null) {
+                buf.append(':');
+                appendGroup(buf, group);
+            }
+            buf.append('\n');
+        }
+        for (OperatorOutput port : operator.getOutputs()) {
+            buf.append("output=").append(port.getName()); //$NON-NLS-1$
+            buf.append(':');
+            appendType(buf, port.getDataType());
+            buf.append('\n');
+        }
+        for (OperatorArgument argument : operator.getArguments()) {
+            buf.append("argument=").append(argument.getName()); //$NON-NLS-1$
+            buf.append(':');
+            appendValue(buf, argument.getValue());
+            buf.append('\n');
+        }
+    }
+
+    private static void appendUser(StringBuilder buf, UserOperator operator) {
+        buf.append("annotation=") //$NON-NLS-1$
+            .append(operator.getAnnotation().getDeclaringClass().getBinaryName()).append('\n');
+        buf.append("method=") //$NON-NLS-1$
+            .append(operator.getMethod().getDeclaringClass().getBinaryName())
+            .append('#').append(operator.getMethod().getName()).append('\n');
+        buf.append("implementation=") //$NON-NLS-1$
+            .append(operator.getImplementationClass().getBinaryName()).append('\n');
+    }
+
+    private static void appendType(StringBuilder buf, TypeDescription type) {
+        TypeDescription erasure = type.getErasure();
+        switch (erasure.getTypeKind()) {
+        case BASIC:
+            buf.append(((BasicTypeDescription) erasure).getBasicTypeKind().name());
+            break;
+        case ARRAY:
+            appendType(buf, ((ArrayTypeDescription) erasure).getComponentType());
+            buf.append("[]"); //$NON-NLS-1$
+            break;
+        case CLASS:
+            buf.append(((ClassDescription) erasure).getBinaryName());
+            break;
+        default:
+            buf.append(erasure.getTypeKind().name());
+            break;
+        }
+    }
+
+    private static void appendGroup(StringBuilder buf, Group group) {
+        buf.append(group.getGrouping().stream()
+                .map(PropertyName::toMemberName)
+                .collect(Collectors.joining(",", "=", ""))); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        for (Group.Ordering ordering : group.getOrdering()) {
+            buf.append(ordering.getDirection() == Group.Direction.ASCENDANT ? '+' : '-');
+            buf.append(ordering.getPropertyName().toMemberName());
+        }
+    }
+
+    private static void appendValue(StringBuilder buf, ValueDescription value) {
+        switch (value.getValueKind()) {
+        case IMMEDIATE:
+            buf.append(((ImmediateDescription) value).getValue());
+            break;
+        case ENUM_CONSTANT:
+            buf.append(((EnumConstantDescription) value).getDeclaringClass().getBinaryName());
+            buf.append('.').append(((EnumConstantDescription) value).getName());
+            break;
+        default:
+            buf.append(value.getValueKind().name());
+            break;
+        }
+    }
+
+    private static Properties read(Path file) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream input = Files.newInputStream(file)) {
+            properties.load(input);
+        }
+        return properties;
+    }
+
+    private static void collect(Properties properties, Map<String, Observation> results) {
+        for (String name : properties.stringPropertyNames()) {
+            if (name.endsWith(SUFFIX_COUNT) == false) {
+                continue;
+            }
+            String edgeId = name.substring(0, name.length() - SUFFIX_COUNT.length());
+            try {
+                long count = Long.parseLong(properties.getProperty(name));
+                long bytes = Long.parseLong(properties.getProperty(edgeId + SUFFIX_BYTES, "-1")); //$NON-NLS-1$
+                String sketch = properties.getProperty(edgeId + SUFFIX_SKETCH);
+                results.computeIfAbsent(edgeId, k -> new Observation()).add(count, bytes,
+                        sketch == null ? null : HyperLogLog.of(Base64.getDecoder().decode(sketch)));
+            } catch (IllegalArgumentException e) {
+                DagPlanning.LOG.warn(MessageFormat.format(
+                        "ignored invalid statistics entry: {0}",
+                        edgeId), e);
+            }
+        }
+    }
+
+    /**
+     * Statistics of an edge in the individual execution.
+     */
+    private static final class Observation {
+
+        long count;
+
+        long bytes;
+
+        HyperLogLog sketch;
+
+        boolean complete = true;
+
+        Observation() {
+            return;
+        }
+
+        void add(long c, long b, HyperLogLog s) {
+            count += c;
+            if (b < 0 || s == null) {
+                complete = false;
+            }
+            if (complete == false) {
+                return;
+            }
+            bytes += b;
+            if (sketch == null) {
+                sketch = s;
+            } else if (sketch.getPrecision() == s.getPrecision()) {
+                sketch.merge(s);
+            } else {
+                complete = false;
+            }
+        }
+    }
+
+    /**
+     * Statistics of an edge over the executions.
+     */
+    private static final class Edge {
+
+        long count;
+
+        long bytes;
+
+        double cardinality;
+
+        int runs;
+
+        int completeRuns;
+
+        Edge() {
+            return;
+        }
+
+        void add(Observation observation) {
+            count += observation.count;
+            runs++;
+            if (observation.complete) {
+                bytes += observation.bytes;
+                cardinality += observation.sketch == null ? 0.0 : observation.sketch.estimate();
+                completeRuns++;
+            }
+        }
+
+        Entry toEntry() {
+            if (completeRuns == 0) {
+                return new Entry(count / runs, -1L, -1.0, runs);
+            }
+            return new Entry(count / runs, bytes / completeRuns, cardinality / completeRuns, runs);
+        }
+    }
+
+    /**
+     * Observed statistics of an operator output.
+     * @since 0.2.0
+     */
+    public static final class Entry {
+
+        private final long count;
+
+        private final long bytes;
+
+        private final double cardinality;
+
+        private final int runs;
+
+        Entry(long count, long bytes, double cardinality, int runs) {
+            this.count = count;
+            this.bytes = bytes;
+            this.cardinality = cardinality;
+            this.runs = runs;
+        }
+
+        static Entry max(Entry a, Entry b) {
+            return a.bytes >= b.bytes ? a : b;
+        }
+
+        /**
+         * Returns the average number of records per execution.
+         * @return the average number of records
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Returns the average total size of records in bytes per execution.
+         * @return the average size, or a negative value if it is not available
+         */
+        public long getBytes() {
+            return bytes;
+        }
+
+        /**
+         * Returns the average estimated number of distinct records per execution.
+         * @return the average number of distinct records, or a negative value if it is not available
+         */
+        public double getCardinality() {
+            return cardinality;
+        }
+
+        /**
+         * Returns the number of executions which the statistics were observed in.
+         * @return the number of executions
+         */
+        public int getRuns() {
+            return runs;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Entry(count=%,d, bytes=%,d, cardinality=%.0f, runs=%,d)", //$NON-NLS-1$
+                    count, bytes, cardinality, runs);
+        }
+    }
+}
@@ -20,6 +20,9 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
+import com.asakusafw.dag.compiler.model.plan.InputSpec;
+import com.asakusafw.dag.compiler.model.plan.OutputSpec.OutputOption;
+import com.asakusafw.lang.compiler.api.CompilerOptions;
 import com.asakusafw.lang.compiler.model.info.JobflowInfo;
 import com.asakusafw.lang.compiler.optimizer.OperatorCharacterizer;
 import com.asakusafw.lang.compiler.optimizer.OperatorEstimator;
@@ -34,6 +37,8 @@ import com.asakusafw.lang.compiler.planning.util.GraphStatistics;
  * Please instantiate this class using
  * {@link DagPlanning#createContext(com.asakusafw.lang.compiler.api.JobflowProcessor.Context, JobflowInfo, Collection)
  * DagPlanning#createContext(...)} instead of directly invoke constructors of this class.
+ * @since 0.1.0
+ * @version 0.2.0
  */
 public class PlanningContext {
 
@@ -47,17 +52,31 @@ public class PlanningContext {
 
     private final Set<Option> options;
 
+    private final CompilerOptions compilerOptions;
+
     /**
      * Creates a new instance.
      * @param context the parent optimizer context
      * @param options the planning options
      */
     public PlanningContext(OptimizerContext context, Collection<Option> options) {
+        this(context, options, CompilerOptions.builder().build());
+    }
+
+    /**
+     * Creates a new instance.
+     * @param context the parent optimizer context
+     * @param options the planning options
+     * @param compilerOptions the compiler options, which may contain planning hints
+     * @since 0.2.0
+     */
+    public PlanningContext(OptimizerContext context, Collection<Option> options, CompilerOptions compilerOptions) {
         this(context,
                 BasicOptimizers.getDefaultEstimator(context.getClassLoader()).build(),
                 BasicOptimizers.getDefaultClassifier(context.getClassLoader()).build(),
                 BasicOptimizers.getDefaultRewriter(context.getClassLoader()).build(),
-                options);
+                options,
+                compilerOptions);
     }
 
     /**
@@ -74,11 +93,32 @@ public class PlanningContext {
             OperatorCharacterizer<? extends OperatorClass> classifier,
             OperatorRewriter rewriter,
             Collection<Option> options) {
+        this(context, estimator, classifier, rewriter, options, CompilerOptions.builder().build());
+    }
+
+    /**
+     * Creates a new instance.
+     * @param context the parent optimizer context
+     * @param estimator the operator estimator
+     * @param classifier the operator classifier
+     * @param rewriter the operator graph rewriter
+     * @param options the planning options
+     * @param compilerOptions the compiler options, which may contain planning hints
+     * @since 0.2.0
+     */
+    public PlanningContext(
+            OptimizerContext context,
+            OperatorEstimator estimator,
+            OperatorCharacterizer<? extends OperatorClass> classifier,
+            OperatorRewriter rewriter,
+            Collection<Option> options,
+            CompilerOptions compilerOptions) {
         this.optimizerContext = context;
         this.estimator = estimator;
         this.classifier = classifier;
         this.rewriter = rewriter;
         this.options = Collections.unmodifiableSet(new HashSet<>(options));
+        this.compilerOptions = compilerOptions;
     }
 
     /**
@@ -121,6 +161,15 @@ public class PlanningContext {
         return options;
     }
 
+    /**
+     * Returns the compiler options.
+     * @return the compiler options
+     * @since 0.2.0
+     */
+    public CompilerOptions getCompilerOptions() {
+        return compilerOptions;
+    }
+
     /**
      * Represents an option for planning.
      */
@@ -140,6 +189,77 @@ public class PlanningContext {
          * Enables {@link GraphStatistics}.
          */
         GRAPH_STATISTICS(true),
+
+        /**
+         * Writes a {@link PlanReport machine-readable plan report} into the jobflow package.
+         * @since 0.2.0
+         */
+        PLAN_REPORT(false),
+
+        /**
+         * Groups co-group inputs only by their group keys in the shuffle,
+         * and then sorts each group on the heap buffer by its orderings.
+         * This is effective for many small groups with expensive orderings.
+         * The affected inputs are marked as {@link InputSpec.InputOption#LOCAL_SORT}, and the driver must sort
+         * their groups by the orderings in their partition info,
+         * for example, by using {@code CoGroupInputAdapterGenerator.Spec.of(InputSpec)}.
+         * Do not enable this with drivers which do not respect the option, or the groups are not sorted.
+         * @since 0.2.0
+         */
+        LOCAL_GROUP_SORT(false),
+
+        /**
+         * Fuses producer and consumer sub-plans which are only separated by user checkpoints on one-to-one edges.
+         * A checkpoint is only dropped if all of the following conditions are met:
+         * <ul>
+         * <li> the producer has no other consumers, and the checkpoint has no other consumers </li>
+         * <li> the consumer has no other inputs, so that no other data is loaded into the fused sub-plan </li>
+         * <li> the estimated checkpoint data is not larger than the producer inputs,
+         *      so that the consumer does not need more tasks than the producer </li>
+         * </ul>
+         * Otherwise, the checkpoint is kept as is.
+         * The records are directly handed off between the operators instead of being serialized.
+         * @since 0.2.0
+         */
+        FUSE_PIPELINED_SUBPLANS(false),
+
+        /**
+         * Splits aggregations of fold operators into two phases:
+         * the first phase aggregates each group which is spread over the salted partitions,
+         * and then the second phase aggregates the partial results of the individual groups.
+         * This is effective for the aggregations which have extremely large groups.
+         * @since 0.2.0
+         * @see DagPlanning#KEY_AGGREGATION_SALT
+         */
+        SALTED_AGGREGATION(false),
+
+        /**
+         * Unifies external inputs which read the same data set, so that the data set is scanned only once
+         * and then fanned out to all consumers.
+         * This is only applied to the inputs whose estimated size is not less than
+         * {@link DagPlanning#KEY_INPUT_UNIFY_THRESHOLD}.
+         * @since 0.2.0
+         */
+        UNIFY_EXTERNAL_INPUTS(false),
+
+        /**
+         * Reuses the partitioning of the upstream {@code Fold} operator if it is compatible to the succeeding group,
+         * that is, the succeeding grouping keys contain all the upstream grouping keys.
+         * Such shuffle edges are marked with {@link OutputOption#PARTITION_PRESERVED}, and engines can regroup
+         * the records locally instead of re-distributing them.
+         * Other grouping operators are never considered, because they may modify the grouping key properties.
+         * @since 0.2.0
+         */
+        ELIMINATE_REDUNDANT_SHUFFLE(false),
+
+        /**
+         * Inserts {@code CHECKPOINT} after grouping operators whose estimated recomputation cost is much larger than
+         * their estimated output size, so that engines can recover or reuse their results without re-running
+         * the long upstream chains.
+         * @since 0.2.0
+         * @see DagPlanning#KEY_CHECKPOINT_RATIO
+         */
+        AUTO_CHECKPOINT(false),
         ;
 
         private String symbol;
@@ -0,0 +1,110 @@
+/**
+ * Copyright 2011-2016 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.compiler.planner;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import com.asakusafw.dag.utils.common.Arguments;
+import com.asakusafw.lang.compiler.analyzer.util.ProjectionOperatorUtil;
+import com.asakusafw.lang.compiler.analyzer.util.PropertyMapping;
+import com.asakusafw.lang.compiler.api.DataModelLoader;
+import com.asakusafw.lang.compiler.model.PropertyName;
+import com.asakusafw.lang.compiler.model.graph.CoreOperator;
+import com.asakusafw.lang.compiler.model.graph.Operator;
+import com.asakusafw.lang.compiler.model.graph.Operator.OperatorKind;
+import com.asakusafw.lang.compiler.model.graph.OperatorInput;
+import com.asakusafw.lang.compiler.model.graph.OperatorOutput;
+
+/**
+ * Analyzes which properties of data models are read by the downstream operators.
+ * <p>
+ * The read properties are only proven through operators whose property accesses are known at compile time, that is,
+ * project, extend, restructure, and checkpoint operators. Any other operators, including user operators, are
+ * considered to read all properties of their inputs.
+ * </p>
+ * @since 0.2.0
+ */
+public final class PropertyLiveness {
+
+    private final DataModelLoader dataModelLoader;
+
+    private final Map<OperatorOutput, Optional<Set<PropertyName>>> cache = new HashMap<>();
+
+    /**
+     * Creates a new instance.
+     * @param dataModelLoader the data model loader
+     */
+    public PropertyLiveness(DataModelLoader dataModelLoader) {
+        Arguments.requireNonNull(dataModelLoader);
+        this.dataModelLoader = dataModelLoader;
+    }
+
+    /**
+     * Returns the properties of the given output, which may be read by the downstream operators.
+     * @param output the target output
+     * @return the live properties, or {@code null} if any properties may be read
+     */
+    public Set<PropertyName> getLiveProperties(OperatorOutput output) {
+        Arguments.requireNonNull(output);
+        Optional<Set<PropertyName>> cached = cache.get(output);
+        if (cached != null) {
+            return cached.orElse(null);
+        }
+        Set<PropertyName> results = new LinkedHashSet<>();
+        for (OperatorInput opposite : output.getOpposites()) {
+            Set<PropertyName> properties = getReadProperties(opposite);
+            if (properties == null) {
+                results = null;
+                break;
+            }
+            results.addAll(properties);
+        }
+        cache.put(output, Optional.ofNullable(results));
+        return results;
+    }
+
+    /**
+     * Returns the properties of the given input, which may be read by its owner or the downstream operators.
+     * @param input the target input
+     * @return the read properties, or {@code null} if any properties may be read
+     */
+    public Set<PropertyName> getReadProperties(OperatorInput input) {
+        Arguments.requireNonNull(input);
+        Operator operator = input.getOwner();
+        if (operator.getOperatorKind() != OperatorKind.CORE) {
+            return null;
+        }
+        switch (((CoreOperator) operator).getCoreOperatorKind()) {
+        case PROJECT:
+        case EXTEND:
+        case RESTRUCTURE: {
+            Set<PropertyName> results = new LinkedHashSet<>();
+            for (PropertyMapping mapping : ProjectionOperatorUtil.getPropertyMappings(dataModelLoader, operator)) {
+                results.add(mapping.getSourceProperty());
+            }
+            return results;
+        }
+        case CHECKPOINT:
+            return getLiveProperties(operator.getOutputs().get(0));
+        default:
+            return null;
+        }
+    }
+}
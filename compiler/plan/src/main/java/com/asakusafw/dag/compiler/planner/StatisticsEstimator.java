@@ -0,0 +1,71 @@
+/**
+ * Copyright 2011-2016 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.compiler.planner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.asakusafw.dag.utils.common.Arguments;
+import com.asakusafw.lang.compiler.model.graph.Operator;
+import com.asakusafw.lang.compiler.model.graph.OperatorOutput;
+import com.asakusafw.lang.compiler.optimizer.OperatorEstimator;
+
+/**
+ * An {@link OperatorEstimator} which prefers the {@link PlanStatistics observed statistics}.
+ * If some outputs of an operator are not observed, this delegates the estimation of the operator to the
+ * other estimator.
+ * @since 0.2.0
+ */
+public class StatisticsEstimator implements OperatorEstimator {
+
+    private final OperatorEstimator delegate;
+
+    private final PlanStatistics statistics;
+
+    /**
+     * Creates a new instance.
+     * @param delegate the estimator for operators without statistics
+     * @param statistics the observed statistics
+     */
+    public StatisticsEstimator(OperatorEstimator delegate, PlanStatistics statistics) {
+        Arguments.requireNonNull(delegate);
+        Arguments.requireNonNull(statistics);
+        this.delegate = delegate;
+        this.statistics = statistics;
+    }
+
+    @Override
+    public void perform(Context context, Operator operator) {
+        List<PlanStatistics.Entry> entries = new ArrayList<>();
+        for (OperatorOutput port : operator.getOutputs()) {
+            PlanStatistics.Entry entry = statistics.find(port);
+            if (entry == null || entry.getBytes() < 0) {
+                delegate.perform(context, operator);
+                return;
+            }
+            entries.add(entry);
+        }
+        if (entries.isEmpty()) {
+            delegate.perform(context, operator);
+            return;
+        }
+        for (int i = 0, n = entries.size(); i < n; i++) {
+            PlanStatistics.Entry entry = entries.get(i);
+            DagPlanning.LOG.debug("observed size: {} - {}", operator, entry); //$NON-NLS-1$
+            context.putSize(operator.getOutputs().get(i), entry.getBytes());
+        }
+    }
+}
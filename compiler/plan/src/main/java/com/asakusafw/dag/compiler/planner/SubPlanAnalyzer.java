@@ -15,13 +15,19 @@
  */
 package com.asakusafw.dag.compiler.planner;
 
+import java.text.MessageFormat;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
+import java.util.LinkedList;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 
+import com.asakusafw.dag.compiler.model.plan.GroupAccess;
 import com.asakusafw.dag.compiler.model.plan.InputSpec;
 import com.asakusafw.dag.compiler.model.plan.InputSpec.InputOption;
 import com.asakusafw.dag.compiler.model.plan.InputSpec.InputType;
@@ -32,6 +38,12 @@ import com.asakusafw.dag.compiler.model.plan.VertexSpec;
 import com.asakusafw.dag.compiler.model.plan.VertexSpec.OperationOption;
 import com.asakusafw.dag.compiler.model.plan.VertexSpec.OperationType;
 import com.asakusafw.dag.utils.common.Invariants;
+import com.asakusafw.lang.compiler.api.CompilerOptions;
+import com.asakusafw.lang.compiler.api.DataModelLoader;
+import com.asakusafw.lang.compiler.api.reference.DataModelReference;
+import com.asakusafw.lang.compiler.api.reference.PropertyReference;
+import com.asakusafw.lang.compiler.model.PropertyName;
+import com.asakusafw.lang.compiler.model.description.ClassDescription;
 import com.asakusafw.lang.compiler.model.description.Descriptions;
 import com.asakusafw.lang.compiler.model.description.TypeDescription;
 import com.asakusafw.lang.compiler.model.graph.Group;
@@ -49,13 +61,20 @@ import com.asakusafw.lang.compiler.planning.SubPlan;
 
 /**
  * Provides helpful information for consequent code generation phase about {@link SubPlan}.
+ * @since 0.1.0
+ * @version 0.2.0
  */
 public final class SubPlanAnalyzer {
 
     private static final TypeDescription VOID_TYPE = Descriptions.typeOf(void.class);
 
+    private static final TypeDescription STRING_OPTION_TYPE =
+            new ClassDescription("com.asakusafw.runtime.value.StringOption"); //$NON-NLS-1$
+
     private final PlanDetail detail;
 
+    private final DataModelLoader dataModelLoader;
+
     private final Map<Operator, OperatorClass> operatorClasses;
 
     private final GroupKeyUnifier groupKeys = new GroupKeyUnifier();
@@ -72,13 +91,34 @@ public final class SubPlanAnalyzer {
 
     private final Map<SubPlan.Output, OutputSpec> outputSpecs = new HashMap<>();
 
+    private final CompilerOptions compilerOptions;
+
+    private final Map<SubPlan.Port, WireFormat> wireFormats = new HashMap<>();
+
+    private final PropertyLiveness liveness;
+
+    private final boolean localGroupSort;
+
+    private final Map<SubPlan.Input, Boolean> localSortInputs = new HashMap<>();
+
+    private final PartitionStrategy partitions;
+
     private SubPlanAnalyzer(
             PlanDetail detail,
+            DataModelLoader dataModelLoader,
+            CompilerOptions compilerOptions,
+            boolean localGroupSort,
+            PartitionStrategy partitions,
             Map<Operator, OperatorClass> operatorClasses,
             Map<SubPlan, String> vertexIds,
             Map<SubPlan.Input, String> inputIds,
             Map<SubPlan.Output, String> outputIds) {
         this.detail = detail;
+        this.dataModelLoader = dataModelLoader;
+        this.liveness = new PropertyLiveness(dataModelLoader);
+        this.compilerOptions = compilerOptions;
+        this.localGroupSort = localGroupSort;
+        this.partitions = partitions;
         this.operatorClasses = operatorClasses;
         this.vertexIds = vertexIds;
         this.inputIds = inputIds;
@@ -96,16 +136,20 @@ public final class SubPlanAnalyzer {
             PlanningContext context,
             PlanDetail detail,
             OperatorGraph normalized) {
-        Map<Operator, OperatorClass> characteristics = OperatorCharacterizers.apply(
+        Map<Operator, OperatorClass> characteristics = JoinStrategy.resolveByPlan(OperatorCharacterizers.apply(
                 context.getOptimizerContext(),
                 context.getEstimator(),
                 context.getClassifier(),
-                normalized.getOperators(false));
+                normalized.getOperators(false)));
         Plan plan = detail.getPlan();
         Map<SubPlan, String> vIds = Util.computeIds("v", Util.sortElements(plan));
         Map<SubPlan.Input, String> iIds = Util.computeIds("i", plan.getElements(), Util::sortInputs);
         Map<SubPlan.Output, String> oIds = Util.computeIds("o", plan.getElements(), Util::sortOutputs);
-        return new SubPlanAnalyzer(detail, characteristics, vIds, iIds, oIds);
+        return new SubPlanAnalyzer(
+                detail, context.getOptimizerContext().getDataModelLoader(), context.getCompilerOptions(),
+                context.getOptions().contains(PlanningContext.Option.LOCAL_GROUP_SORT),
+                PartitionStrategy.newInstance(context, normalized),
+                characteristics, vIds, iIds, oIds);
     }
 
     /**
@@ -229,8 +273,11 @@ public final class SubPlanAnalyzer {
         TypeDescription dataType = computeInputDataType(input, type);
         switch (type) {
         case NO_DATA:
-        case EXTRACT:
             return new InputSpec(input, id, dataType, type, options, null);
+        case EXTRACT: {
+            WireFormat format = computeWireFormat(input);
+            return new InputSpec(input, id, dataType, type, options, null, format.projection, format.dictionary);
+        }
         case BROADCAST:
         case CO_GROUP:
             return new InputSpec(input, id, dataType, type, options, computeInputGroup(input));
@@ -266,9 +313,65 @@ public final class SubPlanAnalyzer {
         if (isSpillOut(input)) {
             results.add(InputOption.SPILL_OUT);
         }
+        if (type == InputType.CO_GROUP && isReadOnce(input)) {
+            results.add(InputOption.READ_ONCE);
+        }
+        if (type == InputType.CO_GROUP && isLocalSort(input)) {
+            results.add(InputOption.LOCAL_SORT);
+        }
         return results;
     }
 
+    private boolean isLocalSort(SubPlan.Output output) {
+        return output.getOpposites().stream().anyMatch(this::isLocalSort);
+    }
+
+    private boolean isLocalSort(SubPlan.Input input) {
+        if (localGroupSort == false) {
+            return false;
+        }
+        Boolean cached = localSortInputs.get(input);
+        if (cached != null) {
+            return cached;
+        }
+        // all inputs which share the same upstream outputs must agree, because the shuffle is shared
+        Set<SubPlan.Input> inputs = new LinkedHashSet<>();
+        Set<SubPlan.Output> outputs = new HashSet<>();
+        LinkedList<SubPlan.Input> work = new LinkedList<>();
+        work.add(input);
+        while (work.isEmpty() == false) {
+            SubPlan.Input next = work.removeFirst();
+            if (inputs.add(next)) {
+                for (SubPlan.Output upstream : next.getOpposites()) {
+                    if (outputs.add(upstream)) {
+                        work.addAll(upstream.getOpposites());
+                    }
+                }
+            }
+        }
+        boolean result = inputs.stream().allMatch(this::isLocalSortCandidate);
+        inputs.forEach(i -> localSortInputs.put(i, result));
+        return result;
+    }
+
+    private boolean isLocalSortCandidate(SubPlan.Input input) {
+        return computeInputType(input) == InputType.CO_GROUP
+                && isAggregate(input) == false
+                && computeInputGroup(input).getOrdering().isEmpty() == false
+                && isSpillOut(input) == false
+                && isReadOnce(input) == false;
+    }
+
+    private boolean isReadOnce(SubPlan.Input input) {
+        Collection<OperatorInput> consumers = input.getOperator().getOutput().getOpposites();
+        if (consumers.size() != 1) {
+            return false;
+        }
+        Operator consumer = consumers.iterator().next().getOwner();
+        return consumer.getOperatorKind() == OperatorKind.USER
+                && consumer.getAttribute(GroupAccess.class) == GroupAccess.ONCE;
+    }
+
     private boolean isSpillOut(SubPlan.Input input) {
         for (OperatorInput consumer : input.getOperator().getOutput().getOpposites()) {
             OperatorClass info = getOperatorClass(consumer.getOwner());
@@ -320,22 +423,28 @@ public final class SubPlanAnalyzer {
         TypeDescription dataType = computeOutputDataType(output, type);
         switch (type) {
         case DISCARD:
-        case VALUE:
             return new OutputSpec(output, id, type, sourceType, dataType, Collections.emptySet(),
                     null, null);
+        case VALUE: {
+            WireFormat format = computeWireFormat(output);
+            return new OutputSpec(output, id, type, sourceType, dataType, Collections.emptySet(),
+                    null, null, format.projection, format.dictionary, 0, -1);
+        }
         case KEY_VALUE:
             if (isAggregate(output)) {
-                Set<OutputOption> options = EnumSet.noneOf(OutputOption.class);
+                Set<OutputOption> options = computeShuffleOptions(output);
                 Operator aggregator = computeOutputAggregator(output);
                 OperatorClass operatorClass = getOperatorClass(aggregator);
                 if (isPreAggregation(operatorClass)) {
                     options.add(OutputOption.PRE_AGGREGATION);
                 }
                 return new OutputSpec(output, id, type, sourceType, dataType, options,
-                        computeOutputGroup(output), aggregator);
+                        computeOutputGroup(output), aggregator, null, null, computeOutputSalt(output),
+                        computePartitionCount(output));
             } else {
-                return new OutputSpec(output, id, type, sourceType, dataType, Collections.emptySet(),
-                        computeOutputGroup(output), null);
+                return new OutputSpec(output, id, type, sourceType, dataType, computeShuffleOptions(output),
+                        computeOutputGroup(output), null, null, null, 0,
+                        computePartitionCount(output));
             }
         case BROADCAST:
             return new OutputSpec(output, id, type, sourceType, dataType, Collections.emptySet(),
@@ -392,7 +501,36 @@ public final class SubPlanAnalyzer {
     }
 
     private Group computeOutputGroup(SubPlan.Output output) {
-        return Invariants.requireNonNull(groupKeys.get(output));
+        Group result = Invariants.requireNonNull(groupKeys.get(output));
+        if (isLocalSort(output)) {
+            return new Group(result.getGrouping(), Collections.emptyList());
+        }
+        return result;
+    }
+
+    private static int computeOutputSalt(SubPlan.Output output) {
+        DagPlanning.Salt salt = output.getOperator().getAttribute(DagPlanning.Salt.class);
+        return salt == null ? 0 : salt.count;
+    }
+
+    private static Set<OutputOption> computeShuffleOptions(SubPlan.Output output) {
+        Set<OutputOption> results = EnumSet.noneOf(OutputOption.class);
+        if (isPartitionPreserved(output)) {
+            results.add(OutputOption.PARTITION_PRESERVED);
+        }
+        return results;
+    }
+
+    private static boolean isPartitionPreserved(SubPlan.Output output) {
+        return output.getOperator().getAttribute(DagPlanning.PreservedPartitioning.class) != null;
+    }
+
+    private int computePartitionCount(SubPlan.Output output) {
+        if (isPartitionPreserved(output)) {
+            // must follow the upstream partitioning
+            return -1;
+        }
+        return partitions.getPartitionCount(detail.getSource(output.getOperator()));
     }
 
     private Operator computeOutputAggregator(SubPlan.Output output) {
@@ -410,6 +548,165 @@ public final class SubPlanAnalyzer {
         return result.getOwner();
     }
 
+    private WireFormat computeWireFormat(SubPlan.Port port) {
+        WireFormat cached = wireFormats.get(port);
+        if (cached != null) {
+            return cached;
+        }
+        // the all ports connected to each other must share the same wire format
+        Set<SubPlan.Output> outputs = new LinkedHashSet<>();
+        Set<SubPlan.Input> inputs = new LinkedHashSet<>();
+        collectConnectedPorts(port, outputs, inputs);
+        TypeDescription dataType = computeValueDataType(outputs);
+        WireFormat result = WireFormat.DEFAULT;
+        if (dataType != null && inputs.isEmpty() == false) {
+            Set<PropertyName> required = computeRequiredProperties(inputs);
+            String dictionaryHint = getDictionaryHint(dataType);
+            if (required != null || dictionaryHint != null) {
+                DataModelReference model = dataModelLoader.load(dataType);
+                Set<PropertyName> projection = computeProjection(model, required);
+                Set<PropertyName> dictionary = computeDictionary(model, projection, dictionaryHint);
+                result = new WireFormat(projection, dictionary);
+            }
+        }
+        outputs.forEach(p -> wireFormats.put(p, result));
+        inputs.forEach(p -> wireFormats.put(p, result));
+        return result;
+    }
+
+    private static void collectConnectedPorts(
+            SubPlan.Port port, Set<SubPlan.Output> outputs, Set<SubPlan.Input> inputs) {
+        LinkedList<SubPlan.Port> work = new LinkedList<>();
+        work.add(port);
+        while (work.isEmpty() == false) {
+            SubPlan.Port next = work.removeFirst();
+            if (next instanceof SubPlan.Output) {
+                if (outputs.add((SubPlan.Output) next)) {
+                    work.addAll(((SubPlan.Output) next).getOpposites());
+                }
+            } else if (next instanceof SubPlan.Input) {
+                if (inputs.add((SubPlan.Input) next)) {
+                    work.addAll(((SubPlan.Input) next).getOpposites());
+                }
+            }
+        }
+    }
+
+    private TypeDescription computeValueDataType(Set<SubPlan.Output> outputs) {
+        TypeDescription dataType = null;
+        for (SubPlan.Output output : outputs) {
+            if (computeOutputType(output) != OutputType.VALUE) {
+                return null;
+            }
+            TypeDescription candidate = output.getOperator().getDataType();
+            if (dataType == null) {
+                dataType = candidate;
+            } else if (dataType.equals(candidate) == false) {
+                return null;
+            }
+        }
+        return dataType;
+    }
+
+    private Set<PropertyName> computeRequiredProperties(Set<SubPlan.Input> inputs) {
+        Set<PropertyName> results = new HashSet<>();
+        for (SubPlan.Input input : inputs) {
+            Set<PropertyName> properties = computeRequiredProperties(input);
+            if (properties == null) {
+                return null;
+            }
+            results.addAll(properties);
+        }
+        return results;
+    }
+
+    private static Set<PropertyName> computeProjection(DataModelReference model, Set<PropertyName> required) {
+        if (required == null) {
+            return null;
+        }
+        Set<PropertyName> results = model.getProperties().stream()
+                .map(PropertyReference::getName)
+                .filter(required::contains)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        if (results.size() == model.getProperties().size()) {
+            return null;
+        }
+        return results;
+    }
+
+    private String getDictionaryHint(TypeDescription dataType) {
+        if ((dataType instanceof ClassDescription) == false) {
+            return null;
+        }
+        String key = DagPlanning.KEY_DICTIONARY_PREFIX + ((ClassDescription) dataType).getBinaryName();
+        String value = compilerOptions.get(key, null);
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        return value;
+    }
+
+    private static Set<PropertyName> computeDictionary(
+            DataModelReference model, Set<PropertyName> projection, String hint) {
+        if (hint == null) {
+            return Collections.emptySet();
+        }
+        Set<PropertyName> results = new LinkedHashSet<>();
+        for (String name : hint.split(",")) { //$NON-NLS-1$
+            if (name.trim().isEmpty()) {
+                continue;
+            }
+            PropertyReference property = model.findProperty(PropertyName.of(name.trim()));
+            if (property == null || property.getType().equals(STRING_OPTION_TYPE) == false) {
+                DagPlanning.LOG.warn(MessageFormat.format(
+                        "ignored dictionary encoding hint (must be a string property): {0}.{1}",
+                        model.getDeclaration().getBinaryName(), name.trim()));
+                continue;
+            }
+            if (projection == null || projection.contains(property.getName())) {
+                results.add(property.getName());
+            }
+        }
+        return results;
+    }
+
+    private Set<PropertyName> computeRequiredProperties(SubPlan.Input input) {
+        Set<PropertyName> results = new HashSet<>();
+        for (OperatorInput consumer : input.getOperator().getOutput().getOpposites()) {
+            Operator operator = consumer.getOwner();
+            SubPlan.Output forward = input.getOwner().findOutput(operator);
+            if (forward != null) {
+                Set<PropertyName> properties = computeWireFormat(forward).projection;
+                if (properties == null) {
+                    return null;
+                }
+                results.addAll(properties);
+            } else {
+                Set<PropertyName> properties = liveness.getReadProperties(consumer);
+                if (properties == null) {
+                    // we cannot determine which properties are used in the consumer
+                    return null;
+                }
+                results.addAll(properties);
+            }
+        }
+        return results;
+    }
+
+    private static final class WireFormat {
+
+        static final WireFormat DEFAULT = new WireFormat(null, Collections.emptySet());
+
+        final Set<PropertyName> projection;
+
+        final Set<PropertyName> dictionary;
+
+        WireFormat(Set<PropertyName> projection, Set<PropertyName> dictionary) {
+            this.projection = projection;
+            this.dictionary = dictionary;
+        }
+    }
+
     private boolean isAggregate(SubPlan.Input input) {
         VertexSpec info = analyze(input.getOwner());
         Operator primary = info.getPrimaryOperator();
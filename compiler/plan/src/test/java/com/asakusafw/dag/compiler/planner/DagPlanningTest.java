@@ -25,6 +25,7 @@ import org.hamcrest.FeatureMatcher;
 import org.hamcrest.Matcher;
 import org.junit.Test;
 
+import com.asakusafw.dag.compiler.model.plan.GroupAccess;
 import com.asakusafw.dag.compiler.model.plan.InputSpec;
 import com.asakusafw.dag.compiler.model.plan.InputSpec.InputOption;
 import com.asakusafw.dag.compiler.model.plan.InputSpec.InputType;
@@ -34,14 +35,20 @@ import com.asakusafw.dag.compiler.model.plan.OutputSpec.OutputType;
 import com.asakusafw.dag.compiler.model.plan.VertexSpec;
 import com.asakusafw.dag.compiler.model.plan.VertexSpec.OperationOption;
 import com.asakusafw.dag.compiler.model.plan.VertexSpec.OperationType;
+import com.asakusafw.lang.compiler.model.description.ClassDescription;
 import com.asakusafw.lang.compiler.model.graph.CoreOperator;
 import com.asakusafw.lang.compiler.model.graph.CoreOperator.CoreOperatorKind;
+import com.asakusafw.lang.compiler.model.graph.ExternalInput;
 import com.asakusafw.lang.compiler.model.graph.Group;
 import com.asakusafw.lang.compiler.model.graph.Operator;
+import com.asakusafw.lang.compiler.model.graph.Operator.OperatorKind;
+import com.asakusafw.lang.compiler.model.graph.OperatorOutput;
 import com.asakusafw.lang.compiler.model.graph.UserOperator;
+import com.asakusafw.lang.compiler.model.info.ExternalInputInfo;
 import com.asakusafw.lang.compiler.model.info.ExternalInputInfo.DataSize;
 import com.asakusafw.lang.compiler.model.testing.MockOperators;
 import com.asakusafw.lang.compiler.model.testing.OperatorExtractor;
+import com.asakusafw.lang.compiler.optimizer.OperatorEstimator;
 import com.asakusafw.lang.compiler.planning.Plan;
 import com.asakusafw.lang.compiler.planning.PlanDetail;
 import com.asakusafw.lang.compiler.planning.SubPlan;
@@ -138,6 +145,126 @@ in --- *C --- o0 --- *C --- out
         assertThat(output(s1), outputAggregation(is(nullValue())));
     }
 
+    /**
+     * fuse pipelined sub-plans.
+<pre>{@code
+in --- o0 --- c0 --- o1 --- out
+==>
+in --- o0 --- o1 --- *C --- out
+}</pre>
+     */
+    @Test
+    public void fuse_pipelined() {
+        PlanDetail detail = DagPlanning.plan(
+                withEstimator(context(DagPlanning.KEY_OPTION_PREFIX + "fusePipelinedSubplans", "true"), 1000.0),
+                pipelined().toGraph());
+        MockOperators mock = restore(detail);
+        assertThat("checkpoint operator should be removed", mock.all(), not(hasItem(isOperator("c0"))));
+
+        Plan plan = detail.getPlan();
+        assertThat(plan.getElements(), hasSize(2));
+
+        SubPlan s0 = ownerOf(detail, mock.get("o0"));
+        SubPlan s1 = ownerOf(detail, mock.get("o1"));
+        assertThat(s1, is(sameInstance(s0)));
+        assertThat(output(s1), outputType(is(OutputType.VALUE)));
+    }
+
+    /**
+     * fuse pipelined sub-plans - disabled.
+     */
+    @Test
+    public void fuse_pipelined_disabled() {
+        PlanDetail detail = DagPlanning.plan(withEstimator(context(), 1000.0), pipelined().toGraph());
+        MockOperators mock = restore(detail);
+        SubPlan s0 = ownerOf(detail, mock.get("o0"));
+        SubPlan s1 = ownerOf(detail, mock.get("o1"));
+        assertThat(s1, is(not(sameInstance(s0))));
+    }
+
+    /**
+     * fuse pipelined sub-plans - checkpoints after the producer which enlarges the data are kept.
+     */
+    @Test
+    public void fuse_pipelined_enlarged() {
+        PlanDetail detail = DagPlanning.plan(
+                withEstimator(context(DagPlanning.KEY_OPTION_PREFIX + "fusePipelinedSubplans", "true"), 5000.0),
+                pipelined().toGraph());
+        MockOperators mock = restore(detail);
+        SubPlan s0 = ownerOf(detail, mock.get("o0"));
+        SubPlan s1 = ownerOf(detail, mock.get("o1"));
+        assertThat(s1, is(not(sameInstance(s0))));
+    }
+
+    /**
+     * fuse pipelined sub-plans - checkpoints with downstream fan-out are kept.
+<pre>{@code
+in --- o0 --- c0 +-- o1 --- out0
+                  \
+                   +- o2 --- out1
+}</pre>
+     */
+    @Test
+    public void fuse_pipelined_downstream_fan_out() {
+        PlanDetail detail = DagPlanning.plan(
+                withEstimator(context(DagPlanning.KEY_OPTION_PREFIX + "fusePipelinedSubplans", "true"), 1000.0),
+                new MockOperators()
+                    .input("in", DataSize.LARGE)
+                    .operator(op(Extract.class, "extract"), "o0").connect("in", "o0")
+                    .operator(cp(), "c0").connect("o0", "c0")
+                    .operator(op(Extract.class, "extract"), "o1").connect("c0", "o1")
+                    .operator(op(Extract.class, "extract"), "o2").connect("c0", "o2")
+                    .output("out0").connect("o1", "out0")
+                    .output("out1").connect("o2", "out1")
+                    .toGraph());
+        MockOperators mock = restore(detail);
+        SubPlan s0 = ownerOf(detail, mock.get("o0"));
+        SubPlan s1 = ownerOf(detail, mock.get("o1"));
+        assertThat(s1, is(not(sameInstance(s0))));
+    }
+
+    /**
+     * fuse pipelined sub-plans - checkpoints before the consumer with other inputs are kept.
+<pre>{@code
+in +- o0 --- c0 --- o1.a --- out
+    \               /
+     +----------- o1.b
+}</pre>
+     */
+    @Test
+    public void fuse_pipelined_fan_in() {
+        PlanDetail fused = DagPlanning.plan(
+                withEstimator(context(DagPlanning.KEY_OPTION_PREFIX + "fusePipelinedSubplans", "true"), 1000.0),
+                pipelinedFanIn().toGraph());
+        PlanDetail kept = DagPlanning.plan(withEstimator(context(), 1000.0), pipelinedFanIn().toGraph());
+        assertThat(fused.getPlan().getElements(), hasSize(kept.getPlan().getElements().size()));
+    }
+
+    /**
+     * fuse pipelined sub-plans - checkpoints with fan-out are kept.
+<pre>{@code
+in +-- c0 --- o0 --- out0
+    \
+     +------- o1 --- out1
+}</pre>
+     */
+    @Test
+    public void fuse_pipelined_fan_out() {
+        PlanDetail detail = DagPlanning.plan(context(DagPlanning.KEY_OPTION_PREFIX + "fusePipelinedSubplans", "true"),
+            new MockOperators()
+            .input("in", DataSize.LARGE)
+            .operator(cp(), "c0").connect("in", "c0")
+            .operator(op(Extract.class, "extract"), "o0").connect("c0", "o0")
+            .operator(op(Extract.class, "extract"), "o1").connect("in", "o1")
+            .output("out0").connect("o0", "out0")
+            .output("out1").connect("o1", "out1")
+            .toGraph());
+        MockOperators mock = restore(detail);
+        SubPlan s0 = ownerOf(detail, mock.get("in"));
+        SubPlan s1 = ownerOf(detail, mock.get("o0"));
+        assertThat(s1, is(not(sameInstance(s0))));
+    }
+
     /**
      * co-group kind.
 <pre>{@code
@@ -222,6 +349,193 @@ in --- *G --- o0 --- *C --- out
         assertThat(output(s1), outputAggregation(is(nullValue())));
     }
 
+    /**
+     * co-group kind w/ suggested partition count.
+<pre>{@code
+in --- o0 --- out
+==>
+in --- *G --- o0 --- *C --- out
+}</pre>
+     */
+    @Test
+    public void cogroup_partition_count() {
+        MockOperators m = new MockOperators();
+        PlanDetail detail = DagPlanning.plan(context(
+                DagPlanning.KEY_PARTITION_SIZE, "1",
+                DagPlanning.KEY_PARTITION_MAX, "4"), m
+                .input("in", DataSize.TINY)
+                .bless("o0", op(CoGroup.class, "cogroup")
+                        .input("in", m.getCommonDataType(), group("=a"))
+                        .output("out", m.getCommonDataType()))
+                .connect("in", "o0")
+                .output("out").connect("o0", "out")
+                .toGraph());
+        MockOperators mock = restore(detail);
+        Plan plan = detail.getPlan();
+        assertThat(plan.getElements(), hasSize(3));
+
+        SubPlan s0 = ownerOf(detail, mock.get("in"));
+        SubPlan s1 = ownerOf(detail, mock.get("o0"));
+
+        assertThat(output(s0), outputType(is(OutputType.KEY_VALUE)));
+        assertThat(info(output(s0)).getPartitionCount(), is(4));
+        assertThat(output(s1), outputType(is(OutputType.VALUE)));
+        assertThat(info(output(s1)).getPartitionCount(), is(-1));
+    }
+
+    /**
+     * co-group kind w/ preserved partitioning.
+<pre>{@code
+in --- o0 --- o1 --- out
+==>
+in --- *G --- o0 --- *G --- o1 --- *C --- out
+}</pre>
+     */
+    @Test
+    public void cogroup_partition_preserved() {
+        PlanDetail detail = DagPlanning.plan(
+                context(DagPlanning.KEY_OPTION_PREFIX + "eliminateRedundantShuffle", "true"),
+                chainedFold(group("=a", "=b")).toGraph());
+        MockOperators mock = restore(detail);
+        Plan plan = detail.getPlan();
+        assertThat(plan.getElements(), hasSize(4));
+
+        SubPlan s0 = ownerOf(detail, mock.get("in"));
+        SubPlan s1 = ownerOf(detail, mock.get("o0"));
+
+        assertThat(output(s0), outputType(is(OutputType.KEY_VALUE)));
+        assertThat(output(s0), not(outputOption(is(OutputOption.PARTITION_PRESERVED))));
+        assertThat(output(s1), outputType(is(OutputType.KEY_VALUE)));
+        assertThat(output(s1), outputGroup(is(group("=a", "=b"))));
+        assertThat(output(s1), outputOption(is(OutputOption.PARTITION_PRESERVED)));
+    }
+
+    /**
+     * co-group kind w/ preserved partitioning - incompatible groups.
+     */
+    @Test
+    public void cogroup_partition_preserved_incompatible() {
+        PlanDetail detail = DagPlanning.plan(
+                context(DagPlanning.KEY_OPTION_PREFIX + "eliminateRedundantShuffle", "true"),
+                chainedFold(group("=b")).toGraph());
+        MockOperators mock = restore(detail);
+        SubPlan s1 = ownerOf(detail, mock.get("o0"));
+        assertThat(output(s1), outputType(is(OutputType.KEY_VALUE)));
+        assertThat(output(s1), not(outputOption(is(OutputOption.PARTITION_PRESERVED))));
+    }
+
+    /**
+     * co-group kind w/ preserved partitioning - upstream operator may modify keys.
+     */
+    @Test
+    public void cogroup_partition_preserved_cogroup() {
+        MockOperators m = new MockOperators();
+        PlanDetail detail = DagPlanning.plan(
+                context(DagPlanning.KEY_OPTION_PREFIX + "eliminateRedundantShuffle", "true"), m
+                .input("in", DataSize.LARGE)
+                .bless("o0", op(CoGroup.class, "cogroup")
+                        .input("in", m.getCommonDataType(), group("=a"))
+                        .output("out", m.getCommonDataType()))
+                    .connect("in", "o0")
+                .bless("o1", op(CoGroup.class, "cogroup")
+                        .input("in", m.getCommonDataType(), group("=a", "=b"))
+                        .output("out", m.getCommonDataType()))
+                    .connect("o0", "o1")
+                .output("out").connect("o1", "out")
+                .toGraph());
+        MockOperators mock = restore(detail);
+        SubPlan s1 = ownerOf(detail, mock.get("o0"));
+        assertThat(output(s1), outputType(is(OutputType.KEY_VALUE)));
+        assertThat(output(s1), not(outputOption(is(OutputOption.PARTITION_PRESERVED))));
+    }
+
+    /**
+     * co-group kind w/ preserved partitioning - disabled.
+     */
+    @Test
+    public void cogroup_partition_preserved_disabled() {
+        PlanDetail detail = DagPlanning.plan(context(), chainedFold(group("=a", "=b")).toGraph());
+        MockOperators mock = restore(detail);
+        SubPlan s1 = ownerOf(detail, mock.get("o0"));
+        assertThat(output(s1), outputType(is(OutputType.KEY_VALUE)));
+        assertThat(output(s1), not(outputOption(is(OutputOption.PARTITION_PRESERVED))));
+    }
+
+    private static MockOperators chainedFold(Group downstream) {
+        MockOperators m = new MockOperators();
+        return m
+            .input("in", DataSize.LARGE)
+            .bless("o0", op(Fold.class, "fold_total")
+                    .input("in", m.getCommonDataType(), group("=a"))
+                    .output("out", m.getCommonDataType()))
+                .connect("in", "o0")
+            .bless("o1", op(CoGroup.class, "cogroup")
+                    .input("in", m.getCommonDataType(), downstream)
+                    .output("out", m.getCommonDataType()))
+                .connect("o0", "o1")
+            .output("out").connect("o1", "out");
+    }
+
+    /**
+     * co-group kind w/ local group sort.
+<pre>{@code
+in --- o0 --- out
+==>
+in --- *G --- o0 --- *C --- out
+}</pre>
+     */
+    @Test
+    public void cogroup_local_sort() {
+        MockOperators m = new MockOperators();
+        PlanDetail detail = DagPlanning.plan(context(DagPlanning.KEY_OPTION_PREFIX + "localGroupSort", "true"), m
+                .input("in", DataSize.LARGE)
+                .bless("o0", op(CoGroup.class, "cogroup")
+                        .input("in", m.getCommonDataType(), group("=a", "+b"))
+                        .output("out", m.getCommonDataType()))
+                .connect("in", "o0")
+                .output("out").connect("o0", "out")
+                .toGraph());
+        MockOperators mock = restore(detail);
+        SubPlan s0 = ownerOf(detail, mock.get("in"));
+        SubPlan s1 = ownerOf(detail, mock.get("o0"));
+
+        assertThat(output(s0), outputType(is(OutputType.KEY_VALUE)));
+        assertThat(output(s0), outputGroup(is(group("=a"))));
+
+        assertThat(input(s1), inputType(is(InputType.CO_GROUP)));
+        assertThat(input(s1), inputOption(is(InputOption.LOCAL_SORT)));
+        assertThat(input(s1), inputGroup(is(group("=a", "+b"))));
+    }
+
+    /**
+     * co-group kind w/ read once hint.
+<pre>{@code
+in --- o0 --- out
+==>
+in --- *G --- o0 --- *C --- out
+}</pre>
+     */
+    @Test
+    public void cogroup_read_once() {
+        MockOperators m = new MockOperators();
+        PlanDetail detail = DagPlanning.plan(context(DagPlanning.KEY_OPTION_PREFIX + "localGroupSort", "true"), m
+                .input("in", DataSize.LARGE)
+                .bless("o0", op(CoGroup.class, "cogroup")
+                        .input("in", m.getCommonDataType(), group("=a", "+b"))
+                        .output("out", m.getCommonDataType())
+                        .attribute(GroupAccess.class, GroupAccess.ONCE))
+                .connect("in", "o0")
+                .output("out").connect("o0", "out")
+                .toGraph());
+        MockOperators mock = restore(detail);
+        SubPlan s0 = ownerOf(detail, mock.get("in"));
+        SubPlan s1 = ownerOf(detail, mock.get("o0"));
+
+        assertThat(output(s0), outputGroup(is(group("=a", "+b"))));
+        assertThat(input(s1), inputOption(is(InputOption.READ_ONCE)));
+        assertThat(input(s1), not(inputOption(is(InputOption.LOCAL_SORT))));
+    }
+
     /**
      * aggregate (total) kind.
 <pre>{@code
@@ -306,6 +620,55 @@ in --- *G --- o0 --- *C --- out
         assertThat(output(s1), outputAggregation(is(nullValue())));
     }
 
+    /**
+     * salted aggregation.
+<pre>{@code
+in --- o0 --- out
+==>
+in --- *G(salted) --- o0' --- *G --- o0 --- *C --- out
+}</pre>
+     */
+    @Test
+    public void aggregate_salted() {
+        MockOperators m = new MockOperators();
+        PlanDetail detail = DagPlanning.plan(context(
+                DagPlanning.KEY_OPTION_PREFIX + "saltedAggregation", "true",
+                DagPlanning.KEY_AGGREGATION_SALT, "4"), m
+                .input("in", DataSize.LARGE)
+                .bless("o0", op(Fold.class, "fold_partial")
+                        .input("in", m.getCommonDataType(), group("=a"))
+                        .output("out", m.getCommonDataType()))
+                        .connect("in", "o0")
+                .output("out").connect("o0", "out")
+                .toGraph());
+        Plan plan = detail.getPlan();
+        assertThat(plan.getElements(), hasSize(4));
+        assertThat(detail.getSources().stream()
+                .filter(o -> "o0".equals(MockOperators.getId(o)))
+                .count(), is(2L));
+
+        Operator in = detail.getSources().stream()
+                .filter(o -> "in".equals(MockOperators.getId(o)))
+                .findFirst()
+                .get();
+        SubPlan s0 = ownerOf(detail, in);
+        assertThat(output(s0), outputType(is(OutputType.KEY_VALUE)));
+        assertThat(output(s0), outputGroup(is(group("=a"))));
+        assertThat(output(s0), outputAggregation(isOperator("o0")));
+        assertThat(info(output(s0)).getSalt(), is(4));
+
+        SubPlan s1 = input(output(s0)).getOwner();
+        assertThat(s1, OperationType(is(OperationType.CO_GROUP)));
+        assertThat(output(s1), outputType(is(OutputType.KEY_VALUE)));
+        assertThat(output(s1), outputGroup(is(group("=a"))));
+        assertThat(output(s1), outputAggregation(isOperator("o0")));
+        assertThat(info(output(s1)).getSalt(), is(0));
+
+        SubPlan s2 = input(output(s1)).getOwner();
+        assertThat(s2, OperationType(is(OperationType.CO_GROUP)));
+        assertThat(output(s2), outputType(is(OutputType.VALUE)));
+    }
+
     /**
      * with broadcast from different origins.
 <pre>{@code
@@ -349,6 +712,246 @@ in1 --- *B -/
         assertThat(bIn, inputGroup(is(group("+k"))));
     }
 
+    /**
+     * automatic checkpoint after high-reduction stages.
+<pre>{@code
+in --- o0 --- o1 --- out
+==>
+in --- *G --- o0 --- *C --- o1 --- *C --- out
+}</pre>
+     */
+    @Test
+    public void auto_checkpoint() {
+        PlanningContext context = withEstimator(
+                context(DagPlanning.KEY_OPTION_PREFIX + "autoCheckpoint", "true"),
+                10.0);
+        PlanDetail detail = DagPlanning.plan(context, checkpointCandidate().toGraph());
+        MockOperators mock = restore(detail);
+        assertThat(detail.getPlan().getElements(), hasSize(4));
+
+        SubPlan s0 = ownerOf(detail, mock.get("o0"));
+        SubPlan s1 = ownerOf(detail, mock.get("o1"));
+        assertThat(s0, is(not(s1)));
+        assertThat(output(s0), outputType(is(OutputType.VALUE)));
+    }
+
+    /**
+     * automatic checkpoint - reduction is not enough.
+     */
+    @Test
+    public void auto_checkpoint_low_reduction() {
+        PlanningContext context = withEstimator(
+                context(DagPlanning.KEY_OPTION_PREFIX + "autoCheckpoint", "true"),
+                500.0);
+        PlanDetail detail = DagPlanning.plan(context, checkpointCandidate().toGraph());
+        MockOperators mock = restore(detail);
+        assertThat(detail.getPlan().getElements(), hasSize(3));
+
+        SubPlan s0 = ownerOf(detail, mock.get("o0"));
+        SubPlan s1 = ownerOf(detail, mock.get("o1"));
+        assertThat(s0, is(s1));
+    }
+
+    /**
+     * automatic checkpoint - disabled.
+     */
+    @Test
+    public void auto_checkpoint_disabled() {
+        PlanningContext context = withEstimator(context(), 10.0);
+        PlanDetail detail = DagPlanning.plan(context, checkpointCandidate().toGraph());
+        assertThat(detail.getPlan().getElements(), hasSize(3));
+    }
+
+    /**
+     * automatic checkpoint - shared upstream operators are counted only once.
+<pre>{@code
+in --- e0 -+- e1 -+- o0 --- o1 --- out
+           +- e2 -+
+}</pre>
+     */
+    @Test
+    public void auto_checkpoint_diamond() {
+        PlanningContext context = withEstimator(
+                context(DagPlanning.KEY_OPTION_PREFIX + "autoCheckpoint", "true"),
+                550.0);
+        MockOperators m = new MockOperators();
+        PlanDetail detail = DagPlanning.plan(context, m
+            .input("in", DataSize.LARGE)
+            .operator(op(Extract.class, "extract"), "e0").connect("in", "e0")
+            .operator(op(Extract.class, "extract"), "e1").connect("e0", "e1")
+            .operator(op(Extract.class, "extract"), "e2").connect("e0", "e2")
+            .bless("o0", op(CoGroup.class, "cogroup")
+                    .input("a", m.getCommonDataType(), group("=a"))
+                    .input("b", m.getCommonDataType(), group("=a"))
+                    .output("out", m.getCommonDataType()))
+                .connect("e1", "o0.a")
+                .connect("e2", "o0.b")
+            .operator(op(Extract.class, "extract"), "o1").connect("o0", "o1")
+            .output("out").connect("o1", "out")
+            .toGraph());
+        // cost = e0(1000) + e1(1000) + e2(1000) + o0(2000) < 550 * 10
+        MockOperators mock = restore(detail);
+        SubPlan s0 = ownerOf(detail, mock.get("o0"));
+        SubPlan s1 = ownerOf(detail, mock.get("o1"));
+        assertThat(s0, is(s1));
+    }
+
+    private static MockOperators checkpointCandidate() {
+        MockOperators m = new MockOperators();
+        return m
+            .input("in", DataSize.LARGE)
+            .bless("o0", op(CoGroup.class, "cogroup")
+                    .input("in", m.getCommonDataType(), group("=a"))
+                    .output("out", m.getCommonDataType()))
+                .connect("in", "o0")
+            .operator(op(Extract.class, "extract"), "o1").connect("o0", "o1")
+            .output("out").connect("o1", "out");
+    }
+
+    private static MockOperators pipelined() {
+        return new MockOperators()
+            .input("in", DataSize.LARGE)
+            .operator(op(Extract.class, "extract"), "o0").connect("in", "o0")
+            .operator(cp(), "c0").connect("o0", "c0")
+            .operator(op(Extract.class, "extract"), "o1").connect("c0", "o1")
+            .output("out").connect("o1", "out");
+    }
+
+    private static MockOperators pipelinedFanIn() {
+        MockOperators m = new MockOperators();
+        return m
+            .input("in", DataSize.LARGE)
+            .operator(op(Extract.class, "extract"), "o0").connect("in", "o0")
+            .operator(cp(), "c0").connect("o0", "c0")
+            .bless("o1", op(CoGroup.class, "cogroup")
+                    .input("a", m.getCommonDataType(), group("=a"))
+                    .input("b", m.getCommonDataType(), group("=a"))
+                    .output("out", m.getCommonDataType()))
+                .connect("c0", "o1.a")
+                .connect("in", "o1.b")
+            .output("out").connect("o1", "out");
+    }
+
+    private static PlanningContext withEstimator(PlanningContext base, double reducedSize) {
+        // each operator output is 1000 bytes, except "o0"
+        OperatorEstimator estimator = (context, operator) -> {
+            double size = "o0".equals(MockOperators.getId(operator)) ? reducedSize : 1000.0;
+            for (OperatorOutput port : operator.getOutputs()) {
+                context.putSize(port, size);
+            }
+        };
+        return new PlanningContext(
+                base.getOptimizerContext(),
+                estimator,
+                base.getClassifier(),
+                base.getRewriter(),
+                base.getOptions(),
+                base.getCompilerOptions());
+    }
+
+    /**
+     * unify duplicate external inputs.
+<pre>{@code
+in0 --- out0
+in1 --- out1
+==>
+in0 -+- *C --- out0
+     +- *C --- out1
+}</pre>
+     */
+    @Test
+    public void unify_external_inputs() {
+        PlanDetail detail = DagPlanning.plan(
+                context(DagPlanning.KEY_OPTION_PREFIX + "unifyExternalInputs", "true"),
+                duplicateInputs(DataSize.LARGE).toGraph());
+        assertThat(countInputs(detail), is(1L));
+        MockOperators mock = restore(detail);
+        SubPlan s0 = ownerOf(detail, mock.get("in0"));
+        assertThat(s0.getOutputs(), hasSize(2));
+    }
+
+    /**
+     * unify duplicate external inputs - disabled.
+     */
+    @Test
+    public void unify_external_inputs_disabled() {
+        PlanDetail detail = DagPlanning.plan(context(), duplicateInputs(DataSize.LARGE).toGraph());
+        assertThat(countInputs(detail), is(2L));
+    }
+
+    /**
+     * unify duplicate external inputs - too small.
+     */
+    @Test
+    public void unify_external_inputs_small() {
+        PlanDetail detail = DagPlanning.plan(
+                context(DagPlanning.KEY_OPTION_PREFIX + "unifyExternalInputs", "true"),
+                duplicateInputs(DataSize.TINY).toGraph());
+        assertThat(countInputs(detail), is(2L));
+    }
+
+    private static MockOperators duplicateInputs(DataSize size) {
+        MockOperators m = new MockOperators();
+        ExternalInputInfo info = new ExternalInputInfo.Basic(
+                new ClassDescription("testing.Input"),
+                "testing",
+                (ClassDescription) m.getCommonDataType(),
+                size);
+        return m
+            .bless("in0", ExternalInput.newInstance("in0", info))
+            .bless("in1", ExternalInput.newInstance("in1", info))
+            .output("out0").connect("in0", "out0")
+            .output("out1").connect("in1", "out1");
+    }
+
+    private static long countInputs(PlanDetail detail) {
+        return detail.getSources().stream()
+                .filter(o -> o.getOperatorKind() == OperatorKind.INPUT)
+                .count();
+    }
+
+    /**
+     * broadcast input exceeds the size limit.
+<pre>{@code
+in0 +
+     \
+in1 --+ o0 --- out
+==>
+in0 --- *G --+ o0 --- *C --- out
+in1 --- *G -/
+}</pre>
+     */
+    @Test
+    public void broadcast_limit() {
+        MockOperators m = new MockOperators();
+        PlanDetail detail = DagPlanning.plan(context(DagPlanning.KEY_BROADCAST_LIMIT, "0"), m
+            .input("in0", DataSize.LARGE)
+            .input("in1", DataSize.TINY)
+            .bless("o0", newJoin(m))
+                .connect("in0", "o0.t")
+                .connect("in1", "o0.m")
+            .output("out").connect("o0.f", "out")
+            .toGraph());
+        MockOperators mock = restore(detail);
+        Plan plan = detail.getPlan();
+        assertThat(plan.getElements(), hasSize(4));
+
+        SubPlan s0 = ownerOf(detail, mock.get("o0"));
+        SubPlan s1 = ownerOf(detail, mock.get("in1"));
+
+        assertThat(info(s0).toString(), s0, primaryOperator(isOperator("o0")));
+        assertThat(s0, OperationType(is(OperationType.CO_GROUP)));
+
+        assertThat(output(s1), outputType(is(OutputType.KEY_VALUE)));
+        assertThat(output(s1), outputGroup(is(group("+k"))));
+
+        assertThat(output(s1).getOpposites(), hasSize(1));
+        SubPlan.Input gIn = output(s1).getOpposites().iterator().next();
+        assertThat(gIn, inputType(is(InputType.CO_GROUP)));
+        assertThat(gIn, inputOption(is(InputOption.PRIMARY)));
+        assertThat(gIn, inputGroup(is(group("+k"))));
+    }
+
     /**
      * with broadcast from same origin.
 <pre>{@code
@@ -780,6 +1383,12 @@ in1 -/------/------/
         return info;
     }
 
+    static SubPlan.Input input(SubPlan.Output output) {
+        Set<? extends SubPlan.Input> opposites = output.getOpposites();
+        assertThat(opposites, hasSize(1));
+        return opposites.iterator().next();
+    }
+
     static Matcher<? super SubPlan> OperationType(Matcher<? super OperationType> matcher) {
         return new FeatureMatcher<SubPlan, OperationType>(matcher, "driver type", "driver type") {
             @Override
@@ -0,0 +1,104 @@
+/**
+ * Copyright 2011-2016 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.compiler.planner;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.asakusafw.lang.compiler.model.graph.MarkerOperator;
+import com.asakusafw.lang.compiler.model.graph.Operator;
+import com.asakusafw.lang.compiler.model.graph.OperatorGraph;
+import com.asakusafw.lang.compiler.model.graph.Operators;
+import com.asakusafw.lang.compiler.model.info.ExternalInputInfo.DataSize;
+import com.asakusafw.lang.compiler.model.testing.MockOperators;
+
+/**
+ * Test for {@link GraphRevision}.
+ */
+public class GraphRevisionTest {
+
+    /**
+     * simple case.
+     */
+    @Test
+    public void simple() {
+        OperatorGraph graph = new MockOperators()
+                .input("in", DataSize.LARGE)
+                .output("out").connect("in", "out")
+                .toGraph();
+        GraphRevision a = GraphRevision.of(graph.getOperators());
+        GraphRevision b = GraphRevision.of(graph.getOperators());
+        assertThat(b.isSame(a), is(true));
+        assertThat(b.getChanged(a), is(empty()));
+    }
+
+    /**
+     * re-connected operators.
+     */
+    @Test
+    public void connected() {
+        MockOperators mock = new MockOperators()
+                .input("in", DataSize.LARGE)
+                .output("out").connect("in", "out");
+        OperatorGraph graph = mock.toGraph();
+        GraphRevision before = GraphRevision.of(graph.getOperators());
+
+        Operator marker = MarkerOperator.builder(mock.getCommonDataType()).build();
+        Operators.insert(marker, mock.get("out").getInputs().get(0));
+        graph.rebuild();
+        GraphRevision after = GraphRevision.of(graph.getOperators());
+
+        assertThat(after.isSame(before), is(false));
+        assertThat(after.getChanged(before), containsInAnyOrder(mock.get("in"), marker, mock.get("out")));
+    }
+
+    /**
+     * operators are compared by their identity.
+     */
+    @Test
+    public void identity() {
+        OperatorGraph graph = new MockOperators()
+                .input("in", DataSize.LARGE)
+                .output("out").connect("in", "out")
+                .toGraph();
+        OperatorGraph copy = graph.copy();
+        GraphRevision a = GraphRevision.of(graph.getOperators());
+        GraphRevision b = GraphRevision.of(copy.getOperators());
+        assertThat(b.isSame(a), is(false));
+        assertThat(b.getChanged(a), hasSize(2));
+    }
+
+    /**
+     * removed operators.
+     */
+    @Test
+    public void removed() {
+        MockOperators mock = new MockOperators()
+                .input("in", DataSize.LARGE)
+                .output("out0").connect("in", "out0")
+                .output("out1");
+        OperatorGraph graph = mock.toGraph();
+        GraphRevision before = GraphRevision.of(graph.getOperators());
+
+        graph.remove(mock.get("out1"));
+        GraphRevision after = GraphRevision.of(graph.getOperators());
+
+        assertThat(after.isSame(before), is(false));
+        assertThat(after.getChanged(before), is(empty()));
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * Copyright 2011-2016 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.compiler.planner;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.asakusafw.lang.compiler.model.info.ExternalInputInfo.DataSize;
+import com.asakusafw.lang.compiler.model.testing.MockOperators;
+import com.asakusafw.lang.compiler.planning.PlanDetail;
+
+/**
+ * Test for {@link PlanReport}.
+ */
+public class PlanReportTest extends PlanningTestRoot {
+
+    /**
+     * simple case.
+     * @throws Exception if failed
+     */
+    @Test
+    public void simple() throws Exception {
+        PlanningContext context = context();
+        PlanDetail detail = DagPlanning.plan(context, new MockOperators()
+                .input("in", DataSize.LARGE)
+                .output("out").connect("in", "out")
+                .toGraph());
+        PlanReport report = PlanReport.of(context, detail);
+
+        List<?> vertices = (List<?>) report.toMap().get("vertices");
+        List<?> edges = (List<?>) report.toMap().get("edges");
+        assertThat(vertices, hasSize(2));
+        assertThat(edges, hasSize(1));
+
+        Map<?, ?> v0 = (Map<?, ?>) vertices.get(0);
+        assertThat(v0.get("operators"), is((Object) 1L));
+        assertThat((List<?>) v0.get("inputs"), hasSize(1));
+        assertThat((List<?>) v0.get("outputs"), hasSize(1));
+
+        Map<?, ?> edge = (Map<?, ?>) edges.get(0);
+        Map<?, ?> output = (Map<?, ?>) ((List<?>) v0.get("outputs")).get(0);
+        assertThat(edge.get("upstream"), is(output.get("id")));
+
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        report.write(buf);
+        String json = new String(buf.toByteArray(), StandardCharsets.UTF_8);
+        assertThat(json, startsWith("{"));
+        assertThat(json, containsString("\"vertices\": ["));
+        assertThat(json, containsString("\"type\": \"EXTRACT\""));
+    }
+
+    /**
+     * reports must be stable.
+     */
+    @Test
+    public void stable() {
+        String a = report();
+        String b = report();
+        assertThat(b, is(a));
+    }
+
+    private String report() {
+        PlanningContext context = context();
+        MockOperators m = new MockOperators();
+        PlanDetail detail = DagPlanning.plan(context, m
+                .input("in0", DataSize.LARGE)
+                .input("in1", DataSize.TINY)
+                .output("out0").connect("in0", "out0")
+                .output("out1").connect("in0", "out1").connect("in1", "out1")
+                .toGraph());
+        return PlanReport.of(context, detail).toJson();
+    }
+}
@@ -0,0 +1,236 @@
+/**
+ * Copyright 2011-2016 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.compiler.planner;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Base64;
+import java.util.Properties;
+
+import org.junit.Test;
+
+import com.asakusafw.dag.compiler.model.plan.OutputSpec;
+import com.asakusafw.dag.compiler.model.plan.VertexSpec;
+import com.asakusafw.dag.utils.common.HyperLogLog;
+import com.asakusafw.lang.compiler.model.description.ClassDescription;
+import com.asakusafw.lang.compiler.model.graph.CoreOperator;
+import com.asakusafw.lang.compiler.model.graph.CoreOperator.CoreOperatorKind;
+import com.asakusafw.lang.compiler.model.graph.OperatorOutput;
+import com.asakusafw.lang.compiler.model.info.ExternalInputInfo.DataSize;
+import com.asakusafw.lang.compiler.model.testing.MockOperators;
+import com.asakusafw.lang.compiler.planning.PlanDetail;
+import com.asakusafw.lang.compiler.planning.SubPlan;
+
+/**
+ * Test for {@link PlanStatistics}.
+ */
+public class PlanStatisticsTest extends PlanningTestRoot {
+
+    /**
+     * simple case.
+     * @throws Exception if failed
+     */
+    @Test
+    public void simple() throws Exception {
+        MockOperators mock = new MockOperators()
+                .input("in", DataSize.LARGE)
+                .output("out").connect("in", "out");
+        Path directory = temporary.newFolder().toPath();
+        String edge = prepare(directory, mock);
+
+        write(directory.resolve("r0").resolve("statistics-a.properties"), edge, 1000);
+        write(directory.resolve("r0").resolve("statistics-b.properties"), edge, 2000);
+
+        PlanStatistics statistics = PlanStatistics.load(directory);
+        assertThat(statistics, is(notNullValue()));
+
+        OperatorOutput port = mock.get("in").getOutputs().get(0);
+        PlanStatistics.Entry entry = statistics.find(port);
+        assertThat(entry, is(notNullValue()));
+        assertThat(entry.getBytes(), is(3000L));
+        assertThat(entry.getRuns(), is(1));
+    }
+
+    /**
+     * statistics from multiple executions.
+     * @throws Exception if failed
+     */
+    @Test
+    public void multiple_runs() throws Exception {
+        MockOperators mock = new MockOperators()
+                .input("in", DataSize.LARGE)
+                .output("out").connect("in", "out");
+        Path directory = temporary.newFolder().toPath();
+        String edge = prepare(directory, mock);
+
+        write(directory.resolve("r0").resolve("statistics-a.properties"), edge, 1000);
+        write(directory.resolve("r0").resolve("statistics-b.properties"), edge, 2000);
+        write(directory.resolve("r1").resolve("statistics-a.properties"), edge, 5000);
+
+        PlanStatistics statistics = PlanStatistics.load(directory);
+        assertThat(statistics, is(notNullValue()));
+
+        PlanStatistics.Entry entry = statistics.find(mock.get("in").getOutputs().get(0));
+        assertThat(entry, is(notNullValue()));
+        assertThat(entry.getBytes(), is(4000L));
+        assertThat(entry.getRuns(), is(2));
+    }
+
+    /**
+     * record counts and cardinality.
+     * @throws Exception if failed
+     */
+    @Test
+    public void cardinality() throws Exception {
+        MockOperators mock = new MockOperators()
+                .input("in", DataSize.LARGE)
+                .output("out").connect("in", "out");
+        Path directory = temporary.newFolder().toPath();
+        String edge = prepare(directory, mock);
+
+        write(directory.resolve("r0").resolve("statistics-a.properties"), edge, 1000, 10000, sketch(0, 1000));
+        write(directory.resolve("r0").resolve("statistics-b.properties"), edge, 1000, 10000, sketch(500, 1500));
+        write(directory.resolve("r1").resolve("statistics-a.properties"), edge, 500, 5000, sketch(0, 500));
+
+        PlanStatistics statistics = PlanStatistics.load(directory);
+        assertThat(statistics, is(notNullValue()));
+
+        PlanStatistics.Entry entry = statistics.find(mock.get("in").getOutputs().get(0));
+        assertThat(entry, is(notNullValue()));
+        assertThat(entry.getCount(), is(1250L));
+        assertThat(entry.getBytes(), is(12500L));
+        assertThat(entry.getCardinality(), is(closeTo(1000, 50)));
+        assertThat(entry.getRuns(), is(2));
+    }
+
+    /**
+     * w/o index.
+     * @throws Exception if failed
+     */
+    @Test
+    public void missing_index() throws Exception {
+        Path directory = temporary.newFolder().toPath();
+        assertThat(PlanStatistics.load(directory), is(nullValue()));
+    }
+
+    /**
+     * statistics are older than the index.
+     * @throws Exception if failed
+     */
+    @Test
+    public void obsolete() throws Exception {
+        MockOperators mock = new MockOperators()
+                .input("in", DataSize.LARGE)
+                .output("out").connect("in", "out");
+        Path directory = temporary.newFolder().toPath();
+        String edge = prepare(directory, mock);
+
+        Path file = directory.resolve("r0").resolve("statistics-a.properties");
+        write(file, edge, 1000);
+        FileTime indexTime = Files.getLastModifiedTime(directory.resolve(PlanStatistics.INDEX_FILE));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(indexTime.toMillis() - 60_000L));
+
+        assertThat(PlanStatistics.load(directory), is(nullValue()));
+    }
+
+    /**
+     * writing a new index removes the previous statistics.
+     * @throws Exception if failed
+     */
+    @Test
+    public void clean() throws Exception {
+        MockOperators mock = new MockOperators()
+                .input("in", DataSize.LARGE)
+                .output("out").connect("in", "out");
+        Path directory = temporary.newFolder().toPath();
+        String edge = prepare(directory, mock);
+
+        Path file = directory.resolve("r0").resolve("statistics-a.properties");
+        write(file, edge, 1000);
+        prepare(directory, mock);
+
+        assertThat(Files.exists(file), is(false));
+        assertThat(Files.exists(file.getParent()), is(false));
+        assertThat(PlanStatistics.load(directory), is(nullValue()));
+    }
+
+    /**
+     * persistent keys must be stable across the individual JVM processes.
+     */
+    @Test
+    public void key_stable() {
+        ClassDescription type = new ClassDescription("com.example.Model");
+        CoreOperator operator = CoreOperator.builder(CoreOperatorKind.CHECKPOINT)
+                .input("in", type)
+                .output("out", type)
+                .build();
+        // SHA-1 of "kind=CORE\ncore=CHECKPOINT\ninput=in:com.example.Model\noutput=out:com.example.Model\n"
+        assertThat(PlanStatistics.getKey(operator.getOutputs().get(0)), is("4c4e95e5acfd5879:out"));
+    }
+
+    /**
+     * persistent keys must be stable across the individual JVM processes - w/ groups.
+     */
+    @Test
+    public void key_stable_group() {
+        ClassDescription type = new ClassDescription("com.example.Model");
+        CoreOperator operator = CoreOperator.builder(CoreOperatorKind.CHECKPOINT)
+                .input("in", type, group("=a", "+b"))
+                .output("out", type)
+                .build();
+        // SHA-1 of "kind=CORE\ncore=CHECKPOINT\ninput=in:com.example.Model:=a+b\noutput=out:com.example.Model\n"
+        assertThat(PlanStatistics.getKey(operator.getOutputs().get(0)), is("c862b3138a7b5044:out"));
+    }
+
+    private String prepare(Path directory, MockOperators mock) throws IOException {
+        PlanDetail detail = DagPlanning.plan(context(), mock.toGraph());
+        PlanStatistics.writeIndex(directory, detail.getPlan());
+        SubPlan s0 = ownerOf(detail, restore(detail).get("in"));
+        SubPlan.Output output = s0.getOutputs().iterator().next();
+        return VertexSpec.get(s0).getId() + ':' + OutputSpec.get(output).getId();
+    }
+
+    private static void write(Path file, String edge, long bytes) throws IOException {
+        write(file, edge, 0, bytes, new HyperLogLog());
+    }
+
+    private static void write(
+            Path file, String edge, long count, long bytes, HyperLogLog sketch) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty(edge + PlanStatistics.SUFFIX_COUNT, String.valueOf(count));
+        properties.setProperty(edge + PlanStatistics.SUFFIX_BYTES, String.valueOf(bytes));
+        properties.setProperty(edge + PlanStatistics.SUFFIX_SKETCH,
+                Base64.getEncoder().encodeToString(sketch.toByteArray()));
+        Files.createDirectories(file.getParent());
+        try (OutputStream output = Files.newOutputStream(file)) {
+            properties.store(output, null);
+        }
+    }
+
+    private static HyperLogLog sketch(int from, int to) {
+        HyperLogLog result = new HyperLogLog();
+        for (int i = from; i < to; i++) {
+            result.add(i);
+        }
+        return result;
+    }
+}
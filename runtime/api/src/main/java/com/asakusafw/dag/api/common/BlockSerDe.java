@@ -0,0 +1,51 @@
+/**
+ * Copyright 2011-2016 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.api.common;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Serializes/deserializes a block of values at once.
+ * Unlike {@link ValueSerDe}, implementations can arrange the contents of each block freely, for example, in
+ * column-major order.
+ * @since 0.2.0
+ */
+public interface BlockSerDe {
+
+    /**
+     * Writes a block of objects into the {@link DataOutput}.
+     * @param objects the objects
+     * @param count the number of objects in the block
+     * @param output the target output
+     * @throws IOException if I/O error was occurred while writing the block
+     * @throws InterruptedException if interrupted while writing the block
+     */
+    void serialize(Object[] objects, int count, DataOutput output) throws IOException, InterruptedException;
+
+    /**
+     * Reads a block of objects from the {@link DataInput}.
+     * Each element of the given array will be reused as the destination object if it is not {@code null},
+     * or will be replaced with a new object.
+     * @param objects the destination objects
+     * @param input the source input
+     * @return the number of objects in the block
+     * @throws IOException if I/O error was occurred while reading the block, or the block is too large
+     * @throws InterruptedException if interrupted while reading the block
+     */
+    int deserialize(Object[] objects, DataInput input) throws IOException, InterruptedException;
+}
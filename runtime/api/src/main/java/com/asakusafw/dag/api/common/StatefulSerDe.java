@@ -0,0 +1,30 @@
+/**
+ * Copyright 2011-2016 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.api.common;
+
+/**
+ * An extension of {@link ValueSerDe} whose data format depends on the previously processed objects.
+ * Clients must invoke {@link #reset()} at the head of each stream or block, on both the serializing side and
+ * the deserializing side, and must not interleave objects which come from different streams.
+ * @since 0.2.0
+ */
+public interface StatefulSerDe extends ValueSerDe {
+
+    /**
+     * Discards the current state.
+     */
+    void reset();
+}
@@ -24,7 +24,7 @@ import com.asakusafw.dag.utils.common.Arguments;
  */
 public class EdgeInfo implements Serializable {
 
-    private static final long serialVersionUID = 1L;
+    private static final long serialVersionUID = 2L;
 
     private final PortId upstream;
 
@@ -32,6 +32,8 @@ public class EdgeInfo implements Serializable {
 
     private final EdgeDescriptor descriptor;
 
+    private final int partitionCount;
+
     /**
      * Creates a new instance.
      * @param upstream the upstream port ID
@@ -39,12 +41,26 @@ public class EdgeInfo implements Serializable {
      * @param descriptor the processor descriptor
      */
     public EdgeInfo(PortId upstream, PortId downstream, EdgeDescriptor descriptor) {
+        this(upstream, downstream, descriptor, -1);
+    }
+
+    /**
+     * Creates a new instance.
+     * @param upstream the upstream port ID
+     * @param downstream the downstream port ID
+     * @param descriptor the processor descriptor
+     * @param partitionCount the suggested number of partitions, or {@code -1} if it is not specified
+     * @since 0.2.0
+     */
+    public EdgeInfo(PortId upstream, PortId downstream, EdgeDescriptor descriptor, int partitionCount) {
         Arguments.requireNonNull(upstream);
         Arguments.requireNonNull(downstream);
         Arguments.requireNonNull(descriptor);
+        Arguments.require(partitionCount == -1 || partitionCount > 0);
         this.upstream = upstream;
         this.downstream = downstream;
         this.descriptor = descriptor;
+        this.partitionCount = partitionCount;
     }
 
     /**
@@ -70,4 +86,14 @@ public class EdgeInfo implements Serializable {
     public EdgeDescriptor getDescriptor() {
         return descriptor;
     }
+
+    /**
+     * Returns the suggested number of partitions on this edge.
+     * Engines may use their default parallelism if this is not specified.
+     * @return the suggested number of partitions, or {@code -1} if it is not specified
+     * @since 0.2.0
+     */
+    public int getPartitionCount() {
+        return partitionCount;
+    }
 }
@@ -36,7 +36,7 @@ public class GraphInfo implements Serializable {
 
     private static final int MAGIC = 0xa343ada0;
 
-    private static final int VERSION = 2;
+    private static final int VERSION = 3;
 
     private static final long serialVersionUID = VERSION;
 
@@ -87,10 +87,23 @@ public class GraphInfo implements Serializable {
      * @return the added edge
      */
     public EdgeInfo addEdge(PortId upstream, PortId downstream, EdgeDescriptor descriptor) {
+        return addEdge(upstream, downstream, descriptor, -1);
+    }
+
+    /**
+     * Adds an edge.
+     * @param upstream the upstream port ID
+     * @param downstream the downstream port ID
+     * @param descriptor the processor descriptor
+     * @param partitionCount the suggested number of partitions, or {@code -1} if it is not specified
+     * @return the added edge
+     * @since 0.2.0
+     */
+    public EdgeInfo addEdge(PortId upstream, PortId downstream, EdgeDescriptor descriptor, int partitionCount) {
         Arguments.requireNonNull(upstream);
         Arguments.requireNonNull(downstream);
         Arguments.requireNonNull(descriptor);
-        EdgeInfo info = new EdgeInfo(upstream, downstream, descriptor);
+        EdgeInfo info = new EdgeInfo(upstream, downstream, descriptor, partitionCount);
         edges.add(info);
         return info;
     }
@@ -0,0 +1,239 @@
+/**
+ * Copyright 2011-2016 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.extension.trace;
+
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.asakusafw.dag.api.common.Reportable;
+import com.asakusafw.dag.utils.common.Arguments;
+import com.asakusafw.dag.utils.common.HyperLogLog;
+import com.asakusafw.dag.utils.common.Tuple;
+
+/**
+ * Collects statistics of each port I/O, and then writes them into a local statistics file.
+ * <p>
+ * The statistics file is a {@link Properties} file which has the following entries for each port:
+ * </p>
+ * <ul>
+ * <li> {@code <vertex-id>:<port-id>:count} - the number of records </li>
+ * <li> {@code <vertex-id>:<port-id>:bytes} - the total size of records in bytes </li>
+ * <li> {@code <vertex-id>:<port-id>:sketch} - the Base64 encoded {@link HyperLogLog} sketch of distinct records </li>
+ * </ul>
+ * <p>
+ * Each record is serialized by its {@code write(DataOutput)} method, and then the serialized bytes are used
+ * for both its size and its hash code in the sketch, so that the equivalent records always have the same hash code
+ * in the individual processes.
+ * If the records do not have such a method, only their counts are available.
+ * All statistics files of the same execution must be placed in the same directory.
+ * </p>
+ * @since 0.2.0
+ */
+public class PortStatistics implements PortTracer, Reportable {
+
+    static final Logger LOG = LoggerFactory.getLogger(PortStatistics.class);
+
+    /**
+     * The file name prefix of statistics files.
+     */
+    public static final String FILE_PREFIX = "statistics-"; //$NON-NLS-1$
+
+    /**
+     * The file name suffix of statistics files.
+     */
+    public static final String FILE_SUFFIX = ".properties"; //$NON-NLS-1$
+
+    /**
+     * The entry key suffix of record counts.
+     */
+    public static final String SUFFIX_COUNT = ":count"; //$NON-NLS-1$
+
+    /**
+     * The entry key suffix of record sizes.
+     */
+    public static final String SUFFIX_BYTES = ":bytes"; //$NON-NLS-1$
+
+    /**
+     * The entry key suffix of cardinality sketches.
+     */
+    public static final String SUFFIX_SKETCH = ":sketch"; //$NON-NLS-1$
+
+    private static final ClassValue<MethodHandle> WRITERS = new ClassValue<MethodHandle>() {
+        @Override
+        protected MethodHandle computeValue(Class<?> type) {
+            try {
+                return MethodHandles.publicLookup().findVirtual(
+                        type, "write", //$NON-NLS-1$
+                        MethodType.methodType(void.class, DataOutput.class));
+            } catch (ReflectiveOperationException e) {
+                LOG.debug("record size is not available: {}", type, e);
+                return null;
+            }
+        }
+    };
+
+    private final Path directory;
+
+    private final ConcurrentMap<Tuple<String, String>, Collector> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new instance.
+     * @param directory the output directory, which is dedicated to the current execution
+     */
+    public PortStatistics(Path directory) {
+        Arguments.requireNonNull(directory);
+        this.directory = directory;
+    }
+
+    @Override
+    public Consumer<Object> getSink(String vertexId, String portId) {
+        Arguments.requireNonNull(vertexId);
+        Arguments.requireNonNull(portId);
+        Tuple<String, String> key = new Tuple<>(vertexId, portId);
+        return entries.computeIfAbsent(key, k -> new Collector());
+    }
+
+    @Override
+    public void report() throws IOException {
+        if (entries.isEmpty()) {
+            return;
+        }
+        Properties properties = new Properties();
+        entries.forEach((pair, collector) -> {
+            String prefix = pair.left() + ':' + pair.right();
+            synchronized (collector) {
+                properties.setProperty(prefix + SUFFIX_COUNT, String.valueOf(collector.count));
+                properties.setProperty(prefix + SUFFIX_BYTES, String.valueOf(collector.getBytes()));
+                if (collector.available) {
+                    properties.setProperty(prefix + SUFFIX_SKETCH,
+                            Base64.getEncoder().encodeToString(collector.sketch.toByteArray()));
+                }
+            }
+        });
+        Files.createDirectories(directory);
+        Path file = directory.resolve(FILE_PREFIX + UUID.randomUUID() + FILE_SUFFIX);
+        LOG.debug("writing port statistics: {}", file);
+        try (OutputStream output = Files.newOutputStream(file)) {
+            properties.store(output, null);
+        }
+    }
+
+    private static final class Collector implements Consumer<Object> {
+
+        final HyperLogLog sketch = new HyperLogLog();
+
+        final HashingOutputStream buffer = new HashingOutputStream();
+
+        final DataOutputStream bufferOutput = new DataOutputStream(buffer);
+
+        long count;
+
+        long bytes;
+
+        boolean available = true;
+
+        Collector() {
+            return;
+        }
+
+        @Override
+        public synchronized void accept(Object t) {
+            count++;
+            if (available) {
+                available = serialize(t);
+            }
+        }
+
+        private boolean serialize(Object t) {
+            if (t == null) {
+                return false;
+            }
+            MethodHandle writer = WRITERS.get(t.getClass());
+            if (writer == null) {
+                return false;
+            }
+            buffer.reset();
+            try {
+                writer.invoke(t, (DataOutput) bufferOutput);
+            } catch (Throwable e) {
+                LOG.debug("error occurred while serializing record: {}", t.getClass(), e);
+                return false;
+            }
+            bytes += buffer.count;
+            sketch.add(buffer.hash);
+            return true;
+        }
+
+        long getBytes() {
+            return available ? bytes : -1L;
+        }
+    }
+
+    /**
+     * Computes the size and the FNV-1a hash code of the written bytes.
+     */
+    private static final class HashingOutputStream extends OutputStream {
+
+        private static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+
+        private static final long PRIME = 0x100000001b3L;
+
+        long count;
+
+        long hash;
+
+        HashingOutputStream() {
+            reset();
+        }
+
+        void reset() {
+            count = 0;
+            hash = OFFSET_BASIS;
+        }
+
+        @Override
+        public void write(int b) {
+            hash = (hash ^ (b & 0xff)) * PRIME;
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            long h = hash;
+            for (int i = off, n = off + len; i < n; i++) {
+                h = (h ^ (b[i] & 0xff)) * PRIME;
+            }
+            hash = h;
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/**
+ * Copyright 2011-2016 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.extension.trace;
+
+import java.nio.file.Paths;
+import java.text.MessageFormat;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.asakusafw.dag.api.processor.ProcessorContext;
+import com.asakusafw.dag.api.processor.extension.ProcessorContextDecorator;
+import com.asakusafw.dag.api.processor.extension.ProcessorContextExtension;
+import com.asakusafw.dag.utils.common.InterruptibleIo;
+
+/**
+ * Enables collecting {@link PortStatistics port statistics}.
+ * The collected statistics can be fed back into the next compilation of the same jobflow.
+ * @since 0.2.0
+ */
+public class StatisticsSupportExtension implements ProcessorContextExtension {
+
+    /**
+     * The property key of the statistics output directory.
+     */
+    public static final String KEY_DIRECTORY = "com.asakusafw.dag.extension.statistics"; //$NON-NLS-1$
+
+    /**
+     * The property key of the current execution ID, which must be shared by all processes of the same execution,
+     * for example, the batch execution ID.
+     * The statistics are written into the sub-directory named by it.
+     * If it is not defined, the port statistics are disabled, because the statistics of the individual processes
+     * cannot be summed up into the same execution.
+     */
+    public static final String KEY_RUN_ID = KEY_DIRECTORY + ".run"; //$NON-NLS-1$
+
+    static final Logger LOG = LoggerFactory.getLogger(StatisticsSupportExtension.class);
+
+    @Override
+    public InterruptibleIo install(ProcessorContext context, ProcessorContext.Editor editor) {
+        String directory = context.getProperty(KEY_DIRECTORY).orElse(null);
+        if (directory == null || directory.trim().isEmpty()) {
+            LOG.debug("port statistics is disabled");
+            return null;
+        }
+        if (context.getProperty(TracingSupportExtension.KEY_IMPLEMENTATION).isPresent()) {
+            LOG.warn("port statistics is disabled because tracing is enabled");
+            return null;
+        }
+        String runId = context.getProperty(KEY_RUN_ID)
+                .map(String::trim)
+                .filter(s -> s.isEmpty() == false)
+                .orElse(null);
+        if (runId == null) {
+            LOG.warn(MessageFormat.format(
+                    "port statistics is disabled because the execution ID is not set: {0}",
+                    KEY_RUN_ID));
+            return null;
+        }
+        LOG.debug("enable port statistics: {} ({})", directory, runId);
+        PortStatistics statistics = new PortStatistics(Paths.get(directory.trim()).resolve(runId));
+        editor.addResource(ProcessorContextDecorator.class, new TracingProcessorContextDecorator(statistics));
+        return statistics::report;
+    }
+}
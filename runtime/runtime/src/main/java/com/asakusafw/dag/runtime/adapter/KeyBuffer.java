@@ -15,6 +15,9 @@
  */
 package com.asakusafw.dag.runtime.adapter;
 
+import com.asakusafw.runtime.value.IntOption;
+import com.asakusafw.runtime.value.LongOption;
+
 /**
  * A buffer for building keys.
  */
@@ -45,6 +48,28 @@ public interface KeyBuffer {
      */
     KeyBuffer append(Object value);
 
+    /**
+     * Appends an {@code int} value into this buffer.
+     * The buffer contents must be as same as {@link #append(Object)}.
+     * @param value the target value
+     * @return this
+     * @since 0.2.0
+     */
+    default KeyBuffer appendInt(IntOption value) {
+        return append(value);
+    }
+
+    /**
+     * Appends a {@code long} value into this buffer.
+     * The buffer contents must be as same as {@link #append(Object)}.
+     * @param value the target value
+     * @return this
+     * @since 0.2.0
+     */
+    default KeyBuffer appendLong(LongOption value) {
+        return append(value);
+    }
+
     /**
      * Represents a key for {@link DataTable}.
      */
@@ -27,4 +27,35 @@ public interface ObjectCombiner<T> extends KeyExtractor<T> {
      * @param b the object to be merged
      */
     void combine(T a, T b);
+
+    /**
+     * Starts merging a sequence of objects into the given object.
+     * After this, clients must merge the rest objects by {@link #accumulate(Object, Object)},
+     * and then call {@link #finish(Object)}.
+     * Until {@link #finish(Object)} is called, the contents of the target object may not be up-to-date.
+     * @param a the target object
+     * @since 0.2.0
+     */
+    default void begin(T a) {
+        return;
+    }
+
+    /**
+     * Merges the right object into the left one, which has been passed to {@link #begin(Object)}.
+     * @param a the target object
+     * @param b the object to be merged
+     * @since 0.2.0
+     */
+    default void accumulate(T a, T b) {
+        combine(a, b);
+    }
+
+    /**
+     * Finishes merging objects into the given object, which has been passed to {@link #begin(Object)}.
+     * @param a the target object
+     * @since 0.2.0
+     */
+    default void finish(T a) {
+        return;
+    }
 }
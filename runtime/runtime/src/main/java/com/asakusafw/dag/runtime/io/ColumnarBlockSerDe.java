@@ -0,0 +1,122 @@
+/**
+ * Copyright 2011-2016 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.runtime.io;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.text.MessageFormat;
+import java.util.Arrays;
+
+import com.asakusafw.dag.api.common.BlockSerDe;
+import com.asakusafw.dag.utils.common.Arguments;
+import com.asakusafw.runtime.value.ValueOption;
+
+/**
+ * An abstract implementation of {@link BlockSerDe} which serializes each block in column-major order.
+ * Each column is encoded by {@link ValueOptionColumnSerDe}.
+ * @since 0.2.0
+ */
+public abstract class ColumnarBlockSerDe implements BlockSerDe {
+
+    private static final int INITIAL_ROWS = 256;
+
+    private final ValueOption<?>[][] columns;
+
+    /**
+     * Creates a new instance.
+     * @param columnCount the number of columns
+     */
+    protected ColumnarBlockSerDe(int columnCount) {
+        Arguments.require(columnCount >= 0);
+        this.columns = new ValueOption<?>[columnCount][INITIAL_ROWS];
+    }
+
+    /**
+     * Returns a new object.
+     * @return the created object
+     */
+    protected abstract Object newObject();
+
+    /**
+     * Puts the properties of the given object into the corresponding columns.
+     * @param object the source object
+     * @param row the row index
+     * @param destination the destination columns
+     */
+    protected abstract void collect(Object object, int row, ValueOption<?>[][] destination);
+
+    @Override
+    public void serialize(Object[] objects, int count, DataOutput output) throws IOException, InterruptedException {
+        Arguments.require(0 <= count && count <= objects.length);
+        ValueOptionSerDe.writeCompactInt(count, output);
+        prepare(count);
+        for (int i = 0; i < count; i++) {
+            collect(objects[i], i, columns);
+        }
+        try {
+            for (ValueOption<?>[] column : columns) {
+                ValueOptionColumnSerDe.serialize(column, count, output);
+            }
+        } finally {
+            release(count);
+        }
+    }
+
+    @Override
+    public int deserialize(Object[] objects, DataInput input) throws IOException, InterruptedException {
+        int count = ValueOptionSerDe.readCompactInt(input);
+        if (count < 0 || count > objects.length) {
+            throw new IOException(MessageFormat.format(
+                    "invalid block size: {0} (capacity={1})",
+                    count,
+                    objects.length));
+        }
+        prepare(count);
+        for (int i = 0; i < count; i++) {
+            Object object = objects[i];
+            if (object == null) {
+                object = newObject();
+                objects[i] = object;
+            }
+            collect(object, i, columns);
+        }
+        try {
+            for (ValueOption<?>[] column : columns) {
+                ValueOptionColumnSerDe.deserialize(column, count, input);
+            }
+        } finally {
+            release(count);
+        }
+        return count;
+    }
+
+    private void prepare(int count) {
+        ValueOption<?>[][] cs = columns;
+        for (int i = 0; i < cs.length; i++) {
+            if (cs[i].length < count) {
+                cs[i] = new ValueOption<?>[Math.max(count, cs[i].length * 2)];
+            }
+        }
+    }
+
+    private void release(int count) {
+        // the columns must not retain the client objects
+        for (ValueOption<?>[] column : columns) {
+            Arrays.fill(column, 0, count, null);
+        }
+    }
+}
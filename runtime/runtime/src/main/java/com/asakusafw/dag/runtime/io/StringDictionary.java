@@ -0,0 +1,170 @@
+/**
+ * Copyright 2011-2016 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.runtime.io;
+
+import static com.asakusafw.dag.runtime.io.ValueOptionSerDe.*;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.hadoop.io.Text;
+
+import com.asakusafw.dag.utils.common.Arguments;
+import com.asakusafw.runtime.value.StringOption;
+
+/**
+ * Serializes/deserializes {@link StringOption} objects using a per-stream dictionary.
+ * A string which has already appeared in the current stream is written as its dictionary ID,
+ * and the others are written as literals in the same format of {@link ValueOptionSerDe}.
+ * Both of the serializing side and the deserializing side must process the same sequence of objects,
+ * and must {@link #reset()} at the same stream boundaries.
+ * @since 0.2.0
+ */
+public final class StringDictionary {
+
+    /**
+     * The default maximum number of dictionary entries.
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    /**
+     * The default maximum byte length of each dictionary entry.
+     */
+    public static final int DEFAULT_MAX_ENTRY_LENGTH = 256;
+
+    private static final int UNSIGNED_NULL = -1;
+
+    private static final int REFERENCE_OFFSET = -2;
+
+    private final int capacity;
+
+    private final int maxEntryLength;
+
+    private final Map<Text, Integer> ids = new HashMap<>();
+
+    private final Text[] entries;
+
+    private int size;
+
+    private byte[] scratch = new byte[64];
+
+    /**
+     * Creates a new instance with default settings.
+     */
+    public StringDictionary() {
+        this(DEFAULT_CAPACITY, DEFAULT_MAX_ENTRY_LENGTH);
+    }
+
+    /**
+     * Creates a new instance.
+     * @param capacity the maximum number of dictionary entries
+     * @param maxEntryLength the maximum byte length of each dictionary entry
+     */
+    public StringDictionary(int capacity, int maxEntryLength) {
+        Arguments.require(capacity >= 0);
+        Arguments.require(maxEntryLength >= 0);
+        this.capacity = capacity;
+        this.maxEntryLength = maxEntryLength;
+        this.entries = new Text[capacity];
+    }
+
+    /**
+     * Discards all dictionary entries.
+     */
+    public void reset() {
+        ids.clear();
+        size = 0;
+    }
+
+    /**
+     * Serializes {@link StringOption} object.
+     * @param option the target object
+     * @param output the target output
+     * @throws IOException if I/O error was occurred while serializing the object
+     */
+    public void serialize(StringOption option, DataOutput output) throws IOException {
+        if (option.isNull()) {
+            writeCompactInt(UNSIGNED_NULL, output);
+            return;
+        }
+        Text entity = option.get();
+        Integer id = ids.get(entity);
+        if (id != null) {
+            writeCompactInt(REFERENCE_OFFSET - id, output);
+            return;
+        }
+        int length = entity.getLength();
+        writeCompactInt(length, output);
+        output.write(entity.getBytes(), 0, length);
+        if (isAcceptable(length)) {
+            Text copy = prepareEntry(entity.getBytes(), length);
+            ids.put(copy, size++);
+        }
+    }
+
+    /**
+     * Deserializes {@link StringOption} object.
+     * @param option the target object
+     * @param input the source input
+     * @throws IOException if I/O error was occurred while deserializing the object
+     */
+    public void deserialize(StringOption option, DataInput input) throws IOException {
+        int head = readCompactInt(input);
+        if (head == UNSIGNED_NULL) {
+            option.setNull();
+        } else if (head <= REFERENCE_OFFSET) {
+            int id = REFERENCE_OFFSET - head;
+            if (id >= size) {
+                throw new IOException("broken string dictionary reference"); //$NON-NLS-1$
+            }
+            option.modify(entries[id]);
+        } else {
+            int length = head;
+            byte[] buffer = scratch;
+            if (buffer.length < length) {
+                buffer = new byte[length];
+                if (length <= maxEntryLength) {
+                    scratch = buffer;
+                }
+            }
+            input.readFully(buffer, 0, length);
+            if (isAcceptable(length)) {
+                option.modify(prepareEntry(buffer, length));
+                size++;
+            } else {
+                option.modify(buffer, 0, length);
+            }
+        }
+    }
+
+    private boolean isAcceptable(int length) {
+        return size < capacity && length <= maxEntryLength;
+    }
+
+    private Text prepareEntry(byte[] contents, int length) {
+        // reuses the previous entry objects
+        Text entry = entries[size];
+        if (entry == null) {
+            entry = new Text();
+            entries[size] = entry;
+        }
+        entry.set(contents, 0, length);
+        return entry;
+    }
+}
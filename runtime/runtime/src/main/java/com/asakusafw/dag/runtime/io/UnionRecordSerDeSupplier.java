@@ -23,6 +23,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
@@ -40,16 +41,25 @@ import com.asakusafw.dag.utils.common.Tuple;
 
 /**
  * A {@link TaggedSupplier} of{@link ValueSerDe} for {@link UnionRecord}.
+ * If an upstream tag is bound to multiple elements which have the same ser/de class,
+ * the serializer for the tag writes the object payload only once and the decoded {@link UnionRecord}s share
+ * the same {@link UnionRecord#entity entity} object.
  * @since 0.2.0
  */
 public class UnionRecordSerDeSupplier implements TaggedSupplier<ValueSerDe> {
 
     static final int CONTINUE_MASK = 1 << 31;
 
+    static final int SHARED_MASK = 1 << 30;
+
+    static final int INDEX_MASK = ~(CONTINUE_MASK | SHARED_MASK);
+
     private final Map<String, List<Tuple<Integer, Supplier<? extends Serializer>>>> upstreams = new HashMap<>();
 
     private final List<Supplier<? extends Deserializer>> downstreams = new ArrayList<>();
 
+    private final List<Object> formats = new ArrayList<>();
+
     private final Set<String> downstreamNames = new HashSet<>();
 
     /**
@@ -61,7 +71,7 @@ public class UnionRecordSerDeSupplier implements TaggedSupplier<ValueSerDe> {
     public final UnionRecordSerDeSupplier upstream(Collection<String> tags, Class<? extends ValueSerDe> element) {
         Arguments.requireNonNull(tags);
         Arguments.requireNonNull(element);
-        return upstream(tags, () -> Lang.safe(element::newInstance));
+        return upstream0(tags, element, () -> Lang.safe(element::newInstance));
     }
 
     /**
@@ -73,7 +83,13 @@ public class UnionRecordSerDeSupplier implements TaggedSupplier<ValueSerDe> {
     public final UnionRecordSerDeSupplier upstream(Collection<String> tags, Supplier<? extends ValueSerDe> element) {
         Arguments.requireNonNull(tags);
         Arguments.requireNonNull(element);
+        return upstream0(tags, element, element);
+    }
+
+    private UnionRecordSerDeSupplier upstream0(
+            Collection<String> tags, Object format, Supplier<? extends ValueSerDe> element) {
         int index = downstreams.size();
+        Invariants.require((index & INDEX_MASK) == index);
         Set<String> saw = new HashSet<>();
         for (String tag : tags) {
             Invariants.require(saw.contains(tag) == false);
@@ -82,6 +98,7 @@ public class UnionRecordSerDeSupplier implements TaggedSupplier<ValueSerDe> {
             saw.add(tag);
         }
         downstreams.add(element);
+        formats.add(format);
         return this;
     }
 
@@ -105,14 +122,18 @@ public class UnionRecordSerDeSupplier implements TaggedSupplier<ValueSerDe> {
                 Tuple<Integer, Supplier<? extends Serializer>> first = elements.get(0);
                 return new Encoder(first.left(), first.right().get());
             } else {
-                int[] indices = elements.stream()
+                // elements which have the same format can share their payload
+                Map<Object, List<Tuple<Integer, Supplier<? extends Serializer>>>> groups = new LinkedHashMap<>();
+                for (Tuple<Integer, Supplier<? extends Serializer>> element : elements) {
+                    groups.computeIfAbsent(formats.get(element.left()), k -> new ArrayList<>()).add(element);
+                }
+                int[][] indices = groups.values().stream()
                         .sequential()
-                        .mapToInt(Tuple::left)
-                        .toArray();
-                Serializer[] serializers = elements.stream()
+                        .map(g -> g.stream().mapToInt(Tuple::left).toArray())
+                        .toArray(int[][]::new);
+                Serializer[] serializers = groups.values().stream()
                         .sequential()
-                        .map(Tuple::right)
-                        .map(Supplier::get)
+                        .map(g -> g.get(0).right().get())
                         .toArray(Serializer[]::new);
                 return new EncoderMultiplexer(indices, serializers);
             }
@@ -153,26 +174,52 @@ public class UnionRecordSerDeSupplier implements TaggedSupplier<ValueSerDe> {
 
     private static final class EncoderMultiplexer implements ValueSerDe {
 
-        private final int[] indices;
+        private final int[] headers;
+
+        private final int[] segments;
 
         private final Serializer[] elements;
 
-        EncoderMultiplexer(int[] indices, Serializer[] elements) {
+        EncoderMultiplexer(int[][] indices, Serializer[] elements) {
             assert indices.length == elements.length;
-            int[] is = indices.clone();
-            for (int i = 0, n = is.length - 1; i < n; i++) {
-                is[i] = is[i] | CONTINUE_MASK;
+            int count = 0;
+            for (int[] group : indices) {
+                assert group.length >= 1;
+                count += group.length;
             }
-            this.indices = is;
+            int[] hs = new int[count];
+            int[] ss = new int[indices.length];
+            int offset = 0;
+            for (int i = 0; i < indices.length; i++) {
+                int[] group = indices[i];
+                for (int j = 0; j < group.length; j++) {
+                    int header = group[j];
+                    if (j < group.length - 1) {
+                        // the payload will be written after the last header in the group
+                        header |= SHARED_MASK;
+                    }
+                    if (offset < count - 1) {
+                        header |= CONTINUE_MASK;
+                    }
+                    hs[offset++] = header;
+                }
+                ss[i] = offset;
+            }
+            this.headers = hs;
+            this.segments = ss;
             this.elements = elements.clone();
         }
 
         @Override
         public void serialize(Object object, DataOutput output) throws IOException, InterruptedException {
-            int[] is = indices;
+            int[] hs = headers;
+            int[] ss = segments;
             Serializer[] es = elements;
-            for (int i = 0, n = is.length; i < n; i++) {
-                output.writeInt(is[i]);
+            int offset = 0;
+            for (int i = 0, n = es.length; i < n; i++) {
+                for (int end = ss[i]; offset < end; offset++) {
+                    output.writeInt(hs[offset]);
+                }
                 es[i].serialize(object, output);
             }
         }
@@ -203,17 +250,29 @@ public class UnionRecordSerDeSupplier implements TaggedSupplier<ValueSerDe> {
             Deserializer[] es = elements;
             UnionRecord union = buffer;
             UnionRecord current = union;
+            UnionRecord shared = null;
             while (true) {
-                int index = input.readInt();
-                if ((index & CONTINUE_MASK) == 0) {
-                    current.tag = index;
-                    current.entity = es[index].deserialize(input);
+                int header = input.readInt();
+                int index = header & INDEX_MASK;
+                current.tag = index;
+                if ((header & SHARED_MASK) != 0) {
+                    // the payload will appear after the succeeding header
+                    if (shared == null) {
+                        shared = current;
+                    }
+                    current = current.prepareNext();
+                    continue;
+                }
+                Object entity = es[index].deserialize(input);
+                current.entity = entity;
+                for (UnionRecord r = shared; r != null && r != current; r = r.next) {
+                    r.entity = entity;
+                }
+                shared = null;
+                if ((header & CONTINUE_MASK) == 0) {
                     current.next = null;
                     return union;
                 } else {
-                    int actualIndex = index & ~CONTINUE_MASK;
-                    current.tag = actualIndex;
-                    current.entity = es[actualIndex].deserialize(input);
                     current = current.prepareNext();
                 }
             }
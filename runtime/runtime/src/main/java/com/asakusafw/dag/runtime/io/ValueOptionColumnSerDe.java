@@ -0,0 +1,258 @@
+/**
+ * Copyright 2011-2016 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.runtime.io;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.text.MessageFormat;
+
+import com.asakusafw.runtime.value.BooleanOption;
+import com.asakusafw.runtime.value.IntOption;
+import com.asakusafw.runtime.value.LongOption;
+import com.asakusafw.runtime.value.ValueOption;
+
+/**
+ * Serializes/deserializes columns of {@link ValueOption} objects.
+ * Each column is encoded in the most compact format of the following:
+ * <ul>
+ * <li> run-length encoding - for columns which consist of a few runs of the same values </li>
+ * <li> bit-packing - for {@link BooleanOption} columns </li>
+ * <li> delta encoding - for {@link IntOption} and {@link LongOption} columns without {@code null} </li>
+ * <li> plain - same as {@link ValueOptionSerDe} </li>
+ * </ul>
+ * @since 0.2.0
+ */
+@SuppressWarnings("deprecation")
+public final class ValueOptionColumnSerDe {
+
+    static final byte FORMAT_PLAIN = 0;
+
+    static final byte FORMAT_RUN_LENGTH = 1;
+
+    static final byte FORMAT_BIT_PACKED = 2;
+
+    static final byte FORMAT_DELTA = 3;
+
+    private ValueOptionColumnSerDe() {
+        return;
+    }
+
+    /**
+     * Serializes a column.
+     * @param column the column values
+     * @param count the number of values in the column
+     * @param output the target output
+     * @throws IOException if I/O error was occurred while serializing the column
+     */
+    public static void serialize(ValueOption<?>[] column, int count, DataOutput output) throws IOException {
+        if (count == 0) {
+            return;
+        }
+        if (countRuns(column, count) * 2 <= count) {
+            output.writeByte(FORMAT_RUN_LENGTH);
+            writeRunLength(column, count, output);
+        } else if (column[0] instanceof BooleanOption) {
+            output.writeByte(FORMAT_BIT_PACKED);
+            writeBitPacked(column, count, output);
+        } else if (isDeltaProfitable(column, count)) {
+            output.writeByte(FORMAT_DELTA);
+            writeDelta(column, count, output);
+        } else {
+            output.writeByte(FORMAT_PLAIN);
+            for (int i = 0; i < count; i++) {
+                ValueOptionSerDe.serializeAny(column[i], output);
+            }
+        }
+    }
+
+    /**
+     * Deserializes a column.
+     * @param column the destination column values
+     * @param count the number of values in the column
+     * @param input the source input
+     * @throws IOException if I/O error was occurred while deserializing the column
+     */
+    public static void deserialize(ValueOption<?>[] column, int count, DataInput input) throws IOException {
+        if (count == 0) {
+            return;
+        }
+        byte format = input.readByte();
+        switch (format) {
+        case FORMAT_PLAIN:
+            for (int i = 0; i < count; i++) {
+                ValueOptionSerDe.deserializeAny(column[i], input);
+            }
+            break;
+        case FORMAT_RUN_LENGTH:
+            readRunLength(column, count, input);
+            break;
+        case FORMAT_BIT_PACKED:
+            readBitPacked(column, count, input);
+            break;
+        case FORMAT_DELTA:
+            readDelta(column, count, input);
+            break;
+        default:
+            throw new IOException(MessageFormat.format(
+                    "unknown column format: {0}",
+                    format));
+        }
+    }
+
+    private static int countRuns(ValueOption<?>[] column, int count) {
+        int runs = 1;
+        for (int i = 1; i < count; i++) {
+            if (column[i - 1].equals(column[i]) == false) {
+                runs++;
+            }
+        }
+        return runs;
+    }
+
+    private static void writeRunLength(ValueOption<?>[] column, int count, DataOutput output) throws IOException {
+        int start = 0;
+        for (int i = 1; i <= count; i++) {
+            if (i == count || column[start].equals(column[i]) == false) {
+                ValueOptionSerDe.writeCompactInt(i - start, output);
+                ValueOptionSerDe.serializeAny(column[start], output);
+                start = i;
+            }
+        }
+    }
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private static void readRunLength(ValueOption<?>[] column, int count, DataInput input) throws IOException {
+        int offset = 0;
+        while (offset < count) {
+            int length = ValueOptionSerDe.readCompactInt(input);
+            if (length <= 0 || offset + length > count) {
+                throw new IOException(MessageFormat.format(
+                        "invalid run length: {0}",
+                        length));
+            }
+            ValueOption head = column[offset];
+            ValueOptionSerDe.deserializeAny(head, input);
+            for (int i = offset + 1, n = offset + length; i < n; i++) {
+                ((ValueOption) column[i]).copyFrom(head);
+            }
+            offset += length;
+        }
+    }
+
+    private static void writeBitPacked(ValueOption<?>[] column, int count, DataOutput output) throws IOException {
+        for (int base = 0; base < count; base += Byte.SIZE) {
+            int nulls = 0;
+            int values = 0;
+            for (int i = 0, n = Math.min(Byte.SIZE, count - base); i < n; i++) {
+                BooleanOption option = (BooleanOption) column[base + i];
+                if (option.isNull()) {
+                    nulls |= 1 << i;
+                } else if (option.get()) {
+                    values |= 1 << i;
+                }
+            }
+            output.writeByte(nulls);
+            output.writeByte(values);
+        }
+    }
+
+    private static void readBitPacked(ValueOption<?>[] column, int count, DataInput input) throws IOException {
+        for (int base = 0; base < count; base += Byte.SIZE) {
+            int nulls = input.readUnsignedByte();
+            int values = input.readUnsignedByte();
+            for (int i = 0, n = Math.min(Byte.SIZE, count - base); i < n; i++) {
+                BooleanOption option = (BooleanOption) column[base + i];
+                if ((nulls & (1 << i)) != 0) {
+                    option.setNull();
+                } else {
+                    option.modify((values & (1 << i)) != 0);
+                }
+            }
+        }
+    }
+
+    private static boolean isDeltaProfitable(ValueOption<?>[] column, int count) {
+        int plainSize;
+        if (column[0] instanceof IntOption) {
+            plainSize = Byte.BYTES + Integer.BYTES;
+        } else if (column[0] instanceof LongOption) {
+            plainSize = Byte.BYTES + Long.BYTES;
+        } else {
+            return false;
+        }
+        long last = 0;
+        long deltaSize = 0;
+        for (int i = 0; i < count; i++) {
+            if (column[i].isNull()) {
+                return false;
+            }
+            long value = getLong(column[i]);
+            deltaSize += getCompactSize(value - last);
+            last = value;
+        }
+        return deltaSize < (long) plainSize * count;
+    }
+
+    private static long getLong(ValueOption<?> option) {
+        if (option instanceof IntOption) {
+            return ((IntOption) option).get();
+        } else {
+            return ((LongOption) option).get();
+        }
+    }
+
+    private static int getCompactSize(long value) {
+        if (ValueOptionSerDe.COMPACT_INT_HEAD_MIN <= value && value <= Byte.MAX_VALUE) {
+            return 1;
+        } else if (Byte.MIN_VALUE <= value && value <= Byte.MAX_VALUE) {
+            return 1 + Byte.BYTES;
+        } else if (Short.MIN_VALUE <= value && value <= Short.MAX_VALUE) {
+            return 1 + Short.BYTES;
+        } else if (Integer.MIN_VALUE <= value && value <= Integer.MAX_VALUE) {
+            return 1 + Integer.BYTES;
+        } else {
+            return 1 + Long.BYTES;
+        }
+    }
+
+    private static void writeDelta(ValueOption<?>[] column, int count, DataOutput output) throws IOException {
+        long last = 0;
+        for (int i = 0; i < count; i++) {
+            long value = getLong(column[i]);
+            ValueOptionSerDe.writeCompactLong(value - last, output);
+            last = value;
+        }
+    }
+
+    private static void readDelta(ValueOption<?>[] column, int count, DataInput input) throws IOException {
+        long last = 0;
+        for (int i = 0; i < count; i++) {
+            long value = last + ValueOptionSerDe.readCompactLong(input);
+            ValueOption<?> option = column[i];
+            if (option instanceof IntOption) {
+                ((IntOption) option).modify((int) value);
+            } else if (option instanceof LongOption) {
+                ((LongOption) option).modify(value);
+            } else {
+                throw new IOException(MessageFormat.format(
+                        "delta encoding is not supported: {0}",
+                        option.getClass().getName()));
+            }
+            last = value;
+        }
+    }
+}
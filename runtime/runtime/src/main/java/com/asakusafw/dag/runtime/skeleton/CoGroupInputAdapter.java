@@ -92,27 +92,55 @@ public class CoGroupInputAdapter implements InputAdapter<CoGroupOperation.Input>
         Arguments.requireNonNull(name);
         Arguments.requireNonNull(supplierClass);
         Arguments.requireNonNull(bufferType);
-        bind0(name, supplierClass, bufferType);
+        bind0(name, supplierClass, bufferType, null);
+        return this;
+    }
+
+    /**
+     * Bind the input.
+     * @param name the input name
+     * @param supplierClass the supplier class
+     * @param bufferType the buffer type
+     * @param heapBufferClass the on-heap {@link ListBuffer} class which is specialized for the input data type
+     * @return this
+     * @see DataModelListBuffer
+     * @since 0.2.0
+     */
+    public final CoGroupInputAdapter bind(
+            String name, Class<?> supplierClass, BufferType bufferType, Class<?> heapBufferClass) {
+        Arguments.requireNonNull(name);
+        Arguments.requireNonNull(supplierClass);
+        Arguments.requireNonNull(bufferType);
+        Arguments.requireNonNull(heapBufferClass);
+        bind0(name, supplierClass, bufferType, heapBufferClass);
         return this;
     }
 
     @SuppressWarnings("unchecked")
     private <T extends DataModel<T> & Writable> void bind0(
-            String name, Class<?> supplierClass, BufferType bufferType) {
+            String name, Class<?> supplierClass, BufferType bufferType, Class<?> heapBufferClass) {
+        if (bufferType == BufferType.STREAM) {
+            actions.add(b -> b.addStreamInput(name));
+            return;
+        }
         Supplier<? extends T> objects = Invariants.safe(() -> (Supplier<? extends T>) supplierClass.newInstance());
+        Supplier<? extends ListBuffer<T>> heap = heapBufferClass == null
+                ? ArrayListBuffer::new
+                : () -> Invariants.safe(() -> (ListBuffer<T>) heapBufferClass.newInstance());
         actions.add(b -> {
-            ListBuffer<T> buffer = newBuffer(bufferType);
+            ListBuffer<T> buffer = newBuffer(bufferType, heap);
             b.addInput(name, objects, buffer);
         });
     }
 
-    private <T extends Writable> ListBuffer<T> newBuffer(BufferType bufferType) {
+    private <T extends Writable> ListBuffer<T> newBuffer(
+            BufferType bufferType, Supplier<? extends ListBuffer<T>> heap) {
         switch (bufferType) {
         case HEAP:
-            return new ArrayListBuffer<>();
+            return heap.get();
         case FILE:
             if (fileWindowSize <= 0) {
-                return new ArrayListBuffer<>();
+                return heap.get();
             } else {
                 return new FileMapListBuffer<>();
             }
@@ -143,6 +171,13 @@ public class CoGroupInputAdapter implements InputAdapter<CoGroupOperation.Input>
          * Uses buffer with file backing store.
          */
         FILE,
+
+        /**
+         * Does not buffer the groups.
+         * Each group list can be iterated only once, and its elements may be changed while iterating.
+         * @since 0.2.0
+         */
+        STREAM,
         ;
 
         /**
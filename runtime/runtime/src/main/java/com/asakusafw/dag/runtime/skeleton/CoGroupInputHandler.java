@@ -17,10 +17,15 @@ package com.asakusafw.dag.runtime.skeleton;
 
 import java.io.IOException;
 import java.text.MessageFormat;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.function.Supplier;
 
 import com.asakusafw.dag.api.common.ObjectCursor;
@@ -32,6 +37,7 @@ import com.asakusafw.dag.runtime.adapter.CoGroupOperation.Cursor;
 import com.asakusafw.dag.runtime.adapter.InputHandler;
 import com.asakusafw.dag.utils.common.Arguments;
 import com.asakusafw.dag.utils.common.Invariants;
+import com.asakusafw.dag.utils.common.Lang;
 import com.asakusafw.runtime.flow.ListBuffer;
 import com.asakusafw.runtime.model.DataModel;
 
@@ -117,6 +123,23 @@ final class CoGroupInputHandler implements InputHandler<CoGroupOperation.Input,
             return this;
         }
 
+        /**
+         * Adds an input which is not buffered.
+         * The list of each group in this input can be iterated only once, and its elements are volatile.
+         * @param name the input name
+         * @return this
+         * @since 0.2.0
+         */
+        public Builder addStreamInput(String name) {
+            Arguments.requireNonNull(name);
+            Arguments.require(inputs.containsKey(name) == false, MessageFormat.format(
+                    "input \"{0}\" is already registered", //$NON-NLS-1$
+                    name));
+            Input<?> input = new Input<>(name, null, null);
+            inputs.put(name, input);
+            return this;
+        }
+
         /**
          * Builds a {@link CoGroupInputHandler} from added inputs.
          * @return the created driver
@@ -139,11 +162,14 @@ final class CoGroupInputHandler implements InputHandler<CoGroupOperation.Input,
 
         private final ListBuffer<T> buffer;
 
+        private final StreamList<T> stream;
+
         Input(String name, Supplier<? extends T> objects, ListBuffer<T> buffer) {
             this.name = name;
             this.objects = objects;
             this.wrapper = new Wrapper<>();
             this.buffer = buffer;
+            this.stream = buffer == null ? new StreamList<>() : null;
         }
 
         GroupReader build(EdgeIoProcessorContext context) throws IOException, InterruptedException {
@@ -155,8 +181,16 @@ final class CoGroupInputHandler implements InputHandler<CoGroupOperation.Input,
         }
 
         @SuppressWarnings("unchecked")
-        <S> ListBuffer<S> fill(ObjectCursor cursor) throws IOException, InterruptedException {
+        <S> List<S> fill(ObjectCursor cursor) throws IOException, InterruptedException {
             ListBuffer<T> buf = buffer;
+            if (buf == null) {
+                return (List<S>) stream.wrap(cursor);
+            }
+            if (buf instanceof DataModelListBuffer<?>) {
+                buf.shrink();
+                ((DataModelListBuffer<?>) buf).fill(cursor);
+                return (List<S>) buf;
+            }
             Supplier<? extends T> sup = objects;
             buf.shrink();
             buf.begin();
@@ -168,11 +202,13 @@ final class CoGroupInputHandler implements InputHandler<CoGroupOperation.Input,
                 buf.advance().copyFrom(object);
             }
             buf.end();
-            return (ListBuffer<S>) buf;
+            return (List<S>) buf;
         }
 
         void close() {
-            buffer.shrink();
+            if (buffer != null) {
+                buffer.shrink();
+            }
         }
     }
 
@@ -207,7 +243,7 @@ final class CoGroupInputHandler implements InputHandler<CoGroupOperation.Input,
         }
 
         @Override
-        public <T> ListBuffer<T> getList(int index) throws IOException, InterruptedException {
+        public <T> List<T> getList(int index) throws IOException, InterruptedException {
             return input.fill(reader);
         }
 
@@ -262,6 +298,92 @@ final class CoGroupInputHandler implements InputHandler<CoGroupOperation.Input,
         }
     }
 
+    /**
+     * A group list which is directly backed by the group cursor.
+     * This can be iterated only once, and its {@link #size()} and {@link #get(int)} are not supported.
+     * Its {@link #isEmpty()} is available until the iteration is started.
+     * @param <T> the element type
+     */
+    private static final class StreamList<T> extends AbstractList<T> {
+
+        private ObjectCursor cursor;
+
+        private boolean headPrepared;
+
+        private boolean headAvailable;
+
+        StreamList() {
+            return;
+        }
+
+        @SuppressWarnings("unchecked")
+        <S> StreamList<S> wrap(ObjectCursor newCursor) {
+            this.cursor = newCursor;
+            this.headPrepared = false;
+            return (StreamList<S>) this;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            ObjectCursor current = cursor;
+            Invariants.require(current != null, "the group list is already iterated");
+            if (headPrepared == false) {
+                headAvailable = Lang.safe(() -> current.nextObject());
+                headPrepared = true;
+            }
+            return headAvailable == false;
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            ObjectCursor current = cursor;
+            Invariants.require(current != null, "the group list can be iterated only once");
+            cursor = null;
+            boolean initialPrepared = headPrepared;
+            boolean initialAvailable = headAvailable;
+            return new Iterator<T>() {
+
+                private boolean prepared = initialPrepared;
+
+                private boolean available = initialAvailable;
+
+                @Override
+                public boolean hasNext() {
+                    if (prepared == false) {
+                        available = Lang.safe(() -> current.nextObject());
+                        prepared = true;
+                    }
+                    return available;
+                }
+
+                @SuppressWarnings("unchecked")
+                @Override
+                public T next() {
+                    if (hasNext() == false) {
+                        throw new NoSuchElementException();
+                    }
+                    prepared = false;
+                    return (T) Lang.safe(() -> current.getObject());
+                }
+            };
+        }
+
+        @Override
+        public Spliterator<T> spliterator() {
+            return Spliterators.spliteratorUnknownSize(iterator(), Spliterator.ORDERED);
+        }
+
+        @Override
+        public T get(int index) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int size() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
     private static final class Wrapper<T> implements CoGroupOperation.Cursor<T> {
 
         private ObjectCursor cursor;
@@ -67,10 +67,12 @@ public class CombineResult<T extends DataModel<T>> implements Result<CoGroupOper
             current = buffer;
             if (group.nextObject()) {
                 ObjectCombiner<T> f = combiner;
+                f.begin(current);
                 do {
                     T right = group.getObject();
-                    f.combine(current, right);
+                    f.accumulate(current, right);
                 } while (group.nextObject());
+                f.finish(current);
             }
         } catch (IOException | InterruptedException e) {
             throw new OutputException(e);
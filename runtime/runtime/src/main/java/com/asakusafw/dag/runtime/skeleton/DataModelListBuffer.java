@@ -0,0 +1,181 @@
+/**
+ * Copyright 2011-2016 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.runtime.skeleton;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+import com.asakusafw.dag.api.common.ObjectCursor;
+import com.asakusafw.runtime.flow.ListBuffer;
+
+/**
+ * An abstract implementation of on-heap {@link ListBuffer} which is specialized for each data model type.
+ * This keeps elements in a compact array of pre-allocated data model objects, and reuses them in later groups.
+ * Sub-classes should implement {@link #fill(ObjectCursor)} using {@link #next()} and the concrete type's
+ * {@code copyFrom()}, so that each buffer class has its own monomorphic copy loop.
+ * They can also {@link #sort(Comparator) sort} the filled elements, to order the elements in each group
+ * without relying on the shuffle.
+ * @param <T> the element type
+ * @since 0.2.0
+ */
+public abstract class DataModelListBuffer<T> extends AbstractList<T> implements ListBuffer<T>, RandomAccess {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private static final int SHRINK_THRESHOLD = 256;
+
+    private static final Object[] EMPTY = new Object[0];
+
+    private Object[] elements = EMPTY;
+
+    private int limit;
+
+    private int size;
+
+    /**
+     * Creates a new element object.
+     * @return the created element
+     */
+    protected abstract T newElement();
+
+    /**
+     * Fills this buffer with the objects in the given cursor.
+     * Each object will be copied into the buffer, and the cursor objects will not be retained.
+     * @param cursor the source cursor
+     * @throws IOException if I/O error was occurred while reading the objects
+     * @throws InterruptedException if interrupted while reading the objects
+     */
+    public abstract void fill(ObjectCursor cursor) throws IOException, InterruptedException;
+
+    /**
+     * Advances the buffer and returns the next element object, which may contain the previous contents.
+     * This allocates a new element object only if there are no more reusable ones.
+     * @return the next element object
+     */
+    protected final Object next() {
+        int index = size;
+        if (index == limit) {
+            expand(newElement());
+        }
+        size = index + 1;
+        return elements[index];
+    }
+
+    @Override
+    public final void begin() {
+        size = 0;
+    }
+
+    @Override
+    public final void end() {
+        return;
+    }
+
+    @Override
+    public final boolean isExpandRequired() {
+        return size == limit;
+    }
+
+    @Override
+    public final void expand(T value) {
+        Object[] buf = elements;
+        if (limit == buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(INITIAL_CAPACITY, buf.length * 2));
+            elements = buf;
+        }
+        buf[limit++] = value;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public final T advance() {
+        return (T) elements[size++];
+    }
+
+    @Override
+    public final void shrink() {
+        // keeps cached objects unless most of them were unused in the last group
+        if (limit > SHRINK_THRESHOLD && size < limit / 2) {
+            Arrays.fill(elements, size, limit, null);
+            limit = size;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public final T get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        }
+        return (T) elements[index];
+    }
+
+    @Override
+    public final int size() {
+        return size;
+    }
+
+    /**
+     * Sorts the current elements in this buffer.
+     * Note that, this does not change the cached element objects, but only their order.
+     * @param comparator the element comparator
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public final void sort(Comparator<? super T> comparator) {
+        Arrays.sort((T[]) elements, 0, size, comparator);
+    }
+
+    @Override
+    public final Iterator<T> iterator() {
+        return new Iter<>(elements, size);
+    }
+
+    private static final class Iter<T> implements Iterator<T> {
+
+        private final Object[] elements;
+
+        private final int size;
+
+        private int index;
+
+        Iter(Object[] elements, int size) {
+            this.elements = elements;
+            this.size = size;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return index < size;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public T next() {
+            int current = index;
+            if (current >= size) {
+                throw new NoSuchElementException();
+            }
+            index = current + 1;
+            return (T) elements[current];
+        }
+    }
+}
@@ -0,0 +1,199 @@
+/**
+ * Copyright 2011-2016 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.runtime.skeleton;
+
+import com.asakusafw.runtime.value.BooleanOption;
+import com.asakusafw.runtime.value.ByteOption;
+import com.asakusafw.runtime.value.DateOption;
+import com.asakusafw.runtime.value.DateTimeOption;
+import com.asakusafw.runtime.value.DecimalOption;
+import com.asakusafw.runtime.value.DoubleOption;
+import com.asakusafw.runtime.value.FloatOption;
+import com.asakusafw.runtime.value.IntOption;
+import com.asakusafw.runtime.value.LongOption;
+import com.asakusafw.runtime.value.ShortOption;
+import com.asakusafw.runtime.value.StringOption;
+import com.asakusafw.runtime.value.ValueOption;
+
+/**
+ * Compares on-heap {@code ValueOption} objects.
+ * Each method compares primitive values directly, and {@code null} is less than any other values.
+ * @since 0.2.0
+ */
+public final class ValueOptionComparators {
+
+    private ValueOptionComparators() {
+        return;
+    }
+
+    /**
+     * Compares the two values.
+     * @param a the first value
+     * @param b the second value
+     * @return the comparison result
+     */
+    public static int compare(BooleanOption a, BooleanOption b) {
+        int nulls = compareNull(a, b);
+        if (nulls != 0 || a.isNull()) {
+            return nulls;
+        }
+        return Boolean.compare(a.get(), b.get());
+    }
+
+    /**
+     * Compares the two values.
+     * @param a the first value
+     * @param b the second value
+     * @return the comparison result
+     */
+    public static int compare(ByteOption a, ByteOption b) {
+        int nulls = compareNull(a, b);
+        if (nulls != 0 || a.isNull()) {
+            return nulls;
+        }
+        return Byte.compare(a.get(), b.get());
+    }
+
+    /**
+     * Compares the two values.
+     * @param a the first value
+     * @param b the second value
+     * @return the comparison result
+     */
+    public static int compare(ShortOption a, ShortOption b) {
+        int nulls = compareNull(a, b);
+        if (nulls != 0 || a.isNull()) {
+            return nulls;
+        }
+        return Short.compare(a.get(), b.get());
+    }
+
+    /**
+     * Compares the two values.
+     * @param a the first value
+     * @param b the second value
+     * @return the comparison result
+     */
+    public static int compare(IntOption a, IntOption b) {
+        int nulls = compareNull(a, b);
+        if (nulls != 0 || a.isNull()) {
+            return nulls;
+        }
+        return Integer.compare(a.get(), b.get());
+    }
+
+    /**
+     * Compares the two values.
+     * @param a the first value
+     * @param b the second value
+     * @return the comparison result
+     */
+    public static int compare(LongOption a, LongOption b) {
+        int nulls = compareNull(a, b);
+        if (nulls != 0 || a.isNull()) {
+            return nulls;
+        }
+        return Long.compare(a.get(), b.get());
+    }
+
+    /**
+     * Compares the two values.
+     * @param a the first value
+     * @param b the second value
+     * @return the comparison result
+     */
+    public static int compare(FloatOption a, FloatOption b) {
+        int nulls = compareNull(a, b);
+        if (nulls != 0 || a.isNull()) {
+            return nulls;
+        }
+        return Float.compare(a.get(), b.get());
+    }
+
+    /**
+     * Compares the two values.
+     * @param a the first value
+     * @param b the second value
+     * @return the comparison result
+     */
+    public static int compare(DoubleOption a, DoubleOption b) {
+        int nulls = compareNull(a, b);
+        if (nulls != 0 || a.isNull()) {
+            return nulls;
+        }
+        return Double.compare(a.get(), b.get());
+    }
+
+    /**
+     * Compares the two values.
+     * @param a the first value
+     * @param b the second value
+     * @return the comparison result
+     */
+    public static int compare(DateOption a, DateOption b) {
+        int nulls = compareNull(a, b);
+        if (nulls != 0 || a.isNull()) {
+            return nulls;
+        }
+        return Integer.compare(a.get().getElapsedDays(), b.get().getElapsedDays());
+    }
+
+    /**
+     * Compares the two values.
+     * @param a the first value
+     * @param b the second value
+     * @return the comparison result
+     */
+    public static int compare(DateTimeOption a, DateTimeOption b) {
+        int nulls = compareNull(a, b);
+        if (nulls != 0 || a.isNull()) {
+            return nulls;
+        }
+        return Long.compare(a.get().getElapsedSeconds(), b.get().getElapsedSeconds());
+    }
+
+    /**
+     * Compares the two values.
+     * @param a the first value
+     * @param b the second value
+     * @return the comparison result
+     */
+    public static int compare(DecimalOption a, DecimalOption b) {
+        int nulls = compareNull(a, b);
+        if (nulls != 0 || a.isNull()) {
+            return nulls;
+        }
+        return a.get().compareTo(b.get());
+    }
+
+    /**
+     * Compares the two values.
+     * @param a the first value
+     * @param b the second value
+     * @return the comparison result
+     */
+    public static int compare(StringOption a, StringOption b) {
+        int nulls = compareNull(a, b);
+        if (nulls != 0 || a.isNull()) {
+            return nulls;
+        }
+        return a.compareTo(b);
+    }
+
+    private static int compareNull(ValueOption<?> a, ValueOption<?> b) {
+        return Boolean.compare(b.isNull(), a.isNull());
+    }
+}
@@ -15,6 +15,7 @@
  */
 package com.asakusafw.dag.runtime.table;
 
+import java.io.DataOutput;
 import java.io.IOException;
 import java.util.Arrays;
 
@@ -22,6 +23,8 @@ import org.apache.hadoop.io.Writable;
 
 import com.asakusafw.dag.runtime.adapter.KeyBuffer;
 import com.asakusafw.runtime.io.util.DataBuffer;
+import com.asakusafw.runtime.value.IntOption;
+import com.asakusafw.runtime.value.LongOption;
 
 /**
  * On-heap implementation of {@link com.asakusafw.dag.runtime.adapter.KeyBuffer KeyBuffer}.
@@ -46,6 +49,38 @@ public class HeapKeyBuffer implements KeyBuffer, KeyBuffer.View {
         return this;
     }
 
+    @Override
+    public KeyBuffer appendInt(IntOption value) {
+        DataOutput out = buffer;
+        try {
+            if (value.isNull()) {
+                out.writeBoolean(false);
+            } else {
+                out.writeBoolean(true);
+                out.writeInt(value.get());
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return this;
+    }
+
+    @Override
+    public KeyBuffer appendLong(LongOption value) {
+        DataOutput out = buffer;
+        try {
+            if (value.isNull()) {
+                out.writeBoolean(false);
+            } else {
+                out.writeBoolean(true);
+                out.writeLong(value.get());
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return this;
+    }
+
     @Override
     public KeyBuffer.View getView() {
         return this;
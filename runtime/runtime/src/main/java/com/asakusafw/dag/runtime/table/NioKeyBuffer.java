@@ -22,6 +22,8 @@ import org.apache.hadoop.io.Writable;
 
 import com.asakusafw.dag.runtime.adapter.KeyBuffer;
 import com.asakusafw.dag.utils.buffer.nio.ResizableNioDataBuffer;
+import com.asakusafw.runtime.value.IntOption;
+import com.asakusafw.runtime.value.LongOption;
 
 /**
  * An implementation of {@link com.asakusafw.dag.runtime.adapter.KeyBuffer KeyBuffer} using Java NIO.
@@ -64,6 +66,30 @@ public class NioKeyBuffer implements KeyBuffer {
         return this;
     }
 
+    @Override
+    public KeyBuffer appendInt(IntOption value) {
+        ResizableNioDataBuffer b = buffer;
+        if (value.isNull()) {
+            b.writeBoolean(false);
+        } else {
+            b.writeBoolean(true);
+            b.writeInt(value.get());
+        }
+        return this;
+    }
+
+    @Override
+    public KeyBuffer appendLong(LongOption value) {
+        ResizableNioDataBuffer b = buffer;
+        if (value.isNull()) {
+            b.writeBoolean(false);
+        } else {
+            b.writeBoolean(true);
+            b.writeLong(value.get());
+        }
+        return this;
+    }
+
     private abstract static class ViewBase implements View {
 
         ViewBase() {
@@ -0,0 +1,107 @@
+/**
+ * Copyright 2011-2016 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.runtime.io;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+import org.junit.Test;
+
+import com.asakusafw.dag.runtime.testing.MockDataModel;
+import com.asakusafw.runtime.io.util.DataBuffer;
+import com.asakusafw.runtime.value.ValueOption;
+
+/**
+ * Test for {@link ColumnarBlockSerDe}.
+ */
+public class ColumnarBlockSerDeTest {
+
+    /**
+     * simple case.
+     * @throws Exception if failed
+     */
+    @Test
+    public void simple() throws Exception {
+        Object[] objects = new Object[1000];
+        for (int i = 0; i < objects.length; i++) {
+            objects[i] = new MockDataModel(i, new BigDecimal(i % 10), i < 500 ? "a" : "b");
+        }
+        DataBuffer buffer = new DataBuffer();
+        new Mock().serialize(objects, objects.length, buffer);
+        buffer.reset(0, buffer.getWritePosition());
+
+        Object[] results = new Object[objects.length];
+        int count = new Mock().deserialize(results, buffer);
+        assertThat(count, is(objects.length));
+        assertThat(buffer.getReadRemaining(), is(0));
+        assertThat(results, is(objects));
+    }
+
+    /**
+     * reuse destination objects.
+     * @throws Exception if failed
+     */
+    @Test
+    public void reuse() throws Exception {
+        Mock serde = new Mock();
+        DataBuffer buffer = new DataBuffer();
+        serde.serialize(new Object[] { new MockDataModel(1, "Hello"), null }, 1, buffer);
+        buffer.reset(0, buffer.getWritePosition());
+
+        MockDataModel reuse = new MockDataModel();
+        Object[] results = new Object[] { reuse, null };
+        assertThat(serde.deserialize(results, buffer), is(1));
+        assertThat(results[0], is(sameInstance(reuse)));
+        assertThat(reuse, is(new MockDataModel(1, "Hello")));
+        assertThat(results[1], is(nullValue()));
+    }
+
+    /**
+     * block is too large.
+     * @throws Exception if failed
+     */
+    @Test(expected = IOException.class)
+    public void overflow() throws Exception {
+        Mock serde = new Mock();
+        DataBuffer buffer = new DataBuffer();
+        serde.serialize(new Object[] { new MockDataModel("a"), new MockDataModel("b") }, 2, buffer);
+        buffer.reset(0, buffer.getWritePosition());
+        serde.deserialize(new Object[1], buffer);
+    }
+
+    private static final class Mock extends ColumnarBlockSerDe {
+
+        Mock() {
+            super(3);
+        }
+
+        @Override
+        protected Object newObject() {
+            return new MockDataModel();
+        }
+
+        @Override
+        protected void collect(Object object, int row, ValueOption<?>[][] destination) {
+            MockDataModel model = (MockDataModel) object;
+            destination[0][row] = model.getKeyOption();
+            destination[1][row] = model.getSortOption();
+            destination[2][row] = model.getValueOption();
+        }
+    }
+}
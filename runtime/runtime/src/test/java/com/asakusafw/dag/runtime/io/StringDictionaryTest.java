@@ -0,0 +1,139 @@
+/**
+ * Copyright 2011-2016 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.runtime.io;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+import com.asakusafw.runtime.io.util.DataBuffer;
+import com.asakusafw.runtime.value.StringOption;
+
+/**
+ * Test for {@link StringDictionary}.
+ */
+public class StringDictionaryTest {
+
+    /**
+     * simple case.
+     * @throws Exception if failed
+     */
+    @Test
+    public void simple() throws Exception {
+        StringDictionary writer = new StringDictionary();
+        StringDictionary reader = new StringDictionary();
+        DataBuffer buffer = new DataBuffer();
+        StringOption[] values = {
+                new StringOption("A"),
+                new StringOption("Hello, world!"),
+                new StringOption(),
+                new StringOption("A"),
+                new StringOption("Hello, world!"),
+                new StringOption("B"),
+                new StringOption(),
+                new StringOption("A"),
+        };
+        for (StringOption value : values) {
+            writer.serialize(value, buffer);
+        }
+        StringOption restored = new StringOption();
+        for (StringOption value : values) {
+            reader.deserialize(restored, buffer);
+            assertThat(restored, is(value));
+        }
+        assertThat(buffer.getReadRemaining(), is(0));
+    }
+
+    /**
+     * dictionary references must be smaller than literals.
+     * @throws Exception if failed
+     */
+    @Test
+    public void compact() throws Exception {
+        StringDictionary writer = new StringDictionary();
+        DataBuffer buffer = new DataBuffer();
+        writer.serialize(new StringOption("Hello, world!"), buffer);
+        int literal = buffer.getReadRemaining();
+        writer.serialize(new StringOption("Hello, world!"), buffer);
+        assertThat(buffer.getReadRemaining() - literal, is(1));
+    }
+
+    /**
+     * exceeds capacity and entry length.
+     * @throws Exception if failed
+     */
+    @Test
+    public void limits() throws Exception {
+        StringDictionary writer = new StringDictionary(2, 3);
+        StringDictionary reader = new StringDictionary(2, 3);
+        DataBuffer buffer = new DataBuffer();
+        String[] values = { "A", "LONG", "B", "C", "A", "LONG", "B", "C", };
+        for (String value : values) {
+            writer.serialize(new StringOption(value), buffer);
+        }
+        StringOption restored = new StringOption();
+        for (String value : values) {
+            reader.deserialize(restored, buffer);
+            assertThat(restored, is(new StringOption(value)));
+        }
+        assertThat(buffer.getReadRemaining(), is(0));
+    }
+
+    /**
+     * reset dictionary.
+     * @throws Exception if failed
+     */
+    @Test
+    public void reset() throws Exception {
+        StringDictionary writer = new StringDictionary();
+        StringDictionary reader = new StringDictionary();
+        DataBuffer buffer = new DataBuffer();
+        writer.serialize(new StringOption("A"), buffer);
+        writer.reset();
+        writer.serialize(new StringOption("B"), buffer);
+        writer.serialize(new StringOption("B"), buffer);
+
+        StringOption restored = new StringOption();
+        reader.deserialize(restored, buffer);
+        assertThat(restored, is(new StringOption("A")));
+        reader.reset();
+        reader.deserialize(restored, buffer);
+        assertThat(restored, is(new StringOption("B")));
+        reader.deserialize(restored, buffer);
+        assertThat(restored, is(new StringOption("B")));
+    }
+
+    /**
+     * broken reference.
+     * @throws Exception if failed
+     */
+    @Test(expected = IOException.class)
+    public void broken() throws Exception {
+        StringDictionary writer = new StringDictionary();
+        DataBuffer buffer = new DataBuffer();
+        writer.serialize(new StringOption("A"), buffer);
+        writer.serialize(new StringOption("A"), buffer);
+
+        StringDictionary reader = new StringDictionary();
+        StringOption restored = new StringOption();
+        reader.deserialize(restored, buffer);
+        reader.reset();
+        reader.deserialize(restored, buffer);
+    }
+}
@@ -86,4 +86,28 @@ public class UnionRecordSerDeSupplierTest {
         assertThat(deser.deserialize(buffer), is(new UnionRecord(0, 201, new UnionRecord(1, 202))));
         assertThat(deser.deserialize(buffer), is(new UnionRecord(1, 302)));
     }
+
+    /**
+     * ser/de - shared payload.
+     * @throws Exception if failed
+     */
+    @Test
+    public void shared() throws Exception {
+        UnionRecordSerDeSupplier supplier = new UnionRecordSerDeSupplier()
+                .upstream(Arrays.asList("a"), IntSerDe.class)
+                .upstream(Arrays.asList("a", "b"), IntSerDe.class)
+                .upstream(Arrays.asList("a", "c"), IntSerDe.class)
+                .downstream(null);
+        DataBuffer buffer = new DataBuffer();
+        supplier.get("a").serialize(100, buffer);
+        assertThat("3 tags + 1 payload", buffer.getReadRemaining(), is(4 * 4));
+        supplier.get("b").serialize(200, buffer);
+        supplier.get("c").serialize(300, buffer);
+        ValueSerDe deser = supplier.get();
+        assertThat(deser.deserialize(buffer),
+                is(new UnionRecord(0, 100, new UnionRecord(1, 100, new UnionRecord(2, 100)))));
+        assertThat(deser.deserialize(buffer), is(new UnionRecord(1, 200)));
+        assertThat(deser.deserialize(buffer), is(new UnionRecord(2, 300)));
+        assertThat(buffer.getReadRemaining(), is(0));
+    }
 }
@@ -0,0 +1,143 @@
+/**
+ * Copyright 2011-2016 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.runtime.io;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.function.IntFunction;
+
+import org.junit.Test;
+
+import com.asakusafw.runtime.io.util.DataBuffer;
+import com.asakusafw.runtime.value.BooleanOption;
+import com.asakusafw.runtime.value.IntOption;
+import com.asakusafw.runtime.value.LongOption;
+import com.asakusafw.runtime.value.StringOption;
+import com.asakusafw.runtime.value.ValueOption;
+
+/**
+ * Test for {@link ValueOptionColumnSerDe}.
+ */
+public class ValueOptionColumnSerDeTest {
+
+    /**
+     * plain format.
+     */
+    @Test
+    public void plain() {
+        check(ValueOptionColumnSerDe.FORMAT_PLAIN, 100,
+                i -> i % 3 == 0 ? new StringOption() : new StringOption(String.valueOf(i)));
+    }
+
+    /**
+     * run-length encoding.
+     */
+    @Test
+    public void run_length() {
+        check(ValueOptionColumnSerDe.FORMAT_RUN_LENGTH, 100,
+                i -> i < 50 ? new StringOption("a") : new StringOption());
+    }
+
+    /**
+     * bit-packing.
+     */
+    @Test
+    public void bit_packed() {
+        check(ValueOptionColumnSerDe.FORMAT_BIT_PACKED, 99,
+                i -> i % 3 == 0 ? new BooleanOption() : new BooleanOption(i % 2 == 0));
+    }
+
+    /**
+     * delta encoding for int values.
+     */
+    @Test
+    public void delta_int() {
+        check(ValueOptionColumnSerDe.FORMAT_DELTA, 100,
+                i -> new IntOption(Integer.MAX_VALUE - i * 3));
+    }
+
+    /**
+     * delta encoding for long values.
+     */
+    @Test
+    public void delta_long() {
+        check(ValueOptionColumnSerDe.FORMAT_DELTA, 100,
+                i -> new LongOption(Long.MIN_VALUE + i * 100));
+    }
+
+    /**
+     * delta encoding is not available for {@code null} values.
+     */
+    @Test
+    public void delta_null() {
+        check(ValueOptionColumnSerDe.FORMAT_PLAIN, 100,
+                i -> i == 50 ? new IntOption() : new IntOption(i));
+    }
+
+    /**
+     * delta encoding is not profitable.
+     */
+    @Test
+    public void delta_wide() {
+        check(ValueOptionColumnSerDe.FORMAT_PLAIN, 100,
+                i -> new LongOption(i % 2 == 0 ? Long.MAX_VALUE : Long.MIN_VALUE));
+    }
+
+    /**
+     * empty column.
+     */
+    @Test
+    public void empty() throws IOException {
+        DataBuffer buffer = new DataBuffer();
+        ValueOptionColumnSerDe.serialize(new ValueOption<?>[0], 0, buffer);
+        assertThat(buffer.getWritePosition(), is(0));
+    }
+
+    /**
+     * broken format.
+     * @throws Exception if failed
+     */
+    @Test(expected = IOException.class)
+    public void broken() throws Exception {
+        DataBuffer buffer = new DataBuffer();
+        buffer.writeByte(-1);
+        buffer.reset(0, buffer.getWritePosition());
+        ValueOptionColumnSerDe.deserialize(new ValueOption<?>[] { new IntOption() }, 1, buffer);
+    }
+
+    private static void check(byte format, int count, IntFunction<ValueOption<?>> generator) {
+        try {
+            ValueOption<?>[] column = new ValueOption<?>[count];
+            ValueOption<?>[] copy = new ValueOption<?>[count];
+            for (int i = 0; i < count; i++) {
+                column[i] = generator.apply(i);
+                copy[i] = column[i].getClass().newInstance();
+            }
+            DataBuffer buffer = new DataBuffer();
+            ValueOptionColumnSerDe.serialize(column, count, buffer);
+            buffer.reset(0, buffer.getWritePosition());
+            assertThat(buffer.getData()[0], is(format));
+
+            ValueOptionColumnSerDe.deserialize(copy, count, buffer);
+            assertThat(buffer.getReadRemaining(), is(0));
+            assertThat(copy, is(column));
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -18,6 +18,7 @@ package com.asakusafw.dag.runtime.skeleton;
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.*;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedHashMap;
@@ -25,9 +26,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.function.BiConsumer;
 
 import org.junit.Test;
 
+import com.asakusafw.dag.api.common.ObjectCursor;
 import com.asakusafw.dag.api.processor.EdgeIoProcessorContext;
 import com.asakusafw.dag.api.processor.testing.CollectionGroupReader;
 import com.asakusafw.dag.api.processor.testing.MockTaskProcessorContext;
@@ -115,17 +118,121 @@ public class CoGroupInputAdapterTest {
                 ls(ls(), ls("C-1-1", "C-1-2")))));
     }
 
+    /**
+     * w/ specialized heap buffer.
+     */
+    @Test
+    public void specialized() {
+        Map<String, SortedMap<String, List<MockDataModel>>> in = new LinkedHashMap<>();
+        in.put("o0", Lang.let(new TreeMap<>(), m -> {
+            m.put("A", ls(new MockDataModel("A-0-0")));
+            m.put("B", ls(new MockDataModel("B-0-1"), new MockDataModel("B-0-2")));
+        }));
+        in.put("o1", Lang.let(new TreeMap<>(), m -> {
+            m.put("A", ls(new MockDataModel("A-1-0")));
+            m.put("C", ls(new MockDataModel("C-1-1"), new MockDataModel("C-1-2")));
+        }));
+
+        List<List<List<String>>> results = check(in, (a, s) -> a.bind(
+                s, MockDataModel.Supplier.class, CoGroupInputAdapter.BufferType.HEAP, MockListBuffer.class));
+        assertThat(results, is(ls(ls(ls("A-0-0"), ls("A-1-0")),
+                ls(ls("B-0-1", "B-0-2"), ls()),
+                ls(ls(), ls("C-1-1", "C-1-2")))));
+    }
+
+    /**
+     * w/ stream buffer.
+     */
+    @Test
+    public void stream() {
+        Map<String, SortedMap<String, List<MockDataModel>>> in = new LinkedHashMap<>();
+        in.put("o0", Lang.let(new TreeMap<>(), m -> {
+            m.put("A", ls(new MockDataModel("A-0-0")));
+            m.put("B", ls(new MockDataModel("B-0-1"), new MockDataModel("B-0-2")));
+        }));
+        in.put("o1", Lang.let(new TreeMap<>(), m -> {
+            m.put("A", ls(new MockDataModel("A-1-0")));
+            m.put("C", ls(new MockDataModel("C-1-1"), new MockDataModel("C-1-2")));
+        }));
+
+        List<List<List<String>>> results = check(in, (a, s) -> a.bind(
+                s, MockDataModel.Supplier.class, CoGroupInputAdapter.BufferType.STREAM));
+        assertThat(results, is(ls(ls(ls("A-0-0"), ls("A-1-0")),
+                ls(ls("B-0-1", "B-0-2"), ls()),
+                ls(ls(), ls("C-1-1", "C-1-2")))));
+    }
+
+    /**
+     * stream buffer can be tested whether it is empty or not before iteration.
+     * @throws Exception if failed
+     */
+    @Test
+    public void stream_is_empty() throws Exception {
+        SortedMap<String, List<MockDataModel>> g0 = new TreeMap<>();
+        g0.put("A", ls(new MockDataModel("A-0-0"), new MockDataModel("A-0-1")));
+        SortedMap<String, List<MockDataModel>> g1 = new TreeMap<>();
+        g1.put("B", ls(new MockDataModel("B-1-0")));
+        MockTaskProcessorContext tc = new MockTaskProcessorContext("t");
+        tc.withInput("o0", () -> new CollectionGroupReader(g0));
+        tc.withInput("o1", () -> new CollectionGroupReader(g1));
+        try (CoGroupInputAdapter adapter = new CoGroupInputAdapter(new MockVertexProcessorContext())) {
+            adapter.bind("o0", MockDataModel.Supplier.class, CoGroupInputAdapter.BufferType.STREAM);
+            adapter.bind("o1", MockDataModel.Supplier.class, CoGroupInputAdapter.BufferType.STREAM);
+            adapter.initialize();
+            InputHandler<CoGroupOperation.Input, ? super EdgeIoProcessorContext> handler = adapter.newHandler();
+            try (InputSession<CoGroupOperation.Input> session = handler.start(tc)) {
+                assertThat(session.next(), is(true));
+                List<MockDataModel> l0 = session.get().getList(0);
+                List<MockDataModel> l1 = session.get().getList(1);
+                assertThat(l0.isEmpty(), is(false));
+                assertThat(l0.isEmpty(), is(false));
+                assertThat(l1.isEmpty(), is(true));
+                assertThat(Lang.project(l0, m -> m.getValueOption().getAsString()), is(ls("A-0-0", "A-0-1")));
+                assertThat(Lang.project(l1, m -> m.getValueOption().getAsString()), is(ls()));
+            }
+        }
+    }
+
+    /**
+     * stream buffer can be iterated only once.
+     * @throws Exception if failed
+     */
+    @Test(expected = IllegalStateException.class)
+    public void stream_twice() throws Exception {
+        SortedMap<String, List<MockDataModel>> groups = new TreeMap<>();
+        groups.put("A", ls(new MockDataModel("A-0-0")));
+        MockTaskProcessorContext tc = new MockTaskProcessorContext("t");
+        tc.withInput("o0", () -> new CollectionGroupReader(groups));
+        try (CoGroupInputAdapter adapter = new CoGroupInputAdapter(new MockVertexProcessorContext())) {
+            adapter.bind("o0", MockDataModel.Supplier.class, CoGroupInputAdapter.BufferType.STREAM);
+            adapter.initialize();
+            InputHandler<CoGroupOperation.Input, ? super EdgeIoProcessorContext> handler = adapter.newHandler();
+            try (InputSession<CoGroupOperation.Input> session = handler.start(tc)) {
+                assertThat(session.next(), is(true));
+                List<MockDataModel> list = session.get().getList(0);
+                list.iterator();
+                list.iterator();
+            }
+        }
+    }
+
     @SafeVarargs
     private static <T> List<T> ls(T... values) {
         return Arrays.asList(values);
     }
 
     private List<List<List<String>>> check(Map<String, SortedMap<String, List<MockDataModel>>> map) {
+        return check(map, (a, s) -> a.bind(s, MockDataModel.Supplier.class));
+    }
+
+    private List<List<List<String>>> check(
+            Map<String, SortedMap<String, List<MockDataModel>>> map,
+            BiConsumer<CoGroupInputAdapter, String> binder) {
         MockTaskProcessorContext tc = new MockTaskProcessorContext("t");
         map.forEach((in, v) -> tc.withInput(in, () -> new CollectionGroupReader(v)));
         List<List<List<String>>> results = new ArrayList<>();
         try (CoGroupInputAdapter adapter = new CoGroupInputAdapter(new MockVertexProcessorContext())) {
-            map.keySet().forEach(s -> adapter.bind(s, MockDataModel.Supplier.class));
+            map.keySet().forEach(s -> binder.accept(adapter, s));
             adapter.initialize();
             InputHandler<CoGroupOperation.Input, ? super EdgeIoProcessorContext> handler = adapter.newHandler();
             try (InputSession<CoGroupOperation.Input> session = handler.start(tc)) {
@@ -145,4 +252,22 @@ public class CoGroupInputAdapterTest {
         }
         return results;
     }
+
+    @SuppressWarnings("javadoc")
+    public static class MockListBuffer extends DataModelListBuffer<MockDataModel> {
+
+        @Override
+        protected MockDataModel newElement() {
+            return new MockDataModel();
+        }
+
+        @Override
+        public void fill(ObjectCursor cursor) throws IOException, InterruptedException {
+            begin();
+            while (cursor.nextObject()) {
+                ((MockDataModel) next()).copyFrom((MockDataModel) cursor.getObject());
+            }
+            end();
+        }
+    }
 }
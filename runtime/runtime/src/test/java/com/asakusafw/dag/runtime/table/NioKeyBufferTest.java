@@ -22,6 +22,8 @@ import org.apache.hadoop.io.IntWritable;
 import org.junit.Test;
 
 import com.asakusafw.dag.runtime.adapter.KeyBuffer;
+import com.asakusafw.runtime.value.IntOption;
+import com.asakusafw.runtime.value.LongOption;
 
 /**
  * Test for {@link NioKeyBuffer}.
@@ -97,6 +99,31 @@ public class NioKeyBufferTest {
         assertThat(a123, is(b123));
     }
 
+    /**
+     * type-specific appends must be compatible with generic ones.
+     */
+    @Test
+    public void append_primitive() {
+        KeyBuffer a = newBuffer();
+        KeyBuffer b = newBuffer();
+
+        a.appendInt(new IntOption(1)).appendLong(new LongOption(2)).appendInt(new IntOption());
+        b.append(new IntOption(1)).append(new LongOption(2)).append(new IntOption());
+        assertThat(a.getView(), is(b.getView()));
+        assertThat(a.getFrozen(), is(b.getFrozen()));
+        assertThat(a.getView().hashCode(), is(b.getView().hashCode()));
+
+        a.appendLong(new LongOption());
+        assertThat(a.getView(), is(not(b.getView())));
+
+        b.append(new LongOption());
+        assertThat(a.getView(), is(b.getView()));
+
+        a.appendInt(new IntOption(3));
+        b.appendInt(new IntOption(4));
+        assertThat(a.getView(), is(not(b.getView())));
+    }
+
     private KeyBuffer newBuffer() {
         return new NioKeyBuffer();
     }
@@ -19,14 +19,22 @@ import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
 import java.io.UTFDataFormatException;
+import java.nio.charset.StandardCharsets;
 
 /**
  * Utilities for {@link DataInput} and {@link DataOutput}.
+ * @since 0.1.0
+ * @version 0.2.0
  */
 public final class DataIoUtils {
 
-    private static final ThreadLocal<StringBuilder> STRING_BUFFER_POOL = ThreadLocal
-            .withInitial(() -> new StringBuilder());
+    private static final int INITIAL_BUFFER_SIZE = 256;
+
+    private static final ThreadLocal<byte[]> BYTE_BUFFER_POOL = ThreadLocal
+            .withInitial(() -> new byte[INITIAL_BUFFER_SIZE]);
+
+    private static final ThreadLocal<char[]> CHAR_BUFFER_POOL = ThreadLocal
+            .withInitial(() -> new char[INITIAL_BUFFER_SIZE]);
 
     private static final int MASK_BYTE = ~(-1 << Byte.SIZE); // 1111_1111
 
@@ -65,45 +73,67 @@ public final class DataIoUtils {
         if (size == 0) {
             return ""; //$NON-NLS-1$
         }
-        StringBuilder buf = STRING_BUFFER_POOL.get();
-        buf.setLength(0);
-        while (size > 0) {
-            int b0 = read(input);
+        byte[] bytes = getByteBuffer(size);
+        input.readFully(bytes, 0, size);
+        return decodeUTF(bytes, 0, size);
+    }
+
+    /**
+     * Decodes the modified UTF-8 body (without the leading size field) in the given byte array.
+     * @param bytes the source byte array
+     * @param offset the offset in the byte array (in bytes)
+     * @param size the body size (in bytes)
+     * @return the decoded string
+     * @throws IOException if the body is not a valid modified UTF-8
+     * @since 0.2.0
+     */
+    public static String decodeUTF(byte[] bytes, int offset, int size) throws IOException {
+        int ascii = 0;
+        while (ascii < size && bytes[offset + ascii] >= 0) {
+            ascii++;
+        }
+        if (ascii == size) {
+            return new String(bytes, offset, size, StandardCharsets.ISO_8859_1);
+        }
+        char[] chars = getCharBuffer(size);
+        for (int i = 0; i < ascii; i++) {
+            chars[i] = (char) bytes[offset + i];
+        }
+        int length = ascii;
+        int index = offset + ascii;
+        int limit = offset + size;
+        while (index < limit) {
+            int b0 = bytes[index] & MASK_BYTE;
             if (b0 < MASK_HEAD1) {
                 // 1-byte (7-bits)
-                assert (b0 & MASK_HEAD1) == 0;
-                size -= 1;
-                buf.append((char) b0);
+                index += 1;
+                chars[length++] = (char) b0;
             } else if (b0 < MASK_HEAD3) {
                 // 2-bytes (11-bits)
-                assert (b0 & MASK_HEAD3) == MASK_HEAD2;
-                if (size < 2) {
+                checkHeader(b0, MASK_HEAD3, MASK_HEAD2);
+                if (limit - index < 2) {
                     throw new UTFDataFormatException();
                 }
-                size -= 2;
-                int b1 = read(input, MASK_HEAD2, MASK_HEAD1);
-                buf.append((char) ((b0 & MASK_BODY5) << 6 | (b1 & MASK_BODY6)));
+                int b1 = get(bytes, index + 1, MASK_HEAD2, MASK_HEAD1);
+                index += 2;
+                chars[length++] = (char) ((b0 & MASK_BODY5) << 6 | (b1 & MASK_BODY6));
             } else {
                 // 3-bytes (16-bits)
                 checkHeader(b0, MASK_HEAD4, MASK_HEAD3);
-                if (size < 3) {
+                if (limit - index < 3) {
                     throw new UTFDataFormatException();
                 }
-                size -= 3;
-                int b1 = read(input, MASK_HEAD2, MASK_HEAD1);
-                int b2 = read(input, MASK_HEAD2, MASK_HEAD1);
-                buf.append((char) ((b0 & MASK_BODY4) << 12 | (b1 & MASK_BODY6) << 6 | (b2 & MASK_BODY6)));
+                int b1 = get(bytes, index + 1, MASK_HEAD2, MASK_HEAD1);
+                int b2 = get(bytes, index + 2, MASK_HEAD2, MASK_HEAD1);
+                index += 3;
+                chars[length++] = (char) ((b0 & MASK_BODY4) << 12 | (b1 & MASK_BODY6) << 6 | (b2 & MASK_BODY6));
             }
         }
-        return buf.toString();
-    }
-
-    private static int read(DataInput input) throws IOException {
-        return input.readByte() & MASK_BYTE;
+        return new String(chars, 0, length);
     }
 
-    private static int read(DataInput input, int mask, int expected) throws IOException {
-        int b = read(input);
+    private static int get(byte[] bytes, int index, int mask, int expected) throws IOException {
+        int b = bytes[index] & MASK_BYTE;
         checkHeader(b, mask, expected);
         return b;
     }
@@ -121,38 +151,70 @@ public final class DataIoUtils {
      * @throws IOException if failed to write String into {@link DataOutput}
      */
     public static void writeUTF(DataOutput output, String value) throws IOException {
-        int size = computeUtfBodySize(value);
+        int length = value.length();
+        if (length >>> Short.SIZE != 0) {
+            throw new UTFDataFormatException("too long UTF string");
+        }
+        byte[] bytes = getByteBuffer(length * 3);
+        int size = encodeUTF(value, bytes, 0);
         if (size >>> Short.SIZE != 0) {
             throw new UTFDataFormatException("too long UTF string");
         }
         output.writeShort(size);
-        for (int i = 0, n = value.length(); i < n; i++) {
+        output.write(bytes, 0, size);
+    }
+
+    /**
+     * Encodes the given string into modified UTF-8 body (without the leading size field).
+     * The destination byte array must have at least {@code value.length() * 3} bytes from the offset.
+     * @param value the target value
+     * @param bytes the destination byte array
+     * @param offset the offset in the byte array (in bytes)
+     * @return the body size (in bytes)
+     * @since 0.2.0
+     */
+    public static int encodeUTF(String value, byte[] bytes, int offset) {
+        int length = value.length();
+        int index = offset;
+        int ascii = 0;
+        for (; ascii < length; ascii++) {
+            char c = value.charAt(ascii);
+            if (c == CHAR_ZERO || c > CHAR_MAX1) {
+                break;
+            }
+            bytes[index++] = (byte) c;
+        }
+        for (int i = ascii; i < length; i++) {
             char c = value.charAt(i);
             if (c != CHAR_ZERO && c <= CHAR_MAX1) {
-                output.write(c);
+                bytes[index++] = (byte) c;
             } else if (c <= CHAR_MAX2) {
-                output.write(MASK_HEAD2 | ((c >> 6) & MASK_BODY5));
-                output.write(MASK_HEAD1 | (c & MASK_BODY6));
+                bytes[index++] = (byte) (MASK_HEAD2 | ((c >> 6) & MASK_BODY5));
+                bytes[index++] = (byte) (MASK_HEAD1 | (c & MASK_BODY6));
             } else {
-                output.write(MASK_HEAD3 | ((c >> 12) & MASK_BODY4));
-                output.write(MASK_HEAD1 | ((c >>  6) & MASK_BODY6));
-                output.write(MASK_HEAD1 | (c & MASK_BODY6));
+                bytes[index++] = (byte) (MASK_HEAD3 | ((c >> 12) & MASK_BODY4));
+                bytes[index++] = (byte) (MASK_HEAD1 | ((c >>  6) & MASK_BODY6));
+                bytes[index++] = (byte) (MASK_HEAD1 | (c & MASK_BODY6));
             }
         }
+        return index - offset;
     }
 
-    private static int computeUtfBodySize(String value) {
-        int result = 0;
-        for (int i = 0, n = value.length(); i < n; i++) {
-            char c = value.charAt(i);
-            if (c != CHAR_ZERO && c <= CHAR_MAX1) {
-                result += 1;
-            } else if (c <= CHAR_MAX2) {
-                result += 2;
-            } else {
-                result += 3;
-            }
+    private static byte[] getByteBuffer(int size) {
+        byte[] buf = BYTE_BUFFER_POOL.get();
+        if (buf.length < size) {
+            buf = new byte[Math.max(size, buf.length * 2)];
+            BYTE_BUFFER_POOL.set(buf);
+        }
+        return buf;
+    }
+
+    private static char[] getCharBuffer(int size) {
+        char[] buf = CHAR_BUFFER_POOL.get();
+        if (buf.length < size) {
+            buf = new char[Math.max(size, buf.length * 2)];
+            CHAR_BUFFER_POOL.set(buf);
         }
-        return result;
+        return buf;
     }
 }
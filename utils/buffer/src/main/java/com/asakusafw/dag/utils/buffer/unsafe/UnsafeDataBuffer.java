@@ -16,6 +16,7 @@
 package com.asakusafw.dag.utils.buffer.unsafe;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 
 import com.asakusafw.dag.utils.buffer.DataBuffer;
 import com.asakusafw.dag.utils.buffer.DataIoUtils;
@@ -44,6 +45,10 @@ public class UnsafeDataBuffer implements DataBuffer {
      */
     protected static final int OFFSET_BYTE_ARRAY = sun.misc.Unsafe.ARRAY_BYTE_BASE_OFFSET;
 
+    private static final long MASK_NON_ASCII = 0x8080_8080_8080_8080L;
+
+    private static final ThreadLocal<byte[]> BYTE_BUFFER_POOL = ThreadLocal.withInitial(() -> new byte[256]);
+
     /**
      * The next contents address.
      */
@@ -142,13 +147,53 @@ public class UnsafeDataBuffer implements DataBuffer {
 
     @Override
     public final String readUTF() {
+        int size = readUnsignedShort();
+        if (size == 0) {
+            return ""; //$NON-NLS-1$
+        }
+        byte[] bytes = getLocalBuffer(size);
+        UNSAFE.copyMemory(
+                null, dataPtr,
+                bytes, OFFSET_BYTE_ARRAY,
+                size);
+        long ptr = dataPtr;
+        dataPtr += size;
+        if (isAscii(ptr, size)) {
+            return new String(bytes, 0, size, StandardCharsets.ISO_8859_1);
+        }
         try {
-            return DataIoUtils.readUTF(this);
+            return DataIoUtils.decodeUTF(bytes, 0, size);
         } catch (IOException e) {
             throw new AssertionError(e);
         }
     }
 
+    private static boolean isAscii(long address, int size) {
+        long ptr = address;
+        long limit = address + size;
+        // tests 8 bytes at once
+        for (long wordLimit = limit - Long.BYTES; ptr <= wordLimit; ptr += Long.BYTES) {
+            if ((UNSAFE.getLong(ptr) & MASK_NON_ASCII) != 0) {
+                return false;
+            }
+        }
+        for (; ptr < limit; ptr++) {
+            if (UNSAFE.getByte(ptr) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] getLocalBuffer(int size) {
+        byte[] buf = BYTE_BUFFER_POOL.get();
+        if (buf.length < size) {
+            buf = new byte[Math.max(size, buf.length * 2)];
+            BYTE_BUFFER_POOL.set(buf);
+        }
+        return buf;
+    }
+
     @Override
     public final void write(int b) {
         UNSAFE.putByte(dataPtr, (byte) b);
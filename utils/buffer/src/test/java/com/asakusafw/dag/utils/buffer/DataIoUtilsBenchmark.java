@@ -0,0 +1,147 @@
+/**
+ * Copyright 2011-2016 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.utils.buffer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import com.asakusafw.dag.utils.buffer.nio.NioDataBuffer;
+import com.asakusafw.dag.utils.buffer.unsafe.UnsafeDataBuffer;
+import com.asakusafw.dag.utils.buffer.unsafe.UnsafeUtil;
+import com.sun.jna.Memory;
+import com.sun.jna.Pointer;
+
+/**
+ * A micro benchmark of {@link DataIoUtils#readUTF(java.io.DataInput)} and
+ * {@link DataIoUtils#writeUTF(java.io.DataOutput, String)}.
+ * This is not a test case, please run {@link #main(String[])} manually.
+ */
+public final class DataIoUtilsBenchmark {
+
+    private static final int STRINGS = 10_000;
+
+    private static final int ROUNDS = 200;
+
+    private static final int MIN_LENGTH = 8;
+
+    private static final int MAX_LENGTH = 72;
+
+    private static final char[] ASCII = "abcdefghijklmnopqrstuvwxyz0123456789 ,.-".toCharArray();
+
+    private static final char[] JAPANESE = (""
+            + "\u3042\u3044\u3046\u3048\u304a\u304b\u304d\u304f\u3051\u3053"
+            + "\u30a2\u30a4\u30a6\u30a8\u30aa\u65e5\u672c\u8a9e\u6f22\u5b57").toCharArray();
+
+    private DataIoUtilsBenchmark() {
+        return;
+    }
+
+    /**
+     * Program entry.
+     * @param args ignored
+     * @throws IOException if failed
+     */
+    public static void main(String... args) throws IOException {
+        Random random = new Random(6502);
+        String[] ascii = generate(random, 0.99);
+        String[] japanese = generate(random, 0.0);
+        for (int i = 0; i < 3; i++) {
+            run("mostly-ASCII (nio)", ascii, false);
+            run("Japanese (nio)", japanese, false);
+            if (UnsafeUtil.isAvailable()) {
+                run("mostly-ASCII (unsafe)", ascii, true);
+                run("Japanese (unsafe)", japanese, true);
+            }
+        }
+    }
+
+    private static String[] generate(Random random, double asciiRatio) {
+        String[] results = new String[STRINGS];
+        for (int i = 0; i < results.length; i++) {
+            char[] buf = new char[MIN_LENGTH + random.nextInt(MAX_LENGTH - MIN_LENGTH)];
+            for (int j = 0; j < buf.length; j++) {
+                char[] source = random.nextDouble() < asciiRatio ? ASCII : JAPANESE;
+                buf[j] = source[random.nextInt(source.length)];
+            }
+            results[i] = String.valueOf(buf);
+        }
+        return results;
+    }
+
+    private static void run(String label, String[] values, boolean unsafe) throws IOException {
+        int capacity = values.length * (Short.BYTES + MAX_LENGTH * 3);
+        DataBuffer buffer = unsafe ? new Unsafe(capacity) : new Nio(capacity);
+        long write = 0;
+        long read = 0;
+        long hash = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            reset(buffer);
+            long t0 = System.nanoTime();
+            for (String value : values) {
+                buffer.writeUTF(value);
+            }
+            long t1 = System.nanoTime();
+            flip(buffer);
+            for (int i = 0; i < values.length; i++) {
+                hash += buffer.readUTF().length();
+            }
+            long t2 = System.nanoTime();
+            write += t1 - t0;
+            read += t2 - t1;
+        }
+        long ops = (long) ROUNDS * values.length;
+        System.out.printf("%-24s write: %6.1f ns/op, read: %6.1f ns/op (%d)%n", //$NON-NLS-1$
+                label, (double) write / ops, (double) read / ops, hash);
+    }
+
+    private static void reset(DataBuffer buffer) {
+        if (buffer instanceof Unsafe) {
+            ((Unsafe) buffer).rewind();
+        } else {
+            ((Nio) buffer).contents.clear();
+        }
+    }
+
+    private static void flip(DataBuffer buffer) {
+        if (buffer instanceof Unsafe) {
+            ((Unsafe) buffer).rewind();
+        } else {
+            ((Nio) buffer).contents.flip();
+        }
+    }
+
+    private static final class Nio extends NioDataBuffer {
+
+        Nio(int capacity) {
+            this.contents = ByteBuffer.allocateDirect(capacity);
+        }
+    }
+
+    private static final class Unsafe extends UnsafeDataBuffer {
+
+        private final Memory memory;
+
+        Unsafe(int capacity) {
+            this.memory = new Memory(capacity);
+            rewind();
+        }
+
+        void rewind() {
+            this.dataPtr = Pointer.nativeValue(memory);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/**
+ * Copyright 2011-2016 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.utils.buffer;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+
+import org.junit.Test;
+
+/**
+ * Test for {@link DataIoUtils}.
+ */
+public class DataIoUtilsTest {
+
+    /**
+     * ASCII strings.
+     * @throws Exception if failed
+     */
+    @Test
+    public void utf_ascii() throws Exception {
+        check("");
+        check("Hello, world!");
+        check(repeat("0123456789", 1000));
+    }
+
+    /**
+     * multi-byte strings.
+     * @throws Exception if failed
+     */
+    @Test
+    public void utf_multibyte() throws Exception {
+        check("\u00e9t\u00e9");
+        check("\u3053\u3093\u306b\u3061\u306f\u3001\u4e16\u754c");
+        check("Hello, \u4e16\u754c!");
+        check(repeat("\u65e5\u672c\u8a9e", 1000));
+    }
+
+    /**
+     * strings with NUL characters.
+     * @throws Exception if failed
+     */
+    @Test
+    public void utf_zero() throws Exception {
+        check("\u0000");
+        check("a\u0000b");
+    }
+
+    /**
+     * too long strings.
+     * @throws Exception if failed
+     */
+    @Test(expected = UTFDataFormatException.class)
+    public void utf_too_long() throws Exception {
+        DataIoUtils.writeUTF(new DataOutputStream(new ByteArrayOutputStream()), repeat("\u3042", 30000));
+    }
+
+    /**
+     * broken bytes.
+     * @throws Exception if failed
+     */
+    @Test(expected = IOException.class)
+    public void utf_broken() throws Exception {
+        DataIoUtils.decodeUTF(new byte[] { (byte) 0xe3, (byte) 0x41, (byte) 0x81 }, 0, 3);
+    }
+
+    /**
+     * truncated bytes.
+     * @throws Exception if failed
+     */
+    @Test(expected = IOException.class)
+    public void utf_truncated() throws Exception {
+        DataIoUtils.decodeUTF(new byte[] { (byte) 0x41, (byte) 0xe3, (byte) 0x81 }, 0, 3);
+    }
+
+    private static void check(String value) throws IOException {
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(expected)) {
+            output.writeUTF(value);
+        }
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(actual)) {
+            DataIoUtils.writeUTF(output, value);
+        }
+        assertThat(actual.toByteArray(), is(expected.toByteArray()));
+
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(expected.toByteArray()));
+        assertThat(DataIoUtils.readUTF(input), is(value));
+        assertThat(input.available(), is(0));
+    }
+
+    private static String repeat(String value, int count) {
+        char[] results = new char[value.length() * count];
+        for (int i = 0; i < count; i++) {
+            value.getChars(0, value.length(), results, i * value.length());
+        }
+        return String.valueOf(results);
+    }
+}
@@ -218,6 +218,25 @@ public class UnsafeDataBufferTest {
         assertThat(buf.offset(), is(offset));
     }
 
+    /**
+     * UTF w/ multi-byte characters.
+     */
+    @Test
+    public void io_utf_multibyte() {
+        Buf buf = new Buf(256);
+
+        buf.writeUTF("Hello, world!");
+        buf.writeUTF("\u3053\u3093\u306b\u3061\u306f\u3001\u4e16\u754c");
+        buf.writeUTF("0123456\u00e9");
+        int offset = buf.offset();
+        buf.rewind();
+
+        assertThat(buf.readUTF(), is("Hello, world!"));
+        assertThat(buf.readUTF(), is("\u3053\u3093\u306b\u3061\u306f\u3001\u4e16\u754c"));
+        assertThat(buf.readUTF(), is("0123456\u00e9"));
+        assertThat(buf.offset(), is(offset));
+    }
+
     /**
      * string as bytes.
      */
@@ -0,0 +1,191 @@
+/**
+ * Copyright 2011-2016 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.utils.common;
+
+import java.util.Arrays;
+
+/**
+ * A HyperLogLog sketch, which estimates the number of distinct values.
+ * This class is not thread-safe.
+ * @since 0.2.0
+ */
+public final class HyperLogLog {
+
+    /**
+     * The default precision.
+     */
+    public static final int DEFAULT_PRECISION = 12;
+
+    private static final int MIN_PRECISION = 4;
+
+    private static final int MAX_PRECISION = 16;
+
+    private final int precision;
+
+    private final byte[] registers;
+
+    /**
+     * Creates a new instance with {@link #DEFAULT_PRECISION the default precision}.
+     */
+    public HyperLogLog() {
+        this(DEFAULT_PRECISION);
+    }
+
+    /**
+     * Creates a new instance.
+     * @param precision the number of index bits, the sketch uses {@code 2^precision} bytes
+     */
+    public HyperLogLog(int precision) {
+        Arguments.require(precision >= MIN_PRECISION);
+        Arguments.require(precision <= MAX_PRECISION);
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    private HyperLogLog(byte[] registers) {
+        this.precision = Integer.numberOfTrailingZeros(registers.length);
+        this.registers = registers;
+    }
+
+    /**
+     * Restores a sketch from its {@link #toByteArray() serialized form}.
+     * @param bytes the serialized sketch
+     * @return the restored sketch
+     */
+    public static HyperLogLog of(byte[] bytes) {
+        Arguments.requireNonNull(bytes);
+        int p = Integer.numberOfTrailingZeros(bytes.length);
+        Arguments.require(bytes.length == 1 << p);
+        Arguments.require(p >= MIN_PRECISION);
+        Arguments.require(p <= MAX_PRECISION);
+        return new HyperLogLog(bytes.clone());
+    }
+
+    /**
+     * Returns the precision of this sketch.
+     * @return the precision
+     */
+    public int getPrecision() {
+        return precision;
+    }
+
+    /**
+     * Adds a value.
+     * @param hash the hash code of the value
+     */
+    public void add(long hash) {
+        long h = mix(hash);
+        int index = (int) (h >>> (Long.SIZE - precision));
+        int rank = Long.numberOfLeadingZeros((h << precision) | (1L << (precision - 1))) + 1;
+        if (rank > registers[index]) {
+            registers[index] = (byte) rank;
+        }
+    }
+
+    /**
+     * Merges the given sketch into this.
+     * @param other the other sketch, which must have the same precision
+     */
+    public void merge(HyperLogLog other) {
+        Arguments.requireNonNull(other);
+        Arguments.require(other.precision == precision);
+        byte[] rs = registers;
+        byte[] os = other.registers;
+        for (int i = 0; i < rs.length; i++) {
+            if (os[i] > rs[i]) {
+                rs[i] = os[i];
+            }
+        }
+    }
+
+    /**
+     * Returns the estimated number of distinct values.
+     * @return the estimated count
+     */
+    public double estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte r : registers) {
+            sum += 1.0 / (1L << r);
+            if (r == 0) {
+                zeros++;
+            }
+        }
+        double estimate = alpha(m) * m * m / sum;
+        if (estimate <= 2.5 * m && zeros > 0) {
+            // small range correction
+            return m * Math.log((double) m / zeros);
+        }
+        return estimate;
+    }
+
+    /**
+     * Returns the serialized form of this sketch.
+     * @return the serialized sketch
+     */
+    public byte[] toByteArray() {
+        return registers.clone();
+    }
+
+    private static double alpha(int m) {
+        switch (m) {
+        case 16:
+            return 0.673;
+        case 32:
+            return 0.697;
+        case 64:
+            return 0.709;
+        default:
+            return 0.7213 / (1 + 1.079 / m);
+        }
+    }
+
+    private static long mix(long value) {
+        // the finalizer of MurmurHash3
+        long h = value;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(registers);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null) {
+            return false;
+        }
+        if (getClass() != obj.getClass()) {
+            return false;
+        }
+        return Arrays.equals(registers, ((HyperLogLog) obj).registers);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("HyperLogLog(precision=%d, estimate=%.1f)", precision, estimate()); //$NON-NLS-1$
+    }
+}
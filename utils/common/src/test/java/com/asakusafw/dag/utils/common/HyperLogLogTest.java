@@ -0,0 +1,90 @@
+/**
+ * Copyright 2011-2016 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.utils.common;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Test for {@link HyperLogLog}.
+ */
+public class HyperLogLogTest {
+
+    /**
+     * simple case.
+     */
+    @Test
+    public void simple() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (int i = 0; i < 100_000; i++) {
+            sketch.add(i);
+        }
+        assertThat(sketch.estimate(), is(closeTo(100_000, 5_000)));
+    }
+
+    /**
+     * empty sketch.
+     */
+    @Test
+    public void empty() {
+        HyperLogLog sketch = new HyperLogLog();
+        assertThat(sketch.estimate(), is(0.0));
+    }
+
+    /**
+     * small cardinality.
+     */
+    @Test
+    public void small() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (int i = 0; i < 10_000; i++) {
+            sketch.add(i % 10);
+        }
+        assertThat(sketch.estimate(), is(closeTo(10, 1)));
+    }
+
+    /**
+     * merge sketches.
+     */
+    @Test
+    public void merge() {
+        HyperLogLog a = new HyperLogLog();
+        HyperLogLog b = new HyperLogLog();
+        for (int i = 0; i < 50_000; i++) {
+            a.add(i);
+            b.add(i + 25_000);
+        }
+        a.merge(b);
+        assertThat(a.estimate(), is(closeTo(75_000, 4_000)));
+    }
+
+    /**
+     * serialize and restore.
+     */
+    @Test
+    public void serialize() {
+        HyperLogLog sketch = new HyperLogLog(10);
+        for (int i = 0; i < 1_000; i++) {
+            sketch.add(i);
+        }
+        HyperLogLog restored = HyperLogLog.of(sketch.toByteArray());
+        assertThat(restored, is(sketch));
+        assertThat(restored.getPrecision(), is(10));
+        assertThat(restored.estimate(), is(sketch.estimate()));
+    }
+}